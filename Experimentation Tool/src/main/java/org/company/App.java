@@ -2,22 +2,35 @@ package org.company;
 
 import org.apache.commons.cli.*;
 import org.apache.commons.io.IOUtils;
-import org.company.asm.ASMMethod;
-import org.company.asm.areMethodsDefinedInThisClassASMAdapter;
 import org.company.debug.DebugUtil;
 import org.company.debug.DebuggingTask;
 import org.company.debug.DebuggingTaskUnit;
+import org.company.jacoco.CoverageMatrix;
 import org.company.jacoco.JaCoCoMethod;
 import org.company.jacoco.JaCoCoUtil;
+import org.company.jar.BytecodeDiffAnalyzer;
+import org.company.jar.JarIndex;
 import org.company.jar.JarUtil;
+import org.company.cache.ArtifactCache;
+import org.company.cache.PipelineCheckpoint;
+import org.company.junit.AdaptiveStoppingRule;
+import org.company.junit.ExecutionStatistics;
 import org.company.junit.JUnitClass;
 import org.company.junit.JUnitClassesAndTestsBundle;
 import org.company.junit.JUnitUtil;
 import org.company.junit.JUnitTest;
+import org.company.junit.RepetitionScheduler;
+import org.company.junit.TestFilter;
 import org.company.oblive.ObliveTransformator;
+import org.company.profiler.ProfilerUtil;
+import org.company.selection.CandidateMeasurement;
+import org.company.selection.CoverageSelectionStrategy;
+import org.company.selection.MethodProfile;
+import org.company.selection.MethodSelection;
+import org.company.selection.MethodSelectionStrategy;
+import org.company.selection.OverheadAwareSelectionStrategy;
 import org.json.JSONArray;
 import org.json.JSONObject;
-import org.objectweb.asm.ClassReader;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -26,11 +39,17 @@ import java.nio.charset.StandardCharsets;
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.BooleanSupplier;
 import java.util.stream.Collectors;
 
 import static java.lang.System.exit;
 import static org.company.Const.*;
 import static org.company.asm.Const.kAnnotatorDefaultPath;
+import static org.company.cache.Const.kArtifactCacheJarRewritingVersion;
 import static org.company.cmd.Const.*;
 import static org.company.cmd.cmdUtil.*;
 import static org.company.debug.Const.kTasks;
@@ -38,9 +57,12 @@ import static org.company.jar.JarUtil.*;
 import static org.company.junit.Const.*;
 import static org.company.jacoco.Const.*;
 import static org.company.junit.JUnitTest.FAILED;
+import static org.company.junit.JUnitTest.PASSED;
 import static org.company.junit.JUnitUtil.runJUnitTestsMultipleTimes;
 import static org.company.oblive.Const.kObliveDefaultPath;
-import static org.objectweb.asm.Opcodes.ASM8;
+import static org.company.profiler.Const.kCandidateMethodsDefaultName;
+import static org.company.profiler.Const.kMethodProfileDefaultName;
+import static org.company.selection.Const.*;
 
 /**
  * The class containing the program entry point
@@ -138,10 +160,6 @@ public class App {
         // the JaCoCo agent will be used to generate a report on methods coverage while executing tests
         final String jaCoCoAgentPath;
 
-        // the path in the file system pointing to the jar of the JaCoCo CLI
-        // the JaCoCo CLI will be used to convert the report produced by JaCoCo agent from .exec to .xml
-        final String jaCoCoCLIPath;
-
         // the path in the file system pointing to the jar of the annotator
         // the annotator will be used to annotate the method to be protected by Oblive
         final String annotatorPath;
@@ -154,6 +172,52 @@ public class App {
         // do not execute all debugging tasks on all tests...
         int numberOfTestsOnWhichToExecuteDebuggingTasks;
 
+        // how tests are executed (without coverage), either in a new JVM through the JUnit console
+        // for each execution or in this JVM through the JUnit platform launcher
+        final String testExecutionBackend;
+
+        // the number of test repetitions that are executed at the same time to collect execution metrics
+        final int testsConcurrencyLevel;
+
+        // whether each JVM that executes a test repetition is pinned to a (dedicated) CPU
+        final boolean pinTestsToCPUs;
+
+        // the target half-width of the confidence interval of the mean overhead (relative to the mean execution
+        // time) at which tests stop being repeated, null to always repeat tests testsRepetitionNumber times
+        final Double testsTargetCIWidth;
+
+        // the max time (in minutes) spent in repeating tests on each jar when repetitions are adaptive, 0 for no limit
+        final int testsTimeBudget;
+
+        // the order in which repetitions on the original and on the protected jar are interleaved, null to
+        // run all repetitions on the original jar and then all repetitions on the protected jar
+        final String testsInterleavingOrder;
+
+        // whether the output of the stages of the pipeline is never restored from (nor stored in) the artifact cache
+        final boolean disableArtifactCache;
+
+        // whether to resume the analysis of a previous run that did not complete, instead of starting from scratch
+        final boolean resume;
+
+        // whether the tests that execute on the method to protect are found through the coverage of each test,
+        // collected while collecting coverage metrics, instead of running the tests again on an instrumented jar
+        final boolean perTestCoverage;
+
+        // how the method to protect is selected, either by coverage only or by coverage under a max predicted overhead
+        final String methodSelectionStrategyName;
+
+        // the max predicted overhead (relative to the execution time of the tests) of the protection of the
+        // method to protect, when the method is selected under a max predicted overhead
+        final double maximumOverhead;
+
+        // the packages (with their subpackages) of the methods among which the method to protect is selected, so
+        // that the classes of the other packages (e.g., of the dependencies in the jar) are not analyzed (null if all)
+        final List<String> packagesToAnalyze;
+
+        // how many of the top candidate methods ranked by the selection strategy are each protected in a jar of their
+        // own and measured, to compare the overhead of their protection (0 if candidates are not measured)
+        final int numberOfCandidateMethodsToMeasure;
+
 
         // ===== ===== ===== ===== PARAMETERS ACQUISITION ===== ===== ===== =====
 
@@ -189,8 +253,8 @@ public class App {
         options.addOption(pathOfJaCoCoAgentOption);
 
         Option pathOfJaCoCoCLIOption = new Option("c", kJaCoCoCLIOptionKey, true,
-                "Path in the file system pointing to the jar of the JaCoCo CLI\n" +
-                        "If not given, the internal .jar, inside the lib folder, will be used");
+                "Deprecated and ignored, JaCoCo reports are now analyzed without the JaCoCo CLI\n" +
+                        "Still accepted to not break existing scripts");
         pathOfJaCoCoCLIOption.setRequired(false);
         options.addOption(pathOfJaCoCoCLIOption);
 
@@ -233,6 +297,114 @@ public class App {
         numberOfTestsOnWhichToExecuteDebuggingTasksOption.setRequired(false);
         options.addOption(numberOfTestsOnWhichToExecuteDebuggingTasksOption);
 
+        Option testExecutionBackendOption = new Option("e", kTestExecutionBackendOptionKey, true,
+                "How tests are executed, either '" + kTestExecutionBackendFork + "' (a new JVM with the JUnit " +
+                        "console for each execution), '" + kTestExecutionBackendInProcess + "' (the JUnit platform " +
+                        "launcher inside this JVM) or '" + kTestExecutionBackendWarm + "' (repetitions run in " +
+                        "long-lived JVMs after a cold warm-up execution). Tests with coverage always run in a new JVM\n" +
+                        "If not given, the default value (" + kTestExecutionBackendFork + ") will be used\n");
+        testExecutionBackendOption.setRequired(false);
+        options.addOption(testExecutionBackendOption);
+
+        Option testsConcurrencyLevelOption = new Option("w", kTestsConcurrencyLevelOptionKey, true,
+                "How many test repetitions are executed at the same time to collect execution metrics\n" +
+                        "The number must be in the interval " + kTestsConcurrencyLevelMinValue + "-" +
+                        kTestsConcurrencyLevelMaxValue + " (the number of available CPUs)\n" +
+                        "If not given, the default value (" + kTestsConcurrencyLevelDefaultValue + ") will be used\n");
+        testsConcurrencyLevelOption.setRequired(false);
+        options.addOption(testsConcurrencyLevelOption);
+
+        Option pinTestsToCPUsOption = new Option("k", kPinTestsToCPUsOptionKey, false,
+                "If given, each JVM that executes a test repetition is pinned (through taskset) to a CPU that " +
+                        "no other concurrent repetition uses");
+        pinTestsToCPUsOption.setRequired(false);
+        options.addOption(pinTestsToCPUsOption);
+
+        Option testsTargetCIWidthOption = new Option("d", kTestsTargetCIWidthOptionKey, true,
+                "If given, tests are repeated until the 95% confidence interval of the mean overhead of each test " +
+                        "is within the given fraction of its mean execution time (e.g., 0.05 for ±5%), or until " +
+                        "the number of repetitions (option " + kTestsRepetitionNumberOptionKey + ") or the time " +
+                        "budget (option " + kTestsTimeBudgetOptionKey + ") is reached\n" +
+                        "The number must be in the interval (0-1]\n");
+        testsTargetCIWidthOption.setRequired(false);
+        options.addOption(testsTargetCIWidthOption);
+
+        Option testsTimeBudgetOption = new Option("m", kTestsTimeBudgetOptionKey, true,
+                "The max time (in minutes) spent in repeating tests on each jar when the number of repetitions " +
+                        "is adaptive (option " + kTestsTargetCIWidthOptionKey + ")\n" +
+                        "If not given, there is no limit\n");
+        testsTimeBudgetOption.setRequired(false);
+        options.addOption(testsTimeBudgetOption);
+
+        Option testsInterleavingOrderOption = new Option("i", kTestsInterleavingOrderOptionKey, true,
+                "If given, repetitions of the tests on the original and on the protected jar are interleaved, " +
+                        "either '" + kTestsInterleavingOrderAlternate + "' (the two jars alternate) or '" +
+                        kTestsInterleavingOrderRandom + "' (randomized blocks, i.e., the order of the two jars is " +
+                        "random in each pair of repetitions). With adaptive repetitions (option " +
+                        kTestsTargetCIWidthOptionKey + "), the time budget applies to both jars together\n" +
+                        "If not given, all repetitions on the original jar run before those on the protected jar\n");
+        testsInterleavingOrderOption.setRequired(false);
+        options.addOption(testsInterleavingOrderOption);
+
+        Option disableArtifactCacheOption = new Option("x", kDisableArtifactCacheOptionKey, false,
+                "If given, all stages of the pipeline are executed, even if their output (e.g., the coverage " +
+                        "reports or the jar protected by Oblive) was already produced with the same inputs by a " +
+                        "previous run and saved in the '" + kArtifactCacheFolderName + "' folder of the output folder");
+        disableArtifactCacheOption.setRequired(false);
+        options.addOption(disableArtifactCacheOption);
+
+        Option resumeOption = new Option("s", kResumeOptionKey, false,
+                "If given and the output folder contains the analysis of a previous run (e.g., interrupted by a " +
+                        "crash), the analysis is resumed from the first stage that did not complete (and, for the " +
+                        "debugging tasks, from the first task that did not complete) instead of starting from scratch");
+        resumeOption.setRequired(false);
+        options.addOption(resumeOption);
+
+        Option perTestCoverageOption = new Option("g", kPerTestCoverageOptionKey, false,
+                "If given, the coverage of each test is collected while collecting coverage metrics, and the tests " +
+                        "that do not execute the method to protect are found from there, instead of running all tests " +
+                        "again on a jar in which the method to protect is instrumented with 'assert false'");
+        perTestCoverageOption.setRequired(false);
+        options.addOption(perTestCoverageOption);
+
+        Option methodSelectionStrategyOption = new Option("l", kMethodSelectionStrategyOptionKey, true,
+                "How the method to protect is selected, either '" + kMethodSelectionStrategyCoverage + "' (the " +
+                        "method with the most instructions covered by tests, with at least 70% of branches covered) " +
+                        "or '" + kMethodSelectionStrategyOverhead + "' (as '" + kMethodSelectionStrategyCoverage +
+                        "', but excluding the methods whose protection is predicted to add more than the max " +
+                        "overhead, option " + kMaximumOverheadOptionKey + ", to the execution time of the tests. " +
+                        "The candidate methods are profiled while collecting coverage metrics to predict the overhead, " +
+                        "which is a coarse estimate)\n" +
+                        "If not given, the default value (" + kMethodSelectionStrategyCoverage + ") will be used\n");
+        methodSelectionStrategyOption.setRequired(false);
+        options.addOption(methodSelectionStrategyOption);
+
+        Option maximumOverheadOption = new Option("v", kMaximumOverheadOptionKey, true,
+                "The max overhead that the protection of the method to protect is predicted to add to the " +
+                        "execution time of the tests (e.g., 0.5 for +50%), when the method is selected with the '" +
+                        kMethodSelectionStrategyOverhead + "' strategy (option " + kMethodSelectionStrategyOptionKey +
+                        ")\nIf not given, the default value (" + kMaximumOverheadDefaultValue + ") will be used\n");
+        maximumOverheadOption.setRequired(false);
+        options.addOption(maximumOverheadOption);
+
+        Option packagesToAnalyzeOption = new Option("f", kPackagesToAnalyzeOptionKey, true,
+                "The comma-separated FQNs of the packages (with their subpackages) among whose methods the method " +
+                        "to protect is selected (e.g., 'org.company,com.example.util'). The classes of the other " +
+                        "packages (e.g., of the dependencies in the jar to protect) are not analyzed\n" +
+                        "If not given, the methods of all packages will be considered\n");
+        packagesToAnalyzeOption.setRequired(false);
+        options.addOption(packagesToAnalyzeOption);
+
+        Option candidateMethodsToMeasureOption = new Option("y", kCandidateMethodsToMeasureOptionKey, true,
+                "How many of the top candidate methods ranked by the selection strategy (option " +
+                        kMethodSelectionStrategyOptionKey + ") are each annotated, protected and measured in a jar " +
+                        "of their own, concurrently, to compare the overhead of their protection (see " +
+                        kCandidateMethodsReportFileName + " in the final reports). The tests are repeated on the " +
+                        "original jar and on all protected jars interleaved, with the same options of the execution " +
+                        "metrics\nIf not given, candidate methods are not measured\n");
+        candidateMethodsToMeasureOption.setRequired(false);
+        options.addOption(candidateMethodsToMeasureOption);
+
 
         // check that the arguments are actually valid, i.e., the paths lead to .jar files
         try {
@@ -245,7 +417,6 @@ public class App {
             tempJarWithTestsPath = acquireJarPathOption (cmd, kJarTestCasesOptionKey,   tempJarToProtectPath);
             jUnitConsolePath     = acquireJarPathOption (cmd, kJUnitConsoleOptionKey, kJUnitConsoleDefaultPath);
             jaCoCoAgentPath      = acquireJarPathOption (cmd, kJaCoCoAgentOptionKey, kJacocoAgentDefaultPath);
-            jaCoCoCLIPath        = acquireJarPathOption (cmd, kJaCoCoCLIOptionKey, kJacocoCliDefaultPath);
             annotatorPath        = acquireJarPathOption (cmd, kAnnotatorPathOptionKey, kAnnotatorDefaultPath);
             oblivePath           = acquireJarPathOption (cmd, kOblivePathOptionKey, kObliveDefaultPath);
 
@@ -267,6 +438,63 @@ public class App {
                     KNumberOfTestsOnWhichToExecuteDebuggingTasksKey,
                     kDefaultNumberOfTestsOnWhichToExecuteDebuggingTasks, 1, Integer.MAX_VALUE);
 
+            // acquire the test execution backend. If not given, use the default value
+            testExecutionBackend = acquireStringOption(cmd, kTestExecutionBackendOptionKey, kTestExecutionBackendFork);
+            if (!testExecutionBackend.equals(kTestExecutionBackendFork) &&
+                    !testExecutionBackend.equals(kTestExecutionBackendInProcess) &&
+                    !testExecutionBackend.equals(kTestExecutionBackendWarm))
+                throw new IllegalArgumentException("given test execution backend " + testExecutionBackend +
+                        " is not one between " + kTestExecutionBackendFork + ", " + kTestExecutionBackendInProcess +
+                        ", " + kTestExecutionBackendWarm);
+
+            // acquire the number of concurrent test repetitions. If not given, use the default value
+            testsConcurrencyLevel = acquireIntegerOption(cmd, kTestsConcurrencyLevelOptionKey,
+                    kTestsConcurrencyLevelDefaultValue, kTestsConcurrencyLevelMinValue, kTestsConcurrencyLevelMaxValue);
+
+            pinTestsToCPUs = cmd.hasOption(kPinTestsToCPUsOptionKey);
+
+            // acquire the target width of the confidence intervals and the time budget for adaptive repetitions
+            testsTargetCIWidth = acquireDoubleOption(cmd, kTestsTargetCIWidthOptionKey, 0, 1);
+            testsTimeBudget = acquireIntegerOption(cmd, kTestsTimeBudgetOptionKey, 0, 0, Integer.MAX_VALUE);
+
+            // acquire the order in which repetitions on the two jars are interleaved (if any)
+            testsInterleavingOrder = cmd.getOptionValue(kTestsInterleavingOrderOptionKey);
+            if (testsInterleavingOrder != null &&
+                    !testsInterleavingOrder.equals(kTestsInterleavingOrderAlternate) &&
+                    !testsInterleavingOrder.equals(kTestsInterleavingOrderRandom))
+                throw new IllegalArgumentException("given interleaving order " + testsInterleavingOrder +
+                        " is not one between " + kTestsInterleavingOrderAlternate + ", " + kTestsInterleavingOrderRandom);
+
+            disableArtifactCache = cmd.hasOption(kDisableArtifactCacheOptionKey);
+
+            resume = cmd.hasOption(kResumeOptionKey);
+
+            perTestCoverage = cmd.hasOption(kPerTestCoverageOptionKey);
+
+            // acquire the strategy to select the method to protect and the max overhead of its protection
+            methodSelectionStrategyName = acquireStringOption(cmd, kMethodSelectionStrategyOptionKey,
+                    kMethodSelectionStrategyCoverage);
+            if (!methodSelectionStrategyName.equals(kMethodSelectionStrategyCoverage) &&
+                    !methodSelectionStrategyName.equals(kMethodSelectionStrategyOverhead))
+                throw new IllegalArgumentException("given method selection strategy " + methodSelectionStrategyName +
+                        " is not one between " + kMethodSelectionStrategyCoverage + ", " + kMethodSelectionStrategyOverhead);
+
+            Double givenMaximumOverhead = acquireDoubleOption(cmd, kMaximumOverheadOptionKey, 0, Double.MAX_VALUE);
+            maximumOverhead = givenMaximumOverhead == null ? kMaximumOverheadDefaultValue : givenMaximumOverhead;
+
+            // acquire the packages of the methods to analyze (if any), e.g., "org.company,com.example.util"
+            String givenPackagesToAnalyze = acquireStringOption(cmd, kPackagesToAnalyzeOptionKey, null);
+            packagesToAnalyze = givenPackagesToAnalyze == null ? null : Arrays.stream(givenPackagesToAnalyze.split(","))
+                    .map(String::trim)
+                    .filter(packageToAnalyze -> !packageToAnalyze.isEmpty())
+                    .collect(Collectors.toList());
+            if (packagesToAnalyze != null && packagesToAnalyze.isEmpty())
+                throw new IllegalArgumentException("given packages to analyze " + givenPackagesToAnalyze +
+                        " do not contain any package");
+
+            numberOfCandidateMethodsToMeasure = acquireIntegerOption(cmd, kCandidateMethodsToMeasureOptionKey,
+                    0, 0, Integer.MAX_VALUE);
+
 
             LocalDateTime timeAcquisitionParameters = LocalDateTime.now();
             logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "parameters acquisition completed in ",
@@ -285,25 +513,39 @@ public class App {
             // ├── <name of the jar>/
             // │   ├── 1_1_tests_correctness/                           | contains JUnit reports for checking functional correctness of tests over original jar
             // │       ├── original_jar_stripped_of_tests/              | contains the .jar of the code to protect stripped of eventual tests
-            // │       ├── failed_tests_filtered_out/                   | contains .jar file containing only tests that succeed (so ignoring failed tests)
+            // │       ├── test_filter.txt                              | the filter excluding failed tests (if any) from the next executions
             // │   ├── 1_2_coverage/                                    | contains JaCoCo reports for coverage over original jar
+            // │       ├── TEST-coverage.bin                            | (per-test coverage only) contains the JaCoCo execution data of each test
+            // │       ├── candidate_methods.txt                        | (overhead strategy only) the candidate methods to protect, profiled while collecting coverage metrics
+            // │       ├── TEST-profile.bin                             | (overhead strategy only) contains the invocations and the time of each candidate method
+            // │       ├── coverage_matrix.bin                          | (per-test coverage only) contains which methods each test executes (see CoverageMatrix)
             // │       ├── methods_instrumented/                        | contains .jar file containing original jar to protect with methods instrumented with 'assert false'
-            // │       ├── irrelevant_tests_filtered_out/               | contains the elaboration of the tests .jar file so to ignore tests that do not execute on the method to protect
+            // │       ├── irrelevant_tests_filtered_out/               | contains JUnit reports over the instrumented jar and (if needed) the test_filter.txt file excluding tests that do not execute on the method to protect
             // │   ├── 2_1_annotator/                                   | contains the jar to protect with the method annotated
-            // │       ├── method_to_protect.txt                        | the method to protect (signature in ASM style)
+            // │       ├── method_to_protect.txt                        | the method to protect (signature in ASM style) and the details of its selection (e.g., the predicted overhead)
+            // │       ├── annotator_input.txt                          | the signature of the method to protect, fed to the annotator
             // |       ├── annotator_output.txt                         | the output of the annotator
             // │   ├── 2_2_oblive_protected_jar/                        | contains the jar protected by Oblive
             // │   ├── 3_1_executionMetrics_original_jar/               | contains JUnit reports for execution metrics of (filtered) tests (i.e., time) over original jar
+            // │       ├── <n>/                                         | contains JUnit reports of the n-th repetition of the tests
+            // │       ├── cold_<n>/                                    | (warm backend only) contains JUnit reports of the warm-up execution of the n-th long-lived JVM
             // │   ├── 3_2_executionMetrics_protected_jar/              | contains JUnit reports for execution metrics of (filtered) tests (i.e., time) over protected jar
+            // │   ├── 3_3_executionMetrics_candidate_methods/          | (candidate methods to measure only) contains, for each top candidate method, the jar protecting it and its execution metrics
+            // │       ├── 3_1_executionMetrics_original_jar/           | contains JUnit reports for execution metrics of (not failed) tests over original jar
+            // │       ├── <rank>/                                      | contains the annotator, Oblive and execution metrics folders of the candidate method of the given rank
             // │   ├── 4_1_debuggingTasks_original_jar/                 | contains the debugger outputs when JDB and GDB tasks are executed against the original jar
             // │   ├── 4_2_debuggingTasks_protected_jar/                | contains the debugger outputs when JDB and GDB tasks are executed against the protected jar
+            // │   ├── manifests/                                       | contains the completion manifest of each stage and the progress of the debugging tasks (to resume the analysis)
             // │   ├── final_reports/                                   | contains final reports summarizing the experimentation
             // │       ├── execution_metrics_report.csv                 | CSV file summarizing execution metrics of (filtered) tests (i.e., time) over original and protected jar
+            // │       ├── candidate_methods_overhead_report.csv        | (candidate methods to measure only) CSV file summarizing, for each top candidate method, the overhead measured when protecting it alone
+            // │       ├── bytecode_diff_report.csv                     | CSV file summarizing the differences in bytecode (e.g., instructions, constant pool) between original and protected jar
             // │       ├── debugging_tasks_JDB_original_report.csv      | CSV file summarizing the outcome of the JDB debugging tasks (i.e., true/false) over original jar
             // │       ├── debugging_tasks_JDB_protected_report.csv     | CSV file summarizing the outcome of the JDB debugging tasks (i.e., true/false) over protected jar
             // │       ├── debugging_tasks_GDB_original_report.csv      | CSV file summarizing the outcome of the GDB debugging tasks (i.e., true/false) over original jar
             // │       ├── debugging_tasks_GDB_protected_report.csv     | CSV file summarizing the outcome of the GDB debugging tasks (i.e., true/false) over protected jar
             // ├── <other use cases>
+            // ├── artifact_cache/                                      | contains the output of the stages of the pipeline of all use cases, by SHA-256 of their inputs
             // ...
 
             // create now the necessary folders and files to store the output of the analysis
@@ -322,9 +564,6 @@ public class App {
             String relevantTestsJarFolderPath   = coverageFolderPath + kIrrelevantTestsFilteredFolderName;
             File relevantTestsJarFolder         = new File(relevantTestsJarFolderPath);
 
-            String ultimateTestsJarFolderPath   = coverageFolderPath + kUltimateTestsFolderName;
-            File ultimateTestsJarFolder         = new File(ultimateTestsJarFolderPath);
-
             String annotatorFolderPath          = analysisFolderPath + kAnnotatorFolderName + "/";
             File annotatorFolder                = new File(annotatorFolderPath);
 
@@ -337,6 +576,9 @@ public class App {
             String protectedMetricsFolderPath   = analysisFolderPath + kExecutionMetricsProtectedFolderName + "/";
             File protectedMetricsFolder         = new File(protectedMetricsFolderPath);
 
+            String candidateMethodsFolderPath   = analysisFolderPath + kCandidateMethodsFolderName + "/";
+            File candidateMethodsFolder         = new File(candidateMethodsFolderPath);
+
             String originalDebugFolderPath      = analysisFolderPath + kDebuggingTasksOriginalFolderName + "/";
             File originalDebugFolder            = new File(originalDebugFolderPath);
 
@@ -349,6 +591,12 @@ public class App {
             String metricsFilePath              = finalReportsFolder.getAbsolutePath() + "/" + kExecutionMetricsReportFileName;
             File metricsFile                    = new File(metricsFilePath);
 
+            String bytecodeDiffFilePath         = finalReportsFolder.getAbsolutePath() + "/" + kBytecodeDiffReportFileName;
+            File bytecodeDiffFile               = new File(bytecodeDiffFilePath);
+
+            String candidateMethodsReportFilePath = finalReportsFolder.getAbsolutePath() + "/" + kCandidateMethodsReportFileName;
+            File candidateMethodsReportFile      = new File(candidateMethodsReportFilePath);
+
             String annotatorOutputFilePath      = annotatorFolderPath + "/" + kAnnotatorOutputFileName;
             File annotatorOutputFile            = new File(annotatorOutputFilePath);
 
@@ -367,8 +615,14 @@ public class App {
             String methodToProtectFilePath     = annotatorFolder.getAbsolutePath() + "/" + kMethodToProtectFileName;
             File methodToProtectFile           = new File(methodToProtectFilePath);
 
+            String annotatorInputFilePath      = annotatorFolder.getAbsolutePath() + "/" + kAnnotatorInputFileName;
+            File annotatorInputFile            = new File(annotatorInputFilePath);
+
+            // when resuming, we keep the output folder of the previous run (if any)
+            boolean isAnalysisResumed = resume && analysisOutputFolder.isDirectory();
+
             // in case the output folder already exists, we delete it
-            if (analysisOutputFolder.exists()) {
+            if (analysisOutputFolder.exists() && !isAnalysisResumed) {
                 if (!deleteDirectoryRecursively(analysisOutputFolder)) {
                     logger.error("[{}{}{}{} ", "App", " (" + "main" + ")]: ",
                             "not able to overwrite directory ", analysisOutputFolder.getAbsolutePath());
@@ -378,7 +632,7 @@ public class App {
 
 
             // create again the structure of folders
-            if (!analysisOutputFolder.mkdirs()                               ||
+            if (!isAnalysisResumed && (!analysisOutputFolder.mkdirs()        ||
                     !testsCorrectnessFolder.mkdir()                          ||
                     !coverageFolder.mkdir()                                  ||
                         !assertFalseJarFolder.mkdir()                        ||
@@ -396,7 +650,7 @@ public class App {
                         !debuggingTaskJDBOriginalReportFile.createNewFile()  ||
                         //!debuggingTaskGDBOriginalReportFile.createNewFile()  ||
                         !debuggingTaskJDBProtectedReportFile.createNewFile() ||
-                        !debuggingTaskGDBProtectedReportFile.createNewFile())
+                        !debuggingTaskGDBProtectedReportFile.createNewFile()))
                 throw new IOException("Exception while creating directory or files to contain results");
 
 
@@ -408,6 +662,17 @@ public class App {
             assert debuggingTasksGDB != null;
 
 
+            // the cache of the output of the stages of the pipeline, shared by all use cases. A stage
+            // whose inputs did not change since a previous run restores its output instead of running
+            ArtifactCache artifactCache = new ArtifactCache(
+                    new File(outputFolderPath, kArtifactCacheFolderName), !disableArtifactCache);
+
+            // the completion manifests of the stages of the pipeline. When resuming, a stage that completed
+            // in the previous run with the same inputs is skipped (and its output is used as it is)
+            PipelineCheckpoint checkpoint = new PipelineCheckpoint(
+                    new File(analysisFolderPath + kManifestsFolderName), isAnalysisResumed);
+
+
             LocalDateTime timeSetup = LocalDateTime.now();
             logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "setup completed in ",
                     getElapsedTime(timeAcquisitionParameters, timeSetup));
@@ -415,7 +680,7 @@ public class App {
 
             // ===== ===== ===== ===== 1: the first step is to collect coverage execution metrics (Analysis)
             //                            we first execute tests once to check that all tests succeed       (step 1.1)
-            //                            If this is not the case, we use ASM to ignore failed tests        (step 1.2)
+            //                            If this is not the case, we filter out failed tests               (step 1.2)
             //                            Then, we can actually run the tests to get coverage metrics       (step 1.3)
             //                            Finally, we also ignore tests that do not execute
             //                            on method that has been chosen to be protected                    (step 1.4)
@@ -429,8 +694,22 @@ public class App {
             //             Through the JUnit report, we collect the name of failed tests
             //             and store them in an hash map (the variable named "jUnitTestsCorrectnessFailed")
 
-            new TestExecutor(tempJarToProtectPath, tempJarWithTestsPath, jUnitConsolePath, null)
-                    .runTests(testsCorrectnessFolder);
+            ArtifactCache.Key testsCorrectnessKey = new ArtifactCache.Key(kPipelineStageTestsCorrectness)
+                    .withString(kArtifactCacheJarRewritingVersion)
+                    .withFile(new File(tempJarToProtectPath))
+                    .withFile(new File(tempJarWithTestsPath))
+                    .withFile(new File(jUnitConsolePath));
+
+            boolean isTestsCorrectnessCached =
+                    checkpoint.isCompleted(kPipelineStageTestsCorrectness, testsCorrectnessKey, testsCorrectnessFolder) ||
+                    artifactCache.restore(testsCorrectnessKey, testsCorrectnessFolder);
+
+            if (!isTestsCorrectnessCached) {
+                TestExecutor testExecutorCorrectness = newTestExecutor(testExecutionBackend, tempJarToProtectPath,
+                        tempJarWithTestsPath, jUnitConsolePath, null);
+                testExecutorCorrectness.runTests(testsCorrectnessFolder);
+                testExecutorCorrectness.shutdown();
+            }
 
             // jUnitTestsCorrectness contains successful tests, failed tests and also classes errors
             JUnitClassesAndTestsBundle junitCorrectness =
@@ -458,20 +737,33 @@ public class App {
 
             // this removes eventual tests from the jar to protect. Note that this new
             // jar file will be used for the rest of the execution instead of the original jar file
-            jarToProtectPath = createJarWithIgnoredTests(
-                    jUnitTests,
-                    jUnitClassCorrectness,
-                    tempJarToProtectPath,
-                    testsCorrectnessFolderPath + kTestsFilteredOutFolderName,
-                    nameOfJarToProtect + "_" +  kTestsFilteredOutFolderName,
-                    false,
-                    new HashSet<>()).getAbsolutePath();
+            // (if the stage was cached, the jar was restored along with the JUnit reports)
+            if (isTestsCorrectnessCached)
+                jarToProtectPath = new File(testsCorrectnessFolderPath + kTestsFilteredOutFolderName,
+                        nameOfJarToProtect + "_" +  kTestsFilteredOutFolderName + ".jar").getAbsolutePath();
+            else {
+                jarToProtectPath = createJarWithIgnoredTests(
+                        jUnitTests,
+                        jUnitClassCorrectness,
+                        tempJarToProtectPath,
+                        testsCorrectnessFolderPath + kTestsFilteredOutFolderName,
+                        nameOfJarToProtect + "_" +  kTestsFilteredOutFolderName,
+                        false,
+                        new HashSet<>()).getAbsolutePath();
+
+                artifactCache.store(testsCorrectnessKey, testsCorrectnessFolder);
+            }
+
+            checkpoint.markCompleted(kPipelineStageTestsCorrectness, testsCorrectnessKey);
 
 
 
             // ===== ===== Step 1.2
-            //             if at least a test failed, we know we have to process
-            //             the jar containing the tests to remove failed tests
+            //             if at least a test failed, we exclude failed tests (and classes giving errors)
+            //             from the next executions through a test filter, leaving the jar with tests untouched
+
+            // the filter excluding failed tests and classes giving errors
+            TestFilter testFilterOfFailedTests = new TestFilter();
 
             // an hash map containing, for each class (key), the array (object) of failed JUnit tests
             ArrayList<JUnitTest> jUnitTestsCorrectnessFailed =
@@ -506,21 +798,20 @@ public class App {
                     else
                         logger.info("[{}{}{} ", "App", " (" + "main" + ")]: ", "no classes will be ignored");
 
-                    // this makes the jar with tests path be now the jar with tests but without the failed tests.
-                    tempJarWithTestsPath = createJarWithIgnoredTests(
-                            JUnitUtil.getTestsByClass(jUnitTestsCorrectnessFailed),
-                            jUnitClassCorrectness,
-                            tempJarWithTestsPath,
-                            testsCorrectnessFolderPath + kFailedTestsFilteredOutFolderName,
-                            nameOfJarToProtect + "_" + kFailedTestsFilteredOutFolderName,
-                            true,
-                            new HashSet<>()).getAbsolutePath();
+                    // from now on, the failed tests will not be executed
+                    testFilterOfFailedTests
+                            .withExcludedTests(jUnitTestsCorrectnessFailed)
+                            .withExcludedClasses(jUnitClassCorrectness);
                 }
             }
             else {
                 logger.info("[{}{}{} ", "App", " (" + "main" + ")]: ", "all tests executed successfully");
             }
 
+            // the filter is saved also when empty, since the next stages depend on it (see the artifact cache)
+            File testFilterOfFailedTestsFile = new File(testsCorrectnessFolder, kTestFilterDefaultName);
+            testFilterOfFailedTests.save(testFilterOfFailedTestsFile);
+
             LocalDateTime timeStep11 = LocalDateTime.now();
             logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "filtered out failed tests in ",
                     getElapsedTime(timeSetup, timeStep11));
@@ -536,34 +827,111 @@ public class App {
             // run the tests through the TestExecutor class with coverage (JaCoCo)
             // note that the execution of JUnit tests with coverage will create a
             // 'jacoco.exec' file in the folder given as arguments when running tests
-            new TestExecutor(jarToProtectPath, tempJarWithTestsPath, jUnitConsolePath, null)
-                    .withCoverage(jaCoCoAgentPath)
-                    .runTests(coverageFolder);
+            File coverageReportExec = new File(coverageFolderPath + kJacocoReportDefaultName);
+
+            // when the method to protect is selected under a max overhead, the candidate methods are also
+            // profiled (i.e., their invocations and time are measured) to predict the overhead of their protection
+            final boolean profileCandidateMethods = methodSelectionStrategyName.equals(kMethodSelectionStrategyOverhead);
+            File methodProfileFile = new File(coverageFolder, kMethodProfileDefaultName);
+
+            ArtifactCache.Key coverageKey = new ArtifactCache.Key(kPipelineStageCoverage)
+                    .withFile(new File(jarToProtectPath))
+                    .withFile(new File(tempJarWithTestsPath))
+                    .withFile(testFilterOfFailedTestsFile)
+                    .withFile(new File(jUnitConsolePath))
+                    .withFile(new File(jaCoCoAgentPath))
+                    .withString(String.valueOf(perTestCoverage))
+                    .withString(String.valueOf(profileCandidateMethods))
+                    .withString(String.valueOf(packagesToAnalyze));
+
+            if (!checkpoint.isCompleted(kPipelineStageCoverage, coverageKey, coverageFolder) &&
+                    !artifactCache.restore(coverageKey, coverageFolder)) {
+
+                TestExecutor testExecutorCoverage = new TestExecutor(jarToProtectPath, tempJarWithTestsPath,
+                        jUnitConsolePath, null);
+                if (perTestCoverage)
+                    testExecutorCoverage.withPerTestCoverage(jaCoCoAgentPath);
+                else
+                    testExecutorCoverage.withCoverage(jaCoCoAgentPath);
+
+                if (profileCandidateMethods) {
+                    File candidateMethodsFile = new File(coverageFolder, kCandidateMethodsDefaultName);
+                    ProfilerUtil.writeCandidateMethods(jarToProtectPath, candidateMethodsFile, packagesToAnalyze);
+                    testExecutorCoverage.withProfiling(candidateMethodsFile);
+                }
 
-            String coverageReportXML = coverageFolderPath + kJacocoXMLReportDefaultName;
+                testExecutorCoverage
+                        .withTestFilter(testFilterOfFailedTests)
+                        .runTests(coverageFolder);
+
+                // the coverage matrix is part of the output of this stage, so that it is cached as well
+                if (perTestCoverage)
+                    getCoverageMatrix(coverageFolder, jarToProtectPath);
+
+                artifactCache.store(coverageKey, coverageFolder);
+            }
+
+            checkpoint.markCompleted(kPipelineStageCoverage, coverageKey);
+
+            // which tests execute which methods, according to the coverage of each test (null without per-test coverage)
+            final CoverageMatrix coverageMatrix = perTestCoverage ?
+                    getCoverageMatrix(coverageFolder, jarToProtectPath) : null;
+
+            // the folders of the next stage are in the coverage folder, which may have been emptied
+            if (!(assertFalseJarFolder.isDirectory() || assertFalseJarFolder.mkdir()) ||
+                    !(relevantTestsJarFolder.isDirectory() || relevantTestsJarFolder.mkdir()))
+                throw new IOException("Exception while creating directory or files to contain results");
 
-            // convert the .exec JaCoCo coverage file in .xml and parse it to extract coverage information
-            JaCoCoUtil.convertJaCoCoExecToXML(coverageFolder, coverageFolderPath + kJacocoReportDefaultName,
-                    coverageReportXML, jaCoCoCLIPath, jarToProtectPath);
-            ArrayList<JaCoCoMethod> methodsAndCoverage = JaCoCoUtil.parseFromXML(new File(coverageReportXML));
+            // analyze the .exec JaCoCo coverage file (in-process) to extract coverage information
+            // (only the classes executed by tests and in the packages to analyze, if given, are analyzed)
+            ArrayList<JaCoCoMethod> methodsAndCoverage = JaCoCoUtil.analyzeExecFile(coverageReportExec,
+                    jarToProtectPath, packagesToAnalyze);
 
             // now we have an array with all methods and the related missed and covered instructions and branches
-            // we sort the methods based on their score. The top method will be protected with Oblive.
-            // Check the calculateScore method to see how the score is calculated
-            methodsAndCoverage.sort(Comparator.comparing(JaCoCoMethod::calculateScore).reversed());
-            JaCoCoMethod methodToProtect = methodsAndCoverage.get(0);
+            // the selection strategy ranks the methods based on their score (check the calculateScore method to
+            // see how the score is calculated) and, possibly, on the predicted overhead of their protection. The
+            // top method will be protected with Oblive
+            MethodSelectionStrategy methodSelectionStrategy;
+            if (methodSelectionStrategyName.equals(kMethodSelectionStrategyOverhead)) {
+
+                // the execution time of the successful tests on the original jar (in seconds in the JUnit reports)
+                double testsExecutionTimeNanos = JUnitUtil.getSuccessfulTests(jUnitTestsCorrectness).stream()
+                        .filter(jUnitTest -> jUnitTest.getExecutionTime() != null)
+                        .mapToDouble(jUnitTest -> jUnitTest.getExecutionTime() * 1_000_000_000)
+                        .sum();
+
+                // the profile measured while collecting coverage metrics (if the agent could write it) replaces
+                // the profile estimated from coverage. Note that the measured time includes the overhead of JaCoCo
+                HashMap<String, MethodProfile> methodProfiles = MethodProfile.estimateFromCoverage(
+                        methodsAndCoverage, coverageMatrix, initialNumberOfSuccessfulTests);
+                if (methodProfileFile.isFile())
+                    methodProfiles.putAll(ProfilerUtil.readProfile(methodProfileFile));
+                else
+                    logger.warn("[{}{}{}{}", "App", " (" + "main" + ")]: ", "the profile of the candidate methods ",
+                            "was not written (check the JUnit output), so it is estimated from coverage");
+
+                methodSelectionStrategy = new OverheadAwareSelectionStrategy(methodProfiles, testsExecutionTimeNanos,
+                        maximumOverhead);
+            }
+            else
+                methodSelectionStrategy = new CoverageSelectionStrategy();
 
-            // if the score of the method to protect is 0, it means that
-            // there are not enough quality methods and we should abort
-            if (methodToProtect.calculateScore() <= 0) {
+            MethodSelection methodSelection = MethodSelection.select(methodSelectionStrategy, methodsAndCoverage);
+            JaCoCoMethod methodToProtect = methodSelection.getMethodToProtect();
 
-                logger.error("[{}{}{}", "App", " (" + "main" + ")]: ", "the method to protect does not match the score criteria");
+            // if no method can be protected, it means that there are not enough quality
+            // methods (or that all of them are too costly to protect) and we should abort
+            if (methodToProtect == null) {
+
+                logger.error("[{}{}{}", "App", " (" + "main" + ")]: ", "no method to protect matches the score " +
+                        "criteria (and the max overhead, if any)");
 
                 exit(7);
             }
             else
-                logger.info("[{}{}{}{} ", "App", " (" + "main" + ")]: ", "the following method was chosen to be protected: ",
-                        methodToProtect);
+                logger.info("[{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ", "the following method was chosen to be protected: ",
+                        methodToProtect, ", " + kPredictedOverheadLabel + ": ", methodSelection.getPredictedOverhead() == null ?
+                                "not predicted" : String.format("%.4f%%", methodSelection.getPredictedOverhead() * 100));
 
             LocalDateTime timeStep13 = LocalDateTime.now();
             logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "execution metrics and coverage collected in ",
@@ -576,30 +944,85 @@ public class App {
             //             we run the tests again and exclude tests that do NOT execute on the instrumented method
             //             the reason is that, in the rest of the program, we want to base our metrics on
             //             relevant tests only
+            //             (with per-test coverage, the tests that do NOT execute on the method to protect
+            //             are known from the coverage of each test collected in step 1.3 instead)
 
-            String jarToProtectPathWithAssertFalse = createJarWithAssertFalseAnnotation(
-                    methodToProtect,
-                    jarToProtectPath,
-                    assertFalseJarFolderPath,
-                    nameOfJarToProtect + "_with_assert_false").getAbsolutePath();
-
-            // we now run the tests again to understand which tests execute on the method to protect so to remove the
-            // other tests from the experimentation
-            new TestExecutor(jarToProtectPathWithAssertFalse, tempJarWithTestsPath, jUnitConsolePath, null)
-                    .runTests(relevantTestsJarFolder);
-
-            JUnitClassesAndTestsBundle jUnitOnInstrumentedMethod = JUnitUtil.parseFromXML(
-                            new File(relevantTestsJarFolderPath + "/" + kJunit4ReportDefaultName),
-                            new File(relevantTestsJarFolderPath + "/" + kJunit5ReportDefaultName));
-
-            ArrayList<JUnitTest> jUnitTestsOnInstrumentedMethod = jUnitOnInstrumentedMethod.getJunitTests();
-            ArrayList<JUnitClass> jUnitClassesOnInstrumentedMethod = jUnitOnInstrumentedMethod.getJUnitClasses();
+            ArrayList<JUnitTest> jUnitTestsOnInstrumentedMethod;
+            ArrayList<JUnitClass> jUnitClassesOnInstrumentedMethod;
 
             // an hash map containing, for each class (key), the array (object) of successful JUnit tests
             // note that a 'successful' test mean that the test was NOT executed on the method to protect
             // therefore, we now remove such tests
-            ArrayList<JUnitTest> jUnitTestsOnInstrumentedMethodSuccessful =
-                    JUnitUtil.getSuccessfulTests(jUnitTestsOnInstrumentedMethod);
+            ArrayList<JUnitTest> jUnitTestsOnInstrumentedMethodSuccessful;
+
+            if (perTestCoverage) {
+
+                // the coverage of each test was collected in step 1.3, so there is no need to instrument the
+                // method to protect and to run the tests again. To keep the same meaning of the lists of the
+                // other case, tests executing on the method to protect are marked as 'failed'
+                HashSet<JUnitTest> testsExecutingMethodToProtect =
+                        new HashSet<>(coverageMatrix.getTestsExecuting(methodToProtect));
+
+                jUnitTestsOnInstrumentedMethod = new ArrayList<>();
+                jUnitTestsOnInstrumentedMethodSuccessful = new ArrayList<>();
+                jUnitClassesOnInstrumentedMethod = new ArrayList<>();
+
+                for (JUnitTest jUnitTest : coverageMatrix.getTests()) {
+                    if (testsExecutingMethodToProtect.contains(jUnitTest)) {
+                        jUnitTest.setOutcome(FAILED);
+                        jUnitTestsOnInstrumentedMethod.add(jUnitTest);
+                    }
+                    else {
+                        jUnitTest.setOutcome(PASSED);
+                        jUnitTestsOnInstrumentedMethodSuccessful.add(jUnitTest);
+                    }
+                }
+            }
+            else {
+
+                ArtifactCache.Key relevantTestsKey = new ArtifactCache.Key(kPipelineStageRelevantTests)
+                        .withString(kArtifactCacheJarRewritingVersion)
+                        .withFile(new File(jarToProtectPath))
+                        .withFile(new File(tempJarWithTestsPath))
+                        .withFile(testFilterOfFailedTestsFile)
+                        .withFile(new File(jUnitConsolePath))
+                        .withString(methodToProtect.getMethodForASM());
+
+                if (!checkpoint.isCompleted(kPipelineStageRelevantTests, relevantTestsKey,
+                            assertFalseJarFolder, relevantTestsJarFolder) &&
+                        !artifactCache.restore(relevantTestsKey, assertFalseJarFolder, relevantTestsJarFolder)) {
+
+                    String jarToProtectPathWithAssertFalse = createJarWithAssertFalseAnnotation(
+                            methodToProtect,
+                            jarToProtectPath,
+                            assertFalseJarFolderPath,
+                            nameOfJarToProtect + "_with_assert_false").getAbsolutePath();
+
+                    // we now run the tests again to understand which tests execute on the method to protect so to remove
+                    // the other tests from the experimentation
+                    TestExecutor testExecutorRelevantTests = newTestExecutor(testExecutionBackend,
+                            jarToProtectPathWithAssertFalse, tempJarWithTestsPath, jUnitConsolePath, null)
+                            .withTestFilter(testFilterOfFailedTests);
+                    testExecutorRelevantTests.runTests(relevantTestsJarFolder);
+                    testExecutorRelevantTests.shutdown();
+
+                    artifactCache.store(relevantTestsKey, assertFalseJarFolder, relevantTestsJarFolder);
+                }
+
+                checkpoint.markCompleted(kPipelineStageRelevantTests, relevantTestsKey);
+
+                JUnitClassesAndTestsBundle jUnitOnInstrumentedMethod = JUnitUtil.parseFromXML(
+                                new File(relevantTestsJarFolderPath + "/" + kJunit4ReportDefaultName),
+                                new File(relevantTestsJarFolderPath + "/" + kJunit5ReportDefaultName));
+
+                jUnitTestsOnInstrumentedMethod = jUnitOnInstrumentedMethod.getJunitTests();
+                jUnitClassesOnInstrumentedMethod = jUnitOnInstrumentedMethod.getJUnitClasses();
+
+                jUnitTestsOnInstrumentedMethodSuccessful = JUnitUtil.getSuccessfulTests(jUnitTestsOnInstrumentedMethod);
+            }
+
+            // the filter excluding failed and irrelevant tests (and classes giving errors)
+            final TestFilter testFilterOfIrrelevantTests;
 
             // we keep the tests that failed when executed with the instrumented ('assert_false')
             // jar to protect, since these tests are the one that execute on the method to protect
@@ -625,22 +1048,24 @@ public class App {
                             " (one per line in the next logs) do not execute the method to protect and will be removed");
                     jUnitTestsOnInstrumentedMethodSuccessful.forEach(junitTest -> logger.info("    {}", junitTest));
 
-                    // this makes the jar with tests path be now the jar without irrelevant tests. Note that this new
-                    // jar file will be used for the rest of the execution instead of the original jar file
-                    jarWithTestsPath = createJarWithIgnoredTests(
-                            JUnitUtil.getTestsByClass(jUnitTestsOnInstrumentedMethodSuccessful),
-                            jUnitClassesOnInstrumentedMethod,
-                            tempJarWithTestsPath,
-                            relevantTestsJarFolderPath,
-                            nameOfJarToProtect + "_irrelevant_test_filtered",
-                            true,
-                            JUnitUtil.getTestsByClass(jUnitTestsOnInstrumentedMethod).keySet()).getAbsolutePath();
+                    // this makes the test filter exclude also irrelevant tests. Note that this filter
+                    // will be used for the rest of the execution instead of the filter of failed tests
+                    testFilterOfIrrelevantTests = new TestFilter(testFilterOfFailedTests)
+                            .withExcludedTests(jUnitTestsOnInstrumentedMethodSuccessful)
+                            .withExcludedClasses(jUnitClassesOnInstrumentedMethod);
             }
-            // if (weird) all tests execute on the method to protect, just keep the old jar
+            // if (weird) all tests execute on the method to protect, just keep the old filter
             else {
-                jarWithTestsPath = tempJarWithTestsPath;
+                testFilterOfIrrelevantTests = testFilterOfFailedTests;
             }
 
+            // the filter is saved also when equal to the previous one, since the next stages depend on it
+            File testFilterOfIrrelevantTestsFile = new File(relevantTestsJarFolder, kTestFilterDefaultName);
+            testFilterOfIrrelevantTests.save(testFilterOfIrrelevantTestsFile);
+
+            // the jar with tests is never modified, tests are excluded through the test filter
+            jarWithTestsPath = tempJarWithTestsPath;
+
 
             LocalDateTime timeStep14 = LocalDateTime.now();
             logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "filtered out irrelevant tests in ",
@@ -660,44 +1085,49 @@ public class App {
             //                            and transform the code with Oblive (Annotation and Transformation)
             //                            first, we get the method to protect and save them in a file       (step 2.1)
             //                            then, we invoke the annotator tool to add the annotations         (step 2.2)
-            //                            finally, we invoke Oblive to transform the annotated method to add
+            //                            then, we invoke Oblive to transform the annotated method to add
             //                            the AD protection and create the protected jar                   (step 2.3)
+            //                            finally, we compare the bytecode of original and protected jar    (step 2.4)
 
 
-            // ===== ===== Step 2.1
-            //             save the signature of the method to annotate in a file that will be fed to the annotator
-            FileOutputStream outputStreamForMethodToProtectFile = new FileOutputStream(methodToProtectFile);
-            outputStreamForMethodToProtectFile.write(methodToProtect.getMethodForASM().getBytes());
-            outputStreamForMethodToProtectFile.flush();
-            outputStreamForMethodToProtectFile.close();
-
-            // ===== ===== Step 2.2
-            //             invoke the annotator tool to add annotations to the method to protect
-            logger.info("[{}{}{} ", "App", " (" + "main" + ")]: ", "starting the annotation of the method to protect");
-            JarUtil.extractAllFilesFromJar(annotatorFolder, jarToProtectPath);
-            ProcessBuilder pbAnnotator = new ProcessBuilder("java", "-jar", annotatorPath,
-                    annotatorFolder.getAbsolutePath(), methodToProtectFile.getAbsolutePath(), annotationToApply);
-
-            pbAnnotator.directory(annotatorFolder).redirectErrorStream(true).redirectOutput(annotatorOutputFile);
+            String annotatedJarToProtectPath = annotatorFolder.getAbsolutePath() + "/" + nameOfJarToProtect + "_annotated.jar";
 
-            Process pAnnotator = pbAnnotator.start();
-            pAnnotator.waitFor();
+            ArtifactCache.Key annotatorKey = new ArtifactCache.Key(kPipelineStageAnnotator)
+                    .withString(kArtifactCacheJarRewritingVersion)
+                    .withFile(new File(jarToProtectPath))
+                    .withString(methodToProtect.getMethodForASM())
+                    .withString(annotationToApply)
+                    .withFile(new File(annotatorPath));
+
+            if (!checkpoint.isCompleted(kPipelineStageAnnotator, annotatorKey, annotatorFolder) &&
+                    !artifactCache.restore(annotatorKey, annotatorFolder)) {
+
+                // ===== ===== Steps 2.1 and 2.2
+                //             save the signature of the method to annotate in a file that will be fed to the annotator
+                //             (the details of the selection of the method are saved after the annotation, see below)
+                //             and invoke the annotator tool to add annotations to the method to protect
+                logger.info("[{}{}{} ", "App", " (" + "main" + ")]: ", "starting the annotation of the method to protect");
+                int exitStatus = annotateMethod(methodToProtect, jarToProtectPath, annotatorFolder, annotatorInputFile,
+                        annotatorOutputFile, annotatedJarToProtectPath, annotatorPath, annotationToApply);
+
+                // check that the code is 0, otherwise there was an error
+                if (exitStatus != 0) {
+                    App.logger.error("[{}{}{}{}", "App ", "(" + "main" + ")]: ",
+                            "Annotator process exited with code: ", exitStatus);
+                    exit(10);
+                }
+                else
+                    App.logger.info("[{}{}{}", "App ", "(" + "main" + ")]: ",
+                            "Annotator process was successful");
 
-            // check that the code is 0, otherwise there was an error
-            int exitStatus = pAnnotator.exitValue();
-            if (exitStatus != 0) {
-                App.logger.error("[{}{}{}{}", "App ", "(" + "main" + ")]: ",
-                        "Annotator process exited with code: ", exitStatus);
-                exit(10);
+                artifactCache.store(annotatorKey, annotatorFolder);
             }
-            else
-                App.logger.info("[{}{}{}", "App ", "(" + "main" + ")]: ",
-                        "Annotator process was successful");
 
+            checkpoint.markCompleted(kPipelineStageAnnotator, annotatorKey);
 
-
-            String annotatedJarToProtectPath = annotatorFolder.getAbsolutePath() + "/" + nameOfJarToProtect + "_annotated.jar";
-            JarUtil.createJar(annotatorFolder, null, annotatedJarToProtectPath);
+            // the method to protect, along with the strategy that selected it and the predicted overhead of its
+            // protection. It is saved after the stage, since the prediction is not part of the key of the stage
+            methodSelection.save(methodToProtectFile);
 
 
 
@@ -708,9 +1138,29 @@ public class App {
             // the path of the jar produced by Oblive, containing the protected code
             jarProtectedPath = obliveFolder.getAbsolutePath() + "/" + nameOfJarToProtect + "_" + annotationToApply + ".jar";
 
-            ObliveTransformator obliveTransformator = new ObliveTransformator(oblivePath);
-            obliveTransformator.applyADProtections(obliveFolder, annotatedJarToProtectPath,
-                    jarProtectedPath, "oblive_" + annotationToApply);
+            ArtifactCache.Key obliveKey = new ArtifactCache.Key(kPipelineStageOblive)
+                    .withFile(new File(annotatedJarToProtectPath))
+                    .withString(annotationToApply)
+                    .withFile(new File(oblivePath))
+                    .withString(JAVA_HOME);
+
+            if (!checkpoint.isCompleted(kPipelineStageOblive, obliveKey, obliveFolder) &&
+                    !artifactCache.restore(obliveKey, obliveFolder)) {
+
+                ObliveTransformator obliveTransformator = new ObliveTransformator(oblivePath);
+                obliveTransformator.applyADProtections(obliveFolder, annotatedJarToProtectPath,
+                        jarProtectedPath, "oblive_" + annotationToApply);
+
+                artifactCache.store(obliveKey, obliveFolder);
+            }
+
+            checkpoint.markCompleted(kPipelineStageOblive, obliveKey);
+
+
+            // ===== ===== Step 2.4
+            //             compare the bytecode of the original and of the protected jar (a single pass over
+            //             each jar), to relate the execution metrics to the growth of the code
+            BytecodeDiffAnalyzer.writeBytecodeDiffReport(jarToProtectPath, jarProtectedPath, bytecodeDiffFile);
 
 
             LocalDateTime timeStep2 = LocalDateTime.now();
@@ -725,6 +1175,7 @@ public class App {
             //                            protected jar and collect execution metrics (Functional Correctness)
             //                            first, we run the tests on the original jar                        (step 3.1)
             //                            second, we run the tests on the protected jar                      (step 3.2)
+            //                            (or steps 3.1 and 3.2 together, alternating the two jars)
             //                            finally, we merge the results in a CSV file                        (step 3.3)
 
             // note: we have to run tests multiple times to have accurate execution metrics
@@ -736,90 +1187,350 @@ public class App {
 
 
 
-            // ===== ===== Step 3.1
-            //             run the tests on the original jar
-            logger.info("[{}{}{}{} ", "App", " (" + "main" + ")]: ",
-                    "Running tests for collecting metrics (execution time) on original jar: ", nameOfJarToProtect);
-            TestExecutor testExecutorMetricsOriginalJar =
-                    new TestExecutor(jarToProtectPath, jarWithTestsPath, jUnitConsolePath, null);
-            ArrayList<JUnitTest> executionMetricsOnOriginalJar = runJUnitTestsMultipleTimes(
-                    testsRepetitionNumber, originalMetricsFolder, testExecutorMetricsOriginalJar);
+            ArtifactCache.Key executionMetricsKey = new ArtifactCache.Key(kPipelineStageExecutionMetrics)
+                    .withFile(new File(jarToProtectPath))
+                    .withFile(new File(jarProtectedPath))
+                    .withFile(new File(jarWithTestsPath))
+                    .withFile(testFilterOfIrrelevantTestsFile)
+                    .withFile(new File(jUnitConsolePath))
+                    .withString(String.valueOf(testsRepetitionNumber))
+                    .withString(testExecutionBackend)
+                    .withString(String.valueOf(testsConcurrencyLevel))
+                    .withString(String.valueOf(pinTestsToCPUs))
+                    .withString(String.valueOf(testsTargetCIWidth))
+                    .withString(String.valueOf(testsTimeBudget))
+                    .withString(testsInterleavingOrder);
+
+            // when resuming, the execution metrics are not collected again if the CSV report was already written
+            if (!checkpoint.isCompleted(kPipelineStageExecutionMetrics, executionMetricsKey,
+                    originalMetricsFolder, protectedMetricsFolder)) {
+
+                // the scheduler running the repetitions of the tests on both jars
+                RepetitionScheduler repetitionScheduler = new RepetitionScheduler(testsConcurrencyLevel, pinTestsToCPUs);
+
+                // if repetitions are adaptive, tests are repeated at most testsRepetitionNumber times
+                AdaptiveStoppingRule stoppingRule = null;
+                if (testsTargetCIWidth != null) {
+                    stoppingRule = new AdaptiveStoppingRule(testsTargetCIWidth, testsRepetitionNumber)
+                            .withMinRepetitions(Math.min(kAdaptiveRepetitionsMinDefaultNumber, Math.max(2, testsRepetitionNumber)));
+                    if (testsTimeBudget > 0)
+                        stoppingRule.withTimeBudget(Duration.ofMinutes(testsTimeBudget));
+                }
 
+                TestExecutor testExecutorMetricsOriginalJar = newRepetitionsTestExecutor(testExecutionBackend,
+                        jarToProtectPath, jarWithTestsPath, jUnitConsolePath, null, originalMetricsFolder)
+                        .withTestFilter(testFilterOfIrrelevantTests);
+                TestExecutor testExecutorMetricsProtectedJar = newRepetitionsTestExecutor(testExecutionBackend,
+                        jarProtectedPath, jarWithTestsPath, jUnitConsolePath, obliveFolderPath, protectedMetricsFolder)
+                        .withTestFilter(testFilterOfIrrelevantTests);
+
+                ArrayList<JUnitTest> executionMetricsOnOriginalJar;
+                ArrayList<JUnitTest> executionMetricsOnProtectedJar;
+
+                // ===== ===== Steps 3.1 and 3.2 (interleaved)
+                //             run the tests on the original and on the protected jar, alternating the two jars
+                if (testsInterleavingOrder != null) {
+
+                    logger.info("[{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ",
+                            "Running tests for collecting metrics (execution time) on original and protected jar " +
+                                    "interleaved (", testsInterleavingOrder, "): ", nameOfJarToProtect);
+
+                    ArrayList<ArrayList<JUnitTest>> executionMetricsOnBothJars = JUnitUtil.runJUnitTestsInterleaved(
+                            originalMetricsFolder, testExecutorMetricsOriginalJar,
+                            protectedMetricsFolder, testExecutorMetricsProtectedJar,
+                            repetitionScheduler, testsRepetitionNumber,
+                            testsInterleavingOrder.equals(kTestsInterleavingOrderRandom) ?
+                                    new Random(kTestsInterleavingRandomSeed) : null,
+                            stoppingRule);
+                    testExecutorMetricsOriginalJar.shutdown();
+                    testExecutorMetricsProtectedJar.shutdown();
+
+                    executionMetricsOnOriginalJar = executionMetricsOnBothJars.get(0);
+                    executionMetricsOnProtectedJar = executionMetricsOnBothJars.get(1);
+                }
+                else {
 
+                    // ===== ===== Step 3.1
+                    //             run the tests on the original jar
+                    logger.info("[{}{}{}{} ", "App", " (" + "main" + ")]: ",
+                            "Running tests for collecting metrics (execution time) on original jar: ", nameOfJarToProtect);
+                    executionMetricsOnOriginalJar = stoppingRule == null ?
+                            runJUnitTestsMultipleTimes(testsRepetitionNumber, originalMetricsFolder,
+                                    testExecutorMetricsOriginalJar, repetitionScheduler) :
+                            runJUnitTestsMultipleTimes(originalMetricsFolder,
+                                    testExecutorMetricsOriginalJar, repetitionScheduler, stoppingRule);
+                    testExecutorMetricsOriginalJar.shutdown();
+
+
+                    // ===== ===== Step 3.2
+                    //             run the tests on the protected jar
+                    logger.info("[{}{}{}{} ", "App", " (" + "main" + ")]: ",
+                            "Running tests for collecting metrics (execution time) on protected jar: ", nameOfJarToProtect);
+                    executionMetricsOnProtectedJar = stoppingRule == null ?
+                            runJUnitTestsMultipleTimes(testsRepetitionNumber, protectedMetricsFolder,
+                                    testExecutorMetricsProtectedJar, repetitionScheduler) :
+                            runJUnitTestsMultipleTimes(protectedMetricsFolder,
+                                    testExecutorMetricsProtectedJar, repetitionScheduler, stoppingRule);
+                    testExecutorMetricsProtectedJar.shutdown();
+                }
 
 
 
-            // ===== ===== Step 3.2
-            //             run the tests on the protected jar
-            logger.info("[{}{}{}{} ", "App", " (" + "main" + ")]: ",
-                    "Running tests for collecting metrics (execution time) on protected jar: ", nameOfJarToProtect);
 
-            TestExecutor testExecutorMetricsProtectedJar =
-                    new TestExecutor(jarProtectedPath, jarWithTestsPath, jUnitConsolePath, obliveFolderPath);
-            ArrayList<JUnitTest> executionMetricsOnProtectedJar = runJUnitTestsMultipleTimes(
-                    testsRepetitionNumber, protectedMetricsFolder, testExecutorMetricsProtectedJar);
+                // ===== ===== Step 3.3
+                //             merge the results in a CSV file
+                //             below you find an example of the structure of the file
+                //
+                // test_name | original_jar_average_execution_time | original_jar_standard_deviation |  original_jar_is_successful |
+                // __________|_____________________________________|_________________________________|_____________________________|
+                // testName1 |                1.57                 |                2.29             |            true             |
+                // testName2 |                4.85                 |                9.46             |            true             |
+                // testName3 |                2.75                 |                5.99             |            true             |
+                // ...
+                //
+                // I (Stefano) chose CSV because easier to handle with R to plot the results, but of course we can change if you want
+
+                logger.info("[{}{}{}{} ", "App", " (" + "main" + ")]: ",
+                        "Writing CSV report for metrics (execution time): ", nameOfJarToProtect);
+
+                FileOutputStream outputStreamForExecutionMetricsReport = new FileOutputStream(metricsFile);
+                StringBuilder executionMetricsCSV = new StringBuilder();
+                executionMetricsCSV.append("test_name," +
+                        "original_jar_average_execution_time,original_jar_standard_deviation,original_jar_is_successful," +
+                        "protected_jar_average_execution_time,protected_jar_standard_deviation,protected_jar_is_successful," +
+                        "original_jar_cold_execution_time,protected_jar_cold_execution_time," +
+                        "original_jar_min_execution_time,original_jar_max_execution_time," +
+                        "original_jar_p50_execution_time,original_jar_p90_execution_time," +
+                        "original_jar_p99_execution_time,original_jar_p999_execution_time," +
+                        "protected_jar_min_execution_time,protected_jar_max_execution_time," +
+                        "protected_jar_p50_execution_time,protected_jar_p90_execution_time," +
+                        "protected_jar_p99_execution_time,protected_jar_p999_execution_time," +
+                        "original_jar_repetitions,protected_jar_repetitions" +
+                        "\n");
+                outputStreamForExecutionMetricsReport.write(executionMetricsCSV.toString().getBytes());
+
+                for (int i = 0; i < executionMetricsOnOriginalJar.size(); i++) {
+
+                    JUnitTest testOnOriginalJar = executionMetricsOnOriginalJar.get(i);
+                    String testNameOriginalJar = testOnOriginalJar.getTestFQNName();
+
+                    JUnitTest testOnProtectedJar = executionMetricsOnProtectedJar.get(i);
+                    String testNameProtectedJar = testOnProtectedJar.getTestFQNName();
+
+                    if (!testNameOriginalJar.equals(testNameProtectedJar)) {
+
+                        logger.error("[{}{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ",
+                                "mismatch in the name of the tests, (test on original jar: ",
+                                testNameOriginalJar, ", test on protected jar: ", testNameProtectedJar, ")");
+
+                        exit(8);
+                    } else {
+                        executionMetricsCSV = new StringBuilder();
+                        executionMetricsCSV.append(testNameProtectedJar).append(",")
+                                .append(testOnOriginalJar.getExecutionTime()).append(",")
+                                .append(testOnOriginalJar.getStandardDeviation()).append(",")
+                                .append(testOnOriginalJar.getOutComeAsString()).append(",")
+                                .append(testOnProtectedJar.getExecutionTime()).append(",")
+                                .append(testOnProtectedJar.getStandardDeviation()).append(",")
+                                .append(testOnProtectedJar.getOutComeAsString()).append(",")
+                                .append(testOnOriginalJar.getColdExecutionTime() == null ?
+                                        kColdExecutionTimeNotMeasured : testOnOriginalJar.getColdExecutionTime()).append(",")
+                                .append(testOnProtectedJar.getColdExecutionTime() == null ?
+                                        kColdExecutionTimeNotMeasured : testOnProtectedJar.getColdExecutionTime()).append(",")
+                                .append(toCSV(testOnOriginalJar.getExecutionStatistics())).append(",")
+                                .append(toCSV(testOnProtectedJar.getExecutionStatistics())).append(",")
+                                .append(testOnOriginalJar.getExecutionStatistics().getCount()).append(",")
+                                .append(testOnProtectedJar.getExecutionStatistics().getCount()).append("\n");
+                        outputStreamForExecutionMetricsReport.write(executionMetricsCSV.toString().getBytes());
+                    }
+                }
+                outputStreamForExecutionMetricsReport.flush();
+                outputStreamForExecutionMetricsReport.close();
+            }
 
+            checkpoint.markCompleted(kPipelineStageExecutionMetrics, executionMetricsKey);
 
 
+            LocalDateTime timeStep3 = LocalDateTime.now();
+            logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "functional correctness after having applied " +
+                            " protections completed in ", getElapsedTime(timeStep2, timeStep3));
 
-            // ===== ===== Step 3.3
-            //             merge the results in a CSV file
-            //             below you find an example of the structure of the file
-            //
-            // test_name | original_jar_average_execution_time | original_jar_standard_deviation |  original_jar_is_successful |
-            // __________|_____________________________________|_________________________________|_____________________________|
-            // testName1 |                1.57                 |                2.29             |            true             |
-            // testName2 |                4.85                 |                9.46             |            true             |
-            // testName3 |                2.75                 |                5.99             |            true             |
-            // ...
-            //
-            // I (Stefano) chose CSV because easier to handle with R to plot the results, but of course we can change if you want
 
-            logger.info("[{}{}{}{} ", "App", " (" + "main" + ")]: ",
-                    "Writing CSV report for metrics (execution time): ", nameOfJarToProtect);
-
-            FileOutputStream outputStreamForExecutionMetricsReport = new FileOutputStream(metricsFile);
-            StringBuilder executionMetricsCSV = new StringBuilder();
-            executionMetricsCSV.append("test_name," +
-                    "original_jar_average_execution_time,original_jar_standard_deviation,original_jar_is_successful," +
-                    "protected_jar_average_execution_time,protected_jar_standard_deviation,protected_jar_is_successful," +
-                    "\n");
-            outputStreamForExecutionMetricsReport.write(executionMetricsCSV.toString().getBytes());
-
-            for (int i = 0; i < executionMetricsOnOriginalJar.size(); i++) {
-
-                JUnitTest testOnOriginalJar = executionMetricsOnOriginalJar.get(i);
-                String testNameOriginalJar = testOnOriginalJar.getTestFQNName();
-
-                JUnitTest testOnProtectedJar = executionMetricsOnProtectedJar.get(i);
-                String testNameProtectedJar = testOnProtectedJar.getTestFQNName();
-
-                if (!testNameOriginalJar.equals(testNameProtectedJar)) {
-
-                    logger.error("[{}{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ",
-                            "mismatch in the name of the tests, (test on original jar: ",
-                            testNameOriginalJar, ", test on protected jar: ", testNameProtectedJar, ")");
-
-                    exit(8);
-                } else {
-                    executionMetricsCSV = new StringBuilder();
-                    executionMetricsCSV.append(testNameProtectedJar).append(",")
-                            .append(testOnOriginalJar.getExecutionTime()).append(",")
-                            .append(testOnOriginalJar.getStandardDeviation()).append(",")
-                            .append(testOnOriginalJar.getOutComeAsString()).append(",")
-                            .append(testOnProtectedJar.getExecutionTime()).append(",")
-                            .append(testOnProtectedJar.getStandardDeviation()).append(",")
-                            .append(testOnProtectedJar.getOutComeAsString()).append("\n");
-                    outputStreamForExecutionMetricsReport.write(executionMetricsCSV.toString().getBytes());
+            // ===== ===== Step 3.4 (only with candidate methods to measure)
+            //             protect each of the top candidate methods ranked by the selection strategy in a jar of its
+            //             own (annotation and Oblive run concurrently, each candidate in its own folder) and then run
+            //             the tests on the original jar and on all protected jars interleaved. This way, the overhead
+            //             of the protection of the candidates can be compared, instead of finding out only after the
+            //             execution metrics that the method to protect is too costly to protect
+            if (numberOfCandidateMethodsToMeasure > 0) {
+
+                ArrayList<JaCoCoMethod> rankedMethods = methodSelection.getRankedMethods();
+                List<JaCoCoMethod> candidateMethods = rankedMethods.subList(0,
+                        Math.min(numberOfCandidateMethodsToMeasure, rankedMethods.size()));
+
+                // all jars run the tests that did not fail on the original jar, so that the same repetitions on the
+                // original jar are the baseline of all candidates. With per-test coverage, the overhead of each
+                // candidate is then computed on the tests executing it only
+                ArtifactCache.Key candidateMethodsKey = new ArtifactCache.Key(kPipelineStageCandidateMethods)
+                        .withString(kArtifactCacheJarRewritingVersion)
+                        .withFile(new File(jarToProtectPath))
+                        .withFile(new File(jarWithTestsPath))
+                        .withFile(testFilterOfFailedTestsFile)
+                        .withFile(new File(jUnitConsolePath))
+                        .withFile(new File(annotatorPath))
+                        .withFile(new File(oblivePath))
+                        .withString(annotationToApply)
+                        .withString(JAVA_HOME)
+                        .withString(candidateMethods.stream().map(JaCoCoMethod::getMethodForASM)
+                                .collect(Collectors.joining(",")))
+                        .withString(String.valueOf(perTestCoverage))
+                        .withString(String.valueOf(testsRepetitionNumber))
+                        .withString(testExecutionBackend)
+                        .withString(String.valueOf(testsConcurrencyLevel))
+                        .withString(String.valueOf(pinTestsToCPUs))
+                        .withString(String.valueOf(testsTargetCIWidth))
+                        .withString(String.valueOf(testsTimeBudget))
+                        .withString(testsInterleavingOrder);
+
+                if (!checkpoint.isCompleted(kPipelineStageCandidateMethods, candidateMethodsKey, candidateMethodsFolder)) {
+
+                    File originalCandidateMetricsFolder = new File(candidateMethodsFolder, kExecutionMetricsOriginalFolderName);
+                    if (!(candidateMethodsFolder.isDirectory() || candidateMethodsFolder.mkdir()) ||
+                            !originalCandidateMetricsFolder.mkdir())
+                        throw new IOException("Exception while creating directory or files to contain results");
+
+                    ArrayList<CandidateMeasurement> candidateMeasurements = new ArrayList<>();
+                    for (int i = 0; i < candidateMethods.size(); i++)
+                        candidateMeasurements.add(new CandidateMeasurement(i + 1, candidateMethods.get(i),
+                                methodSelection.getPredictedOverhead(candidateMethods.get(i))));
+
+                    logger.info("[{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ", "protecting the top ",
+                            candidateMeasurements.size(), " candidate methods in jars of their own: ", nameOfJarToProtect);
+                    ArrayList<String> candidateProtectedJarPaths = protectCandidateMethods(candidateMeasurements,
+                            candidateMethodsFolder, jarToProtectPath, nameOfJarToProtect, annotatorPath, oblivePath,
+                            annotationToApply);
+
+                    // the jars of the candidates that were protected, after the original jar
+                    ArrayList<CandidateMeasurement> protectedCandidates = new ArrayList<>();
+                    ArrayList<File> candidateMetricsFolders = new ArrayList<>();
+                    ArrayList<TestExecutor> candidateTestExecutors = new ArrayList<>();
+
+                    candidateMetricsFolders.add(originalCandidateMetricsFolder);
+                    candidateTestExecutors.add(newRepetitionsTestExecutor(testExecutionBackend, jarToProtectPath,
+                            jarWithTestsPath, jUnitConsolePath, null, originalCandidateMetricsFolder)
+                            .withTestFilter(testFilterOfFailedTests));
+
+                    for (int i = 0; i < candidateMeasurements.size(); i++) {
+
+                        CandidateMeasurement candidateMeasurement = candidateMeasurements.get(i);
+                        if (!candidateMeasurement.isMeasured())
+                            continue;
+
+                        File candidateFolder = new File(candidateMethodsFolder, String.valueOf(candidateMeasurement.getRank()));
+                        File candidateMetricsFolder = new File(candidateFolder, kExecutionMetricsProtectedFolderName);
+                        if (!candidateMetricsFolder.mkdir())
+                            throw new IOException("Exception while creating directory or files to contain results");
+
+                        protectedCandidates.add(candidateMeasurement);
+                        candidateMetricsFolders.add(candidateMetricsFolder);
+                        candidateTestExecutors.add(newRepetitionsTestExecutor(testExecutionBackend,
+                                candidateProtectedJarPaths.get(i), jarWithTestsPath, jUnitConsolePath,
+                                new File(candidateFolder, kObliveProtectedJarFolderName).getAbsolutePath(),
+                                candidateMetricsFolder)
+                                .withTestFilter(testFilterOfFailedTests));
+                    }
+
+                    if (!protectedCandidates.isEmpty()) {
+
+                        AdaptiveStoppingRule candidatesStoppingRule = null;
+                        if (testsTargetCIWidth != null) {
+                            candidatesStoppingRule = new AdaptiveStoppingRule(testsTargetCIWidth, testsRepetitionNumber)
+                                    .withMinRepetitions(Math.min(kAdaptiveRepetitionsMinDefaultNumber, Math.max(2, testsRepetitionNumber)));
+                            if (testsTimeBudget > 0)
+                                candidatesStoppingRule.withTimeBudget(Duration.ofMinutes(testsTimeBudget));
+                        }
+
+                        logger.info("[{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ", "Running tests for collecting " +
+                                "metrics (execution time) on original jar and on the jars of ", protectedCandidates.size(),
+                                " candidate methods interleaved: ", nameOfJarToProtect);
+
+                        ArrayList<ArrayList<JUnitTest>> executionMetricsOnCandidateJars = JUnitUtil.runJUnitTestsInterleaved(
+                                candidateMetricsFolders, candidateTestExecutors,
+                                new RepetitionScheduler(testsConcurrencyLevel, pinTestsToCPUs), testsRepetitionNumber,
+                                kTestsInterleavingOrderRandom.equals(testsInterleavingOrder) ?
+                                        new Random(kTestsInterleavingRandomSeed) : null,
+                                candidatesStoppingRule);
+                        candidateTestExecutors.forEach(TestExecutor::shutdown);
+
+                        ArrayList<JUnitTest> executionMetricsOnOriginalJar = executionMetricsOnCandidateJars.get(0);
+                        for (int i = 0; i < protectedCandidates.size(); i++) {
+
+                            CandidateMeasurement candidateMeasurement = protectedCandidates.get(i);
+                            ArrayList<JUnitTest> executionMetricsOnCandidateJar = executionMetricsOnCandidateJars.get(i + 1);
+
+                            // the tests executing the candidate (null if not known, i.e., all tests)
+                            HashSet<JUnitTest> testsExecutingCandidate = coverageMatrix == null ? null :
+                                    new HashSet<>(coverageMatrix.getTestsExecuting(candidateMeasurement.getMethod()));
+
+                            int numberOfMeasuredTests = 0;
+                            double originalExecutionTime = 0;
+                            double protectedExecutionTime = 0;
+                            boolean isSuccessful = true;
+
+                            for (int j = 0; j < executionMetricsOnOriginalJar.size(); j++) {
+
+                                JUnitTest testOnOriginalJar = executionMetricsOnOriginalJar.get(j);
+                                JUnitTest testOnCandidateJar = executionMetricsOnCandidateJar.get(j);
+
+                                if (!testOnOriginalJar.getTestFQNName().equals(testOnCandidateJar.getTestFQNName())) {
+
+                                    logger.error("[{}{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ",
+                                            "mismatch in the name of the tests, (test on original jar: ",
+                                            testOnOriginalJar.getTestFQNName(), ", test on protected jar: ",
+                                            testOnCandidateJar.getTestFQNName(), ")");
+
+                                    exit(8);
+                                }
+
+                                if (testsExecutingCandidate != null && !testsExecutingCandidate.contains(testOnOriginalJar))
+                                    continue;
+
+                                isSuccessful &= testOnCandidateJar.getOutcome() == PASSED;
+
+                                // a test without execution time on one of the jars cannot be compared (if the time
+                                // is missing on the protected jar only, the test did not run properly on it)
+                                if (testOnOriginalJar.getExecutionTime() == null || testOnCandidateJar.getExecutionTime() == null) {
+                                    isSuccessful &= testOnOriginalJar.getExecutionTime() == null;
+                                    continue;
+                                }
+
+                                numberOfMeasuredTests++;
+                                originalExecutionTime += testOnOriginalJar.getExecutionTime();
+                                protectedExecutionTime += testOnCandidateJar.getExecutionTime();
+                            }
+
+                            candidateMeasurement.setMeasurement(numberOfMeasuredTests, originalExecutionTime,
+                                    protectedExecutionTime, isSuccessful);
+                        }
+                    }
+
+                    CandidateMeasurement.saveReport(candidateMeasurements, candidateMethodsReportFile);
+
+                    logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "overhead of the protection of the ",
+                            "candidate methods (one per line below)");
+                    candidateMeasurements.forEach(candidateMeasurement -> logger.info("    {}", candidateMeasurement));
+
+                    CandidateMeasurement cheapestCandidate = CandidateMeasurement.getCheapest(candidateMeasurements);
+                    logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "the cheapest candidate method to protect is: ",
+                            cheapestCandidate == null ? "none (no candidate was measured successfully)" : cheapestCandidate);
                 }
-            }
-            outputStreamForExecutionMetricsReport.flush();
-            outputStreamForExecutionMetricsReport.close();
 
+                checkpoint.markCompleted(kPipelineStageCandidateMethods, candidateMethodsKey);
 
-            LocalDateTime timeStep3 = LocalDateTime.now();
-            logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "functional correctness after having applied " +
-                            " protections completed in ", getElapsedTime(timeStep2, timeStep3));
+                LocalDateTime timeStep34 = LocalDateTime.now();
+                logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "candidate methods protected and measured in ",
+                        getElapsedTime(timeStep3, timeStep34));
+            }
 
 
             // ===== ===== ===== ===== 4: the fourth step is to ensure the effectiveness of the applied protections by
@@ -905,6 +1616,18 @@ public class App {
             osForDebuggingTasksGDBProtectedReport.write(debuggingTasksGDBHeaderCSV.toString().getBytes());
 
 
+            // the outcome of each debugging task on each test and jar is recorded in a progress log, so
+            // that, when resuming, only the debugging tasks that did not complete are executed again
+            ArtifactCache.Key debuggingTasksKey = new ArtifactCache.Key(kPipelineStageDebuggingTasks)
+                    .withFile(new File(jarToProtectPath))
+                    .withFile(new File(jarProtectedPath))
+                    .withFile(new File(jarWithTestsPath))
+                    .withFile(new File(jUnitConsolePath))
+                    .withString(methodToProtect.getMethodForASM())
+                    .withString(JAVA_HOME);
+            checkpoint.openProgressLog(kPipelineStageDebuggingTasks, debuggingTasksKey,
+                    originalDebugFolder, protectedDebugFolder);
+
             // instantiate the debug util that will run the debugging tasks. Note that we pass two different jars
             // as the second argument, i.e., the original and the protected jar
             DebugUtil debugUtilTestOriginalJarJDB =  new DebugUtil(jUnitConsolePath, jarToProtectPath, jarWithTestsPath, null);
@@ -957,95 +1680,43 @@ public class App {
             App.logger.info("EXPERIMENTAL: below, the classes FQNs of the tests: ");
             jUnitTestsOnInstrumentedMethodByClass.keySet().forEach(fqn -> App.logger.info("    {}", fqn));
 
-            // extract all files from the Jar in the folder
-            extractAllFilesFromJar(ultimateTestsJarFolder, jarWithTestsPath);
-            HashSet<File> classFiles = new HashSet<>();
-            getAllFilesFromDirectoryWithExtension(ultimateTestsJarFolder, "class", classFiles);
-
-            boolean doWeHaveMoreTestsToProcess = true;
-
-            while (doWeHaveMoreTestsToProcess) {
-
-                doWeHaveMoreTestsToProcess = false;
-
-                for (File classFile : classFiles) {
-
-                    String classFQN = classFile.getAbsolutePath()
-                            .replace(ultimateTestsJarFolderPath + "/", "")
-                            .replace("/", ".")
-                            .replace(".class", "");
-
-                    App.logger.info("EXPERIMENTAL: analyzing class " + classFQN);
-
-                    if (jUnitTestsOnInstrumentedMethodByClass.containsKey(classFQN)) {
+            // the index of the jar with the tests tells which class actually defines each test
+            JarIndex testsJarIndex = new JarIndex(jarWithTestsPath);
 
-                        App.logger.info("EXPERIMENTAL: some tests are referred to class" + classFQN);
+            for (String classFQN : new ArrayList<>(jUnitTestsOnInstrumentedMethodByClass.keySet())) {
 
-                        FileInputStream classFileInputStream = new FileInputStream(classFile);
-
-                        ArrayList<JUnitTest> arrayOfTests = jUnitTestsOnInstrumentedMethodByClass.get(classFQN);
-
-                        // check which tests are defined in the class are which are defined in a superclass
-                        areMethodsDefinedInThisClassASMAdapter classVisitor =
-                                new areMethodsDefinedInThisClassASMAdapter(ASM8, JUnitUtil.toASMMethods(arrayOfTests));
-                        ClassReader classReader = new ClassReader(classFileInputStream);
-                        classReader.accept(classVisitor, 0);
-                        classFileInputStream.close();
-
-                        ArrayList<ASMMethod> testsThatWereNotFound = classVisitor.getMethodsThatWereNotFound();
-
-                        if (testsThatWereNotFound.size() != 0) {
-
-                            String superClassName = classVisitor.getSuperClassName().replace("/", ".");
+                if (testsJarIndex.getClassInfo(classFQN) == null) {
+                    App.logger.info("EXPERIMENTAL: class " + classFQN + " is not in the jar with the tests");
+                    continue;
+                }
 
-                            if (!superClassName.equals("java.lang.Object")) {
+                ArrayList<JUnitTest> arrayOfTests = jUnitTestsOnInstrumentedMethodByClass.get(classFQN);
 
-                                App.logger.info("[{}{}{}{}{}{}{}", "MAIN", " (" + "EXPERIMENTAL" + ")]: ",
-                                        "some tests were not found (one per line below), moving them from class ", classFQN,
-                                        " to superclass ", superClassName, ": ");
-                                testsThatWereNotFound.forEach(asmMethod -> App.logger.info("    {}", asmMethod.toString()));
+                for (JUnitTest test : new ArrayList<>(arrayOfTests)) {
 
-                                // note that the superclass may not be present as key in the "testsToIgnore" map,
-                                jUnitTestsOnInstrumentedMethodByClass.putIfAbsent(superClassName, new ArrayList<>());
-                                ArrayList<JUnitTest> superclassMethods = jUnitTestsOnInstrumentedMethodByClass.get(superClassName);
+                    String definingClassFQN = testsJarIndex.findClassDefiningMethod(
+                            classFQN, test.getMethodName(), test.getDesc());
 
-                                // then, we add the methods that were not found to the superclass, if not already there
-                                for (ASMMethod method : testsThatWereNotFound) {
+                    if (definingClassFQN == null) {
+                        App.logger.error("[{}{}{}{}{}{}", "MAIN", " (" + "EXPERIMENTAL" + ")]: ",
+                                "test ", test, " was not found in class ", classFQN + " nor in its superclasses");
+                        exit(6);
+                    }
+                    else if (!definingClassFQN.equals(classFQN)) {
 
-                                    JUnitTest test = (JUnitTest) method;
-                                    int indexOf = superclassMethods.indexOf(test);
-                                    if (indexOf < 0) {
+                        App.logger.info("[{}{}{}{}{}{}", "MAIN", " (" + "EXPERIMENTAL" + ")]: ",
+                                "moving test ", test, " to the class that defines it: ", definingClassFQN);
 
-                                        // this is the step in which we actually remove the test from the class that use
-                                        // it and assign the test to the class that defines it
-                                        if (!arrayOfTests.remove(test)) {
-                                            App.logger.error("[{}{}{}", "MAIN", " (" + "EXPERIMENTAL" + ")]: ",
-                                                    "method were not found to remove, this (should be) impossible");
-                                            exit(6);
-                                        }
-                                        test.setSuperclassFQN(superClassName);
-                                        superclassMethods.add(test);
-                                    }
-                                }
+                        // note that the defining class may not be present as key in the map
+                        ArrayList<JUnitTest> definingClassTests = jUnitTestsOnInstrumentedMethodByClass
+                                .computeIfAbsent(definingClassFQN, key -> new ArrayList<>());
 
-                                doWeHaveMoreTestsToProcess = true;
-                            }
-                            else {
-                                App.logger.error("[{}{}{}{}{}{}", "MAIN", " (" + "EXPERIMENTAL" + ")]: ",
-                                        "some methods were not found (one per line below), ",
-                                        "requireAllMethodsToBeProcessed flag is true but the superclass of class ",
-                                        classFQN, " is \"java.lang.Object\"");
-                                testsThatWereNotFound.forEach(method -> App.logger.error("    {}", method));
-                                exit(6);
-                            }
-                        }
-                        else {
-                            App.logger.info("[{}{}{}{}{}", "MAIN", " (" + "EXPERIMENTAL" + ")]: ",
-                                    "all tests in class ", classFQN, " where found ");
-                        }
-                    }
-                    else {
-                        App.logger.info("EXPERIMENTAL: no tests are referred to class " + classFQN);
+                        // this is the step in which we actually remove the test from the class that use
+                        // it and assign the test to the class that defines it (if not already there)
+                        arrayOfTests.remove(test);
+                        test.setSuperclassFQN(definingClassFQN);
+                        if (!definingClassTests.contains(test))
+                            definingClassTests.add(test);
                     }
                 }
             }
@@ -1065,8 +1736,12 @@ public class App {
 
 
 
+            // with per-test coverage, we prefer the tests that execute fewer methods, as they are more focused
+            // on the method to protect and quicker to debug (the sort is stable, so ties keep their order)
             List<JUnitTest> jUnitTestsToRunDebuggingTasks = jUnitTestsOnInstrumentedMethod
                     .stream()
+                    .sorted(coverageMatrix == null ? (first, second) -> 0 :
+                            Comparator.comparingInt(coverageMatrix::getNumberOfMethodsExecutedBy))
                     .limit(numberOfTestsOnWhichToExecuteDebuggingTasks)
                     .collect(Collectors.toList());
 
@@ -1096,13 +1771,17 @@ public class App {
                     logger.info("[{}{}{}{}{}{}{}{} ", "App", " (" + "main" + ")]: ", "executing JDB debugging task: ",
                             currentTask.getDebuggingTaskName(), " with test: ", classFQN, ".", testName);
 
-                    boolean executionOutcomeOnOriginalJar = debugUtilTestOriginalJarJDB.executeJDBDebugTask(
-                            originalDebugFolder, null, currentTask, classFQN, testName, classSuperFQN);
+                    boolean executionOutcomeOnOriginalJar = executeDebuggingTaskOnce(checkpoint,
+                            "JDB original " + currentTask.getDebuggingTaskName() + " " + classFQN + "." + testName,
+                            () -> debugUtilTestOriginalJarJDB.executeJDBDebugTask(
+                                    originalDebugFolder, null, currentTask, classFQN, testName, classSuperFQN));
                     debuggingTasksJDBOriginalCSV.append(executionOutcomeOnOriginalJar).append(", ");
                     currentTask.reset();
 
-                    boolean executionOutcomeOnProtectedJar = debugUtilTestProtectedJarJDB.executeJDBDebugTask(
-                            protectedDebugFolder, null, currentTask, classFQN, testName, classSuperFQN);
+                    boolean executionOutcomeOnProtectedJar = executeDebuggingTaskOnce(checkpoint,
+                            "JDB protected " + currentTask.getDebuggingTaskName() + " " + classFQN + "." + testName,
+                            () -> debugUtilTestProtectedJarJDB.executeJDBDebugTask(
+                                    protectedDebugFolder, null, currentTask, classFQN, testName, classSuperFQN));
                     currentTask.reset();
                     debuggingTasksJDBProtectedCSV.append(executionOutcomeOnProtectedJar).append(", ");
                 });
@@ -1133,8 +1812,10 @@ public class App {
                     //debuggingTasksGDBOriginalCSV.append(executionOutcomeOnOriginalJar).append(", ");
                     //currentTask.reset();
 
-                    boolean executionOutcomeOnProtectedJar = debugUtilTestProtectedJarGDB.executeGDBDebugTask(
-                            protectedDebugFolder, null, currentTask, classFQN, testName);
+                    boolean executionOutcomeOnProtectedJar = executeDebuggingTaskOnce(checkpoint,
+                            "GDB protected " + currentTask.getDebuggingTaskName() + " " + classFQN + "." + testName,
+                            () -> debugUtilTestProtectedJarGDB.executeGDBDebugTask(
+                                    protectedDebugFolder, null, currentTask, classFQN, testName));
                     currentTask.reset();
                     debuggingTasksGDBProtectedCSV.append(executionOutcomeOnProtectedJar).append(", ");
                 });
@@ -1163,6 +1844,9 @@ public class App {
             //osForDebuggingTasksGDBOriginalReport.flush();
             //osForDebuggingTasksGDBOriginalReport.close();
 
+            checkpoint.closeProgressLog();
+            checkpoint.markCompleted(kPipelineStageDebuggingTasks, debuggingTasksKey);
+
 
             LocalDateTime timeStep4 = LocalDateTime.now();
             logger.info("[{}{}{}{}", "App", " (" + "main" + ")]: ", "debugging tasks executed in ",
@@ -1222,6 +1906,254 @@ public class App {
     }
 
 
+    /**
+     * format the statistics of the execution times of a test as CSV columns, i.e., min, max,
+     * p50, p90, p99 and p999 (in seconds, percentiles are estimated from an histogram)
+     * @param executionStatistics the statistics of the execution times of a test
+     * @return the CSV columns (without the leading and trailing commas)
+     */
+    private static String toCSV(ExecutionStatistics executionStatistics) {
+        return executionStatistics.getMin() + "," + executionStatistics.getMax() + "," +
+                executionStatistics.getPercentile(50) + "," + executionStatistics.getPercentile(90) + "," +
+                executionStatistics.getPercentile(99) + "," + executionStatistics.getPercentile(99.9);
+    }
+
+
+    /**
+     * execute a debugging task on a test and a jar (i.e., a unit of work of the debugging tasks stage), unless its
+     * outcome was already recorded in the progress log by a previous run that is being resumed
+     * @param checkpoint the checkpoint of the pipeline, with the progress log of the debugging tasks open
+     * @param unit the unit of work (e.g., "JDB original taskName classFQN.testName")
+     * @param debuggingTask the execution of the debugging task, returning its outcome
+     * @return the outcome of the debugging task
+     */
+    private static boolean executeDebuggingTaskOnce(PipelineCheckpoint checkpoint, String unit,
+                                                    BooleanSupplier debuggingTask) {
+
+        String recordedOutcome = checkpoint.getProgress(unit);
+        if (recordedOutcome != null)
+            return Boolean.parseBoolean(recordedOutcome);
+
+        boolean outcome = debuggingTask.getAsBoolean();
+
+        // we have to catch here because we are in a lambda
+        try {
+            checkpoint.recordProgress(unit, String.valueOf(outcome));
+        }
+        catch (IOException e) {
+
+            logger.error("[{}{}{}{} ", "App", " (" + "executeDebuggingTaskOnce" + ")]: ",
+                    "Exception while recording the progress of the debugging tasks: ", e);
+            exit(2);
+        }
+
+        return outcome;
+    }
+
+
+    /**
+     * create the test executor for the given backend, to execute tests once. Since a single execution does not
+     * benefit from a long-lived JVM, the kTestExecutionBackendWarm backend runs tests in a new JVM
+     * @param testExecutionBackend one between kTestExecutionBackendFork, kTestExecutionBackendInProcess
+     *                             and kTestExecutionBackendWarm
+     * @param pathOfJarToExecute Absolute path of the jar containing the code to execute
+     * @param pathOfJarContainingTests Absolute path of the jar containing the test cases for the code to execute
+     * @param pathOfJUnitConsoleJar Absolute path of the JUnit console jar
+     * @param pathOfFolderWithNativeLibraries Absolute path to the folder containing eventual native libraries, null if none
+     * @return the test executor
+     */
+    private static TestExecutor newTestExecutor(String testExecutionBackend, String pathOfJarToExecute,
+                                                String pathOfJarContainingTests, String pathOfJUnitConsoleJar,
+                                                String pathOfFolderWithNativeLibraries) {
+
+        if (testExecutionBackend.equals(kTestExecutionBackendInProcess))
+            return new InProcessTestExecutor(pathOfJarToExecute, pathOfJarContainingTests,
+                    pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries);
+        else
+            return new TestExecutor(pathOfJarToExecute, pathOfJarContainingTests,
+                    pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries);
+    }
+
+
+    /**
+     * annotate a method of a jar with the annotator tool. The signature of the method is saved in the file that is
+     * fed to the annotator, then the jar is extracted in the given folder, in which the annotator is executed (and
+     * annotates the classes in place), and finally the folder is packed in the annotated jar
+     * @param methodToAnnotate the method to annotate
+     * @param jarToAnnotatePath the path of the jar containing the method
+     * @param annotatorFolder the folder in which to extract the jar and execute the annotator
+     * @param annotatorInputFile the file fed to the annotator, in which to save the signature of the method
+     * @param annotatorOutputFile the file in which to save the output of the annotator
+     * @param annotatedJarPath the path of the annotated jar (created only if the annotator was successful)
+     * @param annotatorPath the path of the jar of the annotator
+     * @param annotationToApply the annotation to apply
+     * @return the exit status of the annotator process (0 if the method was annotated)
+     * @throws IOException if the files cannot be read or written or the annotator process cannot be started
+     * @throws InterruptedException if interrupted while waiting for the annotator process
+     */
+    private static int annotateMethod(JaCoCoMethod methodToAnnotate, String jarToAnnotatePath, File annotatorFolder,
+                                      File annotatorInputFile, File annotatorOutputFile, String annotatedJarPath,
+                                      String annotatorPath, String annotationToApply)
+            throws IOException, InterruptedException {
+
+        FileOutputStream outputStreamForAnnotatorInputFile = new FileOutputStream(annotatorInputFile);
+        outputStreamForAnnotatorInputFile.write(methodToAnnotate.getMethodForASM().getBytes());
+        outputStreamForAnnotatorInputFile.flush();
+        outputStreamForAnnotatorInputFile.close();
+
+        JarUtil.extractAllFilesFromJar(annotatorFolder, jarToAnnotatePath);
+        ProcessBuilder pbAnnotator = new ProcessBuilder("java", "-jar", annotatorPath,
+                annotatorFolder.getAbsolutePath(), annotatorInputFile.getAbsolutePath(), annotationToApply);
+
+        pbAnnotator.directory(annotatorFolder).redirectErrorStream(true).redirectOutput(annotatorOutputFile);
+
+        Process pAnnotator = pbAnnotator.start();
+        pAnnotator.waitFor();
+
+        int exitStatus = pAnnotator.exitValue();
+        if (exitStatus == 0)
+            JarUtil.createJar(annotatorFolder, null, annotatedJarPath);
+
+        return exitStatus;
+    }
+
+
+    /**
+     * annotate and protect with Oblive each candidate method to protect in a jar of its own. Candidates are
+     * protected concurrently, each one in a folder named after its rank (with the same subfolders of the method
+     * to protect). A candidate that the annotator or Oblive fail to protect is marked as failed, and the others
+     * are protected anyway
+     * @param candidateMeasurements the candidate methods to protect
+     * @param candidateMethodsFolder the folder in which to create the folders of the candidates
+     * @param jarToProtectPath the path of the jar to protect
+     * @param nameOfJarToProtect the name of the jar to protect (to name the protected jars)
+     * @param annotatorPath the path of the jar of the annotator
+     * @param oblivePath the path of the jar of Oblive
+     * @param annotationToApply the annotation to apply
+     * @return for each candidate (in the given order), the path of the protected jar (null if it failed)
+     * @throws Exception if the folders or files of a candidate cannot be created or a process cannot be started
+     */
+    private static ArrayList<String> protectCandidateMethods(ArrayList<CandidateMeasurement> candidateMeasurements,
+                                                             File candidateMethodsFolder, String jarToProtectPath,
+                                                             String nameOfJarToProtect, String annotatorPath,
+                                                             String oblivePath, String annotationToApply)
+            throws Exception {
+
+        ExecutorService workers = Executors.newFixedThreadPool(Math.max(1, Math.min(candidateMeasurements.size(),
+                Runtime.getRuntime().availableProcessors())));
+        ArrayList<Future<String>> protectedJarPaths = new ArrayList<>();
+
+        try {
+            for (CandidateMeasurement candidateMeasurement : candidateMeasurements) {
+                protectedJarPaths.add(workers.submit(() -> {
+
+                    File candidateFolder = new File(candidateMethodsFolder, String.valueOf(candidateMeasurement.getRank()));
+                    File candidateAnnotatorFolder = new File(candidateFolder, kAnnotatorFolderName);
+                    File candidateObliveFolder = new File(candidateFolder, kObliveProtectedJarFolderName);
+                    if (!candidateAnnotatorFolder.mkdirs() || !candidateObliveFolder.mkdir())
+                        throw new IOException("Exception while creating directory or files to contain results");
+
+                    String annotatedJarPath = candidateAnnotatorFolder.getAbsolutePath() + "/" +
+                            nameOfJarToProtect + "_annotated.jar";
+                    int annotatorExitStatus = annotateMethod(candidateMeasurement.getMethod(), jarToProtectPath,
+                            candidateAnnotatorFolder, new File(candidateAnnotatorFolder, kAnnotatorInputFileName),
+                            new File(candidateAnnotatorFolder, kAnnotatorOutputFileName), annotatedJarPath,
+                            annotatorPath, annotationToApply);
+
+                    if (annotatorExitStatus != 0) {
+                        logger.warn("[{}{}{}{}{}{}", "App ", "(" + "protectCandidateMethods" + ")]: ",
+                                "Annotator process exited with code: ", annotatorExitStatus, " for candidate method: ",
+                                candidateMeasurement.getMethod().getMethodForASM());
+                        candidateMeasurement.setFailed(kCandidateStatusAnnotatorFailed);
+                        return null;
+                    }
+
+                    String protectedJarPath = candidateObliveFolder.getAbsolutePath() + "/" +
+                            nameOfJarToProtect + "_" + annotationToApply + ".jar";
+                    int obliveExitStatus = new ObliveTransformator(oblivePath).runOblive(candidateObliveFolder,
+                            annotatedJarPath, protectedJarPath, "oblive_" + annotationToApply);
+
+                    if (obliveExitStatus != 0) {
+                        logger.warn("[{}{}{}{}{}{}", "App ", "(" + "protectCandidateMethods" + ")]: ",
+                                "Oblive process exited with code: ", obliveExitStatus, " for candidate method: ",
+                                candidateMeasurement.getMethod().getMethodForASM());
+                        candidateMeasurement.setFailed(kCandidateStatusObliveFailed);
+                        return null;
+                    }
+
+                    return protectedJarPath;
+                }));
+            }
+
+            ArrayList<String> results = new ArrayList<>();
+            for (Future<String> protectedJarPath : protectedJarPaths) {
+                try {
+                    results.add(protectedJarPath.get());
+                }
+                catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : new Exception(cause);
+                }
+            }
+            return results;
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+
+
+    /**
+     * get the coverage matrix (i.e., which methods each test executes) of a coverage folder containing the per-test
+     * coverage. The matrix is loaded from its file in the folder if already there, otherwise it is built from the
+     * per-test coverage (see JaCoCoUtil.analyzePerTestCoverage) and saved in the folder
+     * @param coverageFolder the folder with the per-test coverage (see TestExecutor.withPerTestCoverage)
+     * @param pathOfJarWithClasses Absolute path of the jar containing the classes on which tests were executed
+     * @return the coverage matrix
+     * @throws IOException if the files of the folder cannot be read or written
+     */
+    private static CoverageMatrix getCoverageMatrix(File coverageFolder, String pathOfJarWithClasses) throws IOException {
+
+        File coverageMatrixFile = new File(coverageFolder, kCoverageMatrixDefaultName);
+        if (coverageMatrixFile.isFile())
+            return CoverageMatrix.load(coverageMatrixFile);
+
+        CoverageMatrix coverageMatrix = CoverageMatrix.fromPerTestCoverage(JaCoCoUtil.analyzePerTestCoverage(
+                new File(coverageFolder, kTestCoverageDefaultName), pathOfJarWithClasses));
+        coverageMatrix.save(coverageMatrixFile);
+        return coverageMatrix;
+    }
+
+
+    /**
+     * create the test executor for the given backend, to execute tests multiple times
+     * @param testExecutionBackend one between kTestExecutionBackendFork, kTestExecutionBackendInProcess
+     *                             and kTestExecutionBackendWarm
+     * @param pathOfJarToExecute Absolute path of the jar containing the code to execute
+     * @param pathOfJarContainingTests Absolute path of the jar containing the test cases for the code to execute
+     * @param pathOfJUnitConsoleJar Absolute path of the JUnit console jar
+     * @param pathOfFolderWithNativeLibraries Absolute path to the folder containing eventual native libraries, null if none
+     * @param directoryForWorkersOutput The folder where to save the output of long-lived JVMs and of cold executions
+     *                                  (if any)
+     * @return the test executor
+     */
+    private static TestExecutor newRepetitionsTestExecutor(String testExecutionBackend, String pathOfJarToExecute,
+                                                           String pathOfJarContainingTests, String pathOfJUnitConsoleJar,
+                                                           String pathOfFolderWithNativeLibraries,
+                                                           File directoryForWorkersOutput) {
+
+        if (testExecutionBackend.equals(kTestExecutionBackendWarm))
+            return new WarmTestExecutor(pathOfJarToExecute, pathOfJarContainingTests,
+                    pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries, directoryForWorkersOutput);
+        else if (testExecutionBackend.equals(kTestExecutionBackendInProcess))
+            return new InProcessTestExecutor(pathOfJarToExecute, pathOfJarContainingTests,
+                    pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries, directoryForWorkersOutput);
+        else
+            return newTestExecutor(testExecutionBackend, pathOfJarToExecute, pathOfJarContainingTests,
+                    pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries);
+    }
+
+
     /**
      * this method recursively deletes a directory and all its content
      * @param currentJarOutputFolder entry point
@@ -26,19 +26,10 @@ public class Const {
     public static final String kTestsFilteredOutFolderName = "original_jar_stripped_of_tests";
 
     /**
-     * folder to (eventually) contain the tests jar file containing only tests that succeed
-     */
-    public static final String kFailedTestsFilteredOutFolderName = "failed_tests_filtered_out";
-
-    /**
-     * folder to (eventually) contain the elaborated jar file containing only tests that execute the methods to protect
+     * folder to contain the JUnit reports over the instrumented jar and the filter excluding tests that do not execute the methods to protect
      */
     public static final String kIrrelevantTestsFilteredFolderName = "irrelevant_tests_filtered_out";
 
-    /**
-     * folder to contain further computation on tests
-     */
-    public static final String kUltimateTestsFolderName = "ultimate_tests";
 
     /**
      * folder to contain the jar file to protect in which methods to protect are instrumented with 'assert false'
@@ -67,6 +58,13 @@ public class Const {
      */
     public static final String kExecutionMetricsProtectedFolderName = "3_2_executionMetrics_protected_jar";
 
+    /**
+     * folder to contain, for each candidate method to protect (in a folder named after its rank), the jar in which
+     * only the candidate is annotated and protected and the results of JUnit execution metrics on it, along with
+     * the results of JUnit execution metrics on the original jar. Subfolders are named as the ones of the method to protect
+     */
+    public static final String kCandidateMethodsFolderName = "3_3_executionMetrics_candidate_methods";
+
     /**
      * folder to contain the results of the execution of the debugging tasks on the original jar
      */
@@ -82,12 +80,69 @@ public class Const {
      */
     public static final String kFinalReportsFolderName = "final_reports";
 
+    /**
+     * folder (in the output folder, shared by all use cases) to contain the cache of the output of the stages
+     */
+    public static final String kArtifactCacheFolderName = "artifact_cache";
+
+    /**
+     * the name of the stage running the tests to check their functional correctness (in the artifact cache and in the completion manifests)
+     */
+    public static final String kPipelineStageTestsCorrectness = "tests_correctness";
+
+    /**
+     * the name of the stage running the tests with coverage (in the artifact cache and in the completion manifests)
+     */
+    public static final String kPipelineStageCoverage = "coverage";
+
+    /**
+     * the name of the stage running the tests on the jar instrumented with 'assert false' (in the artifact cache and in the completion manifests)
+     */
+    public static final String kPipelineStageRelevantTests = "relevant_tests";
+
+    /**
+     * the name of the stage annotating the method to protect (in the artifact cache and in the completion manifests)
+     */
+    public static final String kPipelineStageAnnotator = "annotator";
+
+    /**
+     * the name of the stage transforming the annotated jar with Oblive (in the artifact cache and in the completion manifests)
+     */
+    public static final String kPipelineStageOblive = "oblive";
+
+    /**
+     * the name of the stage collecting the execution metrics on both jars (in the completion manifests)
+     */
+    public static final String kPipelineStageExecutionMetrics = "execution_metrics";
+
+    /**
+     * the name of the stage protecting and measuring each candidate method to protect (in the completion manifests)
+     */
+    public static final String kPipelineStageCandidateMethods = "candidate_methods";
+
+    /**
+     * the name of the stage running the debugging tasks on both jars (in the completion manifests)
+     */
+    public static final String kPipelineStageDebuggingTasks = "debugging_tasks";
+
+    /**
+     * folder (in the folder of the use case) to contain the completion manifests of the stages of the pipeline
+     */
+    public static final String kManifestsFolderName = "manifests";
+
     /**
      * the name of the file that will contain the full signature (classFQN.methodName.desc,
      * ASM style) of the method to protect with Oblive
      */
     public static final String kMethodToProtectFileName = "method_to_protect.txt";
 
+    /**
+     * the name of the file given as input to the annotator tool. The annotator reads each line of the file as the
+     * signature of a method to annotate, so the file contains only the signature of the method to protect (while
+     * the file named kMethodToProtectFileName contains also the details of its selection)
+     */
+    public static final String kAnnotatorInputFileName = "annotator_input.txt";
+
     /**
      * the name of the file that will contain the output of the annotator tool
      */
@@ -99,6 +154,25 @@ public class Const {
      */
     public static final String kExecutionMetricsReportFileName = "execution_metrics_report.csv";
 
+    /**
+     * the value of the cold execution time of a test in the execution metrics report when no cold execution
+     * was measured (e.g., if the cold execution of the warm or in-process backend could not be parsed)
+     */
+    public static final String kColdExecutionTimeNotMeasured = "not_measured";
+
+    /**
+     * this is the name of the file that will contain the overhead measured for each candidate method to protect
+     * (i.e., for each candidate, the execution time of the tests on original jar and on the jar protecting it)
+     */
+    public static final String kCandidateMethodsReportFileName = "candidate_methods_overhead_report.csv";
+
+    /**
+     * this is the name of the file that will contain the differences between the bytecode of the original
+     * and of the protected jar (i.e., for each class and method, instructions, max stack and locals, constant
+     * pool and class file size, added native methods and added classes)
+     */
+    public static final String kBytecodeDiffReportFileName = "bytecode_diff_report.csv";
+
     /**
      * this is the name of the file that will contain the results of the JDB debugging tasks on the original jar
      * (i.e., for each test, whether the debugging task succeeded or not)
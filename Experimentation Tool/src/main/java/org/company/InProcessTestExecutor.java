@@ -0,0 +1,219 @@
+package org.company;
+
+
+import org.company.junit.JUnitLauncherUtil;
+import org.company.junit.JUnitTest;
+import org.company.junit.JUnitUtil;
+import org.company.junit.TestClassLoader;
+import org.jetbrains.annotations.NotNull;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static java.lang.System.exit;
+
+/**
+ * This class implements the methods for running test cases on a use case inside the JVM of this tool, through the
+ * JUnit platform launcher, instead of spawning a new JVM with the JUnit console for each execution. The classes of
+ * the jars are loaded by a class loader owned by the executor, created at the first execution and reused by the next
+ * ones. The output files are the same of the TestExecutor, so that the JUnit reports can be parsed in the same way.
+ * As for the WarmTestExecutor, if a folder for the cold execution is given, the tests are run once to warm up when
+ * the class loader is created: the metrics of this cold execution are saved in the "cold" folder, are available
+ * through getColdExecutionMetrics and are not part of the executions requested with runTests. Remember to call
+ * shutdown when the executor is no longer needed, to close the class loader.
+ * Note that tests with coverage still run in a new JVM, since the JaCoCo agent must be attached at JVM startup
+ */
+public class InProcessTestExecutor extends TestExecutor {
+
+    /**
+     * The folder where to save the JUnit reports of the cold execution, null to not run a cold execution
+     */
+    private final File directoryForColdExecution;
+
+    /**
+     * The metrics of the cold execution (empty if no cold execution was run, or if it could not be parsed)
+     */
+    private final ArrayList<ArrayList<JUnitTest>> coldExecutionMetrics = new ArrayList<>();
+
+    /**
+     * The class loader of the jars, null until the first execution (or after shutdown)
+     */
+    private TestClassLoader classLoader = null;
+
+    /**
+     * The constructor accepts as arguments the path of the jar to execute and the path of the jar containing test files
+     * @param pathOfJarToExecute Absolute path of the jar containing the code to protect execute
+     * @param pathOfJarContainingTests Absolute path of the jar containing the test cases for the code to execute
+     * @param pathOfJUnitConsoleJar Absolute path of the JUnit console jar (used only for tests with coverage)
+     * @param pathOfFolderWithNativeLibraries Absolute path to the folder containing eventual native libraries, null if none
+     */
+    public InProcessTestExecutor (@NotNull String pathOfJarToExecute, @NotNull String pathOfJarContainingTests,
+                                  @NotNull String pathOfJUnitConsoleJar, String pathOfFolderWithNativeLibraries) {
+
+        this(pathOfJarToExecute, pathOfJarContainingTests, pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries, null);
+    }
+
+    /**
+     * The constructor accepts as arguments the path of the jar to execute and the path of the jar containing test files
+     * @param pathOfJarToExecute Absolute path of the jar containing the code to protect execute
+     * @param pathOfJarContainingTests Absolute path of the jar containing the test cases for the code to execute
+     * @param pathOfJUnitConsoleJar Absolute path of the JUnit console jar (used only for tests with coverage)
+     * @param pathOfFolderWithNativeLibraries Absolute path to the folder containing eventual native libraries, null if none
+     * @param directoryForColdExecution The folder where to save the output of the cold execution, null to not run it
+     */
+    public InProcessTestExecutor (@NotNull String pathOfJarToExecute, @NotNull String pathOfJarContainingTests,
+                                  @NotNull String pathOfJUnitConsoleJar, String pathOfFolderWithNativeLibraries,
+                                  File directoryForColdExecution) {
+
+        super(pathOfJarToExecute, pathOfJarContainingTests, pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries);
+        this.directoryForColdExecution = directoryForColdExecution;
+    }
+
+    /**
+     * tests run in the JVM of this tool redirect System.out and System.err, so only one execution at a time is allowed
+     * @return false
+     */
+    @Override
+    public boolean supportsConcurrentExecutions() {
+        return false;
+    }
+
+    /**
+     * the execution metrics of the cold (warm-up) execution, run when the class loader of the jars is created
+     * @return the execution metrics of the cold execution (one array of tests), or an empty array if no
+     *         cold execution was run (see the constructor) or if it could not be parsed
+     */
+    @Override
+    public ArrayList<ArrayList<JUnitTest>> getColdExecutionMetrics() {
+        return new ArrayList<>(coldExecutionMetrics);
+    }
+
+    /**
+     * This function launches the tests on the code in the JVM of this tool. Output files are the same
+     * of TestExecutor.runTests, i.e., "junitOutput.txt" and the "TEST-junit-*.xml" JUnit reports.
+     * If tests have to be executed with coverage, this function falls back to TestExecutor.runTests
+     * @param directoryWhereToSaveFiles directory where to save output files (JUnit and eventual JaCoCO reports)
+     * @param cpuToPinTo ignored, since tests run in the JVM of this tool (unless run with coverage)
+     */
+    @Override
+    public void runTests(@NotNull File directoryWhereToSaveFiles, Integer cpuToPinTo) {
+
+        if (withCoverage) {
+
+            App.logger.info("[{}{}{}", "InProcessTestExecutor ", "(" + "runTests" + ")]: ",
+                    "tests with coverage require the JaCoCo agent, running them in a new JVM");
+
+            super.runTests(directoryWhereToSaveFiles, cpuToPinTo);
+            return;
+        }
+
+        App.logger.info("[{}{}{}{}{}{}", "InProcessTestExecutor ", "(" + "runTests" + ")]: ",
+                "Starting tests (in process) contained in ", pathOfJarContainingTests, " on ", pathOfJarToExecute);
+
+        // where we save the output of the tests
+        File junitOutput = new File(directoryWhereToSaveFiles.getAbsolutePath() + "/junitOutput.txt");
+
+        try {
+
+            if (classLoader == null) {
+
+                classLoader = TestClassLoader.newClassLoader(
+                        pathOfJarToExecute, pathOfJarContainingTests, pathOfFolderWithNativeLibraries);
+
+                if (directoryForColdExecution != null)
+                    runColdExecution();
+            }
+
+            TestExecutionSummary summary = runLauncher(directoryWhereToSaveFiles, junitOutput);
+
+            // as for the JUnit console, failed tests are a failure we are willing to accept
+            if (summary.getTotalFailureCount() == 0)
+                App.logger.info("[{}{}{}{} ", "InProcessTestExecutor ", "(" + "runTests" + ")]: ",
+                        "JUnit launcher completed, tests succeeded: ", summary.getTestsSucceededCount());
+            else
+                App.logger.warn("[{}{}{}{}{} ", "InProcessTestExecutor ", "(" + "runTests" + ")]: ",
+                        "JUnit launcher completed, tests failed: ", summary.getTotalFailureCount(),
+                        " (check file " + junitOutput.getAbsolutePath() + " for program output)");
+        }
+        catch (IOException e) {
+
+            App.logger.error("[{}{}{}{}", "InProcessTestExecutor", "(" + "runTests" + ")]: ",
+                    "IO Exception while executing the tests: ", e.getMessage());
+            exit(2);
+        }
+        // the launcher wraps errors of engines and discovery in (unchecked) JUnit exceptions
+        catch (RuntimeException e) {
+
+            App.logger.error("[{}{}{}{}", "InProcessTestExecutor", "(" + "runTests" + ")]: ",
+                    "Exception while executing the tests: ", e.getMessage());
+            exit(4);
+        }
+    }
+
+    /**
+     * close the class loader of the jars (the next execution, if any, creates a new one)
+     */
+    @Override
+    public void shutdown() {
+
+        if (classLoader == null)
+            return;
+
+        try {
+            classLoader.close();
+        }
+        catch (IOException e) {
+            App.logger.warn("[{}{}{}{}", "InProcessTestExecutor ", "(" + "shutdown" + ")]: ",
+                    "not able to close the class loader of the jars: ", e.getMessage());
+        }
+        classLoader = null;
+    }
+
+    /**
+     * run the tests with the JUnit platform launcher and the class loader of the jars
+     * @param directoryWhereToSaveFiles directory where to save the JUnit reports
+     * @param junitOutput the file where to save the output of the tests
+     * @return the summary of the execution
+     * @throws IOException if the output of the tests cannot be written
+     */
+    private TestExecutionSummary runLauncher(File directoryWhereToSaveFiles, File junitOutput) throws IOException {
+
+        try (PrintStream junitOutputStream = new PrintStream(new FileOutputStream(junitOutput), true)) {
+
+            // NOTE: as for the JUnit console, the order of the jars IS IMPORTANT (first tests, then code)
+            List<Path> classpathRoots = Arrays.asList(
+                    new File(pathOfJarContainingTests).toPath(),
+                    new File(pathOfJarToExecute).toPath());
+
+            return JUnitLauncherUtil.runTests(classLoader, classpathRoots,
+                    Collections.emptyList(), testFilter, directoryWhereToSaveFiles, junitOutputStream);
+        }
+    }
+
+    /**
+     * run the tests once to warm up the class loader of the jars (the cold execution) and keep its execution
+     * metrics apart (see getColdExecutionMetrics)
+     * @throws IOException if the folder of the cold execution cannot be created
+     */
+    private void runColdExecution() throws IOException {
+
+        File coldExecutionFolder = new File(directoryForColdExecution, "cold");
+        if (!coldExecutionFolder.mkdirs())
+            throw new IOException("Error while creating folder for storing output of cold execution");
+
+        runLauncher(coldExecutionFolder, new File(coldExecutionFolder, "junitOutput.txt"));
+
+        try {
+            coldExecutionMetrics.add(JUnitUtil.parseExecutionMetrics(coldExecutionFolder));
+        }
+        catch (Exception e) {
+            App.logger.warn("[{}{}{}{}", "InProcessTestExecutor ", "(" + "runColdExecution" + ")]: ",
+                    "not able to parse the execution metrics of the cold execution: ", e.getMessage());
+        }
+    }
+}
@@ -1,13 +1,28 @@
 package org.company;
 
 
+import org.company.junit.JUnitTest;
+import org.company.jacoco.JaCoCoUtil;
+import org.company.junit.NanoTimingListener;
+import org.company.junit.PerTestCoverageListener;
+import org.company.junit.TestFilter;
+import org.company.junit.TestWorker;
+import org.company.profiler.ProfilerUtil;
 import org.jetbrains.annotations.NotNull;
+import org.junit.platform.launcher.TestExecutionListener;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
 
 import static java.lang.System.exit;
+import static org.company.jacoco.Const.kJacocoReportDefaultName;
+import static org.company.junit.Const.*;
+import static org.company.profiler.Const.*;
 
 /**
  * This class implements the methods for running test cases on a use case.
@@ -18,7 +33,7 @@ public class TestExecutor {
     /**
      * The path of the jar containing the code to protect execute
      */
-    private final String pathOfJarToExecute;
+    protected final String pathOfJarToExecute;
 
     /**
      * The path of the JUnit Console jar
@@ -28,7 +43,7 @@ public class TestExecutor {
     /**
      * The path of the jar containing the test cases for the code to execute
      */
-    private final String pathOfJarContainingTests;
+    protected final String pathOfJarContainingTests;
 
     /**
      * The path of the JaCoCo agent jar for executing tests with coverage
@@ -38,12 +53,33 @@ public class TestExecutor {
     /**
      * Flag for stating whether the tests should be executed with coverage or not
      */
-    private boolean withCoverage = false;
+    protected boolean withCoverage = false;
+
+    /**
+     * Flag for stating whether the coverage of each test should be collected (see withPerTestCoverage)
+     */
+    private boolean withPerTestCoverage = false;
+
+    /**
+     * The file listing the methods to profile with the profiling agent, null to not profile methods
+     */
+    private File candidateMethodsFile;
 
     /**
      * Absolute path to the folder containing eventual native libraries
      */
-    private final String pathOfFolderWithNativeLibraries;
+    protected final String pathOfFolderWithNativeLibraries;
+
+    /**
+     * The filter excluding tests and test classes from the execution, null to run all tests
+     */
+    protected TestFilter testFilter;
+
+    /**
+     * The jar containing the listeners (NanoTimingListener, PerTestCoverageListener) to register
+     * in the JUnit console, created on first use
+     */
+    private static File listenersJar;
 
 
     /**
@@ -79,20 +115,101 @@ public class TestExecutor {
         return this;
     }
 
+    /**
+     * If invoked, the test executor will run tests with coverage (see withCoverage) and, in the same execution,
+     * collect the coverage of each test (see PerTestCoverageListener), saved in the "TEST-coverage.bin" file. The
+     * "jacoco.exec" file still contains the coverage of all tests. The coverage of each test can then be analyzed
+     * with JaCoCoUtil.analyzePerTestCoverage
+     * @param pathOfJaCoCoAgent Absolute path of the JaCoCo agent jar for executing tests with coverage
+     * @return this instance of TestExecutor
+     */
+    public TestExecutor withPerTestCoverage(String pathOfJaCoCoAgent) {
+
+        withPerTestCoverage = true;
+
+        return withCoverage(pathOfJaCoCoAgent);
+    }
+
+    /**
+     * If invoked, the test executor will run tests with the profiling agent (see ProfilingAgent), which counts
+     * the invocations of the given methods and measures the time spent in them. The profile is saved in the
+     * "TEST-profile.bin" file (see ProfilerUtil.readProfile). The profiling agent can run with or without coverage
+     * @param candidateMethodsFile the file listing the methods to profile (see ProfilerUtil.writeCandidateMethods)
+     * @return this instance of TestExecutor
+     */
+    public TestExecutor withProfiling(File candidateMethodsFile) {
+
+        this.candidateMethodsFile = candidateMethodsFile;
+
+        return this;
+    }
+
+    /**
+     * If invoked, the test executor will not run the tests (and test classes) excluded by the given filter, instead
+     * of requiring a jar in which such tests are annotated with @Ignore or @Disabled
+     * @param testFilter the filter excluding tests and test classes from the execution, null to run all tests
+     * @return this instance of TestExecutor
+     */
+    public TestExecutor withTestFilter(TestFilter testFilter) {
+
+        this.testFilter = testFilter;
+
+        return this;
+    }
+
+    /**
+     * whether this test executor can run more test executions at the same time (e.g., to repeat tests in parallel)
+     * @return true, since each execution runs in its own JVM
+     */
+    public boolean supportsConcurrentExecutions() {
+        return true;
+    }
+
+    /**
+     * the execution metrics of the first execution of the tests in each JVM (i.e., with a cold JVM), when
+     * they differ from the other executions. This test executor runs each execution in a new JVM, so every
+     * execution is cold
+     * @return null, meaning that every execution is cold
+     */
+    public ArrayList<ArrayList<JUnitTest>> getColdExecutionMetrics() {
+        return null;
+    }
+
+    /**
+     * release the resources (e.g., long-lived JVMs) held by this test executor. This test executor holds none
+     */
+    public void shutdown() {
+    }
+
+    /**
+     * This function launches the tests on the code, without pinning the JVM to any CPU.
+     * See runTests(File, Integer) for details
+     * @param directoryWhereToSaveFiles directory where to save output files (JUnit and eventual JaCoCO reports)
+     */
+    public void runTests(@NotNull File directoryWhereToSaveFiles) {
+        runTests(directoryWhereToSaveFiles, null);
+    }
+
     /**
      * This function launches the tests on the code, eventually collecting execution metrics
      * Remember that the execution time given by JUnit is not precise if tests are run with JaCoCo
      * The function saves output files in the given folder. In detail, output files are
      * - "junitOutput.txt": the output of the JUnit console jar
-     * - (if run with coverage): "jacoco.exec", "jacoco.xml": contains methods coverage by JaCoCo
+     * - (if run with coverage): "jacoco.exec": contains methods coverage by JaCoCo
+     * - (if run with per-test coverage): "TEST-coverage.bin": contains the JaCoCo execution data of each test
+     * - (if run with profiling): "TEST-profile.bin": contains the invocations of the profiled methods and their time
      * - (if run without coverage): "TEST-junit-jupiter.xml": contains JUnit report and execution time
+     * - "TEST-timings.bin": contains the execution time (in nanoseconds) and outcome of each test
+     * - (if some tests are excluded) "test_filter.txt": contains the test filter
      * @param directoryWhereToSaveFiles directory where to save output files (JUnit and eventual JaCoCO reports)
+     * @param cpuToPinTo the CPU to which the JVM running the tests is pinned (through taskset), null for no pinning
      */
-    public void runTests(@NotNull File directoryWhereToSaveFiles) {
+    public void runTests(@NotNull File directoryWhereToSaveFiles, Integer cpuToPinTo) {
 
-        App.logger.info("[{}{}{}{}{}{}", "TestExecutor ", "(" + "runTests" + ")]: ", "Starting tests (" +
+        App.logger.info("[{}{}{}{}{}{}{}", "TestExecutor ", "(" + "runTests" + ")]: ", "Starting tests (" +
                         (withCoverage ? "with" : "without") + " methods coverage) contained in ",
-                        pathOfJarContainingTests, " on ", pathOfJarToExecute);
+                        pathOfJarContainingTests, " on ", pathOfJarToExecute,
+                        (cpuToPinTo == null ? "" : " pinned to CPU " + cpuToPinTo));
 
         try {
 
@@ -103,24 +220,69 @@ public class TestExecutor {
 
                 // compose the command to launch the JUnit console
                 ArrayList<String> junitConsoleCommand = new ArrayList<>();
+
+                // if we have to pin the JVM to a CPU, run it through taskset (Linux only)
+                if (cpuToPinTo != null)
+                    junitConsoleCommand.addAll(Arrays.asList("taskset", "-c", String.valueOf(cpuToPinTo)));
+
                 junitConsoleCommand.add("java");
 
                 // if we have to run with coverage, include the JaCoCo java agent
                 if (withCoverage)
                     junitConsoleCommand.add("-javaagent:" + pathOfJaCoCoAgent);
 
+                // the profiling agent comes after the JaCoCo agent, so that JaCoCo instruments the original classes
+                if (candidateMethodsFile != null)
+                    junitConsoleCommand.add("-javaagent:" + ProfilerUtil.getProfilingAgentJar().getAbsolutePath() +
+                            "=" + kProfilingAgentMethodsOption + "=" + candidateMethodsFile.getAbsolutePath() +
+                            "," + kProfilingAgentOutputOption + "=" +
+                            new File(directoryWhereToSaveFiles, kMethodProfileDefaultName).getAbsolutePath());
+
                 if (pathOfFolderWithNativeLibraries != null)
                     junitConsoleCommand.add("-Djava.library.path=" + pathOfFolderWithNativeLibraries);
 
-                // NOTE: the order of the jars in the classpath option IS IMPORTANT. The Java interpreter will
-                // look for classes in the jars in the order they appear. Only if a class is not found in the first
-                // jar will the interpreter look in the second jar
-                junitConsoleCommand.addAll(Arrays.asList(
-                        "-jar", pathOfJUnitConsoleJar,
-                        "-cp", pathOfJarContainingTests + ":" + pathOfJarToExecute,
-                        "--scan-classpath",
-                        "--details=verbose",
-                        "--reports-dir", "."));
+                // tell the PerTestCoverageListener where to write the execution data of each test
+                if (withPerTestCoverage)
+                    junitConsoleCommand.add("-D" + kTestCoverageFileProperty + "=" +
+                            new File(directoryWhereToSaveFiles, kTestCoverageDefaultName).getAbsolutePath());
+
+                // the JUnit console cannot apply a filter on single tests (a PostDiscoveryFilter), so if some tests
+                // are excluded we run a one-shot test worker, which uses the JUnit platform launcher (with the
+                // same classpath of this tool) and exits with the same codes of the JUnit console
+                if (testFilter != null && !testFilter.isEmpty()) {
+
+                    File testFilterFile = new File(directoryWhereToSaveFiles, kTestFilterDefaultName);
+                    testFilter.save(testFilterFile);
+
+                    junitConsoleCommand.addAll(Arrays.asList(
+                            "-cp", System.getProperty("java.class.path"),
+                            TestWorker.class.getName(),
+                            kTestWorkerFilterOption, testFilterFile.getAbsolutePath(),
+                            kTestWorkerOnceOption, ".",
+                            pathOfJarToExecute,
+                            pathOfJarContainingTests));
+
+                    if (pathOfFolderWithNativeLibraries != null)
+                        junitConsoleCommand.add(pathOfFolderWithNativeLibraries);
+                }
+                else {
+
+                    // tell the NanoTimingListener (registered, as the PerTestCoverageListener, through
+                    // the ServiceLoader) where to write execution times
+                    junitConsoleCommand.add("-D" + kTestTimingsFileProperty + "=" +
+                            new File(directoryWhereToSaveFiles, kTestTimingsDefaultName).getAbsolutePath());
+
+                    // NOTE: the order of the jars in the classpath option IS IMPORTANT. The Java interpreter will
+                    // look for classes in the jars in the order they appear. Only if a class is not found in the first
+                    // jar will the interpreter look in the second jar
+                    junitConsoleCommand.addAll(Arrays.asList(
+                            "-cp", pathOfJUnitConsoleJar + ":" + getListenersJar().getAbsolutePath(),
+                            kJUnitConsoleLauncherMainClass,
+                            "-cp", pathOfJarContainingTests + ":" + pathOfJarToExecute,
+                            "--scan-classpath",
+                            "--details=verbose",
+                            "--reports-dir", "."));
+                }
                 ProcessBuilder pb = new ProcessBuilder(junitConsoleCommand);
 
                 if (pathOfFolderWithNativeLibraries != null) {
@@ -158,6 +320,12 @@ public class TestExecutor {
 
                     exit(10);
                 }
+
+                // the agent wrote in the exec file only what was executed after the last dump of the
+                // PerTestCoverageListener, so we add what was executed by the tests (and their classes)
+                if (withPerTestCoverage)
+                    JaCoCoUtil.mergePerTestCoverage(new File(directoryWhereToSaveFiles, kTestCoverageDefaultName),
+                            new File(directoryWhereToSaveFiles, kJacocoReportDefaultName));
             }
             // this means that we were not able to create the file for the JUnit output
             else {
@@ -183,4 +351,52 @@ public class TestExecutor {
             exit(5);
         }
     }
+
+    /**
+     * create (once) a jar containing only the listener classes (NanoTimingListener, PerTestCoverageListener) and the
+     * ServiceLoader configuration file that registers them as listeners of the JUnit platform, so that the JUnit
+     * console picks them up automatically
+     * @return the jar (a temporary file deleted on exit)
+     * @throws IOException if the jar cannot be created
+     */
+    private static synchronized File getListenersJar() throws IOException {
+
+        if (listenersJar != null)
+            return listenersJar;
+
+        File jar = File.createTempFile("junit-listeners", ".jar");
+        jar.deleteOnExit();
+
+        List<Class<? extends TestExecutionListener>> listenerClasses =
+                Arrays.asList(NanoTimingListener.class, PerTestCoverageListener.class);
+
+        try (JarOutputStream jarStream = new JarOutputStream(new FileOutputStream(jar))) {
+
+            StringBuilder listenersConfiguration = new StringBuilder();
+
+            for (Class<? extends TestExecutionListener> listenerClass : listenerClasses) {
+
+                String listenerClassFile = listenerClass.getName().replace('.', '/') + ".class";
+
+                try (InputStream listenerClassStream = listenerClass.getResourceAsStream("/" + listenerClassFile)) {
+
+                    if (listenerClassStream == null)
+                        throw new IOException("class file of " + listenerClass.getName() + " not found");
+
+                    jarStream.putNextEntry(new JarEntry(listenerClassFile));
+                    listenerClassStream.transferTo(jarStream);
+                    jarStream.closeEntry();
+                }
+
+                listenersConfiguration.append(listenerClass.getName()).append("\n");
+            }
+
+            jarStream.putNextEntry(new JarEntry("META-INF/services/" + TestExecutionListener.class.getName()));
+            jarStream.write(listenersConfiguration.toString().getBytes(StandardCharsets.UTF_8));
+            jarStream.closeEntry();
+        }
+
+        listenersJar = jar;
+        return listenersJar;
+    }
 }
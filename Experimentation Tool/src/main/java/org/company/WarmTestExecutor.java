@@ -0,0 +1,328 @@
+package org.company;
+
+
+import org.company.junit.JUnitTest;
+import org.company.junit.JUnitUtil;
+import org.company.junit.TestWorker;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.lang.System.exit;
+import static org.company.junit.Const.*;
+
+/**
+ * This class implements the methods for running test cases on a use case in long-lived JVMs (test workers, see the
+ * TestWorker class). Each worker loads the jar containing the code and the jar containing the tests once and then
+ * reruns the tests on request, so that repeated executions measure the steady-state (warm) execution time of the
+ * tests instead of JVM startup, class loading and JIT warm-up. Workers are started on demand (one for each
+ * concurrent execution, pinned to a CPU if requested) and, when started, run the tests once to warm up: the
+ * metrics of these cold executions are saved in the "cold_<worker number>" folders and are available through
+ * getColdExecutionMetrics. Remember to call shutdown when the workers are no longer needed
+ */
+public class WarmTestExecutor extends TestExecutor {
+
+    /**
+     * The folder where to save the output of the workers and the JUnit reports of cold executions
+     */
+    private final File directoryForWorkersOutput;
+
+    /**
+     * The idle workers, grouped by the CPU they are pinned to (-1 for workers not pinned to any CPU)
+     */
+    private final ConcurrentHashMap<Integer, LinkedBlockingQueue<TestWorkerProcess>> idleWorkers =
+            new ConcurrentHashMap<>();
+
+    /**
+     * All the workers started so far (to shut them down)
+     */
+    private final List<TestWorkerProcess> workers = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * The counter used to number workers
+     */
+    private final AtomicInteger workersCounter = new AtomicInteger();
+
+    /**
+     * The metrics of the cold execution of each worker, by worker number
+     */
+    private final TreeMap<Integer, ArrayList<JUnitTest>> coldExecutionMetrics = new TreeMap<>();
+
+
+    /**
+     * The constructor accepts as arguments the path of the jar to execute and the path of the jar containing test files
+     * @param pathOfJarToExecute Absolute path of the jar containing the code to protect execute
+     * @param pathOfJarContainingTests Absolute path of the jar containing the test cases for the code to execute
+     * @param pathOfJUnitConsoleJar Absolute path of the JUnit console jar (used only for tests with coverage)
+     * @param pathOfFolderWithNativeLibraries Absolute path to the folder containing eventual native libraries, null if none
+     * @param directoryForWorkersOutput The folder where to save the output of the workers and cold executions
+     */
+    public WarmTestExecutor (@NotNull String pathOfJarToExecute, @NotNull String pathOfJarContainingTests,
+                             @NotNull String pathOfJUnitConsoleJar, String pathOfFolderWithNativeLibraries,
+                             @NotNull File directoryForWorkersOutput) {
+
+        super(pathOfJarToExecute, pathOfJarContainingTests, pathOfJUnitConsoleJar, pathOfFolderWithNativeLibraries);
+        this.directoryForWorkersOutput = directoryForWorkersOutput;
+    }
+
+    /**
+     * the execution metrics of the first (warm-up) execution of each worker, ordered by worker number
+     * @return the execution metrics of cold executions, one array of tests for each worker
+     */
+    @Override
+    public ArrayList<ArrayList<JUnitTest>> getColdExecutionMetrics() {
+
+        synchronized (coldExecutionMetrics) {
+            return new ArrayList<>(coldExecutionMetrics.values());
+        }
+    }
+
+    /**
+     * This function launches the tests on the code in an idle worker (pinned to the given CPU, if any), starting
+     * a new worker if none is idle. Output files are the same of TestExecutor.runTests, i.e., "junitOutput.txt"
+     * and the "TEST-junit-*.xml" JUnit reports. If tests have to be executed with coverage, this function falls
+     * back to TestExecutor.runTests. If the worker dies, no JUnit report is written (as when the JUnit console
+     * gets killed) and the worker is discarded
+     * @param directoryWhereToSaveFiles directory where to save output files
+     * @param cpuToPinTo the CPU to which the worker running the tests is pinned (through taskset), null for no pinning
+     */
+    @Override
+    public void runTests(@NotNull File directoryWhereToSaveFiles, Integer cpuToPinTo) {
+
+        if (withCoverage) {
+
+            App.logger.info("[{}{}{}", "WarmTestExecutor ", "(" + "runTests" + ")]: ",
+                    "tests with coverage require the JaCoCo agent, running them in a new JVM");
+
+            super.runTests(directoryWhereToSaveFiles, cpuToPinTo);
+            return;
+        }
+
+        try {
+
+            LinkedBlockingQueue<TestWorkerProcess> idleWorkersOnCPU =
+                    idleWorkers.computeIfAbsent(cpuToPinTo == null ? -1 : cpuToPinTo, cpu -> new LinkedBlockingQueue<>());
+
+            TestWorkerProcess worker = idleWorkersOnCPU.poll();
+            if (worker == null)
+                worker = startWorker(cpuToPinTo);
+
+            if (worker != null && runTestsOnWorker(worker, directoryWhereToSaveFiles))
+                idleWorkersOnCPU.add(worker);
+        }
+        catch (IOException e) {
+
+            App.logger.error("[{}{}{}{}", "WarmTestExecutor", "(" + "runTests" + ")]: ",
+                    "IO Exception while executing the tests: ", e.getMessage());
+            exit(2);
+        }
+    }
+
+    /**
+     * ask all workers to exit and wait for them
+     */
+    @Override
+    public void shutdown() {
+
+        synchronized (workers) {
+            for (TestWorkerProcess worker : workers)
+                worker.quit();
+            workers.clear();
+        }
+        idleWorkers.clear();
+    }
+
+    /**
+     * start a new worker and warm it up by running the tests once (the cold execution)
+     * @param cpuToPinTo the CPU to which the worker is pinned (through taskset), null for no pinning
+     * @return the worker, or null if the worker died during the cold execution
+     * @throws IOException if the worker cannot be started
+     */
+    private TestWorkerProcess startWorker(Integer cpuToPinTo) throws IOException {
+
+        int workerNumber = workersCounter.incrementAndGet();
+
+        ArrayList<String> workerCommand = new ArrayList<>();
+
+        // if we have to pin the JVM to a CPU, run it through taskset (Linux only)
+        if (cpuToPinTo != null)
+            workerCommand.addAll(Arrays.asList("taskset", "-c", String.valueOf(cpuToPinTo)));
+
+        workerCommand.add("java");
+
+        if (pathOfFolderWithNativeLibraries != null)
+            workerCommand.add("-Djava.library.path=" + pathOfFolderWithNativeLibraries);
+
+        // the worker runs with the same classpath of this tool (which includes the JUnit platform)
+        workerCommand.addAll(Arrays.asList(
+                "-cp", System.getProperty("java.class.path"),
+                TestWorker.class.getName()));
+
+        // the worker loads the test filter once, at startup
+        if (testFilter != null && !testFilter.isEmpty()) {
+
+            File testFilterFile = new File(directoryForWorkersOutput, "worker_" + workerNumber + "_" + kTestFilterDefaultName);
+            testFilter.save(testFilterFile);
+            workerCommand.addAll(Arrays.asList(kTestWorkerFilterOption, testFilterFile.getAbsolutePath()));
+        }
+
+        workerCommand.addAll(Arrays.asList(pathOfJarToExecute, pathOfJarContainingTests));
+
+        if (pathOfFolderWithNativeLibraries != null)
+            workerCommand.add(pathOfFolderWithNativeLibraries);
+
+        ProcessBuilder pb = new ProcessBuilder(workerCommand);
+
+        if (pathOfFolderWithNativeLibraries != null) {
+            String oldPath = pb.environment().get("PATH");
+            String newPath = oldPath + ":" + pathOfFolderWithNativeLibraries;
+            pb.environment().put("PATH", newPath);
+        }
+
+        // the standard output of the worker carries the replies, everything else goes to the worker output file
+        File workerOutput = new File(directoryForWorkersOutput, "worker_" + workerNumber + "_output.txt");
+        pb.directory(directoryForWorkersOutput).redirectError(ProcessBuilder.Redirect.appendTo(workerOutput));
+
+        App.logger.info("[{}{}{} ", "WarmTestExecutor ", "(" + "startWorker" + ")]: ", "executing command: " +
+                String.join(" ", workerCommand));
+
+        TestWorkerProcess worker = new TestWorkerProcess(pb.start());
+        workers.add(worker);
+
+        // the first execution is the cold one, its JUnit reports are kept apart
+        File coldExecutionFolder = new File(directoryForWorkersOutput, "cold_" + workerNumber);
+        if (!coldExecutionFolder.mkdirs())
+            throw new IOException("Error while creating folder for storing output of cold execution " + workerNumber);
+
+        if (!runTestsOnWorker(worker, coldExecutionFolder))
+            return null;
+
+        try {
+            ArrayList<JUnitTest> coldExecutionMetricsOfWorker = JUnitUtil.parseExecutionMetrics(coldExecutionFolder);
+
+            synchronized (coldExecutionMetrics) {
+                coldExecutionMetrics.put(workerNumber, coldExecutionMetricsOfWorker);
+            }
+        }
+        catch (Exception e) {
+            App.logger.warn("[{}{}{}{}{}", "WarmTestExecutor ", "(" + "startWorker" + ")]: ",
+                    "not able to parse the execution metrics of the cold execution of worker ", workerNumber, e.getMessage());
+        }
+
+        return worker;
+    }
+
+    /**
+     * ask the worker to run the tests and wait for the reply
+     * @param worker the worker
+     * @param directoryWhereToSaveFiles directory where to save output files
+     * @return true if the worker is still alive, false if it died (and was therefore discarded)
+     */
+    private boolean runTestsOnWorker(TestWorkerProcess worker, File directoryWhereToSaveFiles) {
+
+        String reply = worker.sendCommand(kTestWorkerRunCommand + "\t" + directoryWhereToSaveFiles.getAbsolutePath());
+
+        // the worker died, as if the JUnit console was killed
+        if (reply == null) {
+            App.logger.warn("[{}{}{} ", "WarmTestExecutor ", "(" + "runTests" + ")]: ",
+                    "the test worker died while executing the tests");
+            worker.quit();
+            workers.remove(worker);
+            return false;
+        }
+
+        String[] fields = reply.split("\t", 2);
+
+        if (fields[0].equals(kTestWorkerDoneReply) && fields.length == 2) {
+
+            // as for the JUnit console, failed tests are a failure we are willing to accept
+            if (fields[1].equals("0"))
+                App.logger.info("[{}{}{} ", "WarmTestExecutor ", "(" + "runTests" + ")]: ",
+                        "test worker completed the execution of the tests");
+            else
+                App.logger.warn("[{}{}{}{}{} ", "WarmTestExecutor ", "(" + "runTests" + ")]: ",
+                        "test worker completed the execution of the tests, tests failed: ", fields[1],
+                        " (check file " + directoryWhereToSaveFiles.getAbsolutePath() + "/junitOutput.txt for program output)");
+        }
+        else {
+            App.logger.error("[{}{}{}{}", "WarmTestExecutor ", "(" + "runTests" + ")]: ",
+                    "test worker could not execute the tests: ", reply);
+            exit(10);
+        }
+
+        return true;
+    }
+
+    /**
+     * A running test worker along with the streams to send commands and receive replies
+     */
+    private static class TestWorkerProcess {
+
+        /**
+         * the process of the worker
+         */
+        private final Process process;
+
+        /**
+         * the stream to send commands to the worker
+         */
+        private final PrintWriter commands;
+
+        /**
+         * the stream to receive replies from the worker
+         */
+        private final BufferedReader replies;
+
+        /**
+         * Simple constructor
+         * @param process the process of the worker
+         */
+        TestWorkerProcess(Process process) {
+
+            this.process = process;
+            this.commands = new PrintWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8), true);
+            this.replies = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        }
+
+        /**
+         * send a command and wait for the reply
+         * @param command the command
+         * @return the reply, or null if the worker died
+         */
+        String sendCommand(String command) {
+
+            commands.println(command);
+
+            try {
+                return replies.readLine();
+            }
+            catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * ask the worker to exit and wait for it, killing it if it does not exit in time
+         */
+        void quit() {
+
+            commands.println(kTestWorkerQuitCommand);
+            commands.close();
+
+            try {
+                if (!process.waitFor(10, TimeUnit.SECONDS))
+                    process.destroyForcibly();
+            }
+            catch (InterruptedException e) {
+                process.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -2,203 +2,156 @@ package org.company.asm;
 
 import org.company.App;
 import org.company.junit.JUnitTest;
-import org.objectweb.asm.ClassReader;
-import org.objectweb.asm.ClassWriter;
-import org.objectweb.asm.tree.AnnotationNode;
-import org.objectweb.asm.tree.ClassNode;
-import org.objectweb.asm.tree.MethodNode;
+import org.objectweb.asm.*;
 
-import java.io.IOException;
-import java.io.InputStream;
-import java.util.ArrayList;
+import java.util.*;
 
 import static org.company.asm.MyClassVisitor.normalizeDesc;
 import static org.company.junit.Const.*;
+import static org.objectweb.asm.Opcodes.ASM8;
 
 public class ASMUtil {
 
-    public static ClassWriter addAnnotationToClass(InputStream fis, boolean isJunit5) throws IOException {
-
-        ClassNode classNode = new ClassNode();
-        ClassReader classReader = new ClassReader(fis);
-        classReader.accept(classNode, 0);
-
-        String annotationToAdd = isJunit5 ? kDisabledAnnotationFQN : kIgnoreAnnotationFQN;
-        if (classNode.invisibleAnnotations == null)
-            classNode.invisibleAnnotations = new ArrayList<>();
-        if (classNode.visibleAnnotations == null)
-            classNode.visibleAnnotations = new ArrayList<>();
-
-        boolean annotationAlreadyPresent = false;
-        AnnotationNode testAnnotationToRemove = null;
-        for (AnnotationNode oldAnnotation : classNode.invisibleAnnotations) {
-            if (oldAnnotation.desc.equals(annotationToAdd))
-                annotationAlreadyPresent = true;
-            if (oldAnnotation.desc.equals(kTestAnnotationFQN5) || oldAnnotation.desc.equals(kTestAnnotationFQN4))
-                testAnnotationToRemove = oldAnnotation;
-        }
-        if (!annotationAlreadyPresent)
-            classNode.invisibleAnnotations.add(new AnnotationNode(annotationToAdd));
-        classNode.invisibleAnnotations.remove(testAnnotationToRemove);
-
-
-        annotationAlreadyPresent = false;
-        testAnnotationToRemove = null;
-        for (AnnotationNode oldAnnotation : classNode.visibleAnnotations) {
-            if (oldAnnotation.desc.equals(annotationToAdd))
-                annotationAlreadyPresent = true;
-            if (oldAnnotation.desc.equals(kTestAnnotationFQN5) || oldAnnotation.desc.equals(kTestAnnotationFQN4))
-                testAnnotationToRemove = oldAnnotation;
-        }
-        if (!annotationAlreadyPresent)
-            classNode.visibleAnnotations.add(new AnnotationNode(annotationToAdd));
-        classNode.visibleAnnotations.remove(testAnnotationToRemove);
-
-        //ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES); if I have the
-        // ClassWriter.COMPUTE_FRAMES flag, I get a java.lang.TypeNotPresentException
-        // (see https://stackoverflow.com/questions/26573945/classnotfoundexception-at-asm-objectwriter-getcommonsuperclass)
-        // so let's try with the COMPUTE_MAXS flag
-        //ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        //ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        // https://stackoverflow.com/questions/35145997/asm-5-0-3-with-java-1-8-incorrect-maxstack-with-java-lang-verifyerror-operand-s?noredirect=1#comment58021378_35145997
-        ClassWriter classWriter = new ByteCodeWriter(classReader, App.class.getClassLoader(), ClassWriter.COMPUTE_FRAMES);
-
-        classNode.accept(classWriter);
-        return classWriter;
-    }
+    /**
+     * add the @Ignore (JUnit 4) or @Disabled (JUnit 5) annotation to the given tests of a class (removing their
+     * @Test annotation) and, possibly, to the class itself, in a single pass over the class. As only annotations
+     * change, the methods are copied along with their stack map frames (i.e., frames are not computed again)
+     * @param classBytes the bytecode of the class
+     * @param tests the tests to ignore (by name and desc without returning type). The tests that are annotated
+     *              are removed from the array, so that, after the call, the array contains the tests not found
+     * @param annotateAllMethods true to annotate all methods (but constructors) instead of the given tests. In this
+     *                           case, the annotation to add is the one of the first test in the array
+     * @param classAnnotationsToAdd the descs of the annotations to add to the class (e.g., kIgnoreAnnotationFQN)
+     * @param classAnnotationsToAddIfNoMoreTests the descs of the annotations to add to the class only if, after
+     *                                           the annotation of the tests, there are no more tests in the class
+     * @return the result, i.e., the new bytecode of the class and whether there are no more tests in the class
+     */
+    public static IgnoredTestsResult addAnnotationsToIgnoreTests(byte[] classBytes, ArrayList<JUnitTest> tests,
+                                                                 boolean annotateAllMethods,
+                                                                 Collection<String> classAnnotationsToAdd,
+                                                                 Collection<String> classAnnotationsToAddIfNoMoreTests) {
+
+        App.logger.info("[{}{}{}", "ASMUtil", " (" + "addAnnotationsToIgnoreTests" + ")]: ",
+                "adding annotations to tests to ignore (there are " + tests.size() + " tests to ignore)");
 
-    public static boolean thereAreNoMoreTests;
+        ClassReader classReader = new ClassReader(classBytes);
 
+        // first, a quick pass over the methods (not their code) to know which methods are tests and which of
+        // them have to be annotated, so that we know in advance whether there will be tests left in the class
+        LinkedHashMap<String, Boolean> isTestByMethod = getMethodsAndWhetherTheyAreTests(classReader);
 
-    public static ClassWriter addAnnotationToIgnoreTests(InputStream fis, ArrayList<JUnitTest> tests, boolean annotateAllMethods)
-            throws IOException {
+        HashMap<String, Set<String>> methodAnnotationsToAdd = new HashMap<>();
+        ArrayList<JUnitTest> testsWithNewAnnotation = new ArrayList<>();
+        boolean thereAreNoMoreTests = true;
 
-        App.logger.info("[{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                "adding annotations to tests to ignore (there are " + tests.size() + " tests to ignore)");
+        for (Map.Entry<String, Boolean> methodAndWhetherIsTest : isTestByMethod.entrySet()) {
 
+            String name = methodAndWhetherIsTest.getKey();
+            boolean thisTestWasProcessed = false;
 
-        ClassNode classNode = new ClassNode();
-        ClassReader classReader = new ClassReader(fis);
-        classReader.accept(classNode, 0);
+            for (JUnitTest test : tests) {
+                if (name.equals(test.getMethodName() + test.getDescWithoutReturningType()) || annotateAllMethods) {
 
-        ArrayList<JUnitTest> testsWithNewAnnotation = new ArrayList<>();
-        thereAreNoMoreTests = true;
+                    thisTestWasProcessed = true;
+                    methodAnnotationsToAdd.computeIfAbsent(name, key -> new LinkedHashSet<>())
+                            .add(test.isJunit5() ? kDisabledAnnotationFQN : kIgnoreAnnotationFQN);
+                    testsWithNewAnnotation.add(test);
+                }
+            }
 
-        for (MethodNode method : classNode.methods) {
+            // if this method was a test, but we did not process it, it means that
+            // the class will still contain at least one test
+            if (methodAndWhetherIsTest.getValue() && !thisTestWasProcessed)
+                thereAreNoMoreTests = false;
+        }
 
-            if (!method.name.equals("<init>") && !method.name.equals("<clinit>")) {
+        tests.removeAll(testsWithNewAnnotation);
 
-                String name = method.name + normalizeDesc(method.desc);
-                boolean annotationAlreadyPresent;
+        LinkedHashSet<String> allClassAnnotationsToAdd = new LinkedHashSet<>(classAnnotationsToAdd);
+        if (thereAreNoMoreTests)
+            allClassAnnotationsToAdd.addAll(classAnnotationsToAddIfNoMoreTests);
 
-                if (method.invisibleAnnotations == null)
-                    method.invisibleAnnotations = new ArrayList<>();
-                if (method.visibleAnnotations == null)
-                    method.visibleAnnotations = new ArrayList<>();
+        // then, the actual pass. Since the writer is created with the reader, unchanged methods are copied as they are
+        ClassWriter classWriter = new ClassWriter(classReader, 0);
+        classReader.accept(new AddIgnoreAnnotationsAdapterClass(ASM8, classWriter, allClassAnnotationsToAdd,
+                methodAnnotationsToAdd), 0);
 
+        return new IgnoredTestsResult(classWriter.toByteArray(), thereAreNoMoreTests);
+    }
 
-                boolean thisMethodIsATest = false;
-                for (AnnotationNode oldAnnotation : method.invisibleAnnotations) {
-                    if (oldAnnotation.desc.equals(kTestAnnotationFQN5) || oldAnnotation.desc.equals(kTestAnnotationFQN4)) {
-                        thisMethodIsATest = true;
-                        break;
-                    }
-                }
-                for (AnnotationNode oldAnnotation : method.visibleAnnotations) {
-                    if (oldAnnotation.desc.equals(kTestAnnotationFQN5) || oldAnnotation.desc.equals(kTestAnnotationFQN4)) {
-                        thisMethodIsATest = true;
-                        break;
-                    }
-                }
+    /**
+     * the methods of a class (but constructors) and whether they are tests (i.e., annotated with @Test)
+     * @param classReader the reader of the class
+     * @return whether each method is a test, by method name and normalized desc (e.g., "test(String)")
+     */
+    private static LinkedHashMap<String, Boolean> getMethodsAndWhetherTheyAreTests(ClassReader classReader) {
 
-                boolean thisTestWasProcessed = false;
-                for (JUnitTest test: tests) {
-
-                    if (name.equals(test.getMethodName() + test.getDescWithoutReturningType()) || annotateAllMethods) {
-
-                        App.logger.info("[{}{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                                "processing annotations of test ", name);
-                        thisTestWasProcessed = true;
-
-                        AnnotationNode testAnnotationToRemove = null;
-                        String annotationToAdd = test.isJunit5() ? kDisabledAnnotationFQN : kIgnoreAnnotationFQN;
-
-                        for (AnnotationNode oldAnnotation : method.invisibleAnnotations) {
-                            if (oldAnnotation.desc.equals(annotationToAdd))
-                                annotationAlreadyPresent = true;
-                            if (oldAnnotation.desc.equals(kTestAnnotationFQN5) || oldAnnotation.desc.equals(kTestAnnotationFQN4))
-                                testAnnotationToRemove = oldAnnotation;
-                        }
-                        // add annotation in visible annotations
-//                        if (!annotationAlreadyPresent) {
-//                            method.invisibleAnnotations.add(new AnnotationNode(annotationToAdd));
-//                            App.logger.info("[{}{}{}{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-//                                    "annotating method ", name, " with invisible annotation ",  annotationToAdd);
-//                        }
-//                        else
-//                            App.logger.info("[{}{}{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-//                                    "annotation ",  annotationToAdd, " is already present in invisible annotations");
-
-                        if (testAnnotationToRemove != null) {
-                            method.invisibleAnnotations.remove(testAnnotationToRemove);
-                            App.logger.info("[{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                                    "@Test annotation was present in invisible annotations, now removed");
-                        } else
-                            App.logger.info("[{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                                    "@Test annotation was not present in invisible annotations");
-
-
-                        testAnnotationToRemove = null;
-                        annotationAlreadyPresent = false;
-
-                        for (AnnotationNode oldAnnotation : method.visibleAnnotations) {
-                            if (oldAnnotation.desc.equals(annotationToAdd))
-                                annotationAlreadyPresent = true;
-                            if (oldAnnotation.desc.equals(kTestAnnotationFQN5) || oldAnnotation.desc.equals(kTestAnnotationFQN4))
-                                testAnnotationToRemove = oldAnnotation;
-                        }
-
-                        if (!annotationAlreadyPresent) {
-                            method.visibleAnnotations.add(new AnnotationNode(annotationToAdd));
-                            App.logger.info("[{}{}{}{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                                    "annotating method ", name, " with visible annotation ", annotationToAdd);
-                        } else
-                            App.logger.info("[{}{}{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                                    "annotation ", annotationToAdd, " is already present in visible annotations");
-
-                        if (testAnnotationToRemove != null) {
-
-                            method.visibleAnnotations.remove(testAnnotationToRemove);
-                            App.logger.info("[{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                                    "@Test annotation was present in visible annotations, now removed");
-                        } else
-                            App.logger.info("[{}{}{}", "ASMUtil", " (" + "addAnnotationToIgnoreTests" + ")]: ",
-                                    "@Test annotation was not present in visible annotations");
-
-                        testsWithNewAnnotation.add(test);
-                    }
-                }
+        LinkedHashMap<String, Boolean> isTestByMethod = new LinkedHashMap<>();
+
+        classReader.accept(new ClassVisitor(ASM8) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+
+                if (name.equals("<init>") || name.equals("<clinit>"))
+                    return null;
+
+                String methodKey = name + normalizeDesc(desc);
+                isTestByMethod.putIfAbsent(methodKey, false);
 
-                // if this method was a test, but we did not process it, it means that
-                // the class will still contain at least one test
-                if (thisMethodIsATest && !thisTestWasProcessed)
-                    thereAreNoMoreTests = false;
+                return new MethodVisitor(ASM8) {
+                    @Override
+                    public AnnotationVisitor visitAnnotation(String annotationDesc, boolean visible) {
+                        if (annotationDesc.equals(kTestAnnotationFQN5) || annotationDesc.equals(kTestAnnotationFQN4))
+                            isTestByMethod.put(methodKey, true);
+                        return null;
+                    }
+                };
             }
-        }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
 
-        tests.removeAll(testsWithNewAnnotation);
+        return isTestByMethod;
+    }
 
-        //ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES); if I have the
-        // ClassWriter.COMPUTE_FRAMES flag, I get a java.lang.TypeNotPresentException
-        // (see https://stackoverflow.com/questions/26573945/classnotfoundexception-at-asm-objectwriter-getcommonsuperclass)
-        // so let's try with the COMPUTE_MAXS flag
-        //ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_MAXS);
-        //ClassWriter classWriter = new ClassWriter(ClassWriter.COMPUTE_FRAMES);
-        // https://stackoverflow.com/questions/35145997/asm-5-0-3-with-java-1-8-incorrect-maxstack-with-java-lang-verifyerror-operand-s?noredirect=1#comment58021378_35145997
-        ClassWriter classWriter = new ByteCodeWriter(classReader, App.class.getClassLoader(), ClassWriter.COMPUTE_FRAMES);
+    /**
+     * The result of adding the annotations to ignore tests to a class (see addAnnotationsToIgnoreTests)
+     */
+    public static class IgnoredTestsResult {
+
+        /**
+         * the bytecode of the class with the annotations
+         */
+        private final byte[] classBytes;
+
+        /**
+         * true if all the tests in the class are now ignored
+         */
+        private final boolean thereAreNoMoreTests;
+
+        /**
+         * Simple constructor
+         * @param classBytes the bytecode of the class with the annotations
+         * @param thereAreNoMoreTests true if all the tests in the class are now ignored
+         */
+        IgnoredTestsResult(byte[] classBytes, boolean thereAreNoMoreTests) {
+
+            this.classBytes = classBytes;
+            this.thereAreNoMoreTests = thereAreNoMoreTests;
+        }
 
+        /**
+         * getter for classBytes
+         * @return the bytecode of the class with the annotations
+         */
+        public byte[] getClassBytes() {
+            return classBytes;
+        }
 
-        classNode.accept(classWriter);
-        return classWriter;
+        /**
+         * getter for thereAreNoMoreTests
+         * @return true if all the tests in the class are now ignored
+         */
+        public boolean thereAreNoMoreTests() {
+            return thereAreNoMoreTests;
+        }
     }
 }
@@ -0,0 +1,143 @@
+package org.company.asm;
+
+import org.company.App;
+import org.objectweb.asm.*;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.company.junit.Const.kTestAnnotationFQN4;
+import static org.company.junit.Const.kTestAnnotationFQN5;
+
+/**
+ * This class is a visitor with the purpose of adding annotations (e.g., @Ignore or @Disabled) to a class and to
+ * some of its methods, removing the @Test annotation from them. Only annotations change: when the class writer is
+ * created with the class reader of the visited class, the methods that are not annotated are copied as they are
+ * and the code of the others (along with its stack map frames) is passed through, so frames are not recomputed
+ */
+public class AddIgnoreAnnotationsAdapterClass extends MyClassVisitor {
+
+    /**
+     * the descs of the annotations to add to the class (e.g., "Lorg/junit/Ignore;")
+     */
+    private final Set<String> classAnnotationsToAdd;
+
+    /**
+     * the descs of the annotations to add to the methods, by method name and normalized desc (e.g., "test(String)")
+     */
+    private final HashMap<String, Set<String>> methodAnnotationsToAdd;
+
+    /**
+     * the descs of the annotations to add to the class that the class already has
+     */
+    private final HashSet<String> classAnnotationsAlreadyPresent = new HashSet<>();
+
+    /**
+     * true if the annotations to add to the class were added
+     */
+    private boolean classAnnotationsWereAdded = false;
+
+
+    /**
+     * Simple constructor
+     * @param api the API for this visitor
+     * @param cv the class writer object that will output the modified class
+     * @param classAnnotationsToAdd the descs of the annotations to add to the class
+     * @param methodAnnotationsToAdd the descs of the annotations to add to the methods, by method
+     *                               name and normalized desc (see MyClassVisitor.normalizeDesc)
+     */
+    public AddIgnoreAnnotationsAdapterClass(Integer api, ClassWriter cv, Set<String> classAnnotationsToAdd,
+                                            HashMap<String, Set<String>> methodAnnotationsToAdd) {
+
+        super(api, cv);
+        this.classAnnotationsToAdd = classAnnotationsToAdd;
+        this.methodAnnotationsToAdd = methodAnnotationsToAdd;
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+
+        // the annotations of the class come before everything else but the header of the class
+        if (!classAnnotationsToAdd.isEmpty() && (desc.equals(kTestAnnotationFQN5) || desc.equals(kTestAnnotationFQN4)))
+            return null;
+
+        if (visible && classAnnotationsToAdd.contains(desc))
+            classAnnotationsAlreadyPresent.add(desc);
+
+        return super.visitAnnotation(desc, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+        addClassAnnotations();
+        return super.visitTypeAnnotation(typeRef, typePath, desc, visible);
+    }
+
+    @Override
+    public void visitAttribute(Attribute attribute) {
+        addClassAnnotations();
+        super.visitAttribute(attribute);
+    }
+
+    @Override
+    public void visitNestMember(String nestMember) {
+        addClassAnnotations();
+        super.visitNestMember(nestMember);
+    }
+
+    @Override
+    public void visitInnerClass(String name, String outerName, String innerName, int access) {
+        addClassAnnotations();
+        super.visitInnerClass(name, outerName, innerName, access);
+    }
+
+    @Override
+    public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+        addClassAnnotations();
+        return super.visitField(access, name, desc, signature, value);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+
+        addClassAnnotations();
+
+        MethodVisitor methodVisitor = super.visitMethod(access, name, desc, signature, exceptions);
+
+        Set<String> annotationsToAdd = methodAnnotationsToAdd.get(name + normalizeDesc(desc));
+        if (annotationsToAdd == null || name.equals("<init>") || name.equals("<clinit>"))
+            return methodVisitor;
+
+        App.logger.info("[{}{}{}{}{}{}{}", "AddIgnoreAnnotationsAdapterClass", " (" + "visitMethod" + ")]: ",
+                "annotating method ", getClassName().replace("/", "."), ".", name + normalizeDesc(desc),
+                " with visible annotations " + annotationsToAdd);
+
+        return new AddIgnoreAnnotationsAdapterMethod(api, methodVisitor, annotationsToAdd);
+    }
+
+    @Override
+    public void visitEnd() {
+        addClassAnnotations();
+        super.visitEnd();
+    }
+
+    /**
+     * add the annotations to add to the class that the class does not already have (once, after that all
+     * the annotations of the class were visited)
+     */
+    private void addClassAnnotations() {
+
+        if (classAnnotationsWereAdded)
+            return;
+        classAnnotationsWereAdded = true;
+
+        for (String annotationToAdd : classAnnotationsToAdd) {
+            if (!classAnnotationsAlreadyPresent.contains(annotationToAdd)) {
+                AnnotationVisitor annotationVisitor = super.visitAnnotation(annotationToAdd, true);
+                if (annotationVisitor != null)
+                    annotationVisitor.visitEnd();
+            }
+        }
+    }
+}
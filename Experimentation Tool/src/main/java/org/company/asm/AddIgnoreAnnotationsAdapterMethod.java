@@ -0,0 +1,115 @@
+package org.company.asm;
+
+import org.objectweb.asm.AnnotationVisitor;
+import org.objectweb.asm.Attribute;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.TypePath;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.company.junit.Const.kTestAnnotationFQN4;
+import static org.company.junit.Const.kTestAnnotationFQN5;
+
+/**
+ * This class is a visitor with the purpose of adding annotations (e.g., @Ignore or @Disabled) to a method and
+ * removing its @Test annotation. Everything else (i.e., the code of the method) is passed through unchanged
+ */
+public class AddIgnoreAnnotationsAdapterMethod extends MethodVisitor {
+
+    /**
+     * the descs of the annotations to add to the method (e.g., "Lorg/junit/Ignore;")
+     */
+    private final Set<String> annotationsToAdd;
+
+    /**
+     * the descs of the annotations to add that the method already has
+     */
+    private final HashSet<String> annotationsAlreadyPresent = new HashSet<>();
+
+    /**
+     * true if the annotations to add were added
+     */
+    private boolean annotationsWereAdded = false;
+
+
+    /**
+     * Simple constructor
+     * @param api the API for this visitor
+     * @param mv the method visitor to which to pass the (modified) method
+     * @param annotationsToAdd the descs of the annotations to add to the method
+     */
+    public AddIgnoreAnnotationsAdapterMethod(Integer api, MethodVisitor mv, Set<String> annotationsToAdd) {
+
+        super(api, mv);
+        this.annotationsToAdd = annotationsToAdd;
+    }
+
+    @Override
+    public AnnotationVisitor visitAnnotation(String desc, boolean visible) {
+
+        // the annotations of the method come before its parameter annotations, attributes and code
+        if (desc.equals(kTestAnnotationFQN5) || desc.equals(kTestAnnotationFQN4))
+            return null;
+
+        if (visible && annotationsToAdd.contains(desc))
+            annotationsAlreadyPresent.add(desc);
+
+        return super.visitAnnotation(desc, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitTypeAnnotation(int typeRef, TypePath typePath, String desc, boolean visible) {
+        addAnnotations();
+        return super.visitTypeAnnotation(typeRef, typePath, desc, visible);
+    }
+
+    @Override
+    public void visitAnnotableParameterCount(int parameterCount, boolean visible) {
+        addAnnotations();
+        super.visitAnnotableParameterCount(parameterCount, visible);
+    }
+
+    @Override
+    public AnnotationVisitor visitParameterAnnotation(int parameter, String desc, boolean visible) {
+        addAnnotations();
+        return super.visitParameterAnnotation(parameter, desc, visible);
+    }
+
+    @Override
+    public void visitAttribute(Attribute attribute) {
+        addAnnotations();
+        super.visitAttribute(attribute);
+    }
+
+    @Override
+    public void visitCode() {
+        addAnnotations();
+        super.visitCode();
+    }
+
+    @Override
+    public void visitEnd() {
+        addAnnotations();
+        super.visitEnd();
+    }
+
+    /**
+     * add the annotations to add that the method does not already have (once, after that all
+     * the annotations of the method were visited)
+     */
+    private void addAnnotations() {
+
+        if (annotationsWereAdded)
+            return;
+        annotationsWereAdded = true;
+
+        for (String annotationToAdd : annotationsToAdd) {
+            if (!annotationsAlreadyPresent.contains(annotationToAdd)) {
+                AnnotationVisitor annotationVisitor = super.visitAnnotation(annotationToAdd, true);
+                if (annotationVisitor != null)
+                    annotationVisitor.visitEnd();
+            }
+        }
+    }
+}
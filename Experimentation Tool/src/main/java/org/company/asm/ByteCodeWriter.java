@@ -3,46 +3,34 @@ package org.company.asm;
 import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 
+/**
+ * This class is a ClassWriter that finds common superclasses (to compute frames) through a ClassHierarchyResolver,
+ * i.e., without loading the classes of the jar being written (which the class loader of this tool cannot see)
+ */
 public class ByteCodeWriter extends ClassWriter
 {
     static final String OBJECT_REPRESENTATION = "java/lang/Object";
-    ClassLoader classLoader;
 
-    public ByteCodeWriter(ClassReader classReader, ClassLoader loader, int writerFlag)
+    /**
+     * the resolver of the common superclasses
+     */
+    private final ClassHierarchyResolver classHierarchyResolver;
+
+    /**
+     * Simple constructor
+     * @param classReader the reader of the class to write (see ClassWriter)
+     * @param classHierarchyResolver the resolver of the common superclasses
+     * @param writerFlag the flags of the writer (see ClassWriter)
+     */
+    public ByteCodeWriter(ClassReader classReader, ClassHierarchyResolver classHierarchyResolver, int writerFlag)
     {
         super(classReader, writerFlag);
-        this.classLoader = loader;
+        this.classHierarchyResolver = classHierarchyResolver;
     }
 
+    @Override
     protected String getCommonSuperClass(String className1, String className2)
     {
-        Class class1;
-        Class class2;
-        try
-        {
-            class1 = Class.forName(className1.replace('/', '.'), false, this.classLoader);
-            class2 = Class.forName(className2.replace('/', '.'), false, this.classLoader);
-        }
-        catch (Exception th) {
-            return "java/lang/Object";
-            //throw new RuntimeException(th.getMessage());
-        }
-
-        if (class1.isAssignableFrom(class2)) {
-            return className1;
-        }
-        if (class2.isAssignableFrom(class1)) {
-            return className2;
-        }
-
-        if ((class1.isInterface()) || (class2.isInterface())) {
-            return "java/lang/Object";
-        }
-
-        do {
-            class1 = class1.getSuperclass();
-        }
-        while (!(class1.isAssignableFrom(class2)));
-        return class1.getName().replace('.', '/');
+        return classHierarchyResolver.getCommonSuperClass(className1, className2);
     }
-}
\ No newline at end of file
+}
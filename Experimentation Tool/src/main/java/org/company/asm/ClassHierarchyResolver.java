@@ -0,0 +1,169 @@
+package org.company.asm;
+
+import org.company.jar.JarIndex;
+import org.objectweb.asm.ClassReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.company.asm.ByteCodeWriter.OBJECT_REPRESENTATION;
+
+/**
+ * This class finds the common superclass of two classes for ByteCodeWriter (i.e., when ASM computes the frames of
+ * methods) without loading any class. The hierarchy is walked through the index of the jar being written (see
+ * JarIndex) and, for the classes that are not in the jar (e.g., the classes of the JDK), through the headers of the
+ * class files found by the given class loader, which are read but never defined (nor initialized). Headers and
+ * common superclasses are memoized, and the resolver can be shared by writers running in parallel
+ */
+public class ClassHierarchyResolver {
+
+    /**
+     * the index of the jar being written, null if none
+     */
+    private final JarIndex jarIndex;
+
+    /**
+     * the class loader to find the class files of the classes that are not in the jar
+     */
+    private final ClassLoader classLoader;
+
+    /**
+     * the information on the classes that are not in the jar, by internal name (empty if the class was not found)
+     */
+    private final ConcurrentHashMap<String, Optional<JarIndex.ClassInfo>> otherClasses = new ConcurrentHashMap<>();
+
+    /**
+     * the common superclasses already computed, by pair of internal names
+     */
+    private final ConcurrentHashMap<String, String> commonSuperClasses = new ConcurrentHashMap<>();
+
+
+    /**
+     * Simple constructor
+     * @param jarIndex the index of the jar being written, null if none
+     * @param classLoader the class loader to find the class files of the classes that are not in the jar
+     */
+    public ClassHierarchyResolver(JarIndex jarIndex, ClassLoader classLoader) {
+
+        this.jarIndex = jarIndex;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * find the common superclass of two classes, as ClassWriter.getCommonSuperClass. If the hierarchy of a class
+     * cannot be walked (i.e., the class or one of its superclasses is unknown), java/lang/Object is returned
+     * @param className1 the internal name of a class (e.g., "org/example/className")
+     * @param className2 the internal name of the other class
+     * @return the internal name of the common superclass
+     */
+    public String getCommonSuperClass(String className1, String className2) {
+
+        if (className1.equals(className2))
+            return className1;
+
+        return commonSuperClasses.computeIfAbsent(className1 + ";" + className2,
+                key -> computeCommonSuperClass(className1, className2));
+    }
+
+    /**
+     * compute the common superclass of two classes (see getCommonSuperClass)
+     * @param className1 the internal name of a class
+     * @param className2 the internal name of the other class
+     * @return the internal name of the common superclass
+     */
+    private String computeCommonSuperClass(String className1, String className2) {
+
+        JarIndex.ClassInfo classInfo1 = getClassInfo(className1);
+        JarIndex.ClassInfo classInfo2 = getClassInfo(className2);
+        if (classInfo1 == null || classInfo2 == null)
+            return OBJECT_REPRESENTATION;
+
+        HashSet<String> supertypes1 = getSupertypes(className1);
+        HashSet<String> supertypes2 = getSupertypes(className2);
+        if (supertypes1 == null || supertypes2 == null)
+            return OBJECT_REPRESENTATION;
+
+        if (supertypes2.contains(className1))
+            return className1;
+        if (supertypes1.contains(className2))
+            return className2;
+
+        if (classInfo1.isInterface() || classInfo2.isInterface())
+            return OBJECT_REPRESENTATION;
+
+        // the first superclass of the first class that is also a superclass of the second one
+        String superName = classInfo1.getSuperName();
+        while (superName != null && !supertypes2.contains(superName))
+            superName = getClassInfo(superName).getSuperName();
+
+        return superName == null ? OBJECT_REPRESENTATION : superName;
+    }
+
+    /**
+     * all the supertypes of a class, i.e., the class itself, its superclasses and all the interfaces they implement
+     * @param className the internal name of the class
+     * @return the internal names of the supertypes, null if the hierarchy contains an unknown class
+     */
+    private HashSet<String> getSupertypes(String className) {
+
+        HashSet<String> supertypes = new HashSet<>();
+        HashSet<String> interfacesToVisit = new HashSet<>();
+
+        String superName = className;
+        while (superName != null) {
+
+            JarIndex.ClassInfo classInfo = getClassInfo(superName);
+            if (classInfo == null)
+                return null;
+
+            supertypes.add(superName);
+            interfacesToVisit.addAll(classInfo.getInterfaces());
+            superName = classInfo.getSuperName();
+        }
+
+        while (!interfacesToVisit.isEmpty()) {
+
+            String interfaceName = interfacesToVisit.iterator().next();
+            interfacesToVisit.remove(interfaceName);
+            if (!supertypes.add(interfaceName))
+                continue;
+
+            // an unknown interface does not prevent computing the common superclass of classes
+            JarIndex.ClassInfo interfaceInfo = getClassInfo(interfaceName);
+            if (interfaceInfo != null)
+                interfacesToVisit.addAll(interfaceInfo.getInterfaces());
+        }
+
+        return supertypes;
+    }
+
+    /**
+     * the information on a class, from the index of the jar or from the header of its class file
+     * @param className the internal name of the class
+     * @return the information on the class, null if the class was not found
+     */
+    private JarIndex.ClassInfo getClassInfo(String className) {
+
+        if (jarIndex != null) {
+            JarIndex.ClassInfo classInfo = jarIndex.getClassInfo(className);
+            if (classInfo != null)
+                return classInfo;
+        }
+
+        return otherClasses.computeIfAbsent(className, key -> {
+
+            try (InputStream classStream = classLoader.getResourceAsStream(className + ".class")) {
+                return classStream == null ?
+                        Optional.empty() :
+                        Optional.of(JarIndex.readClassHeader(new ClassReader(classStream)));
+            }
+            // e.g., the class file has a version that ASM does not support
+            catch (IOException | RuntimeException e) {
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+}
@@ -0,0 +1,257 @@
+package org.company.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.company.App;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.UUID;
+
+import static java.lang.System.exit;
+import static org.company.cache.Const.kArtifactCacheFormatVersion;
+import static org.company.cache.Const.kArtifactCacheHashBufferSize;
+
+/**
+ * This class caches the output folders of the stages of the pipeline (e.g., the JUnit reports of the correctness
+ * run or the jar produced by Oblive), so that a stage whose inputs did not change since a previous run is not
+ * executed again. Each entry is identified by a key, i.e., the SHA-256 of everything the stage depends on (the
+ * content of the input jars and of the tools, the annotation, ...), see the Key class. Entries are folders named
+ * after the key in the cache folder, each one containing a copy of the output folders of the stage ("0", "1", ...).
+ * Entries are written in a temporary folder and then renamed, so that an entry exists only if it is complete.
+ * Errors of the cache are never fatal: they are logged and the stage is simply executed
+ */
+public class ArtifactCache {
+
+    /**
+     * the folder containing the entries of the cache
+     */
+    private final File cacheFolder;
+
+    /**
+     * whether the cache is used, if false the cache never restores nor stores anything
+     */
+    private final boolean enabled;
+
+
+    /**
+     * Simple constructor
+     * @param cacheFolder the folder containing the entries of the cache (created if it does not exist)
+     * @param enabled whether the cache is used, if false the cache never restores nor stores anything
+     */
+    public ArtifactCache(File cacheFolder, boolean enabled) {
+
+        this.cacheFolder = cacheFolder;
+        this.enabled = enabled;
+    }
+
+    /**
+     * copy the output folders of a stage from the cache entry with the given key, if any. If the copy fails, the
+     * output folders are emptied, so that the stage can be executed as if the entry did not exist
+     * @param key the key of the stage
+     * @param outputFolders the output folders of the stage, in the same order given to store
+     * @return true if the output folders were restored (so the stage can be skipped), false otherwise
+     */
+    public boolean restore(Key key, File... outputFolders) {
+
+        if (!enabled)
+            return false;
+
+        File entry = new File(cacheFolder, key.toString());
+
+        if (!entry.isDirectory()) {
+            App.logger.info("[{}{}{}{}", "ArtifactCache ", "(" + "restore" + ")]: ", "cache miss for ", key);
+            return false;
+        }
+
+        try {
+            for (int i = 0; i < outputFolders.length; i++)
+                FileUtils.copyDirectory(new File(entry, String.valueOf(i)), outputFolders[i]);
+        }
+        catch (IOException e) {
+
+            App.logger.warn("[{}{}{}{}{}", "ArtifactCache ", "(" + "restore" + ")]: ",
+                    "not able to restore cache entry " + key + ", the stage will be executed: ", e.getMessage());
+
+            try {
+                for (File outputFolder : outputFolders)
+                    FileUtils.cleanDirectory(outputFolder);
+            }
+            catch (IOException | IllegalArgumentException ex) {
+                App.logger.error("[{}{}{}{}", "ArtifactCache ", "(" + "restore" + ")]: ",
+                        "not able to clean the output folders after a failed restore: ", ex.getMessage());
+                exit(2);
+            }
+
+            return false;
+        }
+
+        App.logger.info("[{}{}{}{}", "ArtifactCache ", "(" + "restore" + ")]: ", "cache hit for ", key);
+        return true;
+    }
+
+    /**
+     * copy the output folders of a stage in the cache entry with the given key. If the entry already
+     * exists (e.g., because it was stored by a concurrent run), it is left untouched
+     * @param key the key of the stage
+     * @param outputFolders the output folders of the stage
+     */
+    public void store(Key key, File... outputFolders) {
+
+        if (!enabled)
+            return;
+
+        File entry = new File(cacheFolder, key.toString());
+        if (entry.isDirectory()) {
+            App.logger.info("[{}{}{}{}", "ArtifactCache ", "(" + "store" + ")]: ", "cache entry already stored ", key);
+            return;
+        }
+
+        File temporaryEntry = new File(cacheFolder, key + ".tmp-" + UUID.randomUUID());
+
+        try {
+
+            for (int i = 0; i < outputFolders.length; i++)
+                FileUtils.copyDirectory(outputFolders[i], new File(temporaryEntry, String.valueOf(i)));
+
+            try {
+                Files.move(temporaryEntry.toPath(), entry.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            }
+            catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporaryEntry.toPath(), entry.toPath());
+            }
+
+            App.logger.info("[{}{}{}{}", "ArtifactCache ", "(" + "store" + ")]: ", "stored cache entry ", key);
+        }
+        catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            App.logger.info("[{}{}{}{}", "ArtifactCache ", "(" + "store" + ")]: ", "cache entry already stored ", key);
+        }
+        catch (IOException e) {
+            App.logger.warn("[{}{}{}{}{}", "ArtifactCache ", "(" + "store" + ")]: ",
+                    "not able to store cache entry " + key + ": ", e.getMessage());
+        }
+        finally {
+            FileUtils.deleteQuietly(temporaryEntry);
+        }
+    }
+
+
+
+    /**
+     * The key of a cache entry, i.e., the name of the stage followed by the SHA-256 of everything the stage depends
+     * on. Each input is hashed along with its length, so that different sequences of inputs give different keys
+     */
+    public static class Key {
+
+        /**
+         * the name of the stage
+         */
+        private final String stage;
+
+        /**
+         * the digest of the inputs given so far
+         */
+        private final MessageDigest digest;
+
+        /**
+         * the key, computed when first requested (after that, no more inputs can be given)
+         */
+        private String key;
+
+
+        /**
+         * Simple constructor
+         * @param stage the name of the stage (e.g., "coverage"), used as prefix of the key
+         */
+        public Key(String stage) {
+
+            this.stage = stage;
+
+            try {
+                digest = MessageDigest.getInstance("SHA-256");
+            }
+            // every implementation of the Java platform is required to support SHA-256
+            catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException(e);
+            }
+
+            withString(kArtifactCacheFormatVersion);
+            withString(stage);
+        }
+
+        /**
+         * add a string to the inputs of the stage (e.g., the annotation to apply)
+         * @param value the string, null is a valid value
+         * @return this instance of Key
+         */
+        public Key withString(String value) {
+
+            if (key != null)
+                throw new IllegalStateException("the key " + key + " was already computed");
+
+            byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+            update(value == null ? -1 : bytes.length);
+            digest.update(bytes);
+            return this;
+        }
+
+        /**
+         * add the content of a file to the inputs of the stage (e.g., a jar). Note that only the content
+         * of the file is considered, not its path nor its last modification time
+         * @param file the file
+         * @return this instance of Key
+         * @throws IOException if the file cannot be read
+         */
+        public Key withFile(File file) throws IOException {
+
+            if (key != null)
+                throw new IllegalStateException("the key " + key + " was already computed");
+
+            update(file.length());
+
+            try (InputStream fileStream = new FileInputStream(file)) {
+
+                byte[] buffer = new byte[kArtifactCacheHashBufferSize];
+                int read;
+                while ((read = fileStream.read(buffer)) != -1)
+                    digest.update(buffer, 0, read);
+            }
+
+            return this;
+        }
+
+        /**
+         * the key, i.e., the name of the stage, "_" and the SHA-256 of the inputs (hexadecimal)
+         * @return the key
+         */
+        @Override
+        public String toString() {
+
+            if (key == null) {
+
+                StringBuilder hash = new StringBuilder(stage).append("_");
+                for (byte b : digest.digest())
+                    hash.append(String.format("%02x", b));
+                key = hash.toString();
+            }
+
+            return key;
+        }
+
+        /**
+         * add a length to the digest
+         * @param length the length
+         */
+        private void update(long length) {
+
+            for (int i = 7; i >= 0; i--)
+                digest.update((byte) (length >>> (8 * i)));
+        }
+    }
+}
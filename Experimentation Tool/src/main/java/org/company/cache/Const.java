@@ -0,0 +1,36 @@
+package org.company.cache;
+
+/**
+ * simple class to hold generic constant values related to the cache of the artifacts of the pipeline
+ */
+public class Const {
+
+    /**
+     * the version of the layout of the cache entries. It is part of every cache key, so that changing
+     * what a stage stores in the cache (or how) makes the entries of previous versions unreachable
+     */
+    public static final String kArtifactCacheFormatVersion = "1";
+
+    /**
+     * the version of the code of this tool that rewrites jars (e.g., JarUtil, JarTransformer and the ASM visitors).
+     * It is part of the cache keys of the stages whose output contains jars rewritten by this tool, so that a change
+     * in how jars are rewritten makes the jars cached by previous versions unreachable. To be changed whenever such
+     * code changes its output
+     */
+    public static final String kArtifactCacheJarRewritingVersion = "1";
+
+    /**
+     * the size (in bytes) of the buffer used to hash the content of files
+     */
+    public static final int kArtifactCacheHashBufferSize = 64 * 1024;
+
+    /**
+     * the extension of the completion manifest of a stage of the pipeline
+     */
+    public static final String kCompletionManifestExtension = ".completed";
+
+    /**
+     * the extension of the progress log of a stage of the pipeline
+     */
+    public static final String kProgressLogExtension = ".progress";
+}
@@ -0,0 +1,245 @@
+package org.company.cache;
+
+import org.apache.commons.io.FileUtils;
+import org.company.App;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import static org.company.cache.Const.kCompletionManifestExtension;
+import static org.company.cache.Const.kProgressLogExtension;
+
+/**
+ * This class keeps track of the stages of the pipeline that completed, so that an analysis interrupted by a crash
+ * (or by an exit) can be resumed instead of being executed again from scratch. When a stage completes, it writes a
+ * completion manifest (a file named after the stage, containing the key of its inputs, see ArtifactCache.Key).
+ * When resuming, a stage is skipped if its manifest exists and contains the same key, i.e., the stage completed
+ * with the same inputs. The first stage that did not complete is executed again (after emptying its output
+ * folders) along with all the following stages, whose manifests are deleted. Stages made of many independent
+ * units of work (e.g., the debugging tasks) can also record the outcome of each unit in a progress log, so that
+ * only the missing units are executed when resuming
+ */
+public class PipelineCheckpoint {
+
+    /**
+     * the folder containing the completion manifests and the progress logs
+     */
+    private final File manifestsFolder;
+
+    /**
+     * whether this run resumes a previous run, i.e., the output folders may contain the output of a previous run
+     */
+    private final boolean resume;
+
+    /**
+     * whether the stages are still being resumed, i.e., all stages checked so far completed in a previous run
+     */
+    private boolean resuming;
+
+    /**
+     * the stages that completed in a previous run and were skipped in this run
+     */
+    private final HashSet<String> resumedStages = new HashSet<>();
+
+    /**
+     * the outcome of each unit of work recorded in the progress log, by unit
+     */
+    private final HashMap<String, String> progress = new HashMap<>();
+
+    /**
+     * the stream to append the outcome of units of work to the progress log, null if no progress log is open
+     */
+    private PrintWriter progressLog;
+
+
+    /**
+     * Simple constructor
+     * @param manifestsFolder the folder containing the completion manifests and the progress logs
+     * @param resume whether to resume the stages that completed in a previous run
+     * @throws IOException if the folder does not exist and cannot be created
+     */
+    public PipelineCheckpoint(File manifestsFolder, boolean resume) throws IOException {
+
+        if (!manifestsFolder.isDirectory() && !manifestsFolder.mkdirs())
+            throw new IOException("not able to create the folder " + manifestsFolder.getAbsolutePath() +
+                    " to contain the completion manifests");
+
+        this.manifestsFolder = manifestsFolder;
+        this.resume = resume;
+        this.resuming = resume;
+    }
+
+    /**
+     * whether the given stage completed in a previous run with the same inputs, so that it can be skipped. If not,
+     * from now on all stages (this one included) are executed again: the manifests (and progress logs) of the
+     * stages that were not resumed are deleted and, when resuming, the output folders of this stage are emptied
+     * @param stage the name of the stage
+     * @param key the key of the inputs of the stage
+     * @param outputFolders the output folders of the stage, emptied if the stage has to be executed again
+     * @return true if the stage can be skipped, false otherwise
+     * @throws IOException if the output folders or the manifests cannot be deleted
+     */
+    public boolean isCompleted(String stage, ArtifactCache.Key key, File... outputFolders) throws IOException {
+
+        if (resuming) {
+
+            File manifest = new File(manifestsFolder, stage + kCompletionManifestExtension);
+
+            if (manifest.isFile() && FileUtils.readFileToString(manifest, StandardCharsets.UTF_8).equals(key.toString())) {
+
+                App.logger.info("[{}{}{}{}", "PipelineCheckpoint ", "(" + "isCompleted" + ")]: ",
+                        "resuming the analysis, stage already completed: ", stage);
+
+                resumedStages.add(stage);
+                return true;
+            }
+
+            App.logger.info("[{}{}{}{}", "PipelineCheckpoint ", "(" + "isCompleted" + ")]: ",
+                    "resuming the analysis from stage: ", stage);
+
+            resuming = false;
+
+            // the stages after this one may depend on the output of this one, so they cannot be resumed
+            File[] manifests = manifestsFolder.listFiles();
+            if (manifests != null)
+                for (File otherManifest : manifests)
+                    if (!resumedStages.contains(getStage(otherManifest)))
+                        Files.delete(otherManifest.toPath());
+        }
+
+        // the output folders may contain the partial output of the previous run
+        if (resume)
+            for (File outputFolder : outputFolders)
+                if (outputFolder.isDirectory())
+                    FileUtils.cleanDirectory(outputFolder);
+
+        return false;
+    }
+
+    /**
+     * write the completion manifest of the given stage
+     * @param stage the name of the stage
+     * @param key the key of the inputs of the stage
+     * @throws IOException if the manifest cannot be written
+     */
+    public void markCompleted(String stage, ArtifactCache.Key key) throws IOException {
+
+        File manifest = new File(manifestsFolder, stage + kCompletionManifestExtension);
+        File temporaryManifest = new File(manifestsFolder, stage + kCompletionManifestExtension + ".tmp");
+
+        // the manifest is renamed only when written, so that it is never found incomplete
+        FileUtils.writeStringToFile(temporaryManifest, key.toString(), StandardCharsets.UTF_8);
+        Files.move(temporaryManifest.toPath(), manifest.toPath(), StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * open the progress log of the given stage. If the stage is being resumed (i.e., all previous stages completed)
+     * and the log was written with the same key, the outcome of the units of work recorded in the log are loaded
+     * (see getProgress), otherwise the log is started again (and, when resuming, the output folders are emptied)
+     * @param stage the name of the stage
+     * @param key the key of the inputs of the stage
+     * @param outputFolders the output folders of the stage, emptied if the log is started again
+     * @throws IOException if the progress log cannot be read or written
+     */
+    public void openProgressLog(String stage, ArtifactCache.Key key, File... outputFolders) throws IOException {
+
+        closeProgressLog();
+        progress.clear();
+
+        File log = new File(manifestsFolder, stage + kProgressLogExtension);
+
+        boolean isLogToResume = false;
+        if (resuming && log.isFile()) {
+
+            try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(log), StandardCharsets.UTF_8))) {
+
+                isLogToResume = key.toString().equals(reader.readLine());
+
+                String line;
+                while (isLogToResume && (line = reader.readLine()) != null) {
+
+                    // each record ends with a tab, a record without it was being written when the
+                    // previous run was interrupted (and the unit of work has to be executed again)
+                    String[] fields = line.split("\t", -1);
+                    if (fields.length == 3 && fields[2].isEmpty())
+                        progress.put(fields[0], fields[1]);
+                }
+            }
+        }
+
+        App.logger.info("[{}{}{}{}{}{}", "PipelineCheckpoint ", "(" + "openProgressLog" + ")]: ",
+                "units of work of stage ", stage, " already completed: ", progress.size());
+
+        progressLog = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(log, isLogToResume), StandardCharsets.UTF_8), true);
+
+        // a record being written when the previous run was interrupted must not be continued
+        if (isLogToResume)
+            progressLog.println();
+        else {
+
+            progressLog.println(key);
+
+            // the output folders may contain the partial output of the previous run
+            if (resume)
+                for (File outputFolder : outputFolders)
+                    if (outputFolder.isDirectory())
+                        FileUtils.cleanDirectory(outputFolder);
+        }
+    }
+
+    /**
+     * the outcome of a unit of work recorded in the progress log
+     * @param unit the unit of work
+     * @return the outcome, null if the unit of work was not completed
+     */
+    public String getProgress(String unit) {
+        return progress.get(unit);
+    }
+
+    /**
+     * record the outcome of a unit of work in the progress log (which is flushed immediately)
+     * @param unit the unit of work (it must not contain tabs nor new lines)
+     * @param outcome the outcome (it must not contain tabs nor new lines)
+     * @throws IOException if the outcome cannot be written
+     */
+    public void recordProgress(String unit, String outcome) throws IOException {
+
+        if (progressLog == null)
+            throw new IllegalStateException("no progress log is open");
+
+        progress.put(unit, outcome);
+        progressLog.println(unit + "\t" + outcome + "\t");
+
+        if (progressLog.checkError())
+            throw new IOException("not able to record the outcome of " + unit + " in the progress log");
+    }
+
+    /**
+     * close the progress log, if open
+     */
+    public void closeProgressLog() {
+
+        if (progressLog != null) {
+            progressLog.close();
+            progressLog = null;
+        }
+    }
+
+    /**
+     * the name of the stage of a completion manifest or of a progress log
+     * @param file the completion manifest or the progress log
+     * @return the name of the stage
+     */
+    private static String getStage(File file) {
+
+        String name = file.getName();
+        int indexOfExtension = name.indexOf('.');
+        return indexOfExtension == -1 ? name : name.substring(0, indexOfExtension);
+    }
+}
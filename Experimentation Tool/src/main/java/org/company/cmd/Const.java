@@ -67,5 +67,68 @@ public class Const {
      */
     public static final String KNumberOfTestsOnWhichToExecuteDebuggingTasksKey = "NumberOfTestsOnWhichToExecuteDebuggingTasks";
 
+    /**
+     * the key to the TestExecutionBackend command line option
+     */
+    public static final String kTestExecutionBackendOptionKey = "TestExecutionBackend";
+
+    /**
+     * the key to the TestsConcurrencyLevel command line option
+     */
+    public static final String kTestsConcurrencyLevelOptionKey = "TestsConcurrencyLevel";
 
+    /**
+     * the key to the PinTestsToCPUs command line option
+     */
+    public static final String kPinTestsToCPUsOptionKey = "PinTestsToCPUs";
+
+    /**
+     * the key to the TestsTargetCIWidth command line option
+     */
+    public static final String kTestsTargetCIWidthOptionKey = "TestsTargetCIWidth";
+
+    /**
+     * the key to the TestsTimeBudget command line option
+     */
+    public static final String kTestsTimeBudgetOptionKey = "TestsTimeBudget";
+
+    /**
+     * the key to the TestsInterleavingOrder command line option
+     */
+    public static final String kTestsInterleavingOrderOptionKey = "TestsInterleavingOrder";
+
+    /**
+     * the key to the DisableArtifactCache command line option
+     */
+    public static final String kDisableArtifactCacheOptionKey = "DisableArtifactCache";
+
+    /**
+     * the key to the Resume command line option
+     */
+    public static final String kResumeOptionKey = "Resume";
+
+    /**
+     * the key to the PerTestCoverage command line option
+     */
+    public static final String kPerTestCoverageOptionKey = "PerTestCoverage";
+
+    /**
+     * the key to the MethodSelectionStrategy command line option
+     */
+    public static final String kMethodSelectionStrategyOptionKey = "MethodSelectionStrategy";
+
+    /**
+     * the key to the MaximumOverhead command line option
+     */
+    public static final String kMaximumOverheadOptionKey = "MaximumOverhead";
+
+    /**
+     * the key to the PackagesToAnalyze command line option
+     */
+    public static final String kPackagesToAnalyzeOptionKey = "PackagesToAnalyze";
+
+    /**
+     * the key to the CandidateMethodsToMeasure command line option
+     */
+    public static final String kCandidateMethodsToMeasureOptionKey = "CandidateMethodsToMeasure";
 }
@@ -59,6 +59,31 @@ public class cmdUtil {
     }
 
 
+    /**
+     * Acquires the given (optional) decimal option and check that it is within the given boundaries
+     * @param cmd the command line object containing the program arguments
+     * @param doubleOptionToAcquire the key of the option to acquire
+     * @param minValue the minimum value the number can have (excluded). If the given value is below, throw IllegalArgumentException
+     * @param maxValue the maximum value the number can have (included). If the given value is above, throw IllegalArgumentException
+     * @return the option, or null if the option was not given
+     * @throws IllegalArgumentException if the given option is not a number or it is not within the boundaries
+     */
+    public static Double acquireDoubleOption(CommandLine cmd, String doubleOptionToAcquire,
+                                             double minValue, double maxValue) throws IllegalArgumentException {
+
+        String givenDoubleOptionAsString = cmd.getOptionValue(doubleOptionToAcquire);
+        if (givenDoubleOptionAsString == null)
+            return null;
+
+        double valueToReturn = Double.parseDouble(givenDoubleOptionAsString);
+
+        if (!(valueToReturn > minValue && valueToReturn <= maxValue))
+            throw new IllegalArgumentException("given number: " + valueToReturn + " is not within the given interval: (" +
+                    minValue + "-" + maxValue + "]");
+
+        return valueToReturn;
+    }
+
 
     /**
      * Acquires the given path to a jar file and checks that the path is not null,
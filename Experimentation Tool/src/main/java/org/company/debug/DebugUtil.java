@@ -3,6 +3,7 @@ package org.company.debug;
 import org.company.App;
 
 import java.io.*;
+import java.nio.file.Files;
 import java.util.*;
 
 import static java.lang.System.exit;
@@ -83,6 +84,9 @@ public class DebugUtil {
             File debuggerOutput = new File(outputDirectory.getAbsolutePath() +
                     "/JDB_" + debuggingTaskName + "_" + classFQN + "_" + testName + ".txt");
 
+            // the file may have been left by an interrupted run that is being resumed
+            Files.deleteIfExists(debuggerOutput.toPath());
+
             if (debuggerOutput.createNewFile()) {
 
                 // run the command with "suspend=y", i.e., the debuggee will wait for the debugger before running
@@ -211,6 +215,9 @@ public class DebugUtil {
             File outputGDB = new File(outputDirectory.getAbsolutePath() +
                     "/GDB_" + debuggingTaskName + "_" + classFQN + "_" + testName + ".txt");
 
+            // the file may have been left by an interrupted run that is being resumed
+            Files.deleteIfExists(outputGDB.toPath());
+
             if (outputGDB.createNewFile()) {
 
                 List<String> commandToExecuteArray = new ArrayList<>(Arrays.asList(commandToExecute.split(" ")));
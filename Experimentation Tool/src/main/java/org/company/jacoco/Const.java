@@ -5,12 +5,6 @@ package org.company.jacoco;
  */
 public class Const {
 
-
-    /**
-     * this is the name of the file we will obtain by converting the .exec report in XML
-     */
-    public static final String kJacocoXMLReportDefaultName = "jacoco.xml";
-
     /**
      * this is the default name of the file on which JaCoCo
      * writes the output of the methods coverage analysis
@@ -23,8 +17,14 @@ public class Const {
     public static final String kJacocoAgentDefaultPath = "lib/org.jacoco.agent-0.8.5-runtime.jar";
 
     /**
-     * the path of the jacoco cli that is used by default if the user does not provide one himself
+     * this is the default name of the file on which the coverage matrix (i.e., the
+     * methods executed by each test) is saved (see CoverageMatrix)
+     */
+    public static final String kCoverageMatrixDefaultName = "coverage_matrix.bin";
+
+    /**
+     * the first 4 bytes of the files of the coverage matrix ("CovM" in ASCII), to recognize them
      */
-    public static final String kJacocoCliDefaultPath = "lib/org.jacoco.cli-0.8.5-nodeps.jar";
+    public static final int kCoverageMatrixFileMagicNumber = 0x436F764D;
 
 }
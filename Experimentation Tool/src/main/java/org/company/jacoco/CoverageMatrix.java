@@ -0,0 +1,403 @@
+package org.company.jacoco;
+
+import org.company.App;
+import org.company.asm.ASMMethod;
+import org.company.junit.JUnitTest;
+
+import java.io.*;
+import java.util.*;
+
+import static org.company.jacoco.Const.kCoverageMatrixFileMagicNumber;
+
+/**
+ * This class holds which methods each test executes (i.e., the per-test coverage, see JaCoCoUtil.analyzePerTestCoverage)
+ * as a matrix of bits, to quickly know both which tests execute a method and which methods a test executes, also
+ * with thousands of tests and tens of thousands of methods. Tests and methods are interned, i.e., each of them is
+ * given an integer ID (in order of appearance), and the matrix is kept both by rows (for each test, the IDs of the
+ * methods executed) and by columns (for each method, the IDs of the tests executing it).
+ * The matrix can be saved in a file (see save) and loaded later (see load), so that the tests executing a method
+ * are known without running the tests again. In the file, only the rows are saved (columns are computed when
+ * loading) and each row is saved either as the words of the bitset or as the deltas between the IDs of the executed
+ * methods (as variable-length integers), whichever is smaller, as rows are usually very sparse
+ */
+public class CoverageMatrix {
+
+    /**
+     * the tests, by ID
+     */
+    private final ArrayList<JUnitTest> tests = new ArrayList<>();
+
+    /**
+     * the IDs of the tests
+     */
+    private final HashMap<JUnitTest, Integer> testIds = new HashMap<>();
+
+    /**
+     * the methods, by ID
+     */
+    private final ArrayList<ASMMethod> methods = new ArrayList<>();
+
+    /**
+     * the IDs of the methods, by method FQN (see ASMMethod.getMethodForASM)
+     */
+    private final HashMap<String, Integer> methodIds = new HashMap<>();
+
+    /**
+     * the rows of the matrix, i.e., the IDs of the methods executed by each test (by test ID)
+     */
+    private final ArrayList<BitSet> methodsByTest = new ArrayList<>();
+
+    /**
+     * the columns of the matrix, i.e., the IDs of the tests executing each method (by method ID)
+     */
+    private final ArrayList<BitSet> testsByMethod = new ArrayList<>();
+
+    /**
+     * the version of the format of the file (see save), to be changed whenever the format changes
+     */
+    private static final int kFileFormatVersion = 1;
+
+    /**
+     * the encoding of a row in the file: the words of the bitset
+     */
+    private static final byte kRowAsWords = 0;
+
+    /**
+     * the encoding of a row in the file: the deltas between the IDs of the methods
+     */
+    private static final byte kRowAsDeltas = 1;
+
+
+    /**
+     * build the matrix from the per-test coverage
+     * @param perTestCoverage the methods executed by each test (see JaCoCoUtil.analyzePerTestCoverage)
+     * @return the matrix
+     */
+    public static CoverageMatrix fromPerTestCoverage(LinkedHashMap<JUnitTest, ArrayList<JaCoCoMethod>> perTestCoverage) {
+
+        CoverageMatrix coverageMatrix = new CoverageMatrix();
+
+        perTestCoverage.forEach((test, executedMethods) -> {
+
+            BitSet executedMethodIds = coverageMatrix.methodsByTest.get(coverageMatrix.internTest(test));
+            for (JaCoCoMethod executedMethod : executedMethods)
+                executedMethodIds.set(coverageMatrix.internMethod(executedMethod));
+        });
+
+        coverageMatrix.computeColumns();
+
+        App.logger.info("[{}{}{}{}{}{}", "CoverageMatrix ", "(" + "fromPerTestCoverage" + ")]: ",
+                "built coverage matrix of ", coverageMatrix.tests.size(), " tests over ",
+                coverageMatrix.methods.size() + " methods");
+
+        return coverageMatrix;
+    }
+
+    /**
+     * the tests in the matrix (i.e., all tests of the per-test coverage, also the ones not executing any method)
+     * @return the tests, in order of ID
+     */
+    public ArrayList<JUnitTest> getTests() {
+        return new ArrayList<>(tests);
+    }
+
+    /**
+     * the tests executing a method
+     * @param method the method (only class FQN, name and desc matter)
+     * @return the tests executing the method, in order of ID (empty if no test executes the method)
+     */
+    public ArrayList<JUnitTest> getTestsExecuting(ASMMethod method) {
+
+        ArrayList<JUnitTest> testsExecutingMethod = new ArrayList<>();
+
+        Integer methodId = methodIds.get(method.getMethodForASM());
+        if (methodId != null)
+            testsByMethod.get(methodId).stream().forEach(testId -> testsExecutingMethod.add(tests.get(testId)));
+
+        return testsExecutingMethod;
+    }
+
+    /**
+     * the number of tests executing a method (without creating the list of tests, see getTestsExecuting)
+     * @param method the method (only class FQN, name and desc matter)
+     * @return the number of tests executing the method (0 if no test executes the method)
+     */
+    public int getNumberOfTestsExecuting(ASMMethod method) {
+
+        Integer methodId = methodIds.get(method.getMethodForASM());
+        return methodId == null ? 0 : testsByMethod.get(methodId).cardinality();
+    }
+
+    /**
+     * the methods executed by a test
+     * @param test the test (only class FQN, name and desc matter)
+     * @return the methods executed by the test, in order of ID (empty if the test is not in the matrix)
+     */
+    public ArrayList<ASMMethod> getMethodsExecutedBy(JUnitTest test) {
+
+        ArrayList<ASMMethod> methodsExecutedByTest = new ArrayList<>();
+
+        Integer testId = testIds.get(test);
+        if (testId != null)
+            methodsByTest.get(testId).stream().forEach(methodId -> methodsExecutedByTest.add(methods.get(methodId)));
+
+        return methodsExecutedByTest;
+    }
+
+    /**
+     * the number of methods executed by a test (without creating the list of methods, see getMethodsExecutedBy)
+     * @param test the test (only class FQN, name and desc matter)
+     * @return the number of methods executed by the test (0 if the test is not in the matrix)
+     */
+    public int getNumberOfMethodsExecutedBy(JUnitTest test) {
+
+        Integer testId = testIds.get(test);
+        return testId == null ? 0 : methodsByTest.get(testId).cardinality();
+    }
+
+    /**
+     * save the matrix in a file, to be loaded later (see load). The same matrix always gives the same file
+     * @param matrixFile the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File matrixFile) throws IOException {
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(matrixFile)))) {
+
+            output.writeInt(kCoverageMatrixFileMagicNumber);
+            output.writeInt(kFileFormatVersion);
+
+            output.writeInt(tests.size());
+            for (JUnitTest test : tests)
+                writeMethod(output, test);
+
+            output.writeInt(methods.size());
+            for (ASMMethod method : methods)
+                writeMethod(output, method);
+
+            for (BitSet executedMethodIds : methodsByTest)
+                writeRow(output, executedMethodIds);
+        }
+
+        App.logger.info("[{}{}{}{}{}{}", "CoverageMatrix ", "(" + "save" + ")]: ",
+                "saved coverage matrix in file: ", matrixFile.getAbsolutePath(), " (bytes: ", matrixFile.length() + ")");
+    }
+
+    /**
+     * load a matrix saved in a file (see save)
+     * @param matrixFile the file
+     * @return the matrix
+     * @throws IOException if the file cannot be read or it is not a coverage matrix file (of this version)
+     */
+    public static CoverageMatrix load(File matrixFile) throws IOException {
+
+        CoverageMatrix coverageMatrix = new CoverageMatrix();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(matrixFile)))) {
+
+            if (input.readInt() != kCoverageMatrixFileMagicNumber || input.readInt() != kFileFormatVersion)
+                throw new IOException("file " + matrixFile.getAbsolutePath() + " is not a coverage matrix file " +
+                        "(or it was saved with another version of the format)");
+
+            int numberOfTests = input.readInt();
+            for (int i = 0; i < numberOfTests; i++) {
+                JUnitTest test = new JUnitTest(input.readUTF());
+                readClassFQNAndDesc(input, test);
+                coverageMatrix.internTest(test);
+            }
+
+            int numberOfMethods = input.readInt();
+            for (int i = 0; i < numberOfMethods; i++) {
+                ASMMethod method = new ASMMethod(input.readUTF());
+                readClassFQNAndDesc(input, method);
+                coverageMatrix.internMethod(method);
+            }
+
+            for (BitSet executedMethodIds : coverageMatrix.methodsByTest)
+                readRow(input, executedMethodIds, numberOfMethods);
+        }
+        catch (EOFException e) {
+            throw new IOException("file " + matrixFile.getAbsolutePath() + " is truncated", e);
+        }
+
+        coverageMatrix.computeColumns();
+
+        App.logger.info("[{}{}{}{}{}{}", "CoverageMatrix ", "(" + "load" + ")]: ",
+                "loaded coverage matrix of ", coverageMatrix.tests.size(), " tests over ",
+                coverageMatrix.methods.size() + " methods from file: " + matrixFile.getAbsolutePath());
+
+        return coverageMatrix;
+    }
+
+    /**
+     * give an ID to a test (and add its empty row to the matrix), if the test does not have one yet
+     * @param test the test
+     * @return the ID of the test
+     */
+    private int internTest(JUnitTest test) {
+
+        return testIds.computeIfAbsent(test, key -> {
+            tests.add(test);
+            methodsByTest.add(new BitSet());
+            return tests.size() - 1;
+        });
+    }
+
+    /**
+     * give an ID to a method, if the method does not have one yet. The method is copied, so
+     * that the matrix does not keep the coverage (nor any other data) of the given method
+     * @param method the method
+     * @return the ID of the method
+     */
+    private int internMethod(ASMMethod method) {
+
+        return methodIds.computeIfAbsent(method.getMethodForASM(), key -> {
+            ASMMethod internedMethod = new ASMMethod(method.getMethodName());
+            internedMethod.setClassFQN(method.getClassFQN());
+            internedMethod.setDesc(method.getDesc());
+            methods.add(internedMethod);
+            return methods.size() - 1;
+        });
+    }
+
+    /**
+     * compute the columns of the matrix from its rows
+     */
+    private void computeColumns() {
+
+        testsByMethod.clear();
+        for (int methodId = 0; methodId < methods.size(); methodId++)
+            testsByMethod.add(new BitSet());
+
+        for (int testId = 0; testId < methodsByTest.size(); testId++) {
+            BitSet executedMethodIds = methodsByTest.get(testId);
+            for (int methodId = executedMethodIds.nextSetBit(0); methodId >= 0;
+                 methodId = executedMethodIds.nextSetBit(methodId + 1))
+                testsByMethod.get(methodId).set(testId);
+        }
+    }
+
+    /**
+     * write the name, class FQN and desc of a method (or test)
+     * @param output the stream
+     * @param method the method
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeMethod(DataOutputStream output, ASMMethod method) throws IOException {
+
+        output.writeUTF(method.getMethodName());
+        output.writeUTF(method.getClassFQN());
+        output.writeUTF(method.getDesc());
+    }
+
+    /**
+     * read the class FQN and desc of a method (or test), written after its name (see writeMethod)
+     * @param input the stream
+     * @param method the method, created with the name read from the stream
+     * @throws IOException if the stream cannot be read
+     */
+    private static void readClassFQNAndDesc(DataInputStream input, ASMMethod method) throws IOException {
+
+        method.setClassFQN(input.readUTF());
+        method.setDesc(input.readUTF());
+    }
+
+    /**
+     * write a row of the matrix with the smallest of the two encodings (i.e., words or deltas)
+     * @param output the stream
+     * @param row the row
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeRow(DataOutputStream output, BitSet row) throws IOException {
+
+        ByteArrayOutputStream deltas = new ByteArrayOutputStream();
+        int previousId = -1;
+        for (int id = row.nextSetBit(0); id >= 0; id = row.nextSetBit(id + 1)) {
+            writeVarInt(deltas, id - previousId);
+            previousId = id;
+        }
+
+        long[] words = row.toLongArray();
+
+        if (deltas.size() <= words.length * Long.BYTES) {
+            output.writeByte(kRowAsDeltas);
+            writeVarInt(output, row.cardinality());
+            deltas.writeTo(output);
+        }
+        else {
+            output.writeByte(kRowAsWords);
+            writeVarInt(output, words.length);
+            for (long word : words)
+                output.writeLong(word);
+        }
+    }
+
+    /**
+     * read a row of the matrix (see writeRow)
+     * @param input the stream
+     * @param row the (empty) row where to set the bits
+     * @param numberOfColumns the number of columns of the matrix, to check that the IDs are valid
+     * @throws IOException if the stream cannot be read or the row is not valid
+     */
+    private static void readRow(DataInputStream input, BitSet row, int numberOfColumns) throws IOException {
+
+        byte encoding = input.readByte();
+        int size = readVarInt(input);
+
+        if (encoding == kRowAsDeltas) {
+            int id = -1;
+            for (int i = 0; i < size; i++) {
+                id += readVarInt(input);
+                row.set(id);
+            }
+        }
+        else if (encoding == kRowAsWords) {
+            long[] words = new long[size];
+            for (int i = 0; i < size; i++)
+                words[i] = input.readLong();
+            row.or(BitSet.valueOf(words));
+        }
+        else
+            throw new IOException("unknown encoding of row in coverage matrix: " + encoding);
+
+        if (row.length() > numberOfColumns)
+            throw new IOException("row of coverage matrix refers to method " + (row.length() - 1) +
+                    ", but there are only " + numberOfColumns + " methods");
+    }
+
+    /**
+     * write a non-negative integer in 1 to 5 bytes (7 bits per byte, the highest bit set if more bytes follow)
+     * @param output the stream
+     * @param value the integer
+     * @throws IOException if the stream cannot be written
+     */
+    private static void writeVarInt(OutputStream output, int value) throws IOException {
+
+        while ((value & ~0x7F) != 0) {
+            output.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.write(value);
+    }
+
+    /**
+     * read a non-negative integer written with writeVarInt
+     * @param input the stream
+     * @return the integer
+     * @throws IOException if the stream cannot be read or the integer is not valid
+     */
+    private static int readVarInt(DataInputStream input) throws IOException {
+
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int currentByte = input.readUnsignedByte();
+            value |= (currentByte & 0x7F) << shift;
+            if ((currentByte & 0x80) == 0) {
+                if (value < 0)
+                    throw new IOException("invalid integer in coverage matrix: " + value);
+                return value;
+            }
+        }
+        throw new IOException("invalid integer in coverage matrix (too many bytes)");
+    }
+}
@@ -10,36 +10,32 @@ public class JaCoCoMethod extends ASMMethod {
     /**
      * the number of instructions missed by tests
      */
-    private Integer instructionsMissed;
+    private int instructionsMissed;
 
     /**
      * the number of instructions covered by tests
      */
-    private Integer instructionsCovered;
+    private int instructionsCovered;
 
     /**
      * the number of branches missed by tests
      */
-    private Integer branchesMissed;
+    private int branchesMissed;
 
     /**
      * the number of branches covered by tests
      */
-    private Integer branchesCovered;
+    private int branchesCovered;
 
 
     /**
-     * Simple constructor, initializes values to 0 (if a method does not have branches, JaCoCo won't even set
-     * the tag in the XML report. Therefore, if we do not initialize to 0, we will have null values)
+     * Simple constructor, counters start from 0 (e.g., a method without branches has 0 branches covered and missed).
+     * Counters are primitive fields, as there is an instance for each method of each analyzed class
      * @param methodName the name of the method on which this class collects coverage information
      */
     public JaCoCoMethod(String methodName) {
 
         super(methodName);
-        instructionsMissed = 0;
-        instructionsCovered = 0;
-        branchesMissed = 0;
-        branchesCovered = 0;
     }
 
 
@@ -52,7 +48,7 @@ public class JaCoCoMethod extends ASMMethod {
      * getter for instructionsMissed
      * @return instructionsMissed
      */
-    public Integer getInstructionsMissed() {
+    public int getInstructionsMissed() {
         return instructionsMissed;
     }
 
@@ -60,7 +56,7 @@ public class JaCoCoMethod extends ASMMethod {
      * setter for instructionsMissed
      * @param instructionsMissed the number of instructions missed by tests
      */
-    public void setInstructionsMissed(Integer instructionsMissed) {
+    public void setInstructionsMissed(int instructionsMissed) {
         this.instructionsMissed = instructionsMissed;
     }
 
@@ -68,7 +64,7 @@ public class JaCoCoMethod extends ASMMethod {
      * getter for instructionsCovered
      * @return instructionsCovered
      */
-    public Integer getInstructionsCovered() {
+    public int getInstructionsCovered() {
         return instructionsCovered;
     }
 
@@ -76,7 +72,7 @@ public class JaCoCoMethod extends ASMMethod {
      * setter for instructionsCovered
      * @param instructionsCovered the number of instructions covered by tests
      */
-    public void setInstructionsCovered(Integer instructionsCovered) {
+    public void setInstructionsCovered(int instructionsCovered) {
         this.instructionsCovered = instructionsCovered;
     }
 
@@ -84,7 +80,7 @@ public class JaCoCoMethod extends ASMMethod {
      * getter for branchesMissed
      * @return branchesMissed
      */
-    public Integer getBranchesMissed() {
+    public int getBranchesMissed() {
         return branchesMissed;
     }
 
@@ -92,7 +88,7 @@ public class JaCoCoMethod extends ASMMethod {
      * setter for branchesMissed
      * @param branchesMissed the number of branches missed by tests
      */
-    public void setBranchesMissed(Integer branchesMissed) {
+    public void setBranchesMissed(int branchesMissed) {
         this.branchesMissed = branchesMissed;
     }
 
@@ -100,7 +96,7 @@ public class JaCoCoMethod extends ASMMethod {
      * getter for branchesCovered
      * @return branchesCovered
      */
-    public Integer getBranchesCovered() {
+    public int getBranchesCovered() {
         return branchesCovered;
     }
 
@@ -108,7 +104,7 @@ public class JaCoCoMethod extends ASMMethod {
      * setter for branchesCovered
      * @param branchesCovered the number of branches covered by tests
      */
-    public void setBranchesCovered(Integer branchesCovered) {
+    public void setBranchesCovered(int branchesCovered) {
         this.branchesCovered = branchesCovered;
     }
 
@@ -122,7 +118,7 @@ public class JaCoCoMethod extends ASMMethod {
      * of instructions covered
      * @return a score indicating how much this method is covered by tests
      */
-    public Integer calculateScore () {
+    public int calculateScore () {
 
         // if the method is a constructor or coverage of branches is not at least 70%
         if (    getMethodName().equalsIgnoreCase("<init>") ||
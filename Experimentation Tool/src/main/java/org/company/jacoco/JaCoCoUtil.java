@@ -1,26 +1,24 @@
 package org.company.jacoco;
 
-import java.io.BufferedReader;
-import java.io.File;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.parsers.SAXParser;
-import javax.xml.parsers.SAXParserFactory;
-
 import org.company.App;
 import org.company.asm.ASMMethod;
 import org.company.junit.JUnitTest;
-import org.xml.sax.Attributes;
-import org.xml.sax.SAXException;
-import org.xml.sax.helpers.DefaultHandler;
-
-import java.io.IOException;
-import java.io.InputStreamReader;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.List;
-
-import static java.lang.System.exit;
-import static org.company.junit.Const.kInitializationError;
+import org.company.junit.JUnitUtil;
+import org.jacoco.core.analysis.Analyzer;
+import org.jacoco.core.analysis.CoverageBuilder;
+import org.jacoco.core.analysis.IClassCoverage;
+import org.jacoco.core.analysis.ICounter;
+import org.jacoco.core.analysis.IMethodCoverage;
+import org.jacoco.core.data.ExecutionData;
+import org.jacoco.core.data.ExecutionDataReader;
+import org.jacoco.core.data.ExecutionDataStore;
+import org.jacoco.core.tools.ExecFileLoader;
+
+import java.io.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 
 /**
@@ -29,118 +27,300 @@ import static org.company.junit.Const.kInitializationError;
 public class JaCoCoUtil {
 
     /**
-     * This methods takes as input a "jacoco.exec" file and converts it in XML with the JaCoCo CLI
-     * @param directoryWhereToSaveOutput directory where to save output files (JaCoCoCLI output)
-     * @param pathOfJaCoCoExecFile the absolute path to the .exec file to convert
-     * @param pathOfJaCoCoXMLFile the absolute path to where to create the converted .xml
-     * @param pathOfJaCoCoCLI the absolute path to the JaCoCo CLI jar
+     * This method takes as input a "jacoco.exec" file and analyzes it in-process with the JaCoCo core API against
+     * the classes of the given jar to extract, for each method, the class FQN and instructions/branches coverage.
+     * Classes are returned ordered by name and, in each class, methods are in the order of the class file.
+     * Only the classes executed by tests (i.e., with at least a probe hit) are analyzed, as the methods of the other
+     * classes have no instruction covered and cannot be protected. See analyzeExecFile(File, String, Collection)
+     * @param jacocoExecFile the JaCoCo exec file to analyze
      * @param pathOfJarWithClasses the absolute path of the jar containing the classes on which the tests were executed
+     * @return an array of JaCoCoMethod along with their coverage (branch, instructions, ...)
+     * @throws IOException if the exec file or the jar cannot be read
      */
-    public static void convertJaCoCoExecToXML(File directoryWhereToSaveOutput, String pathOfJaCoCoExecFile,
-                                              String pathOfJaCoCoXMLFile, String pathOfJaCoCoCLI, String pathOfJarWithClasses) {
+    public static ArrayList<JaCoCoMethod> analyzeExecFile(File jacocoExecFile, String pathOfJarWithClasses)
+            throws IOException {
+        return analyzeExecFile(jacocoExecFile, pathOfJarWithClasses, null);
+    }
+
+    /**
+     * This method takes as input a "jacoco.exec" file and analyzes it in-process with the JaCoCo core API against
+     * the classes of the given jar to extract, for each method, the class FQN and instructions/branches coverage.
+     * Classes are returned ordered by name and, in each class, methods are in the order of the class file.
+     * Classes are filtered before being read from the jar, so that time and memory scale with the code executed by
+     * tests and not with the size of the jar (e.g., for jars with dependencies): only the classes executed by tests
+     * (i.e., with at least a probe hit) and in the given packages (if any) are analyzed. Moreover, the coverage of a
+     * class is converted to JaCoCoMethods as soon as the class is analyzed, and then discarded
+     * @param jacocoExecFile the JaCoCo exec file to analyze
+     * @param pathOfJarWithClasses the absolute path of the jar containing the classes on which the tests were executed
+     * @param packagesToAnalyze the FQNs of the packages (with their subpackages) of the classes to analyze (e.g.,
+     *                          "org.company"), null or empty to analyze the classes of all packages
+     * @return an array of JaCoCoMethod along with their coverage (branch, instructions, ...)
+     * @throws IOException if the exec file or the jar cannot be read
+     */
+    public static ArrayList<JaCoCoMethod> analyzeExecFile(File jacocoExecFile, String pathOfJarWithClasses,
+                                                          Collection<String> packagesToAnalyze) throws IOException {
+
+        App.logger.info("[{}{}{}{}{}{}", "JaCoCoUtil ", "(" + "analyzeExecFile" + ")]: ",
+                "analyzing JaCoCo exec file: ", jacocoExecFile.getAbsolutePath(), " against classes in jar: ",
+                pathOfJarWithClasses + (packagesToAnalyze == null || packagesToAnalyze.isEmpty() ? "" :
+                        " (only packages " + packagesToAnalyze + ")"));
 
-        App.logger.info("[{}{}{}{}{}{}", "JaCoCoParser ", "(" + "convertJaCoCoExecToXML" + ")]: ",
-                "converting JaCoCo exec file: ", pathOfJaCoCoXMLFile, " in XML file: ", pathOfJaCoCoXMLFile);
+        ExecFileLoader execFileLoader = new ExecFileLoader();
 
-        // this process builder is needed to run the JaCoCo CLI jar and convert the exec report in XML
-        ProcessBuilder pbJaCoCoCLI;
+        // the internal names of the classes executed by tests and the prefixes of the packages to analyze
+        HashSet<String> executedClasses = new HashSet<>();
+        ArrayList<String> packagePrefixes = new ArrayList<>();
+        if (packagesToAnalyze != null)
+            for (String packageToAnalyze : packagesToAnalyze)
+                packagePrefixes.add(packageToAnalyze.replace('.', '/') + "/");
 
-        pbJaCoCoCLI = new ProcessBuilder("java", "-jar", pathOfJaCoCoCLI, "report", pathOfJaCoCoExecFile,
-                "--classfiles", pathOfJarWithClasses, "--xml", pathOfJaCoCoXMLFile);
+        ArrayList<JaCoCoMethod> methodsAndCoverage = new ArrayList<>();
+        int numberOfEntries = 0;
+        int numberOfAnalyzedClasses = 0;
 
         try {
+            execFileLoader.load(jacocoExecFile);
+            for (ExecutionData classExecutionData : execFileLoader.getExecutionDataStore().getContents())
+                if (classExecutionData.hasHits())
+                    executedClasses.add(classExecutionData.getName());
+
+            Analyzer analyzer = new Analyzer(execFileLoader.getExecutionDataStore(), classCoverage -> {
+                for (IMethodCoverage methodCoverage : classCoverage.getMethods())
+                    methodsAndCoverage.add(toJaCoCoMethod(classCoverage, methodCoverage));
+            });
+
+            try (ZipFile jarFile = new ZipFile(pathOfJarWithClasses)) {
+
+                // sorted by name, so that classes are analyzed (and returned) ordered by name. Classes in
+                // "META-INF/versions" are alternative versions of classes that are already in the jar
+                TreeMap<String, ZipEntry> classEntriesToAnalyze = new TreeMap<>();
+                Enumeration<? extends ZipEntry> entries = jarFile.entries();
+                while (entries.hasMoreElements()) {
+
+                    ZipEntry entry = entries.nextElement();
+                    numberOfEntries++;
+                    if (!entry.getName().endsWith(".class") || entry.getName().startsWith("META-INF/"))
+                        continue;
+
+                    String className = entry.getName().substring(0, entry.getName().length() - ".class".length());
+                    if (executedClasses.contains(className) && (packagePrefixes.isEmpty() ||
+                            packagePrefixes.stream().anyMatch(className::startsWith)))
+                        classEntriesToAnalyze.putIfAbsent(className, entry);
+                }
 
-            // where we the output of the JUnit console jar
-            File jacocoCLIOutput = new File(directoryWhereToSaveOutput.getAbsolutePath() + "/jacocoCLIOutput.txt");
+                for (Map.Entry<String, ZipEntry> classEntry : classEntriesToAnalyze.entrySet()) {
+                    try (InputStream classStream = jarFile.getInputStream(classEntry.getValue())) {
+                        analyzer.analyzeClass(classStream.readAllBytes(), classEntry.getKey());
+                    }
+                    numberOfAnalyzedClasses++;
+                }
+            }
+        }
+        catch (IOException e) {
 
-            if (jacocoCLIOutput.createNewFile()) {
+            App.logger.error("[{}{}{}{}", "JaCoCoUtil ", "(" + "analyzeExecFile" + ")]: ",
+                    "IO Exception while analyzing JaCoCo exec file: ", e.getMessage());
+            throw new IOException("IO Exception while analyzing JaCoCo exec file: " + e.getMessage(), e);
+        }
 
-                // redirect also error stream to read eventual errors
-                pbJaCoCoCLI.directory(directoryWhereToSaveOutput).redirectErrorStream(true).redirectOutput(jacocoCLIOutput);
-                Process pJaCoCoCLI = pbJaCoCoCLI.start();
-                pJaCoCoCLI.waitFor();
+        App.logger.info("[{}{}{}{}{}{}", "JaCoCoUtil ", "(" + "analyzeExecFile" + ")]: ",
+                "analyzed ", methodsAndCoverage.size(), " methods in ", numberOfAnalyzedClasses + " classes (over " +
+                        numberOfEntries + " entries in the jar and " + executedClasses.size() + " executed classes)");
 
-                // check that the code is 0, otherwise there was an error
-                int exitStatus = pJaCoCoCLI.exitValue();
+        return methodsAndCoverage;
+    }
 
-                if (exitStatus != 0) {
-                    App.logger.error("[{}{}{}{}{}{}{}", "JaCoCoParser ", "(" + "convertJaCoCoExecToXML" + ")]: ",
-                            "JaCoCoCli process exited with code: ", exitStatus, " (check file ",
-                            jacocoCLIOutput.getAbsolutePath()," for program output)");
+    /**
+     * This method adds the execution data of each test (written by the PerTestCoverageListener) to the given
+     * "jacoco.exec" file, which, when collecting per-test coverage, contains only what was executed after the
+     * last test. After the merge, the exec file contains the coverage of all tests, as without per-test coverage
+     * @param perTestCoverageFile the file written by the PerTestCoverageListener
+     * @param jacocoExecFile the JaCoCo exec file written by the agent (created if it does not exist)
+     * @throws IOException if the files cannot be read or the exec file cannot be written
+     */
+    public static void mergePerTestCoverage(File perTestCoverageFile, File jacocoExecFile) throws IOException {
 
-                    exit(10);
-                }
-            }
-            // this means that we were not able to create the file for the JUnit output
-            else {
+        App.logger.info("[{}{}{}{}{}{}", "JaCoCoUtil ", "(" + "mergePerTestCoverage" + ")]: ",
+                "merging per-test coverage in file: ", perTestCoverageFile.getAbsolutePath(), " into JaCoCo exec file: ",
+                jacocoExecFile.getAbsolutePath());
 
-                App.logger.error("[{}{}{}", "JaCoCoParser ", "(" + "convertJaCoCoExecToXML" + ")]: ",
-                        "Error while creating JaCoCo CLI output file");
+        // the loader merges the execution data of the same class (i.e., probes are or-ed)
+        ExecFileLoader execFileLoader = new ExecFileLoader();
+        if (jacocoExecFile.isFile())
+            execFileLoader.load(jacocoExecFile);
 
-                throw new IOException("Error while creating JaCoCo CLI output output file");
+        try (DataInputStream records = new DataInputStream(new BufferedInputStream(new FileInputStream(perTestCoverageFile)))) {
+
+            PerTestCoverageRecord record;
+            while ((record = PerTestCoverageRecord.read(records)) != null)
+                execFileLoader.load(new ByteArrayInputStream(record.executionData));
+        }
+
+        execFileLoader.save(jacocoExecFile, false);
+    }
+
+    /**
+     * This method takes as input the file written by the PerTestCoverageListener and analyzes, for each test, the
+     * methods of the given jar that the test executed (i.e., with at least one instruction covered). The code that a
+     * test class executed outside of its tests (e.g., in @BeforeAll methods) counts as executed by all its tests. As
+     * for the JUnit reports, parametrized tests are returned only once (with the coverage of all their invocations).
+     * Only the classes executed by a test are analyzed for that test, and tests are analyzed in parallel
+     * @param perTestCoverageFile the file written by the PerTestCoverageListener
+     * @param pathOfJarWithClasses the absolute path of the jar containing the classes on which the tests were executed
+     * @return for each test (in order of execution), the methods that the test executed along with their coverage
+     * @throws IOException if the file or the jar cannot be read
+     */
+    public static LinkedHashMap<JUnitTest, ArrayList<JaCoCoMethod>> analyzePerTestCoverage(File perTestCoverageFile,
+                                                                                        String pathOfJarWithClasses)
+            throws IOException {
+
+        App.logger.info("[{}{}{}{}{}{}", "JaCoCoUtil ", "(" + "analyzePerTestCoverage" + ")]: ",
+                "analyzing per-test coverage in file: ", perTestCoverageFile.getAbsolutePath(),
+                " against classes in jar: ", pathOfJarWithClasses);
+
+        // the execution data of each test and the execution data of each class outside of its tests
+        LinkedHashMap<JUnitTest, ExecutionDataStore> executionDataByTest = new LinkedHashMap<>();
+        HashMap<JUnitTest, String> classNameByTest = new HashMap<>();
+        HashMap<String, ExecutionDataStore> executionDataByClass = new HashMap<>();
+
+        try (DataInputStream records = new DataInputStream(new BufferedInputStream(new FileInputStream(perTestCoverageFile)))) {
+
+            PerTestCoverageRecord record;
+            while ((record = PerTestCoverageRecord.read(records)) != null) {
+
+                JUnitTest test = record.isTest ? JUnitUtil.fromLegacyReportingName(record.testName, record.className) : null;
+
+                ExecutionDataStore executionData;
+                if (test != null) {
+                    executionData = executionDataByTest.computeIfAbsent(test, key -> new ExecutionDataStore());
+                    classNameByTest.putIfAbsent(test, record.className);
+                }
+                else
+                    executionData = executionDataByClass.computeIfAbsent(record.className, key -> new ExecutionDataStore());
+
+                readExecutionData(record.executionData, executionData);
             }
         }
-        catch (IOException e) {
 
-            App.logger.error("[{}{}{}{}", "JaCoCoParser", "(" + "convertJaCoCoExecToXML" + ")]: ",
-                    "IO Exception while converting JaCoCo report: ", e.getMessage());
-            exit(2);
+        for (Map.Entry<JUnitTest, ExecutionDataStore> testAndExecutionData : executionDataByTest.entrySet()) {
+            ExecutionDataStore executionDataOfClass = executionDataByClass.get(classNameByTest.get(testAndExecutionData.getKey()));
+            if (executionDataOfClass != null)
+                executionDataOfClass.accept(testAndExecutionData.getValue());
         }
-        catch (InterruptedException e) {
 
-            App.logger.error("[{}{}{}{}", "JaCoCoParser ", "(" + "convertJaCoCoExecToXML" + ")]: ",
-                    "Exception while waiting for process to finish", e.getMessage());
-            exit(5);
+        // the bytes of the executed classes are read once, so that tests can be analyzed in parallel
+        HashMap<String, byte[]> classBytesByName = new HashMap<>();
+        try (ZipFile jarFile = new ZipFile(pathOfJarWithClasses)) {
+            for (ExecutionDataStore executionData : executionDataByTest.values()) {
+                for (ExecutionData classExecutionData : executionData.getContents()) {
+
+                    String className = classExecutionData.getName();
+                    if (!classExecutionData.hasHits() || classBytesByName.containsKey(className))
+                        continue;
+
+                    ZipEntry classEntry = jarFile.getEntry(className + ".class");
+                    if (classEntry == null) {
+                        classBytesByName.put(className, null);
+                        continue;
+                    }
+                    try (InputStream classStream = jarFile.getInputStream(classEntry)) {
+                        classBytesByName.put(className, classStream.readAllBytes());
+                    }
+                }
+            }
         }
 
+        ArrayList<JUnitTest> tests = new ArrayList<>(executionDataByTest.keySet());
+        List<ArrayList<JaCoCoMethod>> methodsByTest = tests.parallelStream()
+                .map(test -> analyzeExecutedMethods(executionDataByTest.get(test), classBytesByName))
+                .collect(Collectors.toList());
+
+        LinkedHashMap<JUnitTest, ArrayList<JaCoCoMethod>> perTestCoverage = new LinkedHashMap<>();
+        for (int i = 0; i < tests.size(); i++)
+            perTestCoverage.put(tests.get(i), methodsByTest.get(i));
+
+        App.logger.info("[{}{}{}{}{}{}", "JaCoCoUtil ", "(" + "analyzePerTestCoverage" + ")]: ",
+                "analyzed the coverage of ", perTestCoverage.size(), " tests over ", classBytesByName.size() + " classes");
+
+        return perTestCoverage;
     }
 
     /**
-     * This method takes as input a .xml JaCoCo report and parses it to extract, for
-     * each method, the class FQN and instructions/branches coverage
-     * @param jacocoReportToParse the JaCoCo XML file to parse
-     * @return an array of JaCoCoMethod along with their coverage (branch, instructions, ...)
+     * analyze the methods executed according to the given execution data
+     * @param executionData the execution data (e.g., of a test)
+     * @param classBytesByName the bytes of the classes, by internal name (null if the class is not in the jar)
+     * @return the methods with at least one instruction covered, along with their coverage
      */
-    public static ArrayList<JaCoCoMethod> parseFromXML(File jacocoReportToParse) throws Exception {
+    private static ArrayList<JaCoCoMethod> analyzeExecutedMethods(ExecutionDataStore executionData,
+                                                                  HashMap<String, byte[]> classBytesByName) {
 
-        ArrayList<JaCoCoMethod> arrayMethodsCoverage;
+        CoverageBuilder coverageBuilder = new CoverageBuilder();
+        Analyzer analyzer = new Analyzer(executionData, coverageBuilder);
 
-        App.logger.info("[{}{}{}{}", "JaCoCoXMLParser", " (" + "parseFromXML" + ")]: ",
-                "Parsing JaCoCo XML report in file: ", jacocoReportToParse.getAbsolutePath());
+        for (ExecutionData classExecutionData : executionData.getContents()) {
 
-        try {
+            byte[] classBytes = classBytesByName.get(classExecutionData.getName());
+            if (!classExecutionData.hasHits() || classBytes == null)
+                continue;
 
-            // by using the Simple API for XML, parse the JaCoCo report in an orderly
-            // fashion and return the methods and coverage hash map
-            SAXParserFactory saxParserFactory = SAXParserFactory.newInstance();
+            try {
+                analyzer.analyzeClass(classBytes, classExecutionData.getName());
+            }
+            // the bytes are in memory, so this happens only if the class cannot be parsed
+            catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
 
-            // instruct the parser to ignore DTD instructions and references
-            saxParserFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-dtd-grammar", false);
-            saxParserFactory.setFeature("http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+        ArrayList<IClassCoverage> classesCoverage = new ArrayList<>(coverageBuilder.getClasses());
+        classesCoverage.sort(Comparator.comparing(IClassCoverage::getName));
 
-            SAXParser saxParser = saxParserFactory.newSAXParser();
-            JaCoCoExecHandler jaCoCoExecHandler = new JaCoCoExecHandler();
-            saxParser.parse(jacocoReportToParse, jaCoCoExecHandler);
-            arrayMethodsCoverage = jaCoCoExecHandler.getMethodsAndCoverage();
-        }
-        // thrown when creating the new SAX parser
-        catch (ParserConfigurationException | SAXException e) {
+        ArrayList<JaCoCoMethod> executedMethods = new ArrayList<>();
+        for (IClassCoverage classCoverage : classesCoverage)
+            for (IMethodCoverage methodCoverage : classCoverage.getMethods())
+                if (methodCoverage.getInstructionCounter().getCoveredCount() > 0)
+                    executedMethods.add(toJaCoCoMethod(classCoverage, methodCoverage));
 
-            App.logger.error("[{}{}{}{}", "JaCoCoXMLParser", " (" + "parseFromXML" + ")]: ",
-                    "Parsing Exception while parsing JaCoCo XML report: ", e.getMessage());
-            throw new Exception("Parsing Exception while parsing JaCoCo XML report: " + e.getMessage());
-        }
-        // thrown when parsing the file (saxParser.parse)
-        catch (IOException e) {
+        return executedMethods;
+    }
 
-            App.logger.error("[{}{}{}{}", "JaCoCoXMLParser", " (" + "parseFromXML" + ")]: ",
-                    "IO Exception while parsing JaCoCo XML report: ", e.getMessage());
-            throw new Exception("IO Exception while parsing JaCoCo XML report: " + e.getMessage());
-        }
+    /**
+     * read execution data in the format of the "jacoco.exec" files into a store (session infos are ignored)
+     * @param executionDataBytes the execution data
+     * @param executionDataStore the store, in which the execution data of the same class is merged
+     * @throws IOException if the execution data cannot be read
+     */
+    private static void readExecutionData(byte[] executionDataBytes, ExecutionDataStore executionDataStore)
+            throws IOException {
 
-        return arrayMethodsCoverage;
+        ExecutionDataReader executionDataReader = new ExecutionDataReader(new ByteArrayInputStream(executionDataBytes));
+        executionDataReader.setExecutionDataVisitor(executionDataStore);
+        executionDataReader.setSessionInfoVisitor(sessionInfo -> { });
+        executionDataReader.read();
     }
 
+    /**
+     * create a JaCoCo method from the coverage of a method computed by JaCoCo
+     * @param classCoverage the coverage of the class containing the method
+     * @param methodCoverage the coverage of the method
+     * @return the JaCoCo method along with its coverage (branch, instructions, ...)
+     */
+    private static JaCoCoMethod toJaCoCoMethod(IClassCoverage classCoverage, IMethodCoverage methodCoverage) {
+
+        JaCoCoMethod jaCoCoMethod = new JaCoCoMethod(methodCoverage.getName());
+        jaCoCoMethod.setDesc(methodCoverage.getDesc());
+        jaCoCoMethod.setClassFQN(classCoverage.getName().replace('/', '.'));
+
+        ICounter instructionCounter = methodCoverage.getInstructionCounter();
+        jaCoCoMethod.setInstructionsCovered(instructionCounter.getCoveredCount());
+        jaCoCoMethod.setInstructionsMissed(instructionCounter.getMissedCount());
+
+        ICounter branchCounter = methodCoverage.getBranchCounter();
+        jaCoCoMethod.setBranchesCovered(branchCounter.getCoveredCount());
+        jaCoCoMethod.setBranchesMissed(branchCounter.getMissedCount());
+
+        return jaCoCoMethod;
+    }
 
     /**
      * given an array of JaCoCo methods, this method orders them by class and return
@@ -202,96 +382,71 @@ public class JaCoCoUtil {
         return methodByClass;
     }
 
+
     /**
-     * Custom visitor for the XML document. For each method, saves the class FQN, the method
-     * name and the coverage (# of missed and covered) instructions/branches
+     * A record of the file written by the PerTestCoverageListener (see the listener for the format)
      */
-    static class JaCoCoExecHandler extends DefaultHandler {
+    private static class PerTestCoverageRecord {
 
         /**
-         * To collect the methods and the percentage coverage of instructions and branches
+         * the class name of the test (or container), as in the JUnit XML reports
          */
-        private final ArrayList<JaCoCoMethod> methodsAndCoverage = new ArrayList<>();
+        private final String className;
 
         /**
-         * since the XML file is visited in order, this variable contains the class
-         * element currently being examined
+         * the name of the test (or container), as in the JUnit XML reports
          */
-        String currentClass = null;
+        private final String testName;
 
         /**
-         * since the XML file is visited in order, this variable contains the method
-         * element currently being examined
+         * true if the record refers to a test, false if to a container
          */
-        JaCoCoMethod currentMethod = null;
-
-        // Invoked when an XML element is encountered
-        @Override
-        public void startElement(String uri, String localName, String qName, Attributes attributes) {
-
-            // the first element we are interested in is the name of the class
-            if (qName.equalsIgnoreCase("class"))
-                currentClass = (attributes.getValue("name").replace('/', '.'));
+        private final boolean isTest;
 
-            // we analyze one method at time.
-            // For each method, create a JaCoCo method to save coverage data
-            else if (qName.equalsIgnoreCase("method") && currentClass != null) {
-
-                currentMethod = new JaCoCoMethod(attributes.getValue("name"));
-                currentMethod.setDesc(attributes.getValue("desc"));
-                currentMethod.setClassFQN(currentClass);
-            }
-
-            // for each counter, save in the current method the coverage
-            else if (qName.equalsIgnoreCase("counter") && currentMethod != null) {
-
-                Integer missed = Integer.valueOf(attributes.getValue("missed"));
-                Integer covered = Integer.valueOf(attributes.getValue("covered"));
+        /**
+         * the execution data, in the format of the "jacoco.exec" files
+         */
+        private final byte[] executionData;
 
-                switch (attributes.getValue("type")) {
 
-                    case "INSTRUCTION":
-                        currentMethod.setInstructionsCovered(covered);
-                        currentMethod.setInstructionsMissed(missed);
-                        break;
+        /**
+         * Simple constructor
+         * @param className the class name of the test (or container)
+         * @param testName the name of the test (or container)
+         * @param isTest true if the record refers to a test, false if to a container
+         * @param executionData the execution data
+         */
+        PerTestCoverageRecord(String className, String testName, boolean isTest, byte[] executionData) {
 
-                    case "BRANCH":
-                        currentMethod.setBranchesCovered(covered);
-                        currentMethod.setBranchesMissed(missed);
-                        break;
-                }
-            }
+            this.className = className;
+            this.testName = testName;
+            this.isTest = isTest;
+            this.executionData = executionData;
         }
 
+        /**
+         * read the next record
+         * @param records the stream of the file written by the PerTestCoverageListener
+         * @return the record, null if there are no more records
+         * @throws IOException if the record cannot be read
+         */
+        static PerTestCoverageRecord read(DataInputStream records) throws IOException {
 
-        @Override
-        public void endElement(String uri, String localName, String qName) {
-
-            // when we finish to analyze a method, save it in the array list to return
-            if (qName.equalsIgnoreCase("method")) {
-
-                methodsAndCoverage.add(currentMethod);
-
-                // to warn that, currently, we are parsing no method
-                currentMethod = null;
+            String className;
+            try {
+                className = records.readUTF();
             }
-            else if (qName.equalsIgnoreCase("class")) {
-
-                // to warn that, currently, we are parsing no class
-                currentClass = null;
+            // this is the end of the file
+            catch (EOFException e) {
+                return null;
             }
-        }
 
+            String testName = records.readUTF();
+            boolean isTest = records.readBoolean();
+            byte[] executionData = new byte[records.readInt()];
+            records.readFully(executionData);
 
-        /**
-         * getter for methodsAndCoverage
-         * @return methodsAndCoverage
-         */
-        public ArrayList<JaCoCoMethod> getMethodsAndCoverage() {
-            return methodsAndCoverage;
+            return new PerTestCoverageRecord(className, testName, isTest, executionData);
         }
     }
-
 }
-
-
@@ -0,0 +1,492 @@
+package org.company.jar;
+
+import org.company.App;
+import org.objectweb.asm.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.objectweb.asm.Opcodes.ASM8;
+
+/**
+ * This class compares the bytecode of an original jar with the bytecode of its protected version (i.e., the jar
+ * produced by Oblive), to relate the runtime overhead of the protection to the growth of the code. Both jars are
+ * read in a single (parallel) pass each, visiting the methods without debug information and frames, and, for
+ * each class and method, the report contains the number of instructions, max stack and max locals, the size of
+ * the constant pool and of the class file, the native methods that were added and the classes that were added
+ */
+public class BytecodeDiffAnalyzer {
+
+    /**
+     * the header of the CSV report
+     */
+    private static final String kReportHeader = "level,class_name,method_name,change," +
+            "original_instructions,protected_instructions,instructions_delta," +
+            "original_max_stack,protected_max_stack,max_stack_delta," +
+            "original_max_locals,protected_max_locals,max_locals_delta," +
+            "original_constant_pool_size,protected_constant_pool_size,constant_pool_size_delta," +
+            "original_class_file_size,protected_class_file_size,class_file_size_delta," +
+            "added_native_methods,added_classes";
+
+
+    /**
+     * compare the classes of the original jar with the classes of the protected jar and write a CSV report with
+     * one row for the whole jar, one row for each class and one row for each method (of both jars). In the rows,
+     * the "change" column is one of "unchanged", "modified", "added" (only in the protected jar) and "removed"
+     * (only in the original jar); the values of a missing class or method are left empty, and they count as 0
+     * in the deltas (i.e., protected value minus original value). Max stack and max locals of a class are the
+     * max among its methods
+     * @param originalJarPath the path of the original jar
+     * @param protectedJarPath the path of the protected jar
+     * @param reportFile the CSV file to write
+     * @throws IOException if a jar cannot be read or the report cannot be written
+     */
+    public static void writeBytecodeDiffReport(String originalJarPath, String protectedJarPath, File reportFile)
+            throws IOException {
+
+        App.logger.info("[{}{}{}{}{}{}", "BytecodeDiffAnalyzer ", "(" + "writeBytecodeDiffReport" + ")]: ",
+                "comparing the bytecode of jar ", originalJarPath, " with the bytecode of jar ", protectedJarPath);
+
+        Map<String, ClassMetrics> originalClasses = readClassMetrics(originalJarPath);
+        Map<String, ClassMetrics> protectedClasses = readClassMetrics(protectedJarPath);
+
+        TreeSet<String> classNames = new TreeSet<>(originalClasses.keySet());
+        classNames.addAll(protectedClasses.keySet());
+
+        // the rows of the classes and of their methods are written after the row of the whole jar
+        StringBuilder classRowsCSV = new StringBuilder();
+        ClassMetrics originalJarMetrics = new ClassMetrics(0, 0);
+        ClassMetrics protectedJarMetrics = new ClassMetrics(0, 0);
+        int addedNativeMethodsInJar = 0;
+        int addedClassesInJar = 0;
+        boolean jarWasModified = false;
+
+        for (String className : classNames) {
+
+            ClassMetrics originalClass = originalClasses.get(className);
+            ClassMetrics protectedClass = protectedClasses.get(className);
+
+            TreeSet<String> methodKeys = new TreeSet<>();
+            if (originalClass != null)
+                methodKeys.addAll(originalClass.methods.keySet());
+            if (protectedClass != null)
+                methodKeys.addAll(protectedClass.methods.keySet());
+
+            StringBuilder methodRowsCSV = new StringBuilder();
+            int addedNativeMethodsInClass = 0;
+
+            for (String methodKey : methodKeys) {
+
+                MethodMetrics originalMethod = originalClass == null ? null : originalClass.methods.get(methodKey);
+                MethodMetrics protectedMethod = protectedClass == null ? null : protectedClass.methods.get(methodKey);
+
+                int addedNativeMethod = protectedMethod != null && protectedMethod.isNative &&
+                        (originalMethod == null || !originalMethod.isNative) ? 1 : 0;
+                addedNativeMethodsInClass += addedNativeMethod;
+
+                methodRowsCSV.append("method,").append(toFQN(className)).append(",").append(methodKey).append(",")
+                        .append(getChange(originalMethod, protectedMethod)).append(",")
+                        .append(toCSV(originalMethod == null ? null : originalMethod.instructions,
+                                protectedMethod == null ? null : protectedMethod.instructions)).append(",")
+                        .append(toCSV(originalMethod == null ? null : originalMethod.maxStack,
+                                protectedMethod == null ? null : protectedMethod.maxStack)).append(",")
+                        .append(toCSV(originalMethod == null ? null : originalMethod.maxLocals,
+                                protectedMethod == null ? null : protectedMethod.maxLocals)).append(",")
+                        .append(toCSV(null, null)).append(",")
+                        .append(toCSV(null, null)).append(",")
+                        .append(addedNativeMethod).append(",")
+                        .append(0).append("\n");
+            }
+
+            int addedClass = originalClass == null ? 1 : 0;
+            addedNativeMethodsInJar += addedNativeMethodsInClass;
+            addedClassesInJar += addedClass;
+            originalJarMetrics.add(className, originalClass);
+            protectedJarMetrics.add(className, protectedClass);
+
+            String change = getChange(originalClass, protectedClass);
+            jarWasModified = jarWasModified || !change.equals("unchanged");
+
+            classRowsCSV.append("class,").append(toFQN(className)).append(",,").append(change).append(",")
+                    .append(toCSV(originalClass, protectedClass, addedNativeMethodsInClass, addedClass)).append("\n")
+                    .append(methodRowsCSV);
+        }
+
+        try (Writer reportWriter = Files.newBufferedWriter(reportFile.toPath(), StandardCharsets.UTF_8)) {
+
+            reportWriter.write(kReportHeader + "\n");
+            reportWriter.write("jar,,," + (jarWasModified ? "modified" : "unchanged") + "," +
+                    toCSV(originalJarMetrics, protectedJarMetrics, addedNativeMethodsInJar, addedClassesInJar) + "\n");
+            reportWriter.write(classRowsCSV.toString());
+        }
+
+        App.logger.info("[{}{}{}{}{}{}{}{}", "BytecodeDiffAnalyzer ", "(" + "writeBytecodeDiffReport" + ")]: ",
+                "compared ", classNames.size(), " classes (", addedClassesInJar, " added), report written in ",
+                reportFile.getAbsolutePath());
+    }
+
+    /**
+     * read the metrics of all the classes of a jar (in parallel)
+     * @param pathOfJarFile the path of the jar
+     * @return the metrics of the classes, by internal name (e.g., "org/example/className")
+     * @throws IOException if the jar cannot be read or a class cannot be parsed
+     */
+    private static Map<String, ClassMetrics> readClassMetrics(String pathOfJarFile) throws IOException {
+
+        ConcurrentHashMap<String, ClassMetrics> classes = new ConcurrentHashMap<>();
+
+        try (ZipFile jarFile = new ZipFile(pathOfJarFile)) {
+
+            // classes in "META-INF/versions" are alternative versions of classes that are already in the jar
+            jarFile.stream()
+                    .filter(entry -> entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/"))
+                    .parallel()
+                    .forEach(entry -> {
+                        ClassMetrics classMetrics = readClassMetrics(jarFile, entry);
+                        classes.put(entry.getName().substring(0, entry.getName().length() - ".class".length()),
+                                classMetrics);
+                    });
+        }
+        catch (UncheckedIOException e) {
+            throw new IOException("exception while reading jar " + pathOfJarFile + ": " + e.getMessage(), e.getCause());
+        }
+
+        return classes;
+    }
+
+    /**
+     * read the metrics of a class of a jar
+     * @param jarFile the jar
+     * @param entry the entry of the class
+     * @return the metrics of the class
+     */
+    private static ClassMetrics readClassMetrics(ZipFile jarFile, ZipEntry entry) {
+
+        try (InputStream classStream = jarFile.getInputStream(entry)) {
+
+            byte[] classBytes = classStream.readAllBytes();
+            ClassReader classReader = new ClassReader(classBytes);
+            ClassMetrics classMetrics = new ClassMetrics(classBytes.length, classReader.getItemCount());
+
+            classReader.accept(new ClassVisitor(ASM8) {
+                @Override
+                public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+
+                    MethodMetrics methodMetrics = new MethodMetrics((access & Opcodes.ACC_NATIVE) != 0);
+                    classMetrics.methods.put(name + desc, methodMetrics);
+                    return new InstructionsCounter(methodMetrics);
+                }
+            }, ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+            return classMetrics;
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        // e.g., the class file has a version that ASM does not support
+        catch (RuntimeException e) {
+            throw new UncheckedIOException(new IOException("cannot parse class " + entry.getName(), e));
+        }
+    }
+
+    /**
+     * the change of a class or method from the original jar to the protected jar
+     * @param original the class or method in the original jar, null if missing
+     * @param protectedOne the class or method in the protected jar, null if missing
+     * @return "unchanged", "modified", "added" or "removed"
+     */
+    private static String getChange(Object original, Object protectedOne) {
+
+        if (original == null)
+            return "added";
+        if (protectedOne == null)
+            return "removed";
+        return original.equals(protectedOne) ? "unchanged" : "modified";
+    }
+
+    /**
+     * the CSV columns (from the instructions to the added classes) of a class or of the whole jar
+     * @param original the metrics in the original jar, null if missing
+     * @param protectedOne the metrics in the protected jar, null if missing
+     * @param addedNativeMethods the number of native methods that were added
+     * @param addedClasses the number of classes that were added
+     * @return the CSV columns
+     */
+    private static String toCSV(ClassMetrics original, ClassMetrics protectedOne, int addedNativeMethods,
+                                int addedClasses) {
+
+        return toCSV(original == null ? null : original.getInstructions(),
+                protectedOne == null ? null : protectedOne.getInstructions()) + "," +
+                toCSV(original == null ? null : original.getMaxStack(),
+                        protectedOne == null ? null : protectedOne.getMaxStack()) + "," +
+                toCSV(original == null ? null : original.getMaxLocals(),
+                        protectedOne == null ? null : protectedOne.getMaxLocals()) + "," +
+                toCSV(original == null ? null : original.constantPoolSize,
+                        protectedOne == null ? null : protectedOne.constantPoolSize) + "," +
+                toCSV(original == null ? null : original.classFileSize,
+                        protectedOne == null ? null : protectedOne.classFileSize) + "," +
+                addedNativeMethods + "," + addedClasses;
+    }
+
+    /**
+     * the CSV columns of a metric, i.e., the original value, the protected value and the delta
+     * @param originalValue the value in the original jar, null if missing
+     * @param protectedValue the value in the protected jar, null if missing
+     * @return the CSV columns (missing values are empty and count as 0 in the delta)
+     */
+    private static String toCSV(Integer originalValue, Integer protectedValue) {
+
+        if (originalValue == null && protectedValue == null)
+            return ",,";
+
+        return (originalValue == null ? "" : originalValue) + "," + (protectedValue == null ? "" : protectedValue) +
+                "," + ((protectedValue == null ? 0 : protectedValue) - (originalValue == null ? 0 : originalValue));
+    }
+
+    /**
+     * from internal name to FQN (e.g., from "org/example/className" to "org.example.className")
+     * @param className the internal name
+     * @return the FQN
+     */
+    private static String toFQN(String className) {
+        return className.replace('/', '.');
+    }
+
+
+    /**
+     * The metrics of a class (or the sum of the metrics of the classes of a jar)
+     */
+    private static class ClassMetrics {
+
+        /**
+         * the size of the class file, in bytes
+         */
+        private int classFileSize;
+
+        /**
+         * the number of entries of the constant pool
+         */
+        private int constantPoolSize;
+
+        /**
+         * the metrics of the methods, by name and desc (e.g., "test(Ljava/lang/String;)V")
+         */
+        private final HashMap<String, MethodMetrics> methods = new HashMap<>();
+
+        /**
+         * Simple constructor
+         * @param classFileSize the size of the class file, in bytes
+         * @param constantPoolSize the number of entries of the constant pool
+         */
+        ClassMetrics(int classFileSize, int constantPoolSize) {
+
+            this.classFileSize = classFileSize;
+            this.constantPoolSize = constantPoolSize;
+        }
+
+        /**
+         * add the metrics of a class to these metrics (to sum the metrics of the classes of a jar). The methods
+         * of the class are added by name of the class, name and desc (e.g., "org/example/className.test()V")
+         * @param className the internal name of the class
+         * @param other the metrics of the class, ignored if null
+         */
+        void add(String className, ClassMetrics other) {
+
+            if (other == null)
+                return;
+
+            classFileSize += other.classFileSize;
+            constantPoolSize += other.constantPoolSize;
+            other.methods.forEach((methodKey, methodMetrics) -> methods.put(className + "." + methodKey, methodMetrics));
+        }
+
+        /**
+         * the number of instructions of the methods
+         * @return the number of instructions
+         */
+        int getInstructions() {
+            return methods.values().stream().mapToInt(method -> method.instructions).sum();
+        }
+
+        /**
+         * the max stack among the methods
+         * @return the max stack
+         */
+        int getMaxStack() {
+            return methods.values().stream().mapToInt(method -> method.maxStack).max().orElse(0);
+        }
+
+        /**
+         * the max locals among the methods
+         * @return the max locals
+         */
+        int getMaxLocals() {
+            return methods.values().stream().mapToInt(method -> method.maxLocals).max().orElse(0);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            ClassMetrics that = (ClassMetrics) o;
+            return classFileSize == that.classFileSize && constantPoolSize == that.constantPoolSize &&
+                    methods.equals(that.methods);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(classFileSize, constantPoolSize, methods);
+        }
+    }
+
+    /**
+     * The metrics of a method
+     */
+    private static class MethodMetrics {
+
+        /**
+         * true if the method is native
+         */
+        private final boolean isNative;
+
+        /**
+         * the number of instructions (labels, line numbers and frames are not instructions)
+         */
+        private int instructions;
+
+        /**
+         * the max size of the operand stack
+         */
+        private int maxStack;
+
+        /**
+         * the max number of local variables
+         */
+        private int maxLocals;
+
+
+        /**
+         * Simple constructor
+         * @param isNative true if the method is native
+         */
+        MethodMetrics(boolean isNative) {
+            this.isNative = isNative;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            MethodMetrics that = (MethodMetrics) o;
+            return isNative == that.isNative && instructions == that.instructions &&
+                    maxStack == that.maxStack && maxLocals == that.maxLocals;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(isNative, instructions, maxStack, maxLocals);
+        }
+    }
+
+    /**
+     * This class is a visitor that counts the instructions of a method and records its max stack and max locals
+     */
+    private static class InstructionsCounter extends MethodVisitor {
+
+        /**
+         * the metrics of the method
+         */
+        private final MethodMetrics methodMetrics;
+
+
+        /**
+         * Simple constructor
+         * @param methodMetrics the metrics of the method
+         */
+        InstructionsCounter(MethodMetrics methodMetrics) {
+
+            super(ASM8);
+            this.methodMetrics = methodMetrics;
+        }
+
+        @Override
+        public void visitInsn(int opcode) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitIntInsn(int opcode, int operand) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitVarInsn(int opcode, int var) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitTypeInsn(int opcode, String type) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitFieldInsn(int opcode, String owner, String name, String desc) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitMethodInsn(int opcode, String owner, String name, String desc, boolean isInterface) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitInvokeDynamicInsn(String name, String desc, Handle bootstrapMethodHandle,
+                                           Object... bootstrapMethodArguments) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitJumpInsn(int opcode, Label label) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitLdcInsn(Object value) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitIincInsn(int var, int increment) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitTableSwitchInsn(int min, int max, Label dflt, Label... labels) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitLookupSwitchInsn(Label dflt, int[] keys, Label[] labels) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitMultiANewArrayInsn(String desc, int numDimensions) {
+            methodMetrics.instructions++;
+        }
+
+        @Override
+        public void visitMaxs(int maxStack, int maxLocals) {
+
+            methodMetrics.maxStack = maxStack;
+            methodMetrics.maxLocals = maxLocals;
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package org.company.jar;
+
+import java.time.LocalDateTime;
+import java.util.zip.Deflater;
+
+/**
+ * simple class to hold generic constant values related to jar files
+ */
+public class Const {
+
+    /**
+     * the last modification time of all the entries of the jars created from folders. A fixed time (instead of
+     * the time of the files), along with sorted entries and a fixed compression level, makes the same files
+     * always give the same jar, byte by byte. The time is the earliest one DOS dates can represent and it is a local
+     * date-time on purpose: it is written with ZipEntry.setTimeLocal, i.e., as it is, without any conversion to or
+     * from the time zone of the machine, so that jars are byte-identical across time zones (do not make it an
+     * instant in UTC, which would be written differently in each time zone)
+     */
+    public static final LocalDateTime kJarEntriesTime = LocalDateTime.of(1980, 1, 1, 0, 0, 0);
+
+    /**
+     * the compression level of the entries of the jars created by this tool
+     */
+    public static final int kJarEntriesCompressionLevel = Deflater.DEFAULT_COMPRESSION;
+}
@@ -0,0 +1,260 @@
+package org.company.jar;
+
+import org.company.App;
+import org.company.asm.MyClassVisitor;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.objectweb.asm.Opcodes.ASM8;
+
+/**
+ * This class indexes the classes of a jar, i.e., for each class it keeps the superclass, the interfaces and the
+ * methods the class declares. The index is built in a single (parallel) pass over the jar, reading only the
+ * header and the methods of the classes (not their code), so that questions like "which class actually defines
+ * this test" are answered without visiting the classes again. Methods are identified by their name and their
+ * normalized desc (see MyClassVisitor.normalizeDesc), so that descs parsed from the JUnit reports match as well
+ */
+public class JarIndex {
+
+    /**
+     * the classes of the jar, by internal name (e.g., "org/example/className")
+     */
+    private final ConcurrentHashMap<String, ClassInfo> classes = new ConcurrentHashMap<>();
+
+
+    /**
+     * Simple constructor, it builds the index of the given jar
+     * @param pathOfJarFile the path of the jar to index
+     * @throws IOException if the jar cannot be read
+     */
+    public JarIndex(String pathOfJarFile) throws IOException {
+
+        App.logger.info("[{}{}{}{}", "JarIndex ", "(" + "JarIndex" + ")]: ", "indexing classes of jar ", pathOfJarFile);
+
+        try (ZipFile jarFile = new ZipFile(pathOfJarFile)) {
+
+            // classes in "META-INF/versions" are alternative versions of classes that are already in the jar
+            jarFile.stream()
+                    .filter(entry -> entry.getName().endsWith(".class") && !entry.getName().startsWith("META-INF/"))
+                    .parallel()
+                    .forEach(entry -> indexClass(jarFile, entry));
+        }
+        catch (UncheckedIOException e) {
+            throw new IOException("exception while indexing jar " + pathOfJarFile + ": " + e.getMessage(), e.getCause());
+        }
+
+        App.logger.info("[{}{}{}{}", "JarIndex ", "(" + "JarIndex" + ")]: ", "number of indexed classes: ", classes.size());
+    }
+
+    /**
+     * the information on a class of the jar
+     * @param classFQN the FQN of the class (e.g., "org.example.className")
+     * @return the information on the class, null if the jar does not contain the class
+     */
+    public ClassInfo getClassInfo(String classFQN) {
+        return classes.get(classFQN.replace('.', '/'));
+    }
+
+    /**
+     * find the class that defines the given method, i.e., the first class declaring the method among the given
+     * class and its superclasses or, if none declares it, among the interfaces they implement (for default methods).
+     * When the hierarchy leaves the jar (i.e., a superclass is not in the jar), the method can be defined only there
+     * @param classFQN the FQN of the class from which to start the search (e.g., "org.example.className")
+     * @param methodName the name of the method
+     * @param desc the desc of the method (ASM style or normalized)
+     * @return the FQN of the class defining the method (or of the first superclass that is not in the jar), null
+     * if the method is not defined by the class and by any of its superclasses and interfaces
+     */
+    public String findClassDefiningMethod(String classFQN, String methodName, String desc) {
+
+        String methodKey = toMethodKey(methodName, desc);
+        ArrayDeque<String> interfacesToSearch = new ArrayDeque<>();
+
+        String className = classFQN.replace('.', '/');
+        while (className != null) {
+
+            ClassInfo classInfo = classes.get(className);
+            if (classInfo == null && className.equals("java/lang/Object"))
+                break;
+            if (classInfo == null)
+                return className.replace('/', '.');
+
+            if (classInfo.declaredMethods.contains(methodKey))
+                return className.replace('/', '.');
+
+            interfacesToSearch.addAll(classInfo.interfaces);
+            className = classInfo.superName;
+        }
+
+        // interfaces not in the jar are skipped, as they are not the place where to look for tests
+        HashSet<String> searchedInterfaces = new HashSet<>();
+        while (!interfacesToSearch.isEmpty()) {
+
+            String interfaceName = interfacesToSearch.poll();
+            ClassInfo interfaceInfo = classes.get(interfaceName);
+            if (interfaceInfo == null || !searchedInterfaces.add(interfaceName))
+                continue;
+
+            if (interfaceInfo.declaredMethods.contains(methodKey))
+                return interfaceName.replace('/', '.');
+
+            interfacesToSearch.addAll(interfaceInfo.interfaces);
+        }
+
+        return null;
+    }
+
+    /**
+     * the key identifying a method among the methods declared by a class
+     * @param methodName the name of the method
+     * @param desc the desc of the method (ASM style or normalized)
+     * @return the method name followed by the normalized desc, e.g., "methodName(String, int)"
+     */
+    public static String toMethodKey(String methodName, String desc) {
+        return methodName + MyClassVisitor.normalizeDesc(desc);
+    }
+
+    /**
+     * read the header and the methods of a class of the jar and add it to the index. Only the first
+     * class with a given name is indexed. Classes that ASM cannot parse (e.g., of a dependency bundled in the jar,
+     * with a class file version that ASM does not support) are skipped with a warning
+     * @param jarFile the jar
+     * @param entry the entry of the class
+     */
+    private void indexClass(ZipFile jarFile, ZipEntry entry) {
+
+        try (InputStream classStream = jarFile.getInputStream(entry)) {
+            ClassReader classReader = new ClassReader(classStream);
+            classes.putIfAbsent(classReader.getClassName(), readClassInfo(classReader));
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        catch (RuntimeException e) {
+            App.logger.warn("[{}{}{}{}{}{}", "JarIndex ", "(" + "indexClass" + ")]: ",
+                    "skipping class that cannot be parsed ", entry.getName(), ": ", e.getMessage());
+        }
+    }
+
+    /**
+     * read only the header of a class, i.e., the information on the class without the declared methods
+     * @param classReader the reader of the class
+     * @return the information on the class
+     */
+    public static ClassInfo readClassHeader(ClassReader classReader) {
+
+        return new ClassInfo(classReader.getSuperName(), Arrays.asList(classReader.getInterfaces()),
+                (classReader.getAccess() & Opcodes.ACC_INTERFACE) != 0);
+    }
+
+    /**
+     * read the header and the methods (not their code) of a class
+     * @param classReader the reader of the class
+     * @return the information on the class
+     */
+    public static ClassInfo readClassInfo(ClassReader classReader) {
+
+        ClassInfo classInfo = readClassHeader(classReader);
+
+        classReader.accept(new ClassVisitor(ASM8) {
+            @Override
+            public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+                classInfo.declaredMethods.add(toMethodKey(name, desc));
+                return null;
+            }
+        }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+
+        return classInfo;
+    }
+
+    /**
+     * The information on a class of the jar
+     */
+    public static class ClassInfo {
+
+        /**
+         * the internal name of the superclass (e.g., "java/lang/Object"), null for java.lang.Object
+         */
+        private final String superName;
+
+        /**
+         * the internal names of the interfaces implemented by the class
+         */
+        private final List<String> interfaces;
+
+        /**
+         * true if the class is an interface
+         */
+        private final boolean isInterface;
+
+        /**
+         * the methods declared by the class (see toMethodKey)
+         */
+        private final HashSet<String> declaredMethods = new HashSet<>();
+
+        /**
+         * Simple constructor
+         * @param superName the internal name of the superclass
+         * @param interfaces the internal names of the interfaces implemented by the class
+         * @param isInterface true if the class is an interface
+         */
+        ClassInfo(String superName, List<String> interfaces, boolean isInterface) {
+
+            this.superName = superName;
+            this.interfaces = interfaces;
+            this.isInterface = isInterface;
+        }
+
+        /**
+         * getter for superName
+         * @return the internal name of the superclass (e.g., "java/lang/Object"), null for java.lang.Object
+         */
+        public String getSuperName() {
+            return superName;
+        }
+
+        /**
+         * getter for superName
+         * @return the FQN of the superclass (e.g., "java.lang.Object"), null for java.lang.Object
+         */
+        public String getSuperClassFQN() {
+            return superName == null ? null : superName.replace('/', '.');
+        }
+
+        /**
+         * getter for interfaces
+         * @return the internal names of the interfaces implemented by the class
+         */
+        public List<String> getInterfaces() {
+            return interfaces;
+        }
+
+        /**
+         * getter for isInterface
+         * @return true if the class is an interface
+         */
+        public boolean isInterface() {
+            return isInterface;
+        }
+
+        /**
+         * whether the class declares the given method
+         * @param methodName the name of the method
+         * @param desc the desc of the method (ASM style or normalized)
+         * @return true if the class declares the method
+         */
+        public boolean declaresMethod(String methodName, String desc) {
+            return declaredMethods.contains(toMethodKey(methodName, desc));
+        }
+    }
+}
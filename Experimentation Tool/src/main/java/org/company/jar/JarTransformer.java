@@ -0,0 +1,188 @@
+package org.company.jar;
+
+import org.apache.commons.compress.archivers.zip.ZipArchiveEntry;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.commons.compress.archivers.zip.ZipFile;
+import org.apache.commons.io.IOUtils;
+import org.company.App;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.util.Enumeration;
+import java.util.HashMap;
+
+import static org.company.jar.Const.kJarEntriesCompressionLevel;
+
+/**
+ * This class transforms a jar into another jar without extracting it on the file system. Only the entries for
+ * which a transformation was given (e.g., the classes to visit with ASM) are decompressed, transformed and
+ * compressed again, while all other entries are copied to the new jar in their compressed form (i.e., the raw
+ * bytes are copied as they are). Entries keep the order they have in the original jar. Entries can also be read
+ * before the transformation (e.g., to find the superclass of a class), remember to close the transformer
+ */
+public class JarTransformer implements Closeable {
+
+    /**
+     * the jar to transform
+     */
+    private final ZipFile jarFile;
+
+    /**
+     * the path of the jar to transform (for logging)
+     */
+    private final String pathOfJarFile;
+
+    /**
+     * the transformations to apply, by entry name
+     */
+    private final HashMap<String, EntryTransformation> entryTransformations = new HashMap<>();
+
+
+    /**
+     * Simple constructor
+     * @param pathOfJarFile the path of the jar to transform
+     * @throws IOException if the jar cannot be opened
+     */
+    public JarTransformer(String pathOfJarFile) throws IOException {
+
+        this.jarFile = new ZipFile(pathOfJarFile);
+        this.pathOfJarFile = pathOfJarFile;
+    }
+
+    /**
+     * the name of the entry of a class, e.g., "org/example/className.class" for "org.example.className"
+     * @param classFQN the FQN of the class
+     * @return the name of the entry
+     */
+    public static String toClassEntryName(String classFQN) {
+        return classFQN.replace('.', '/') + ".class";
+    }
+
+    /**
+     * whether the jar contains the given entry
+     * @param entryName the name of the entry
+     * @return true if the jar contains the entry
+     */
+    public boolean hasEntry(String entryName) {
+        return jarFile.getEntry(entryName) != null;
+    }
+
+    /**
+     * read the (decompressed) content of an entry of the jar to transform
+     * @param entryName the name of the entry
+     * @return the content of the entry, null if the jar does not contain the entry
+     * @throws IOException if the entry cannot be read
+     */
+    public byte[] readEntry(String entryName) throws IOException {
+
+        ZipArchiveEntry entry = jarFile.getEntry(entryName);
+        if (entry == null)
+            return null;
+
+        try (InputStream entryStream = jarFile.getInputStream(entry)) {
+            return IOUtils.toByteArray(entryStream);
+        }
+    }
+
+    /**
+     * transform the given entry when writing the new jar (replacing the transformation given before, if any)
+     * @param entryName the name of the entry
+     * @param entryTransformation the transformation
+     * @return this instance of JarTransformer
+     */
+    public JarTransformer withEntryTransformation(String entryName, EntryTransformation entryTransformation) {
+
+        entryTransformations.put(entryName, entryTransformation);
+        return this;
+    }
+
+    /**
+     * replace the content of the given entry when writing the new jar
+     * @param entryName the name of the entry
+     * @param content the new content of the entry
+     * @return this instance of JarTransformer
+     */
+    public JarTransformer withEntryContent(String entryName, byte[] content) {
+        return withEntryTransformation(entryName, originalContent -> content);
+    }
+
+    /**
+     * write the new jar, applying the transformations to their entries and copying the other entries as they
+     * are (in the same order). Transformations of entries that the jar does not contain are not applied. If the
+     * writing fails, the new jar is deleted
+     * @param outputJar the new jar
+     * @throws IOException if the jar cannot be read, a transformation fails or the new jar cannot be written
+     */
+    public void transform(File outputJar) throws IOException {
+
+        App.logger.info("[{}{}{}{}{}{}{}{}", "JarTransformer ", "(" + "transform" + ")]: ", "transforming ",
+                entryTransformations.size(), " entries of jar ", pathOfJarFile, " into jar ", outputJar.getAbsolutePath());
+
+        try (ZipArchiveOutputStream jarStream = new ZipArchiveOutputStream(outputJar)) {
+
+            jarStream.setLevel(kJarEntriesCompressionLevel);
+
+            Enumeration<ZipArchiveEntry> entries = jarFile.getEntriesInPhysicalOrder();
+            while (entries.hasMoreElements()) {
+
+                ZipArchiveEntry entry = entries.nextElement();
+                EntryTransformation entryTransformation = entryTransformations.get(entry.getName());
+
+                if (entryTransformation == null) {
+
+                    // the raw (compressed) bytes are copied, along with sizes and CRC, without decompressing them
+                    try (InputStream rawStream = jarFile.getRawInputStream(entry)) {
+                        jarStream.addRawArchiveEntry(entry, rawStream);
+                    }
+                    continue;
+                }
+
+                byte[] content;
+                try (InputStream entryStream = jarFile.getInputStream(entry)) {
+                    content = entryTransformation.transform(IOUtils.toByteArray(entryStream));
+                }
+
+                // the transformed entry keeps the time of the original one, so that the same jar (with the same
+                // transformations) always gives the same new jar, byte by byte
+                ZipArchiveEntry transformedEntry = new ZipArchiveEntry(entry.getName());
+                transformedEntry.setTime(entry.getTime());
+                transformedEntry.setMethod(ZipArchiveEntry.DEFLATED);
+                jarStream.putArchiveEntry(transformedEntry);
+                jarStream.write(content);
+                jarStream.closeArchiveEntry();
+            }
+        }
+        catch (IOException e) {
+
+            App.logger.error("[{}{}{}{}", "JarTransformer ", "(" + "transform" + ")]: ",
+                    "exception while transforming jar: ", e.getMessage());
+
+            Files.deleteIfExists(outputJar.toPath());
+            throw new IOException("exception while transforming jar " + pathOfJarFile + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * close the jar to transform
+     * @throws IOException if the jar cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        jarFile.close();
+    }
+
+    /**
+     * A transformation of the content of an entry of a jar (e.g., a class visited with ASM)
+     */
+    @FunctionalInterface
+    public interface EntryTransformation {
+
+        /**
+         * transform the content of an entry
+         * @param content the (decompressed) content of the entry
+         * @return the new content of the entry
+         * @throws IOException if the content cannot be transformed
+         */
+        byte[] transform(byte[] content) throws IOException;
+    }
+}
@@ -11,9 +11,20 @@ import org.objectweb.asm.ClassReader;
 import org.objectweb.asm.ClassWriter;
 
 import java.io.*;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
 
 import static java.lang.System.exit;
+import static org.company.junit.Const.kDisabledAnnotationFQN;
+import static org.company.junit.Const.kIgnoreAnnotationFQN;
+import static org.company.jar.Const.kJarEntriesCompressionLevel;
+import static org.company.jar.Const.kJarEntriesTime;
 import static org.objectweb.asm.Opcodes.ASM8;
 
 /**
@@ -23,7 +34,8 @@ public class JarUtil {
 
     /**
      * Extract all files from a jar archive in the given output directory. If the output directory does not
-     * already exist, the method creates it. Note that extracted files with the same name override already present files
+     * already exist, the method creates it. Note that extracted files with the same name override already present files.
+     * Entries whose name would place them outside of the output directory (e.g., "../file") are rejected
      * @param outputDirectory where to extract all files
      * @param pathOfJarFile the jar archive from which to extract all files
      * @throws IOException if the creation of the output directory or the extraction of files failed
@@ -40,59 +52,52 @@ public class JarUtil {
         else if (!outputDirectory.isDirectory())
             throw new IOException("given output folder is not a folder");
 
-        try {
-
-            ProcessBuilder pbJarXF;
-
-            pbJarXF = new ProcessBuilder("jar", "xf", pathOfJarFile);
-            pbJarXF.directory(outputDirectory).redirectErrorStream(true);
-            Process pJarXF = pbJarXF.start();
-
-            // here we must NOT wait for the process to finish through "p.waitFor();"
-            // because the output of the process could be too big for the buffer size
-            // provided by the underlying platform. So we "drain" the buffer instead,
-            // that in the end has the same effect of p.waitFor();
-            BufferedReader jarXFReader = new BufferedReader(new InputStreamReader(pJarXF.getInputStream()));
+        Path outputPath = outputDirectory.toPath().toAbsolutePath().normalize();
 
-            String temp;
+        try (ZipFile jarFile = new ZipFile(pathOfJarFile)) {
 
-            while ((temp = jarXFReader.readLine()) != null) {
+            Enumeration<? extends ZipEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
 
-                // if the output from the extraction contains the word "Exception", it means that something went wrong
-                if (temp.toLowerCase().contains("Exception".toLowerCase())) {
+                ZipEntry entry = entries.nextElement();
 
-                    App.logger.error("[{}{}{}{}", "FileUtil ", "(" + "extractAllFilesFromJar" + ")]: ",
-                            "exception while extracting files from jar: ", temp);
+                Path entryPath = outputPath.resolve(entry.getName()).normalize();
+                if (!entryPath.startsWith(outputPath))
+                    throw new IOException("entry " + entry.getName() + " of jar " + pathOfJarFile +
+                            " would be extracted outside of the output folder");
 
-                    throw new IOException("exception while extracting files from jar: " + temp);
+                if (entry.isDirectory()) {
+                    Files.createDirectories(entryPath);
+                    continue;
                 }
-            }
-
-            pJarXF.waitFor();
-
-            // check also that the code is 0, otherwise there was an error
-            int exitStatus = pJarXF.exitValue();
 
-            if (exitStatus != 0) {
-                App.logger.error("[{}{}{}{}", "FileUtil ", "(" + "extractAllFilesFromJar" + ")]: ",
-                        "jar process exited with code: ", exitStatus);
+                Files.createDirectories(entryPath.getParent());
+                try (InputStream entryStream = jarFile.getInputStream(entry)) {
+                    Files.copy(entryStream, entryPath, StandardCopyOption.REPLACE_EXISTING);
+                }
 
-                exit(10);
+                // as the jar tool, keep the last modification time of the entry
+                if (entry.getTime() != -1)
+                    Files.setLastModifiedTime(entryPath, FileTime.fromMillis(entry.getTime()));
             }
         }
-        catch (InterruptedException e) {
+        catch (IOException e) {
 
             App.logger.error("[{}{}{}{}", "FileUtil ", "(" + "extractAllFilesFromJar" + ")]: ",
-                    "Exception while waiting for process to finish", e.getMessage());
-            exit(5);
+                    "exception while extracting files from jar: ", e.getMessage());
+
+            throw new IOException("exception while extracting files from jar " + pathOfJarFile + ": " + e.getMessage(), e);
         }
     }
 
     /**
-     * Create a jar file with all the files in the given directory
+     * Create a jar file with all the files in the given directory (except the jar file itself, if it is
+     * created in the given directory). As the jar tool, the manifest is the first entry of the jar. The jar
+     * is reproducible, i.e., the same files always give the same jar (see kJarEntriesTime)
      * @param directoryContainingFiles directory containing files to add in the new jar
      * @param manifest the manifest file to be included. If not given, it will be assumed to be
-     *                 'directoryContainingFiles/META-INF/MANIFEST.MF'
+     *                 'directoryContainingFiles/META-INF/MANIFEST.MF' (and, if it does not exist, a
+     *                 manifest containing only the manifest version will be created)
      * @param jarAbsolutePath the path for the jar file that will be created
      * @throws IOException if the creation of the jar failed
      */
@@ -101,54 +106,83 @@ public class JarUtil {
         App.logger.info("[{}{}{}{}{}{} ", "FileUtil", "(" + "createJar" + ")]: ", "create jar with name: ",
                 jarAbsolutePath, " from files contained in ", directoryContainingFiles.getAbsolutePath());
 
-        try {
+        if (manifest == null)
+            manifest = new File(directoryContainingFiles.getAbsolutePath() + "/META-INF/MANIFEST.MF");
 
-            if (manifest == null)
-                manifest = new File(directoryContainingFiles.getAbsolutePath() + "/META-INF/MANIFEST.MF");
+        Path inputPath = directoryContainingFiles.toPath().toAbsolutePath().normalize();
+        Path jarPath = Paths.get(jarAbsolutePath).toAbsolutePath().normalize();
+
+        // the manifest is copied as it is (after checking that it is valid), so that its attributes keep their order
+        byte[] manifestBytes;
+        if (manifest.isFile()) {
+            manifestBytes = Files.readAllBytes(manifest.toPath());
+            new Manifest(new ByteArrayInputStream(manifestBytes));
+        }
+        else {
+            Manifest defaultManifest = new Manifest();
+            defaultManifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+            ByteArrayOutputStream defaultManifestBytes = new ByteArrayOutputStream();
+            defaultManifest.write(defaultManifestBytes);
+            manifestBytes = defaultManifestBytes.toByteArray();
+        }
 
-            ProcessBuilder pbJarCF;
+        // all files and folders by entry name (entry names always use '/' as separator, and folders end with
+        // '/'), sorted so that the same files always give the same order of entries on every file system
+        TreeMap<String, Path> pathsToAdd = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(inputPath)) {
+            paths.filter(path -> !path.equals(inputPath) && !path.equals(jarPath)).forEach(path -> {
+                String entryName = inputPath.relativize(path).toString().replace(File.separatorChar, '/');
+                pathsToAdd.put(Files.isDirectory(path) ? entryName + "/" : entryName, path);
+            });
+        }
 
-            pbJarCF = new ProcessBuilder("jar", "cmf", manifest.getAbsolutePath(), jarAbsolutePath, "./");
-            pbJarCF.directory(directoryContainingFiles).redirectErrorStream(true);
-            Process pJarCF = pbJarCF.start();
+        // as the jar tool, the manifest (and its folder) are the first entries
+        pathsToAdd.remove("META-INF/");
+        pathsToAdd.keySet().removeIf(entryName -> entryName.equalsIgnoreCase(JarFile.MANIFEST_NAME));
 
-            BufferedReader jarXFReader = new BufferedReader(new InputStreamReader(pJarCF.getInputStream()));
-            String temp;
+        try (JarOutputStream jarStream = new JarOutputStream(
+                new BufferedOutputStream(new FileOutputStream(jarAbsolutePath)))) {
 
-            // here we must NOT wait for the process to finish through "p.waitFor();"
-            // because the output of the process could be too big for the buffer size
-            // provided by the underlying platform. So we "drain" the buffer instead,
-            // that in the end has the same effect of p.waitFor();
-            while ((temp = jarXFReader.readLine()) != null) {
+            jarStream.setMethod(ZipEntry.DEFLATED);
+            jarStream.setLevel(kJarEntriesCompressionLevel);
 
-                // if the output from the extraction contains the word "Exception", it means that something went wrong
-                if (temp.toLowerCase().contains("Exception".toLowerCase())) {
+            putDeterministicEntry(jarStream, "META-INF/", null);
+            putDeterministicEntry(jarStream, JarFile.MANIFEST_NAME, manifestBytes);
 
-                    App.logger.error("[{}{}{}{}", "FileUtil ", "(" + "createJar" + ")]: ",
-                            "exception while creating jar: ", temp);
+            for (Map.Entry<String, Path> entryNameAndPath : pathsToAdd.entrySet())
+                putDeterministicEntry(jarStream, entryNameAndPath.getKey(), entryNameAndPath.getKey().endsWith("/") ?
+                        null :
+                        Files.readAllBytes(entryNameAndPath.getValue()));
+        }
+        catch (IOException e) {
 
-                    throw new IOException("exception while creating jar: " + temp);
-                }
-            }
+            App.logger.error("[{}{}{}{}", "FileUtil ", "(" + "createJar" + ")]: ",
+                    "exception while creating jar: ", e.getMessage());
 
-            pJarCF.waitFor();
+            Files.deleteIfExists(jarPath);
+            throw new IOException("exception while creating jar " + jarAbsolutePath + ": " + e.getMessage(), e);
+        }
+    }
 
-            // check also that the code is 0, otherwise there was an error
-            int exitStatus = pJarCF.exitValue();
+    /**
+     * write an entry of a jar with a fixed time (see kJarEntriesTime), so that the jar does not depend
+     * on when (or in which time zone) it was created
+     * @param jarStream the stream of the jar
+     * @param entryName the name of the entry (ending with '/' for folders)
+     * @param content the content of the entry, null for folders
+     * @throws IOException if the entry cannot be written
+     */
+    private static void putDeterministicEntry(JarOutputStream jarStream, String entryName, byte[] content)
+            throws IOException {
 
-            if (exitStatus != 0) {
-                App.logger.error("[{}{}{}{}", "FileUtil ", "(" + "createJar" + ")]: ",
-                        "jar process exited with code: ", exitStatus);
+        JarEntry entry = new JarEntry(entryName);
+        entry.setTimeLocal(kJarEntriesTime);
+        jarStream.putNextEntry(entry);
 
-                exit(10);
-            }
-        }
-        catch (InterruptedException e) {
+        if (content != null)
+            jarStream.write(content);
 
-            App.logger.error("[{}{}{}{}", "FileUtil ", "(" + "createJar" + ")]: ",
-                    "Exception while waiting for process to finish", e.getMessage());
-            exit(5);
-        }
+        jarStream.closeEntry();
     }
 
     /**
@@ -161,18 +195,11 @@ public class JarUtil {
         return jarPath.substring(jarPath.lastIndexOf('/') + 1, jarPath.lastIndexOf('.'));
     }
 
-
-
-
-
-
-
-
-
     /**
-     * This method extracts all class files from the given jar. Then, it visits all classes to
-     * add the @Ignore (JUnit 4) or @Disabled (Junit 5) annotation to the given tests. Finally,
-     * it creates the new jar with the given name in the given directory
+     * This method visits the classes of the given jar containing tests to ignore, adding the @Ignore
+     * (JUnit 4) or @Disabled (Junit 5) annotation to them. Then, it creates the new jar with the given
+     * name in the given directory. The jar is not extracted: only the visited classes are read and
+     * written again, while all other entries are copied as they are (see JarTransformer)
      * @param testsToIgnore the hash map containing the JUnit tests methods to ignore
      * @param classesToIgnore the array of the classes to ignore
      * @param pathOfJarFileToVisit the absolute path of the jar file to visit
@@ -192,225 +219,169 @@ public class JarUtil {
         App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
                 "start parsing jar", pathOfJarFileToVisit, " to add annotations to given tests and classes");
 
-        // extract all files from the Jar in the given folder
         File outputFolder = new File(outputFolderPath);
-        extractAllFilesFromJar(outputFolder, pathOfJarFileToVisit);
-        HashSet<File> classFiles = new HashSet<>();
-        getAllFilesFromDirectoryWithExtension(outputFolder, "class", classFiles);
-
-        // we have to visit all classes at least twice. This is because some tests that we think are used
-        // by a class could actually be defined in one of the superclasses. Since we do not know it, we
-        // first have to parse all classes and determine whether a method used by a class is defined by
-        // that class or not. If not, we recursively check the superclass(es) until we arrive at the
-        // definition of the method. Then, we can actually start applying the visitor to the methods.
-
-        boolean doWeHaveMoreTestsToProcess = true;
-
-        while (doWeHaveMoreTestsToProcess) {
-
-            doWeHaveMoreTestsToProcess = false;
-
-            for (File classFile : classFiles) {
-
-                // calculate the FQN of the class (e.g., "org.example.className") from the path of
-                // the class file (e.g., "C://users/bin/jars/org/example/className.class")
-                String classFQN = classFile.getAbsolutePath()
-                        .replace(outputFolderPath + "/", "")
-                        .replace("/", ".")
-                        .replace(".class", "");
-
-                // this means that we have some tests to process that are (supposedly) defined in this class
-                if (testsToIgnore.containsKey(classFQN)) {
-
-                    FileInputStream classFileInputStream = new FileInputStream(classFile);
-
-                    ArrayList<JUnitTest> arrayOfTestsToIgnore = testsToIgnore.get(classFQN);
-
-                    // check which methods are defined in the class are which are defined in a superclass
-                    areMethodsDefinedInThisClassASMAdapter classVisitor =
-                            new areMethodsDefinedInThisClassASMAdapter(ASM8, JUnitUtil.toASMMethods(arrayOfTestsToIgnore));
-                    ClassReader classReader = new ClassReader(classFileInputStream);
-                    classReader.accept(classVisitor, 0);
-                    classFileInputStream.close();
-
-                    ArrayList<ASMMethod> testsThatWereNotFound = classVisitor.getMethodsThatWereNotFound();
-
-                    if (testsThatWereNotFound.size() != 0) {
-
-                        String superClassName = classVisitor.getSuperClassName().replace("/", ".");
-
-                        if (!superClassName.equals("java.lang.Object")) {
-
-                            App.logger.info("[{}{}{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                                    "some tests were not found (one per line below), moving them from class ", classFQN,
-                                    " to superclass ", superClassName, ": ");
-                            testsThatWereNotFound.forEach(asmMethod -> App.logger.info("    {}", asmMethod.toString()));
-
-                            // note that the superclass may not be present as key in the "testsToIgnore" map,
-                            testsToIgnore.putIfAbsent(superClassName, new ArrayList<>());
-                            ArrayList<JUnitTest> superclassMethods = testsToIgnore.get(superClassName);
-
-                            // then, we add the methods that were not found to the superclass, if not already there
-                            for (ASMMethod method : testsThatWereNotFound) {
-
-                                JUnitTest test = (JUnitTest) method;
-                                int indexOf = superclassMethods.indexOf(test);
-                                if (indexOf < 0) {
-
-                                    // this is the step in which we actually remove the test from the class that use
-                                    // it and assign the test to the class that defines it
-                                    if (!arrayOfTestsToIgnore.remove(test)) {
-                                        App.logger.error("[{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                                                "method were not found to remove, this (should be) impossible");
-                                        exit(6);
-                                    }
-                                    test.setClassFQN(superClassName);
-                                    superclassMethods.add(test);
-                                }
-                            }
-
-                            doWeHaveMoreTestsToProcess = true;
-                        }
-                        else {
-                            if (requireAllTestsToBeProcessed) {
-                                App.logger.error("[{}{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                                        "some methods were not found (one per line below), ",
-                                        "requireAllMethodsToBeProcessed flag is true but the superclass of class ",
-                                        classFQN, " is \"java.lang.Object\"");
-                                testsThatWereNotFound.forEach(method -> App.logger.error("    {}", method));
-                                exit(6);
-                            }
-                        }
-                    }
-                }
-            }
-        }
+        if (!outputFolder.isDirectory() && !outputFolder.mkdirs())
+            throw new IOException("not able to create the folder " + outputFolderPath + " for the new jar");
 
+        JarIndex jarIndex = new JarIndex(pathOfJarFileToVisit);
 
-        // then, after that we moved all tests to the class that defines them, we can now process them
-        App.logger.info("[{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                "after we moved all tests to the superclasses, we can process them");
+        try (JarTransformer jarTransformer = new JarTransformer(pathOfJarFileToVisit)) {
+            return createJarWithIgnoredTests(testsToIgnore, classesToIgnore, jarIndex, jarTransformer, outputFolderPath,
+                    newJarName, requireAllTestsToBeProcessed, classesNotToExclude);
+        }
+    }
 
+    /**
+     * see createJarWithIgnoredTests above
+     * @param testsToIgnore the hash map containing the JUnit tests methods to ignore
+     * @param classesToIgnore the array of the classes to ignore
+     * @param jarIndex the index of the jar to visit
+     * @param jarTransformer the transformer of the jar to visit
+     * @param outputFolderPath the path of the folder that will contain the output of this method
+     * @param newJarName the name that the visited jar will have (without ".jar" extension)
+     * @param requireAllTestsToBeProcessed true if all methods must be found and processed
+     * @param classesNotToExclude classes not to exclude from the tests
+     * @return the new jar visited file
+     */
+    private static File createJarWithIgnoredTests(HashMap<String, ArrayList<JUnitTest>> testsToIgnore,
+                                                  ArrayList<JUnitClass> classesToIgnore, JarIndex jarIndex,
+                                                  JarTransformer jarTransformer, String outputFolderPath, String newJarName,
+                                                  boolean requireAllTestsToBeProcessed,
+                                                  Set<String> classesNotToExclude) throws IOException {
 
-        boolean someMethodsWereNotProcessed = false;
+        // some tests that we think are used by a class could actually be defined in one of the superclasses.
+        // Therefore, we first determine, through the index of the jar, the class that actually defines each
+        // test, and move the test to that class. Then, we can actually start applying the visitor to the methods
 
-        // for each class file, we first check whether there it contains a test to ignore
-        // if not, we do not modify the class. Otherwise, we go through the class with ASM
-        // and visit it with the given class visitor
-        for (File classFile : classFiles) {
+        for (String classFQN : new ArrayList<>(testsToIgnore.keySet())) {
 
-            // calculate the FQN of the class (e.g., "org.example.className") from the path of
-            // the class file (e.g., "C://users/bin/jars/org/example/className.class")
-            String classFQN = classFile.getAbsolutePath()
-                    .replace(outputFolderPath + "/", "")
-                    .replace("/", ".")
-                    .replace(".class", "");
+            // this means that the class is not in the jar, so we cannot know which tests it defines
+            if (jarIndex.getClassInfo(classFQN) == null)
+                continue;
 
-            // we acquire the stream pointing to the class file. Then, we pass this stream to the class
-            // reader that will read the bytecode and trigger the events for the class visitor
-            FileInputStream classFileInputStream = new FileInputStream(classFile);
+            ArrayList<JUnitTest> arrayOfTestsToIgnore = testsToIgnore.get(classFQN);
 
-            ClassWriter classWriter = null;
-            boolean classIsToOverWrite = true;
+            for (JUnitTest test : new ArrayList<>(arrayOfTestsToIgnore)) {
 
+                String definingClassFQN = jarIndex.findClassDefiningMethod(classFQN, test.getMethodName(), test.getDesc());
 
-            // check whether we have the class to add the annotation to
-            ArrayList<JUnitClass> setOfClassesToIgnore = new ArrayList<>();
-            for (JUnitClass tempClass : classesToIgnore) {
-
-                // because we may have something like "org.apache.avro.TestSchemaNormalization$TestFingerprint"
-                // but since we take the name of the class from the file, we have to match it with  the whole class,
-                // not inner classes => "org.apache.avro.TestSchemaNormalization"
-                String completeClassFQN = tempClass.getClassFQN();
-                int eventualIndexOfInnerClass = completeClassFQN.indexOf("$");
-                String classFQNWithoutInternalClasses = (eventualIndexOfInnerClass == -1) ?
-                        completeClassFQN :
-                        completeClassFQN.substring(0, eventualIndexOfInnerClass);
-
-                if (classFQNWithoutInternalClasses.equals(classFQN))
-                    setOfClassesToIgnore.add(tempClass);
-            }
+                if (definingClassFQN == null) {
+                    if (requireAllTestsToBeProcessed) {
+                        App.logger.error("[{}{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                                "test ", test, " was not found in class ", classFQN + " nor in its superclasses, " +
+                                        "requireAllMethodsToBeProcessed flag is true");
+                        exit(6);
+                    }
+                }
+                else if (!definingClassFQN.equals(classFQN)) {
 
-            if (!setOfClassesToIgnore.isEmpty()) {
+                    App.logger.info("[{}{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                            "moving test ", test, " to the class that defines it: ", definingClassFQN);
 
-                App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                        "whole class ", classFQN, " is to be filtered");
+                    // note that the defining class may not be present as key in the "testsToIgnore" map
+                    ArrayList<JUnitTest> definingClassTests =
+                            testsToIgnore.computeIfAbsent(definingClassFQN, key -> new ArrayList<>());
 
-                classWriter = ASMUtil.addAnnotationToClass(classFileInputStream, setOfClassesToIgnore.get(0).isJunit5());
-                setOfClassesToIgnore.forEach(classesToIgnore::remove);
+                    // this is the step in which we actually remove the test from the class that use
+                    // it and assign the test to the class that defines it (if not already there)
+                    arrayOfTestsToIgnore.remove(test);
+                    test.setClassFQN(definingClassFQN);
+                    if (!definingClassTests.contains(test))
+                        definingClassTests.add(test);
+                }
+            }
+        }
 
-                ArrayList<JUnitTest> temp = new ArrayList<>();
-                JUnitTest tempTest = new JUnitTest("<because we annotate all>");
-                tempTest.setDesc("<because we annotate all>");
-                temp.add(tempTest);
 
-                // just to be sure and avoid errors, we ignore also all tests within the class
-                classWriter = ASMUtil.addAnnotationToIgnoreTests(
-                        new ByteArrayInputStream(classWriter.toByteArray()), temp, true);
+        // then, after that we moved all tests to the class that defines them, we can now process them
+        App.logger.info("[{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                "after we moved all tests to the superclasses, we can process them");
 
-                // just to be sure
-                testsToIgnore.remove(classFQN);
-            }
-            else if (testsToIgnore.containsKey(classFQN)) {
 
-                App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                        "visiting class ", classFQN, " to add annotation to ignore tests");
+        boolean someMethodsWereNotProcessed = false;
 
-                ArrayList<JUnitTest> arrayMethods = testsToIgnore.get(classFQN);
+        // the classes that may contain a test or be a class to ignore (the others are not modified)
+        TreeSet<String> classesToVisit = new TreeSet<>(testsToIgnore.keySet());
+        for (JUnitClass tempClass : classesToIgnore)
+            classesToVisit.add(getOutermostClassFQN(tempClass.getClassFQN()));
 
-                App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                        "Class ", classFQN, " has " + arrayMethods.size() + " tests to ignore");
+        // we first read the bytecode of the classes from the jar, so that the classes can then be
+        // visited in parallel, each one on its own (i.e., without sharing anything with the others)
+        ArrayList<ClassToRewrite> classesToRewrite = new ArrayList<>();
+        for (String classFQN : classesToVisit) {
 
-                classWriter = ASMUtil.addAnnotationToIgnoreTests(classFileInputStream, arrayMethods, false);
+            // e.g., a test inherited from a superclass that is not in the jar (see JarIndex.findClassDefiningMethod)
+            byte[] classBytes = jarTransformer.readEntry(JarTransformer.toClassEntryName(classFQN));
+            if (classBytes == null) {
 
-                // true if there are still methods to process
-                if (arrayMethods.size() != 0) {
+                ArrayList<JUnitTest> testsOfMissingClass = testsToIgnore.remove(classFQN);
+                if (testsOfMissingClass != null && !testsOfMissingClass.isEmpty()) {
                     someMethodsWereNotProcessed = true;
-                    App.logger.info("[{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                            "the following methods were not processed:");
-                    arrayMethods.forEach(jUnitTest -> App.logger.info("    {}", jUnitTest.toString()));
+                    App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                            "the following methods were not processed, since the jar does not contain class ",
+                            classFQN);
+                    testsOfMissingClass.forEach(jUnitTest -> App.logger.info("    {}", jUnitTest.toString()));
                 }
+                continue;
+            }
 
-                // IF THE CLASS IS NOT IN THE SET OF CLASSES TO KEEP,
-                // we have to say to JUnit to ignore this class, otherwise
-                // JUnit will try to execute the tests in the class (but
-                // since the class has no tests, JUnit would throw an error)
-                boolean contain = false;
-                for (String tempClass: classesNotToExclude) {
-                    if (tempClass.equals(classFQN)) {
-                        contain = true;
-                        break;
-                    }
-                }
+            // because we may have something like "org.apache.avro.TestSchemaNormalization$TestFingerprint"
+            // but since we take the name of the class from the jar, we have to match it with  the whole class,
+            // not inner classes => "org.apache.avro.TestSchemaNormalization"
+            ArrayList<JUnitClass> setOfClassesToIgnore = new ArrayList<>();
+            for (JUnitClass tempClass : classesToIgnore)
+                if (getOutermostClassFQN(tempClass.getClassFQN()).equals(classFQN))
+                    setOfClassesToIgnore.add(tempClass);
 
-                if (ASMUtil.thereAreNoMoreTests && !contain) {
+            classesToRewrite.add(new ClassToRewrite(classFQN, classBytes, setOfClassesToIgnore,
+                    testsToIgnore.get(classFQN), classesNotToExclude.contains(classFQN)));
+        }
 
-                    App.logger.info("[{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-                            "we filtered out all tests from the class, so we ignore the whole class " + classFQN + " as well");
+        // for each class, we go through the class with ASM and visit it with the given class visitors. Classes are
+        // visited in parallel on a work-stealing pool of their own (not on the common fork-join pool, shared with the
+        // other parallel streams of this tool), results are collected afterwards
+        ForkJoinPool rewritingPool = new ForkJoinPool(Math.max(1, Math.min(classesToRewrite.size(),
+                Runtime.getRuntime().availableProcessors())));
+        try {
+            ArrayList<Callable<Void>> rewritings = new ArrayList<>();
+            for (ClassToRewrite classToRewrite : classesToRewrite)
+                rewritings.add(() -> {
+                    rewriteClassWithIgnoredTests(classToRewrite);
+                    return null;
+                });
+
+            for (Future<Void> rewriting : rewritingPool.invokeAll(rewritings))
+                rewriting.get();
+        }
+        catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new IOException("exception while rewriting the classes of the jar", e.getCause());
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("interrupted while rewriting the classes of the jar", e);
+        }
+        finally {
+            rewritingPool.shutdownNow();
+        }
 
-                    // add to the class both the @Ignore and the @Disabled annotation
-                    classWriter = ASMUtil.addAnnotationToClass(new ByteArrayInputStream(classWriter.toByteArray()), true);
-                    classWriter = ASMUtil.addAnnotationToClass(new ByteArrayInputStream(classWriter.toByteArray()), false);
-                }
+        for (ClassToRewrite classToRewrite : classesToRewrite) {
 
-                testsToIgnore.remove(classFQN);
-            }
-            else {
-                // too verbose
-//                App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
-//                        "class ", classFQN, " does not contain anything that has to be processed");
-                classIsToOverWrite = false;
-            }
+            jarTransformer.withEntryContent(JarTransformer.toClassEntryName(classToRewrite.classFQN),
+                    classToRewrite.rewrittenClassBytes);
 
+            classToRewrite.classesToIgnore.forEach(classesToIgnore::remove);
 
-            if (classIsToOverWrite) {
-                OutputStream classFileOutputStream = new FileOutputStream(classFile);
-                classFileOutputStream.write(classWriter.toByteArray());
-                classFileOutputStream.flush();
-                classFileOutputStream.close();
+            // true if there are still methods to process
+            if (classToRewrite.testsToIgnore != null && classToRewrite.testsToIgnore.size() != 0) {
+                someMethodsWereNotProcessed = true;
+                App.logger.info("[{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                        "the following methods were not processed in class ", classToRewrite.classFQN);
+                classToRewrite.testsToIgnore.forEach(jUnitTest -> App.logger.info("    {}", jUnitTest.toString()));
             }
 
-            classFileInputStream.close();
+            testsToIgnore.remove(classToRewrite.classFQN);
         }
 
 
@@ -422,24 +393,145 @@ public class JarUtil {
             exit(6);
         }
 
-        // now we can create the jar archive back
-        String visitedJarPath = outputFolderPath + "/" + newJarName + ".jar";
-        createJar(outputFolder, null, visitedJarPath);
-        return new File(visitedJarPath);
+        // now we can create the new jar archive, copying the classes that were not visited
+        File visitedJar = new File(outputFolderPath + "/" + newJarName + ".jar");
+        jarTransformer.transform(visitedJar);
+        return visitedJar;
     }
 
+    /**
+     * visit a class to add the @Ignore (JUnit 4) or @Disabled (Junit 5) annotation to the class (if it is
+     * a class to ignore) or to its tests to ignore. The tests that were annotated are removed from the
+     * tests to ignore of the class. This method does not share anything with the visit of other classes,
+     * so that classes can be visited in parallel
+     * @param classToRewrite the class to visit, which will contain the new bytecode of the class
+     */
+    private static void rewriteClassWithIgnoredTests(ClassToRewrite classToRewrite) {
+
+        String classFQN = classToRewrite.classFQN;
+        ASMUtil.IgnoredTestsResult ignoredTestsResult;
 
+        if (!classToRewrite.classesToIgnore.isEmpty()) {
 
+            App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                    "whole class ", classFQN, " is to be filtered");
 
+            ArrayList<JUnitTest> temp = new ArrayList<>();
+            JUnitTest tempTest = new JUnitTest("<because we annotate all>");
+            tempTest.setDesc("<because we annotate all>");
+            temp.add(tempTest);
 
+            // just to be sure and avoid errors, we ignore also all tests within the class
+            ignoredTestsResult = ASMUtil.addAnnotationsToIgnoreTests(classToRewrite.classBytes, temp, true,
+                    Collections.singletonList(classToRewrite.classesToIgnore.get(0).isJunit5() ?
+                            kDisabledAnnotationFQN : kIgnoreAnnotationFQN),
+                    Collections.emptyList());
+
+            // just to be sure (all tests are ignored along with the class)
+            if (classToRewrite.testsToIgnore != null)
+                classToRewrite.testsToIgnore.clear();
+        }
+        else {
+
+            App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                    "visiting class ", classFQN, " to add annotation to ignore tests");
+
+            ArrayList<JUnitTest> arrayMethods = classToRewrite.testsToIgnore;
+
+            App.logger.info("[{}{}{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                    "Class ", classFQN, " has " + arrayMethods.size() + " tests to ignore");
+
+            // IF THE CLASS IS NOT IN THE SET OF CLASSES TO KEEP,
+            // we have to say to JUnit to ignore this class if we filter
+            // out all its tests, otherwise JUnit will try to execute the
+            // tests in the class (but since the class has no tests, JUnit
+            // would throw an error). In that case, we add to the class both
+            // the @Ignore and the @Disabled annotation
+            ignoredTestsResult = ASMUtil.addAnnotationsToIgnoreTests(classToRewrite.classBytes, arrayMethods, false,
+                    Collections.emptyList(),
+                    classToRewrite.isClassToKeep ?
+                            Collections.emptyList() :
+                            Arrays.asList(kIgnoreAnnotationFQN, kDisabledAnnotationFQN));
+
+            if (ignoredTestsResult.thereAreNoMoreTests() && !classToRewrite.isClassToKeep)
+                App.logger.info("[{}{}{}", "JarUtil", " (" + "createJarWithIgnoredTests" + ")]: ",
+                        "we filtered out all tests from the class, so we ignore the whole class " + classFQN + " as well");
+        }
 
+        classToRewrite.rewrittenClassBytes = ignoredTestsResult.getClassBytes();
+    }
 
+    /**
+     * the FQN of the outermost class, e.g., "org.apache.avro.TestSchemaNormalization" for
+     * "org.apache.avro.TestSchemaNormalization$TestFingerprint"
+     * @param classFQN the FQN of a class, possibly nested
+     * @return the FQN of the outermost class
+     */
+    private static String getOutermostClassFQN(String classFQN) {
 
+        int eventualIndexOfInnerClass = classFQN.indexOf("$");
+        return eventualIndexOfInnerClass == -1 ? classFQN : classFQN.substring(0, eventualIndexOfInnerClass);
+    }
 
     /**
-     * This method extracts all class files from the given jar. Then, it visits all classes to
-     * find the method to protect and add the "assert false" instruction. Finally,
-     * it creates the new jar with the given name in the given directory
+     * A class to visit to add the annotations to ignore the class or its tests, along with the result of the visit
+     */
+    private static class ClassToRewrite {
+
+        /**
+         * the FQN of the class
+         */
+        private final String classFQN;
+
+        /**
+         * the bytecode of the class
+         */
+        private final byte[] classBytes;
+
+        /**
+         * the classes to ignore whose outermost class is this class (empty if the class is not to ignore)
+         */
+        private final ArrayList<JUnitClass> classesToIgnore;
+
+        /**
+         * the tests of the class to ignore (null if none). After the visit, the tests that were not found
+         */
+        private final ArrayList<JUnitTest> testsToIgnore;
+
+        /**
+         * true if the class is not to ignore even if all its tests are ignored
+         */
+        private final boolean isClassToKeep;
+
+        /**
+         * the bytecode of the class after the visit
+         */
+        private byte[] rewrittenClassBytes;
+
+        /**
+         * Simple constructor
+         * @param classFQN the FQN of the class
+         * @param classBytes the bytecode of the class
+         * @param classesToIgnore the classes to ignore whose outermost class is this class
+         * @param testsToIgnore the tests of the class to ignore (null if none)
+         * @param isClassToKeep true if the class is not to ignore even if all its tests are ignored
+         */
+        ClassToRewrite(String classFQN, byte[] classBytes, ArrayList<JUnitClass> classesToIgnore,
+                       ArrayList<JUnitTest> testsToIgnore, boolean isClassToKeep) {
+
+            this.classFQN = classFQN;
+            this.classBytes = classBytes;
+            this.classesToIgnore = classesToIgnore;
+            this.testsToIgnore = testsToIgnore;
+            this.isClassToKeep = isClassToKeep;
+        }
+    }
+
+    /**
+     * This method visits the classes of the given jar to find the method to protect (starting from its
+     * class and moving to the superclasses) and add the "assert false" instruction. Then, it creates the
+     * new jar with the given name in the given directory. As for createJarWithIgnoredTests, the jar is
+     * not extracted and only the class defining the method is written again
      * @param methodToProtect the method to protect
      * @param pathOfJarToVisit the path of the jar to visit
      * @param outputFolderPath the path of the folder that will contain the output of this method
@@ -449,11 +541,31 @@ public class JarUtil {
     public static File createJarWithAssertFalseAnnotation (JaCoCoMethod methodToProtect, String pathOfJarToVisit,
                                                           String outputFolderPath, String newJarName) throws IOException {
 
-        // extract all files from the Jar in the given folder
         File outputFolder = new File(outputFolderPath);
-        extractAllFilesFromJar(outputFolder, pathOfJarToVisit);
-        HashSet<File> classFiles = new HashSet<>();
-        getAllFilesFromDirectoryWithExtension(outputFolder, "class", classFiles);
+        if (!outputFolder.isDirectory() && !outputFolder.mkdirs())
+            throw new IOException("not able to create the folder " + outputFolderPath + " for the new jar");
+
+        try (JarTransformer jarTransformer = new JarTransformer(pathOfJarToVisit)) {
+            return createJarWithAssertFalseAnnotation(methodToProtect, new JarIndex(pathOfJarToVisit), jarTransformer,
+                    outputFolderPath, newJarName);
+        }
+    }
+
+    /**
+     * see createJarWithAssertFalseAnnotation above
+     * @param methodToProtect the method to protect
+     * @param jarIndex the index of the jar to visit
+     * @param jarTransformer the transformer of the jar to visit
+     * @param outputFolderPath the path of the folder that will contain the output of this method
+     * @param newJarName the name that the visited jar will have (without ".jar" extension)
+     * @return the new jar visited file
+     */
+    private static File createJarWithAssertFalseAnnotation (JaCoCoMethod methodToProtect, JarIndex jarIndex,
+                                                           JarTransformer jarTransformer, String outputFolderPath,
+                                                           String newJarName) throws IOException {
+
+        // the classes already visited (to avoid visiting a class twice)
+        HashSet<String> visitedClasses = new HashSet<>();
 
         boolean stillToFindClassThatDefinesMethod = true;
         boolean didWeFindMethod;
@@ -463,22 +575,18 @@ public class JarUtil {
             didWeFindMethod = false;
 
             String classFQN = methodToProtect.getClassFQN();
-            String classFQNToFind = outputFolderPath + "/"
-                    + classFQN.replace(".", "/")
-                    + ".class";
+            String classEntryName = JarTransformer.toClassEntryName(classFQN);
+            byte[] classBytes = visitedClasses.add(classFQN) ? jarTransformer.readEntry(classEntryName) : null;
 
-            if (classFiles.removeIf(file -> file.getAbsolutePath().equals(classFQNToFind))) {
+            if (classBytes != null) {
 
-                File classFile = new File(classFQNToFind);
-                FileInputStream classFileInputStream = new FileInputStream(classFile);
                 didWeFindMethod = true;
 
                 // visit the class to check if the method is defined
                 areMethodsDefinedInThisClassASMAdapter classVisitor =
                         new areMethodsDefinedInThisClassASMAdapter(ASM8, methodToProtect);
-                ClassReader classReader = new ClassReader(classFileInputStream);
+                ClassReader classReader = new ClassReader(classBytes);
                 classReader.accept(classVisitor, 0);
-                classFileInputStream.close();
 
                 if (classVisitor.getMethodsThatWereFound().size() == 1) {
                     stillToFindClassThatDefinesMethod = false;
@@ -488,20 +596,16 @@ public class JarUtil {
                             methodToProtect.getMethodName());
 
                     // https://stackoverflow.com/questions/35145997/asm-5-0-3-with-java-1-8-incorrect-maxstack-with-java-lang-verifyerror-operand-s?noredirect=1#comment58021378_35145997
-                    ClassWriter classWriterToAddAssertFalse = new ByteCodeWriter(classReader, App.class.getClassLoader(), ClassWriter.COMPUTE_FRAMES);
+                    ClassWriter classWriterToAddAssertFalse = new ByteCodeWriter(classReader,
+                            new ClassHierarchyResolver(jarIndex, App.class.getClassLoader()), ClassWriter.COMPUTE_FRAMES);
 
                     AddAssertFalseAdapterClass classVisitorToAddAssertFalse =
                             new AddAssertFalseAdapterClass(ASM8, classWriterToAddAssertFalse, methodToProtect);
 
-                    FileInputStream classFileInputStreamToAddAssertFalse = new FileInputStream(classFile);
-                    ClassReader classReaderToAddAssertFalse = new ClassReader(classFileInputStreamToAddAssertFalse);
+                    ClassReader classReaderToAddAssertFalse = new ClassReader(classBytes);
                     classReaderToAddAssertFalse.accept(classVisitorToAddAssertFalse, 0);
-                    classFileInputStream.close();
 
-                    OutputStream classFileOutputStreamToAddAssertFalse = new FileOutputStream(classFile);
-                    classFileOutputStreamToAddAssertFalse.write(classWriterToAddAssertFalse.toByteArray());
-                    classFileOutputStreamToAddAssertFalse.flush();
-                    classFileOutputStreamToAddAssertFalse.close();
+                    jarTransformer.withEntryContent(classEntryName, classWriterToAddAssertFalse.toByteArray());
                 }
                 else {
                     String superClassName = classVisitor.getSuperClassName().replace("/", ".");
@@ -524,10 +628,10 @@ public class JarUtil {
             }
         }
 
-        // now we can create the jar archive back
-        String visitedJarPath = outputFolderPath + "/" + newJarName + ".jar";
-        createJar(outputFolder, null, visitedJarPath);
-        return new File(visitedJarPath);
+        // now we can create the new jar archive, copying the classes that were not visited
+        File visitedJar = new File(outputFolderPath + "/" + newJarName + ".jar");
+        jarTransformer.transform(visitedJar);
+        return visitedJar;
     }
 
 
@@ -0,0 +1,173 @@
+package org.company.junit;
+
+import java.time.Duration;
+
+import static org.company.junit.Const.kAdaptiveRepetitionsConfidenceZ;
+import static org.company.junit.Const.kAdaptiveRepetitionsMinDefaultNumber;
+
+/**
+ * This class decides when the repetitions of a test suite can stop, i.e., when the confidence interval (95%)
+ * of the mean execution time of each test is narrow enough, or when the budget of repetitions or time runs out.
+ * The target is given as the half-width of the confidence interval of the mean overhead (i.e., the difference
+ * between the mean execution times on the protected and on the original jar) relative to the mean execution time.
+ * When the two jars are measured separately, the target for the mean execution time on each jar is the given
+ * target divided by sqrt(2), so that the confidence interval of the difference of the two means (which sums the
+ * variances of the two means) meets the given target. When the two jars are measured together (interleaved),
+ * the confidence interval of the mean overhead is checked directly
+ */
+public class AdaptiveStoppingRule {
+
+    /**
+     * the target half-width of the confidence interval of the mean overhead, relative to the mean execution time
+     */
+    private final double targetRelativeHalfWidth;
+
+    /**
+     * the max number of repetitions
+     */
+    private final int maxRepetitions;
+
+    /**
+     * the min number of repetitions before a test can be considered converged
+     */
+    private int minRepetitions = kAdaptiveRepetitionsMinDefaultNumber;
+
+    /**
+     * the max time spent in repetitions (for each jar, or for both jars when interleaved), null for no limit
+     */
+    private Duration timeBudget;
+
+
+    /**
+     * Simple constructor
+     * @param targetRelativeHalfWidth the target half-width of the confidence interval of the mean overhead,
+     *                                relative to the mean execution time (e.g., 0.05 for ±5%)
+     * @param maxRepetitions the max number of repetitions
+     */
+    public AdaptiveStoppingRule(double targetRelativeHalfWidth, int maxRepetitions) {
+
+        if (!(targetRelativeHalfWidth > 0))
+            throw new IllegalArgumentException("the target width of the confidence interval must be strictly positive");
+
+        if (maxRepetitions < 1)
+            throw new IllegalArgumentException("the max number of repetitions must be strictly positive");
+
+        this.targetRelativeHalfWidth = targetRelativeHalfWidth;
+        this.maxRepetitions = maxRepetitions;
+    }
+
+    /**
+     * set the min number of repetitions before a test can be considered converged (at least 2, to have a variance)
+     * @param minRepetitions the min number of repetitions
+     * @return this instance of AdaptiveStoppingRule
+     */
+    public AdaptiveStoppingRule withMinRepetitions(int minRepetitions) {
+
+        if (minRepetitions < 2)
+            throw new IllegalArgumentException("the min number of repetitions must be at least 2");
+
+        this.minRepetitions = minRepetitions;
+        return this;
+    }
+
+    /**
+     * set the max time spent in repetitions (for each jar, or for all jars when interleaved). The budget is checked
+     * after each batch of repetitions, so the batch running when the budget runs out is completed before stopping
+     * @param timeBudget the max time spent in repetitions
+     * @return this instance of AdaptiveStoppingRule
+     */
+    public AdaptiveStoppingRule withTimeBudget(Duration timeBudget) {
+
+        this.timeBudget = timeBudget;
+        return this;
+    }
+
+    /**
+     * getter for maxRepetitions
+     * @return maxRepetitions
+     */
+    public int getMaxRepetitions() {
+        return maxRepetitions;
+    }
+
+    /**
+     * getter for timeBudget
+     * @return timeBudget, null for no limit
+     */
+    public Duration getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * whether the mean execution time of a test measured on a single jar is precise enough, i.e., the half-width
+     * of its confidence interval is within the target divided by sqrt(2), relative to the mean
+     * @param executionStatistics the statistics of the execution times of the test on a jar
+     * @return true if the test does not need further repetitions
+     */
+    public boolean isConverged(ExecutionStatistics executionStatistics) {
+
+        if (executionStatistics.getCount() < minRepetitions)
+            return false;
+
+        double halfWidth = getHalfWidth(executionStatistics.getVariance(), executionStatistics.getCount());
+        return halfWidth <= targetRelativeHalfWidth / Math.sqrt(2) * Math.abs(executionStatistics.getMean());
+    }
+
+    /**
+     * whether the mean overhead of a test (i.e., the difference between the mean execution times on the protected
+     * and on the original jar) is precise enough, i.e., the half-width of its confidence interval (Welch) is within
+     * the target, relative to the mean execution time on the original jar
+     * @param originalExecutionStatistics the statistics of the execution times of the test on the original jar
+     * @param protectedExecutionStatistics the statistics of the execution times of the test on the protected jar
+     * @return true if the test does not need further repetitions
+     */
+    public boolean isConverged(ExecutionStatistics originalExecutionStatistics,
+                               ExecutionStatistics protectedExecutionStatistics) {
+
+        long originalCount = originalExecutionStatistics.getCount();
+        long protectedCount = protectedExecutionStatistics.getCount();
+
+        if (originalCount < minRepetitions || protectedCount < minRepetitions)
+            return false;
+
+        double varianceOfOriginalMean = originalExecutionStatistics.getVariance() / originalCount;
+        double varianceOfProtectedMean = protectedExecutionStatistics.getVariance() / protectedCount;
+        double varianceOfOverhead = varianceOfOriginalMean + varianceOfProtectedMean;
+
+        // Welch–Satterthwaite degrees of freedom (the smallest ones if there is no variance at all)
+        long degreesOfFreedom = Math.min(originalCount, protectedCount) - 1;
+        if (varianceOfOverhead > 0)
+            degreesOfFreedom = Math.max(degreesOfFreedom, (long) (varianceOfOverhead * varianceOfOverhead / (
+                    varianceOfOriginalMean * varianceOfOriginalMean / (originalCount - 1) +
+                    varianceOfProtectedMean * varianceOfProtectedMean / (protectedCount - 1))));
+
+        double halfWidth = getStudentTQuantile(degreesOfFreedom) * Math.sqrt(varianceOfOverhead);
+        return halfWidth <= targetRelativeHalfWidth * Math.abs(originalExecutionStatistics.getMean());
+    }
+
+    /**
+     * the half-width of the confidence interval of a mean, using the quantile of the Student t distribution
+     * @param variance the sample variance
+     * @param count the number of samples
+     * @return the half-width of the confidence interval
+     */
+    static double getHalfWidth(double variance, long count) {
+        return getStudentTQuantile(count - 1) * Math.sqrt(variance / count);
+    }
+
+    /**
+     * approximate the quantile of the Student t distribution for the confidence level of kAdaptiveRepetitionsConfidenceZ
+     * (Cornish-Fisher expansion, accurate within 1% for 4 or more degrees of freedom)
+     * @param degreesOfFreedom the degrees of freedom (at least 1)
+     * @return the quantile
+     */
+    private static double getStudentTQuantile(long degreesOfFreedom) {
+
+        double z = kAdaptiveRepetitionsConfidenceZ;
+        double z3 = z * z * z;
+        double z5 = z3 * z * z;
+
+        return z + (z3 + z) / (4.0 * degreesOfFreedom) +
+                (5 * z5 + 16 * z3 + 3 * z) / (96.0 * degreesOfFreedom * degreesOfFreedom);
+    }
+}
@@ -27,12 +27,157 @@ public class Const {
     public static final String kJunit4ReportDefaultName = "TEST-junit-vintage.xml";
 
 
+    /**
+     * the value of the test execution backend option for running each test suite in a new JVM
+     * through the JUnit console (this is the default)
+     */
+    public static final String kTestExecutionBackendFork = "fork";
+
+    /**
+     * the value of the test execution backend option for running each test suite inside
+     * the JVM of this tool through the JUnit platform launcher
+     */
+    public static final String kTestExecutionBackendInProcess = "inprocess";
+
+    /**
+     * the value of the test execution backend option for running the repetitions of the tests in long-lived
+     * JVMs (workers) that load the jars only once and rerun the tests on request
+     */
+    public static final String kTestExecutionBackendWarm = "warm";
+
+    /**
+     * the command (followed by the folder where to save the JUnit reports and, optionally, by the
+     * selectors of the tests to run) that makes a test worker run the tests. Fields are separated by tabs
+     */
+    public static final String kTestWorkerRunCommand = "RUN";
+
+    /**
+     * the command that makes a test worker exit
+     */
+    public static final String kTestWorkerQuitCommand = "QUIT";
+
+    /**
+     * the reply (followed by the number of failed tests) of a test worker that completed the execution of the tests
+     */
+    public static final String kTestWorkerDoneReply = "DONE";
+
+    /**
+     * the reply (followed by the error message) of a test worker that could not execute the tests
+     */
+    public static final String kTestWorkerErrorReply = "ERROR";
+
+    /**
+     * the option of the test worker to run the tests once (in the given folder) and exit
+     */
+    public static final String kTestWorkerOnceOption = "--once";
+
+    /**
+     * the option of the test worker to exclude the tests of the test filter saved in the given file
+     */
+    public static final String kTestWorkerFilterOption = "--filter";
+
+    /**
+     * this is the name of the file in which the test filter is saved to be passed to other JVMs
+     */
+    public static final String kTestFilterDefaultName = "test_filter.txt";
+
+    /**
+     * the packages that the class loader of the jars under test delegates to the JUnit platform
+     * class loader, so that test engines and test classes share the same framework classes
+     */
+    public static final String[] kTestClassLoaderSharedPackages = {
+            "org.junit.", "junit.", "org.opentest4j.", "org.apiguardian.", "org.hamcrest."
+    };
+
+    /**
+     * this is the name of the file on which the NanoTimingListener writes
+     * the (high-resolution) execution time and the outcome of each test
+     */
+    public static final String kTestTimingsDefaultName = "TEST-timings.bin";
+
+    /**
+     * the system property that tells the NanoTimingListener registered through the
+     * ServiceLoader (i.e., in the JUnit console) where to write the execution times
+     */
+    public static final String kTestTimingsFileProperty = "org.company.junit.timingsFile";
+
+    /**
+     * the outcome that the NanoTimingListener writes for skipped and aborted tests (e.g., because an assumption
+     * failed), whose execution time is not measured and must not be part of the execution statistics
+     */
+    public static final int kTestTimingsSkippedOutcome = -1;
+
+    /**
+     * this is the name of the file on which the PerTestCoverageListener writes
+     * the JaCoCo execution data of each test (when collecting per-test coverage)
+     */
+    public static final String kTestCoverageDefaultName = "TEST-coverage.bin";
+
+    /**
+     * the system property that tells the PerTestCoverageListener (registered through the
+     * ServiceLoader or by the JUnitLauncherUtil) where to write the execution data of each test
+     */
+    public static final String kTestCoverageFileProperty = "org.company.junit.coverageFile";
+
+    /**
+     * the class of the JaCoCo agent runtime that gives access to the agent (through
+     * reflection, since the agent is available only when tests run with coverage)
+     */
+    public static final String kJaCoCoAgentRuntimeClass = "org.jacoco.agent.rt.RT";
+
+    /**
+     * the interface of the JaCoCo agent, whose methods reset and dump the execution data
+     */
+    public static final String kJaCoCoAgentInterface = "org.jacoco.agent.rt.IAgent";
+
+    /**
+     * the main class of the JUnit console jar, used to launch the console
+     * with additional jars (i.e., listeners) in the classpath
+     */
+    public static final String kJUnitConsoleLauncherMainClass = "org.junit.platform.console.ConsoleLauncher";
+
     /**
      * this is the default number of times test are going
      * to be execution to collect accurate execution metrics
      */
     public static final int kTestsRepetitionDefaultNumber = 100;
 
+    /**
+     * this is the max number of times a test repetition is executed
+     * when the JUnit process aborts without writing its reports
+     */
+    public static final int kTestsRepetitionMaxAttempts = 5;
+
+    /**
+     * this is the default number of test repetitions that are
+     * executed at the same time to collect execution metrics
+     */
+    public static final int kTestsConcurrencyLevelDefaultValue = 1;
+
+    /**
+     * this is the min number of test repetitions that are
+     * executed at the same time to collect execution metrics
+     */
+    public static final int kTestsConcurrencyLevelMinValue = 1;
+
+    /**
+     * this is the max number of test repetitions that are executed at the same
+     * time to collect execution metrics (i.e., the number of available CPUs)
+     */
+    public static final int kTestsConcurrencyLevelMaxValue = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * this is the number of buckets in which each power of two (in nanoseconds) is split in the histograms of
+     * the execution times of the tests, i.e., each bucket is about 9% wide (percentiles are within 4.5%)
+     */
+    public static final int kExecutionHistogramBucketsPerPowerOfTwo = 8;
+
+    /**
+     * this is the number of powers of two (in nanoseconds) covered by the histograms of the execution
+     * times of the tests, i.e., from 1 nanosecond to about 18 minutes (longer times go in the last bucket)
+     */
+    public static final int kExecutionHistogramPowersOfTwo = 40;
+
     /**
      * this is the default number of tests on which to
      * run debugging tasks
@@ -52,6 +197,36 @@ public class Const {
      */
     public static final int kTestsRepetitionMaxValue = 1000;
 
+    /**
+     * this is the default min number of times tests are repeated when the number
+     * of repetitions is adaptive (i.e., before checking the confidence intervals)
+     */
+    public static final int kAdaptiveRepetitionsMinDefaultNumber = 5;
+
+    /**
+     * this is the quantile of the standard normal distribution for the confidence
+     * level (95%) of the confidence intervals used to stop adaptive repetitions
+     */
+    public static final double kAdaptiveRepetitionsConfidenceZ = 1.96;
+
+    /**
+     * the interleaving order in which repetitions on the original and
+     * on the protected jar alternate (i.e., ABAB)
+     */
+    public static final String kTestsInterleavingOrderAlternate = "abab";
+
+    /**
+     * the interleaving order in which the order of the original and the
+     * protected jar is random in each pair of repetitions (randomized blocks)
+     */
+    public static final String kTestsInterleavingOrderRandom = "random";
+
+    /**
+     * the seed of the random generator for randomized blocks, fixed
+     * so that the order of the repetitions is reproducible
+     */
+    public static final long kTestsInterleavingRandomSeed = 20200707L;
+
     /**
      * if in the testcase node we have a "initializationError" name attribute, it means
      * that something went wrong while executing the test
@@ -0,0 +1,187 @@
+package org.company.junit;
+
+import static org.company.junit.Const.kExecutionHistogramBucketsPerPowerOfTwo;
+import static org.company.junit.Const.kExecutionHistogramPowersOfTwo;
+
+/**
+ * This class accumulates the execution times of a test (in seconds) over multiple repetitions in constant memory,
+ * i.e., without storing the samples. The mean and the variance are computed with the Welford algorithm, while
+ * percentiles are estimated from a histogram with logarithmic buckets (see kExecutionHistogramBucketsPerPowerOfTwo
+ * for the precision). Two accumulators can be merged, e.g., to combine the statistics of different JVMs
+ */
+public class ExecutionStatistics {
+
+    /**
+     * the number of samples
+     */
+    private long count;
+
+    /**
+     * the mean of the samples
+     */
+    private double mean;
+
+    /**
+     * the sum of the squares of the differences between the samples and the mean
+     */
+    private double sumOfSquaredDeviations;
+
+    /**
+     * the min sample
+     */
+    private double min = Double.POSITIVE_INFINITY;
+
+    /**
+     * the max sample
+     */
+    private double max = Double.NEGATIVE_INFINITY;
+
+    /**
+     * the number of samples in each bucket of the histogram, allocated with the first sample
+     */
+    private int[] histogram;
+
+
+    /**
+     * add a sample
+     * @param executionTime the execution time, in seconds
+     */
+    public void add(double executionTime) {
+
+        count++;
+        double delta = executionTime - mean;
+        mean = mean + delta / count;
+        sumOfSquaredDeviations = sumOfSquaredDeviations + delta * (executionTime - mean);
+
+        min = Math.min(min, executionTime);
+        max = Math.max(max, executionTime);
+
+        if (histogram == null)
+            histogram = new int[kExecutionHistogramBucketsPerPowerOfTwo * kExecutionHistogramPowersOfTwo];
+        histogram[getBucket(executionTime)]++;
+    }
+
+    /**
+     * add all the samples of another accumulator (parallel variant of the Welford algorithm)
+     * @param other the other accumulator
+     */
+    public void merge(ExecutionStatistics other) {
+
+        if (other.count == 0)
+            return;
+
+        if (count == 0) {
+            count = other.count;
+            mean = other.mean;
+            sumOfSquaredDeviations = other.sumOfSquaredDeviations;
+            min = other.min;
+            max = other.max;
+            histogram = other.histogram.clone();
+            return;
+        }
+
+        long totalCount = count + other.count;
+        double delta = other.mean - mean;
+        mean = mean + delta * other.count / totalCount;
+        sumOfSquaredDeviations = sumOfSquaredDeviations + other.sumOfSquaredDeviations +
+                delta * delta * ((double) count * other.count / totalCount);
+        count = totalCount;
+
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+
+        for (int i = 0; i < histogram.length; i++)
+            histogram[i] = histogram[i] + other.histogram[i];
+    }
+
+    /**
+     * getter for count
+     * @return the number of samples
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * getter for mean
+     * @return the mean of the samples, 0 if there are no samples
+     */
+    public double getMean() {
+        return mean;
+    }
+
+    /**
+     * the sample variance (i.e., divided by count - 1)
+     * @return the sample variance, 0 if there are less than two samples
+     */
+    public double getVariance() {
+        return count < 2 ? 0 : sumOfSquaredDeviations / (count - 1);
+    }
+
+    /**
+     * the sample standard deviation (i.e., the square root of the sample variance)
+     * @return the sample standard deviation, 0 if there are less than two samples
+     */
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    /**
+     * getter for min
+     * @return the min sample, NaN if there are no samples
+     */
+    public double getMin() {
+        return count == 0 ? Double.NaN : min;
+    }
+
+    /**
+     * getter for max
+     * @return the max sample, NaN if there are no samples
+     */
+    public double getMax() {
+        return count == 0 ? Double.NaN : max;
+    }
+
+    /**
+     * estimate a percentile from the histogram, i.e., the (geometric) middle of the bucket containing
+     * the sample of the given rank (bounded by the min and the max samples)
+     * @param percentile the percentile, between 0 and 100 (e.g., 99.9)
+     * @return the estimated percentile, NaN if there are no samples
+     */
+    public double getPercentile(double percentile) {
+
+        if (count == 0)
+            return Double.NaN;
+
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+
+        long samplesSoFar = 0;
+        int bucket = 0;
+        for (; bucket < histogram.length - 1; bucket++) {
+            samplesSoFar = samplesSoFar + histogram[bucket];
+            if (samplesSoFar >= rank)
+                break;
+        }
+
+        double middleOfBucket = Math.pow(2, (bucket + 0.5) / kExecutionHistogramBucketsPerPowerOfTwo) / 1e9;
+        return Math.max(getMin(), Math.min(getMax(), middleOfBucket));
+    }
+
+    /**
+     * the bucket of the histogram for the given execution time. Bucket i contains execution
+     * times (in nanoseconds) between 2^(i / kExecutionHistogramBucketsPerPowerOfTwo) and
+     * 2^((i + 1) / kExecutionHistogramBucketsPerPowerOfTwo), while the first and the last
+     * buckets contain also all shorter and longer execution times, respectively
+     * @param executionTime the execution time, in seconds
+     * @return the bucket
+     */
+    private int getBucket(double executionTime) {
+
+        double nanoseconds = executionTime * 1e9;
+        if (!(nanoseconds > 1))
+            return 0;
+
+        int bucket = (int) (Math.log(nanoseconds) / Math.log(2) * kExecutionHistogramBucketsPerPowerOfTwo);
+        return Math.min(bucket, histogram.length - 1);
+    }
+}
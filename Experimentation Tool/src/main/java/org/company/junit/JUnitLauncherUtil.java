@@ -0,0 +1,134 @@
+package org.company.junit;
+
+import org.jetbrains.annotations.NotNull;
+import org.junit.platform.engine.DiscoverySelector;
+import org.junit.platform.launcher.Launcher;
+import org.junit.platform.launcher.LauncherDiscoveryRequest;
+import org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder;
+import org.junit.platform.launcher.core.LauncherFactory;
+import org.junit.platform.launcher.listeners.SummaryGeneratingListener;
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+import org.junit.platform.reporting.legacy.xml.LegacyXmlReportGeneratingListener;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.company.junit.Const.kTestTimingsDefaultName;
+import static org.junit.platform.engine.discovery.ClassNameFilter.STANDARD_INCLUDE_PATTERN;
+import static org.junit.platform.engine.discovery.ClassNameFilter.includeClassNamePatterns;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClass;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectClasspathRoots;
+import static org.junit.platform.engine.discovery.DiscoverySelectors.selectMethod;
+import static org.junit.platform.launcher.core.LauncherDiscoveryRequestBuilder.request;
+
+/**
+ * This is a general purpose utility class for running JUnit tests through the JUnit platform launcher, i.e., without
+ * spawning a new JVM with the JUnit console. The reports written are the same of the JUnit console (one legacy XML
+ * report for each test engine), so that they can be parsed with JUnitUtil.parseFromXML. Moreover, the execution
+ * time of each test is measured with nanosecond resolution by a NanoTimingListener (see JUnitUtil.parseExecutionMetrics)
+ */
+public class JUnitLauncherUtil {
+
+    /**
+     * This method discovers and runs all tests contained in the given classpath roots, mimicking the
+     * "--scan-classpath" option of the JUnit console (i.e., only classes matching the standard class
+     * name pattern are considered). Since System.out and System.err are global, they are redirected to
+     * the given output for the whole execution and, therefore, only one execution at a time is allowed
+     * @param classLoader the class loader from which test classes (and the code under test) are loaded
+     * @param classpathRoots the jars or folders to scan for tests
+     * @param directoryWhereToSaveFiles directory where to save the XML reports
+     * @param output where to redirect the output of the tests and the summary of the execution
+     * @return the summary of the execution
+     */
+    public static TestExecutionSummary runTests(@NotNull ClassLoader classLoader,
+                                                @NotNull List<Path> classpathRoots,
+                                                @NotNull File directoryWhereToSaveFiles,
+                                                @NotNull PrintStream output) {
+
+        return runTests(classLoader, classpathRoots, Collections.emptyList(), null, directoryWhereToSaveFiles, output);
+    }
+
+    /**
+     * This method runs the tests identified by the given selectors or, if there are no selectors, all tests
+     * contained in the given classpath roots, mimicking the "--scan-classpath" option of the JUnit console.
+     * A selector is either the FQN of a test class (e.g., "org.company.MyTest") or the fully qualified name of a
+     * test method as accepted by the "--select-method" option of the JUnit console (e.g., "org.company.MyTest#test")
+     * In both cases, only classes matching the standard class name pattern and not excluded by the given test
+     * filter are considered. Since System.out and System.err are global, they are redirected to the given output
+     * for the whole execution and, therefore, only one execution at a time is allowed
+     * @param classLoader the class loader from which test classes (and the code under test) are loaded
+     * @param classpathRoots the jars or folders to scan for tests
+     * @param selectors the classes and methods to run, empty to run all tests in the classpath roots
+     * @param testFilter the filter excluding tests and classes from the execution, null to exclude nothing
+     * @param directoryWhereToSaveFiles directory where to save the XML reports
+     * @param output where to redirect the output of the tests and the summary of the execution
+     * @return the summary of the execution
+     */
+    public static synchronized TestExecutionSummary runTests(@NotNull ClassLoader classLoader,
+                                                             @NotNull List<Path> classpathRoots,
+                                                             @NotNull List<String> selectors,
+                                                             TestFilter testFilter,
+                                                             @NotNull File directoryWhereToSaveFiles,
+                                                             @NotNull PrintStream output) {
+
+        // the launcher loads the test engines through the context class loader: create it before switching
+        // to the class loader of the jars, otherwise engines bundled in the jars would be registered twice
+        Launcher launcher = LauncherFactory.create();
+
+        List<DiscoverySelector> discoverySelectors = new ArrayList<>();
+        if (selectors.isEmpty())
+            discoverySelectors.addAll(selectClasspathRoots(new HashSet<>(classpathRoots)));
+        else {
+            // classes are resolved lazily (during discovery) through the context class loader
+            for (String selector : selectors)
+                discoverySelectors.add(selector.contains("#") ? selectMethod(selector) : selectClass(selector));
+        }
+
+        LauncherDiscoveryRequestBuilder discoveryRequestBuilder = request()
+                .selectors(discoverySelectors)
+                .filters(includeClassNamePatterns(STANDARD_INCLUDE_PATTERN));
+        if (testFilter != null)
+            discoveryRequestBuilder.filters(testFilter);
+        LauncherDiscoveryRequest discoveryRequest = discoveryRequestBuilder.build();
+
+        PrintWriter outputWriter = new PrintWriter(output, true);
+        SummaryGeneratingListener summaryListener = new SummaryGeneratingListener();
+        LegacyXmlReportGeneratingListener xmlReportListener =
+                new LegacyXmlReportGeneratingListener(directoryWhereToSaveFiles.toPath(), outputWriter);
+        NanoTimingListener timingListener = new NanoTimingListener(new File(directoryWhereToSaveFiles, kTestTimingsDefaultName));
+
+        // does nothing unless per-test coverage is collected (see TestExecutor.withPerTestCoverage)
+        PerTestCoverageListener coverageListener = new PerTestCoverageListener();
+
+        Thread currentThread = Thread.currentThread();
+        ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+        PrintStream originalOut = System.out;
+        PrintStream originalErr = System.err;
+
+        try {
+            currentThread.setContextClassLoader(classLoader);
+            System.setOut(output);
+            System.setErr(output);
+
+            launcher.execute(discoveryRequest, summaryListener, xmlReportListener, timingListener, coverageListener);
+        }
+        finally {
+            System.setOut(originalOut);
+            System.setErr(originalErr);
+            currentThread.setContextClassLoader(originalClassLoader);
+        }
+
+        TestExecutionSummary summary = summaryListener.getSummary();
+        summary.printTo(outputWriter);
+        summary.printFailuresTo(outputWriter);
+        outputWriter.flush();
+
+        return summary;
+    }
+}
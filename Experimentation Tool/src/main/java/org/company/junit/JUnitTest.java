@@ -3,7 +3,6 @@ package org.company.junit;
 
 import org.company.asm.ASMMethod;
 
-import java.util.ArrayList;
 import java.util.Objects;
 
 /**
@@ -22,14 +21,15 @@ public class JUnitTest extends ASMMethod {
     private Double executionTime;
 
     /**
-     * if this test was repeated more times, store here all the execution times
+     * the execution time of this test when executed in a cold JVM (i.e., the first
+     * execution in a JVM), null if not available
      */
-    private final ArrayList<Double> executionTimes = new ArrayList<>();
+    private Double coldExecutionTime;
 
     /**
-     * if this test was repeated more times, this is the standard deviation
+     * if this test was repeated more times, the statistics of all the execution times
      */
-    private Double standardDeviation;
+    private final ExecutionStatistics executionStatistics = new ExecutionStatistics();
 
     /**
      * flag for test outcome, either PASSED, FAILED or UNUSABLE
@@ -90,6 +90,22 @@ public class JUnitTest extends ASMMethod {
         this.executionTime = executionTime;
     }
 
+    /**
+     * getter for coldExecutionTime
+     * @return coldExecutionTime
+     */
+    public Double getColdExecutionTime() {
+        return coldExecutionTime;
+    }
+
+    /**
+     * setter for coldExecutionTime
+     * @param coldExecutionTime coldExecutionTime
+     */
+    public void setColdExecutionTime(Double coldExecutionTime) {
+        this.coldExecutionTime = coldExecutionTime;
+    }
+
     /**
      * getter for success
      * @return success
@@ -166,43 +182,27 @@ public class JUnitTest extends ASMMethod {
     }
 
     /**
-     * getter for executionTimes
-     * @return executionTimes
+     * getter for executionStatistics
+     * @return executionStatistics
      */
-    public ArrayList<Double> getExecutionTimes() {
-        return executionTimes;
+    public ExecutionStatistics getExecutionStatistics() {
+        return executionStatistics;
     }
 
     /**
      * add execution time
      * @param executionTime execution time
      */
-    public void addExecutionTime(Double executionTime) {
-        executionTimes.add(executionTime);
+    public void addExecutionTime(double executionTime) {
+        executionStatistics.add(executionTime);
     }
 
     /**
-     * add execution times
-     * @param executionTimes execution times
-     */
-    public void addExecutionTimes(ArrayList<Double> executionTimes) {
-        this.executionTimes.addAll(executionTimes);
-    }
-
-    /**
-     * getter for standardDeviation
+     * getter for standardDeviation (the sample standard deviation of the execution times)
      * @return standardDeviation
      */
     public Double getStandardDeviation() {
-        return standardDeviation;
-    }
-
-    /**
-     * setter for standardDeviation
-     * @param standardDeviation standardDeviation
-     */
-    public void setStandardDeviation(Double standardDeviation) {
-        this.standardDeviation = standardDeviation;
+        return executionStatistics.getStandardDeviation();
     }
 
     public String getSuperclassFQN() {
@@ -1,11 +1,10 @@
 package org.company.junit;
 
-import java.io.File;
+import java.io.*;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.parsers.SAXParser;
 import javax.xml.parsers.SAXParserFactory;
 
-import org.apache.commons.io.FileUtils;
 import org.company.TestExecutor;
 import org.company.asm.ASMMethod;
 import org.jetbrains.annotations.NotNull;
@@ -13,13 +12,10 @@ import org.xml.sax.Attributes;
 import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
-import java.io.FileNotFoundException;
-import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Consumer;
 
-import static java.lang.Math.sqrt;
 import static java.lang.System.exit;
 import static org.company.App.logger;
 import static org.company.junit.Const.*;
@@ -246,7 +242,7 @@ public class JUnitUtil {
 
 
     /**
-     * wrapper to run a test suite multiple times and collect the average results
+     * wrapper to run a test suite multiple times (one repetition at a time) and collect the average results
      * @param repetitionNumber the number of times tests will be repeated
      * @param directoryWhereToSaveFiles the directory in which to save all output files. Note that this method will
      *                                  create a folder for each test repetition in which to save JUnit reports
@@ -254,100 +250,442 @@ public class JUnitUtil {
      * @return an array of JUnit tests containing the average results of the execution
      * @throws Exception internal exception
      */
-    public static ArrayList<JUnitTest> runJUnitTestsMultipleTimes 
+    public static ArrayList<JUnitTest> runJUnitTestsMultipleTimes
             (int repetitionNumber, @NotNull File directoryWhereToSaveFiles, TestExecutor testExecutor) throws Exception {
 
-        ArrayList<JUnitTest> executionMetrics = null;
+        return runJUnitTestsMultipleTimes(repetitionNumber, directoryWhereToSaveFiles, testExecutor,
+                new RepetitionScheduler(1, false));
+    }
 
-        // simply, we repeat the same procedure for the given number of times:
-        //   first, we create a new folder for the execution of the tests;
-        //   then, we execute the tests and parse the JUnit XML output file;
-        //   finally, we aggregate the results by summing the execution time
-        //   and checking that the test succeeded
-        for (int i = 0; i < repetitionNumber; i++) {
+    /**
+     * wrapper to run a test suite multiple times and collect the average results
+     * @param repetitionNumber the number of times tests will be repeated
+     * @param directoryWhereToSaveFiles the directory in which to save all output files. Note that this method will
+     *                                  create a folder for each test repetition in which to save JUnit reports
+     * @param testExecutor the test executor object with the jars containing the code to test and the tests
+     * @param repetitionScheduler the scheduler running the repetitions (possibly in parallel)
+     * @return an array of JUnit tests containing the average results of the execution
+     * @throws Exception internal exception
+     */
+    public static ArrayList<JUnitTest> runJUnitTestsMultipleTimes
+            (int repetitionNumber, @NotNull File directoryWhereToSaveFiles, TestExecutor testExecutor,
+             RepetitionScheduler repetitionScheduler) throws Exception {
+
+        ArrayList<JUnitTest> executionMetrics = new ArrayList<>();
+
+        // simply, we repeat the same procedure for the given number of times (each repetition has its own folder
+        // in which we execute the tests and parse the JUnit XML output file). Then, in the order of the
+        // repetitions, we aggregate the results by accumulating the execution time in the statistics of the
+        // test and checking that the test succeeded. Repetitions are aggregated as soon as they are available,
+        // so that memory does not grow with the number of repetitions
+        repetitionScheduler.runRepetitions(repetitionNumber, directoryWhereToSaveFiles, testExecutor,
+                executionMetricsRepetition -> aggregateRepetition(
+                        executionMetrics, executionMetricsRepetition, Collections.emptySet()));
+
+        completeExecutionMetrics(executionMetrics, testExecutor);
+        return executionMetrics;
+    }
 
-            logger.info("[{}{}{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsMultipleTimes" + ")]: ",
-                    "Tests repetition ", (i+1), " of ", repetitionNumber);
+    /**
+     * wrapper to run a test suite multiple times and collect the average results, where the number of repetitions
+     * is adaptive: tests are repeated (in batches as large as the concurrency level of the scheduler) until the
+     * confidence interval of the mean execution time of every test is narrow enough, or until the max number of
+     * repetitions or the time budget of the stopping rule is reached. Once a test converges, the execution times
+     * of further repetitions are not accumulated anymore (but its outcome is still checked), so that the number
+     * of repetitions actually used for each test is the count of its execution statistics
+     * @param directoryWhereToSaveFiles the directory in which to save all output files. Note that this method will
+     *                                  create a folder for each test repetition in which to save JUnit reports
+     * @param testExecutor the test executor object with the jars containing the code to test and the tests
+     * @param repetitionScheduler the scheduler running the repetitions (possibly in parallel)
+     * @param stoppingRule the rule deciding when tests have been repeated enough
+     * @return an array of JUnit tests containing the average results of the execution
+     * @throws Exception internal exception
+     */
+    public static ArrayList<JUnitTest> runJUnitTestsMultipleTimes
+            (@NotNull File directoryWhereToSaveFiles, TestExecutor testExecutor,
+             RepetitionScheduler repetitionScheduler, AdaptiveStoppingRule stoppingRule) throws Exception {
 
-            File testExecutionFolder = new File(directoryWhereToSaveFiles.getAbsolutePath() + "/" + (i+1) + "/");
-            File jUnit4ReportFile = new File(testExecutionFolder.getAbsolutePath() + "/" + kJunit4ReportDefaultName);
-            File jUnit5ReportFile = new File(testExecutionFolder.getAbsolutePath() + "/" + kJunit5ReportDefaultName);
+        ArrayList<JUnitTest> executionMetrics = new ArrayList<>();
+        HashSet<JUnitTest> convergedTests = new HashSet<>();
 
-            if (!testExecutionFolder.mkdirs()) {
-                logger.error("[{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsMultipleTimes" + ")]: ",
-                        "error while creating folder for storing output of tests repetition number :", i+1);
-                throw new IOException("Error while creating folder for storing output of tests repetition number " + (i+1));
-            }
+        long startTime = System.nanoTime();
+        int repetitionsSoFar = 0;
+
+        while (repetitionsSoFar < stoppingRule.getMaxRepetitions()) {
+
+            int lastRepetitionOfBatch = Math.min(stoppingRule.getMaxRepetitions(),
+                    repetitionsSoFar + repetitionScheduler.getConcurrencyLevel());
+
+            repetitionScheduler.runRepetitions(repetitionsSoFar + 1, lastRepetitionOfBatch,
+                    directoryWhereToSaveFiles, testExecutor, executionMetricsRepetition ->
+                            aggregateRepetition(executionMetrics, executionMetricsRepetition, convergedTests));
+            repetitionsSoFar = lastRepetitionOfBatch;
 
-            boolean testRunWasKilled = false;
-            ArrayList<JUnitTest> executionMetricsRepetition = null;
-            testExecutor.runTests(testExecutionFolder);
-            try {
-                executionMetricsRepetition =
-                        JUnitUtil.parseFromXML(jUnit4ReportFile, jUnit5ReportFile).getJunitTests();
+            // tests skipped (or aborted) in all repetitions so far have nothing to converge
+            for (JUnitTest jUnitTest : executionMetrics)
+                if (jUnitTest.getExecutionStatistics().getCount() == 0 ||
+                        stoppingRule.isConverged(jUnitTest.getExecutionStatistics()))
+                    convergedTests.add(jUnitTest);
+
+            if (convergedTests.size() == executionMetrics.size()) {
+                logger.info("[{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsMultipleTimes" + ")]: ",
+                        "all tests converged after repetitions: ", repetitionsSoFar);
+                break;
             }
-            // Sometimes it happens that the JUnit process aborts/gets killed. Therefore, try to repeat the run
-            catch (FileNotFoundException e) {
-                logger.warn("[{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsMultipleTimes" + ")]: ",
-                        "the test run was killed, trying again");
-                testRunWasKilled = true;
+
+            Duration timeBudget = stoppingRule.getTimeBudget();
+            if (timeBudget != null && System.nanoTime() - startTime >= timeBudget.toNanos()) {
+                logger.warn("[{}{}{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsMultipleTimes" + ")]: ",
+                        "time budget exhausted after repetitions: ", repetitionsSoFar,
+                        ", tests not converged: ", executionMetrics.size() - convergedTests.size());
+                break;
             }
-            if (!testRunWasKilled) {
-                executionMetricsRepetition.sort(Comparator.comparing(JUnitTest::getTestFQNName));
+        }
+
+        if (convergedTests.size() < executionMetrics.size() && repetitionsSoFar >= stoppingRule.getMaxRepetitions())
+            logger.warn("[{}{}{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsMultipleTimes" + ")]: ",
+                    "max number of repetitions reached: ", repetitionsSoFar,
+                    ", tests not converged: ", executionMetrics.size() - convergedTests.size());
+
+        completeExecutionMetrics(executionMetrics, testExecutor);
+        return executionMetrics;
+    }
+
+    /**
+     * wrapper to run a test suite multiple times on both the original and the protected jar and collect the average
+     * results, where repetitions on the two jars are interleaved (see RepetitionScheduler.runInterleavedRepetitions)
+     * so that any drift in the state of the machine does not show up as overhead. If a stopping rule is given, the
+     * number of repetitions is adaptive (as in the adaptive runJUnitTestsMultipleTimes) but convergence is checked
+     * on the confidence interval of the mean overhead of each test, and a test converges on both jars at once
+     * @param directoryWhereToSaveFilesOriginal the directory in which to save all output files of the original jar
+     * @param testExecutorOriginal the test executor object with the original jar and the tests
+     * @param directoryWhereToSaveFilesProtected the directory in which to save all output files of the protected jar
+     * @param testExecutorProtected the test executor object with the protected jar and the tests
+     * @param repetitionScheduler the scheduler running the repetitions (possibly in parallel)
+     * @param repetitionNumber the number of times tests will be repeated on each jar (the max one, if adaptive)
+     * @param random the random generator to shuffle the order of the jars in each round, null to alternate them
+     * @param stoppingRule the rule deciding when tests have been repeated enough, null to run all repetitions
+     * @return the arrays of JUnit tests containing the average results of the execution on the original jar
+     *         (first) and on the protected jar (second)
+     * @throws Exception internal exception
+     */
+    public static ArrayList<ArrayList<JUnitTest>> runJUnitTestsInterleaved
+            (@NotNull File directoryWhereToSaveFilesOriginal, TestExecutor testExecutorOriginal,
+             @NotNull File directoryWhereToSaveFilesProtected, TestExecutor testExecutorProtected,
+             RepetitionScheduler repetitionScheduler, int repetitionNumber,
+             Random random, AdaptiveStoppingRule stoppingRule) throws Exception {
+
+        return runJUnitTestsInterleaved(
+                Arrays.asList(directoryWhereToSaveFilesOriginal, directoryWhereToSaveFilesProtected),
+                Arrays.asList(testExecutorOriginal, testExecutorProtected),
+                repetitionScheduler, repetitionNumber, random, stoppingRule);
+    }
+
+    /**
+     * wrapper to run a test suite multiple times on the original jar and on one or more protected jars (e.g., each
+     * one protecting a different method) and collect the average results, where repetitions on all jars are
+     * interleaved as in runJUnitTestsInterleaved(File, TestExecutor, File, TestExecutor, ...). The same tests must
+     * be run on all jars. If a stopping rule is given, a test converges once the confidence interval of its mean
+     * overhead is narrow enough on every protected jar, and then it converges on all jars at once
+     * @param directoriesWhereToSaveFiles for each jar, the directory in which to save all output files (the
+     *                                    directory of the original jar first)
+     * @param testExecutors for each jar, the test executor object with the jar and the tests (the executor of the
+     *                      original jar first)
+     * @param repetitionScheduler the scheduler running the repetitions (possibly in parallel)
+     * @param repetitionNumber the number of times tests will be repeated on each jar (the max one, if adaptive)
+     * @param random the random generator to shuffle the order of the jars in each round, null to keep their order
+     * @param stoppingRule the rule deciding when tests have been repeated enough, null to run all repetitions
+     * @return for each jar (in the given order), the array of JUnit tests containing the average results of the
+     *         execution on that jar
+     * @throws Exception internal exception
+     */
+    public static ArrayList<ArrayList<JUnitTest>> runJUnitTestsInterleaved
+            (@NotNull List<File> directoriesWhereToSaveFiles, @NotNull List<TestExecutor> testExecutors,
+             RepetitionScheduler repetitionScheduler, int repetitionNumber,
+             Random random, AdaptiveStoppingRule stoppingRule) throws Exception {
+
+        if (testExecutors.size() < 2 || directoriesWhereToSaveFiles.size() != testExecutors.size())
+            throw new IllegalArgumentException("the original jar and at least a protected jar are needed, " +
+                    "each one with its own directory");
+
+        ArrayList<ArrayList<JUnitTest>> executionMetricsOnAllJars = new ArrayList<>();
+        ArrayList<Consumer<ArrayList<JUnitTest>>> repetitionConsumers = new ArrayList<>();
+        HashSet<JUnitTest> convergedTests = new HashSet<>();
+
+        for (int jar = 0; jar < testExecutors.size(); jar++) {
+            ArrayList<JUnitTest> executionMetrics = new ArrayList<>();
+            executionMetricsOnAllJars.add(executionMetrics);
+            repetitionConsumers.add(executionMetricsRepetition -> aggregateRepetition(
+                    executionMetrics, executionMetricsRepetition, convergedTests));
+        }
+
+        ArrayList<JUnitTest> executionMetricsOriginal = executionMetricsOnAllJars.get(0);
+
+        // rounds are run in batches (also without a stopping rule, so that the repetitions of a batch, and not all
+        // of them, are in flight at once) and, with more jars, a round is longer, so batches are smaller
+        int roundsPerBatch = Math.max(1, repetitionScheduler.getConcurrencyLevel() / testExecutors.size());
+
+        long startTime = System.nanoTime();
+        int roundsSoFar = 0;
+
+        while (roundsSoFar < repetitionNumber) {
+
+            int lastRoundOfBatch = Math.min(repetitionNumber, roundsSoFar + roundsPerBatch);
+
+            repetitionScheduler.runInterleavedRepetitions(roundsSoFar + 1, lastRoundOfBatch,
+                    directoriesWhereToSaveFiles, testExecutors, repetitionConsumers, random);
+            roundsSoFar = lastRoundOfBatch;
+
+            // without a stopping rule, all rounds are run
+            if (stoppingRule == null)
+                continue;
 
-                // after having executed the tests, aggregate the results
-                if (executionMetrics == null) {
-                    executionMetrics = executionMetricsRepetition;
-                } else {
+            for (int j = 0; j < executionMetricsOriginal.size(); j++) {
 
-                    // for each test in both arrays, we sum the execution time and check that both were successful
-                    for (int j = 0; j < executionMetrics.size(); j++) {
+                // tests skipped (or aborted) in all rounds so far have nothing to converge
+                JUnitTest testOnOriginalJar = executionMetricsOriginal.get(j);
+                boolean isConverged = true;
+                boolean isMeasured = testOnOriginalJar.getExecutionStatistics().getCount() > 0;
+                for (int jar = 1; jar < executionMetricsOnAllJars.size() && isConverged && isMeasured; jar++)
+                    isConverged = j < executionMetricsOnAllJars.get(jar).size() &&
+                            stoppingRule.isConverged(testOnOriginalJar.getExecutionStatistics(),
+                                    executionMetricsOnAllJars.get(jar).get(j).getExecutionStatistics());
 
-                        JUnitTest originalTest = executionMetrics.get(j);
-                        JUnitTest repetitionTest = executionMetricsRepetition.get(j);
+                if (isConverged)
+                    convergedTests.add(testOnOriginalJar);
+            }
+
+            if (convergedTests.size() == executionMetricsOriginal.size()) {
+                logger.info("[{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsInterleaved" + ")]: ",
+                        "all tests converged after rounds: ", roundsSoFar);
+                break;
+            }
 
-                        String originalTestFQNName = originalTest.getTestFQNName();
-                        String repetitionTestFQNName = repetitionTest.getTestFQNName();
+            Duration timeBudget = stoppingRule.getTimeBudget();
+            if (timeBudget != null && System.nanoTime() - startTime >= timeBudget.toNanos()) {
+                logger.warn("[{}{}{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsInterleaved" + ")]: ",
+                        "time budget exhausted after rounds: ", roundsSoFar,
+                        ", tests not converged: ", executionMetricsOriginal.size() - convergedTests.size());
+                break;
+            }
+        }
 
-                        if (!originalTestFQNName.equals(repetitionTestFQNName)) {
-                            logger.error("[{}{}{}{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsMultipleTimes" + ")]: ",
-                                    "mismatch in the name of the tests, (original test: ",
-                                    originalTestFQNName, ", repetition test: ", repetitionTestFQNName, ")");
-                            exit(8);
-                        }
+        if (stoppingRule != null && convergedTests.size() < executionMetricsOriginal.size() &&
+                roundsSoFar >= repetitionNumber)
+            logger.warn("[{}{}{}{}{}{} ", "JUnitUtil", " (" + "runJUnitTestsInterleaved" + ")]: ",
+                    "max number of repetitions reached: ", roundsSoFar,
+                    ", tests not converged: ", executionMetricsOriginal.size() - convergedTests.size());
 
-                        double newExecutionTime = originalTest.getExecutionTime() + repetitionTest.getExecutionTime();
-                        boolean newIsSuccessful = originalTest.getOutcome() == PASSED && repetitionTest.getOutcome() == PASSED;
+        for (int jar = 0; jar < testExecutors.size(); jar++)
+            completeExecutionMetrics(executionMetricsOnAllJars.get(jar), testExecutors.get(jar));
+        return executionMetricsOnAllJars;
+    }
 
-                        originalTest.setExecutionTime(newExecutionTime);
-                        originalTest.addExecutionTime(repetitionTest.getExecutionTime());
-                        originalTest.setOutcome(newIsSuccessful ? PASSED : FAILED);
-                    }
+    /**
+     * aggregate the results of a repetition into the execution metrics, i.e., accumulate the execution time of
+     * each test in its statistics and check that the test succeeded. If the execution metrics are empty, this is
+     * the first repetition and its tests become the execution metrics. Tests without an execution time (i.e.,
+     * skipped or aborted in the repetition) are not accumulated
+     * @param executionMetrics the execution metrics aggregated so far (sorted by name)
+     * @param executionMetricsRepetition the tests of the repetition (sorted by name)
+     * @param convergedTests the tests whose execution times are not accumulated anymore
+     */
+    private static void aggregateRepetition(ArrayList<JUnitTest> executionMetrics,
+                                            ArrayList<JUnitTest> executionMetricsRepetition,
+                                            Set<JUnitTest> convergedTests) {
+
+        // after having executed the tests, aggregate the results
+        if (executionMetrics.isEmpty()) {
+            executionMetrics.addAll(executionMetricsRepetition);
+            executionMetrics.stream()
+                    .filter(jUnitTest -> jUnitTest.getExecutionTime() != null)
+                    .forEach(jUnitTest -> jUnitTest.addExecutionTime(jUnitTest.getExecutionTime()));
+        } else {
+
+            // for each test in both arrays, we add the execution time and check that both were successful
+            for (int j = 0; j < executionMetrics.size(); j++) {
+
+                JUnitTest originalTest = executionMetrics.get(j);
+                JUnitTest repetitionTest = executionMetricsRepetition.get(j);
+
+                String originalTestFQNName = originalTest.getTestFQNName();
+                String repetitionTestFQNName = repetitionTest.getTestFQNName();
+
+                if (!originalTestFQNName.equals(repetitionTestFQNName)) {
+                    logger.error("[{}{}{}{}{}{}{} ", "JUnitUtil", " (" + "aggregateRepetition" + ")]: ",
+                            "mismatch in the name of the tests, (original test: ",
+                            originalTestFQNName, ", repetition test: ", repetitionTestFQNName, ")");
+                    exit(8);
                 }
+
+                boolean newIsSuccessful = originalTest.getOutcome() == PASSED && repetitionTest.getOutcome() == PASSED;
+
+                if (!convergedTests.contains(originalTest) && repetitionTest.getExecutionTime() != null)
+                    originalTest.addExecutionTime(repetitionTest.getExecutionTime());
+                originalTest.setOutcome(newIsSuccessful ? PASSED : FAILED);
             }
-            else {
-                i = i - 1;
-                FileUtils.deleteDirectory(testExecutionFolder);
+        }
+    }
+
+    /**
+     * complete the aggregated execution metrics, i.e., set the execution time of each test to the average of
+     * all repetitions and compute the cold execution time (see TestExecutor.getColdExecutionMetrics)
+     * @param executionMetrics the execution metrics aggregated from all repetitions
+     * @param testExecutor the test executor that ran the repetitions
+     */
+    private static void completeExecutionMetrics(ArrayList<JUnitTest> executionMetrics, TestExecutor testExecutor) {
+
+        // the last step is to set the execution time of the tests to the average of all repetitions
+        // (null for tests that were skipped or aborted in all repetitions, i.e., never measured)
+        executionMetrics.forEach(jUnitTest -> jUnitTest.setExecutionTime(
+                jUnitTest.getExecutionStatistics().getCount() == 0 ? null : jUnitTest.getExecutionStatistics().getMean()));
+
+        // the cold execution time is the average execution time of the first execution of the tests in each JVM.
+        // If the test executor runs each execution in a new JVM, all executions were cold
+        ArrayList<ArrayList<JUnitTest>> coldExecutionMetrics = testExecutor.getColdExecutionMetrics();
+        if (coldExecutionMetrics == null)
+            executionMetrics.forEach(jUnitTest -> jUnitTest.setColdExecutionTime(jUnitTest.getExecutionTime()));
+        else if (!coldExecutionMetrics.isEmpty()) {
+
+            HashMap<JUnitTest, Double> coldExecutionTimes = new HashMap<>();
+            for (ArrayList<JUnitTest> coldExecutionMetricsOfJVM : coldExecutionMetrics)
+                coldExecutionMetricsOfJVM.stream()
+                        .filter(jUnitTest -> jUnitTest.getExecutionTime() != null)
+                        .forEach(jUnitTest -> coldExecutionTimes.merge(jUnitTest, jUnitTest.getExecutionTime(), Double::sum));
+
+            for (JUnitTest jUnitTest : executionMetrics) {
+                Double coldExecutionTime = coldExecutionTimes.get(jUnitTest);
+                if (coldExecutionTime != null)
+                    jUnitTest.setColdExecutionTime(coldExecutionTime/coldExecutionMetrics.size());
             }
         }
+    }
+
+    /**
+     * This method parses the execution metrics of the tests executed in the given folder. If the folder contains
+     * the file written by the NanoTimingListener, execution times come from there (nanosecond resolution), otherwise
+     * (e.g., for executions with coverage) they come from the JUnit XML reports (millisecond resolution)
+     * @param testExecutionFolder the folder where the tests saved their output files
+     * @return the JUnit tests executed along with their execution time (in seconds) and outcome
+     * @throws Exception if neither the timings file nor the JUnit reports can be parsed (FileNotFoundException
+     *                   if they do not exist, e.g., because the execution was killed)
+     */
+    public static ArrayList<JUnitTest> parseExecutionMetrics(File testExecutionFolder) throws Exception {
+
+        File timingsFile = new File(testExecutionFolder, kTestTimingsDefaultName);
+
+        if (timingsFile.isFile())
+            return parseFromTimings(timingsFile);
+        else
+            return parseFromXML(new File(testExecutionFolder, kJunit4ReportDefaultName),
+                    new File(testExecutionFolder, kJunit5ReportDefaultName)).getJunitTests();
+    }
+
+    /**
+     * This method takes as input the binary file written by the NanoTimingListener and parses it to extract, for
+     * each test, the (high-resolution) execution time and whether the test succeeded or not. As for the JUnit XML
+     * reports, parametrized tests are returned only once, with the execution time of the first invocation and the
+     * outcome of the last one. Skipped and aborted tests are not failed tests (as in the JUnit XML reports), but
+     * their execution time is null, so that it is not part of the execution statistics (see aggregateRepetition).
+     * Tests are returned in order of execution
+     * @param timingsToParse the file written by the NanoTimingListener
+     * @return the JUnit tests contained in the file along with their execution time (in seconds) and outcome
+     * @throws IOException if the file does not exist (e.g., because the execution was killed) or cannot be read
+     */
+    public static ArrayList<JUnitTest> parseFromTimings(File timingsToParse) throws IOException {
+
+        ArrayList<JUnitTest> executedTests = new ArrayList<>();
+        HashMap<JUnitTest, JUnitTest> alreadyExecutedTests = new HashMap<>();
+
+        logger.info("[{}{}{}{}", "JUnitParser", " (" + "parseFromTimings" + ")]: ",
+                "Parsing JUnit timings in file: ", timingsToParse.getAbsolutePath());
+
+        try (DataInputStream records = new DataInputStream(new BufferedInputStream(new FileInputStream(timingsToParse)))) {
+
+            while (true) {
 
-        // the last step is to calculate the average of the execution time of the tests by dividing the
-        // current stored execution time by the number of repetitions
-        assert executionMetrics != null;
-        executionMetrics.forEach(jUnitTest ->
-                jUnitTest.setExecutionTime(jUnitTest.getExecutionTime()/repetitionNumber));
+                String classFQN;
+                try {
+                    classFQN = records.readUTF();
+                }
+                // this is the end of the file
+                catch (EOFException e) {
+                    break;
+                }
+                String testFullSignature = records.readUTF();
+                boolean isJunit5 = records.readBoolean();
+                Double executionTime = records.readLong() / 1e9;
+                int outcome = records.readByte();
+
+                if (outcome == kTestTimingsSkippedOutcome) {
+                    outcome = PASSED;
+                    executionTime = null;
+                }
 
-        for (JUnitTest jUnitTest : executionMetrics) {
+                JUnitTest currentTest = fromLegacyReportingName(testFullSignature, classFQN);
 
-            double average = jUnitTest.getExecutionTime();
-            ArrayList<Double> executionTimes = jUnitTest.getExecutionTimes();
-            double standardDeviation = 0;
+                // as for XML reports, we are not interested in class errors here
+                if (currentTest == null)
+                    continue;
 
-            for (Double executionTime : executionTimes)
-                standardDeviation = standardDeviation + (executionTime - average)*(executionTime - average);
-            jUnitTest.setStandardDeviation(sqrt(standardDeviation));
+                JUnitTest alreadyExecutedTest = alreadyExecutedTests.get(currentTest);
+                if (alreadyExecutedTest != null) {
+                    alreadyExecutedTest.setOutcome(outcome);
+                    if (alreadyExecutedTest.getExecutionTime() == null)
+                        alreadyExecutedTest.setExecutionTime(executionTime);
+                }
+                else {
+                    currentTest.setExecutionTime(executionTime);
+                    currentTest.setOutcome(outcome);
+                    currentTest.setJunit5(isJunit5);
+                    alreadyExecutedTests.put(currentTest, currentTest);
+                    executedTests.add(currentTest);
+                }
+            }
         }
-        return executionMetrics;   
+
+        return executedTests;
+    }
+
+    /**
+     * create a JUnit test from the name that JUnit uses in reports (e.g., in the "name" attribute of the
+     * "testcase" node in XML reports) and the FQN of the class of the test
+     * @param testFullSignature the name of the test in reports, for instance: "testName(String, ...)[1]"
+     * @param classFQN the FQN of the class of the test
+     * @return the JUnit test (with name, desc and class FQN), or null if the name refers to a class and not to a test
+     */
+    public static JUnitTest fromLegacyReportingName(String testFullSignature, String classFQN) {
+
+        String testName;
+        String testDesc;
+
+        // happens when test is not a method but a class instead
+        // e.g., <testcase name="soot.toolkits.purity.PurityTest" classname="soot.toolkits.purity.PurityTest" time="0">
+        // or if the test has "initializationError" as name
+        if (testFullSignature.contains(".") || testFullSignature.equals(kInitializationError))
+            return null;
+
+        // we parse the test full signature name to get the name and the desc, separately
+        int indexOfOpenParenthesis = testFullSignature.indexOf("(");
+        int indexOfCloseParenthesis = testFullSignature.indexOf(")");
+        if (indexOfOpenParenthesis != -1 && indexOfCloseParenthesis != -1) {
+            testName = testFullSignature.substring(0, indexOfOpenParenthesis);
+            testDesc = testFullSignature.substring(indexOfOpenParenthesis, indexOfCloseParenthesis + 1);
+        } else {
+            // if there are no parenthesis, either that's it OR we have something like
+            // "  prefix[0: format "%z" --> ""]  ". So, we get rid of everything after '[' (included)
+            int indexOfBracket = testFullSignature.indexOf('[');
+            if (indexOfBracket != -1)
+                testName = testFullSignature.substring(0, testFullSignature.indexOf('['));
+            else
+                testName = testFullSignature;
+            testDesc = "()";
+        }
+
+        JUnitTest test = new JUnitTest(testName);
+        test.setDesc(testDesc);
+        test.setClassFQN(classFQN);
+        return test;
     }
 
     /**
@@ -439,13 +777,11 @@ public class JUnitUtil {
 
                 // for instance: "testName(String, ...)[1]"
                 String testFullSignature = attributes.getValue("name");
-                String testName;
-                String testDesc;
+
+                currentTest = fromLegacyReportingName(testFullSignature, attributes.getValue("classname"));
 
                 // happens when test is not a method but a class instead
-                // e.g., <testcase name="soot.toolkits.purity.PurityTest" classname="soot.toolkits.purity.PurityTest" time="0">
-                // or if the test has "initializationError" as name
-                if (testFullSignature.contains(".") || testFullSignature.equals(kInitializationError)) {
+                if (currentTest == null) {
                     weAreParsingAClass = true;
 
                     currentTest = new JUnitTest("class");
@@ -454,29 +790,8 @@ public class JUnitUtil {
                 else {
                     weAreParsingAClass = false;
 
-                    // we parse the test full signature name to get the name and the desc, separately
-                    int indexOfOpenParenthesis = testFullSignature.indexOf("(");
-                    int indexOfCloseParenthesis = testFullSignature.indexOf(")");
-                    if (indexOfOpenParenthesis != -1 && indexOfCloseParenthesis != -1) {
-                        testName = testFullSignature.substring(0, indexOfOpenParenthesis);
-                        testDesc = testFullSignature.substring(indexOfOpenParenthesis, indexOfCloseParenthesis + 1);
-                    } else {
-                        // if there are no parenthesis, either that's it OR we have something like
-                        // "  prefix[0: format "%z" --> ""]  ". So, we get rid of everything after '[' (included)
-                        int indexOfBracket = testFullSignature.indexOf('[');
-                        if (indexOfBracket != -1)
-                            testName = testFullSignature.substring(0, testFullSignature.indexOf('['));
-                        else
-                            testName = testFullSignature;
-                        testDesc = "()";
-                    }
-
-                    currentTest = new JUnitTest(testName);
-                    currentTest.setDesc(testDesc);
                     double executionTime = Double.valueOf(attributes.getValue("time"));
                     currentTest.setExecutionTime(executionTime);
-                    currentTest.addExecutionTime(executionTime);
-                    currentTest.setClassFQN(attributes.getValue("classname"));
                     currentTest.setOutcome(PASSED);
                 }
             }
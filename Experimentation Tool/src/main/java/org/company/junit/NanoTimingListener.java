@@ -0,0 +1,168 @@
+package org.company.junit;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.reporting.legacy.LegacyReportingUtils;
+
+import java.io.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.company.junit.Const.kTestTimingsFileProperty;
+import static org.company.junit.Const.kTestTimingsSkippedOutcome;
+
+/**
+ * This JUnit listener measures the execution time of each test with System.nanoTime and writes, for each test, a
+ * compact binary record in a file. With respect to the "time" attribute of the JUnit XML reports, this gives
+ * sub-millisecond resolution and does not require to write and parse the (whole) XML reports. Each record contains:
+ * - the class name and the name of the test, as in the JUnit XML reports (UTF strings)
+ * - whether the test was run by a JUnit 5 engine (i.e., not by the vintage engine) (boolean)
+ * - the execution time, in nanoseconds (long)
+ * - the outcome of the test, with the same values of JUnitTest.PASSED, FAILED and UNUSABLE, or
+ *   kTestTimingsSkippedOutcome for skipped and aborted tests, whose execution time is not measured (byte)
+ * Records are written in a temporary file that is renamed only when all tests have been executed, so that the
+ * file exists only if the execution completed.
+ * NOTE: this class is also packed alone in a jar to be registered (through the ServiceLoader) in the JUnit console,
+ * so it must depend only on the JDK and the JUnit platform (constants of Const are inlined by the compiler)
+ */
+public class NanoTimingListener implements TestExecutionListener {
+
+    /**
+     * the file where to write the records, null to do nothing
+     */
+    private final File timingsFile;
+
+    /**
+     * the temporary file where records are written while tests are executed
+     */
+    private final File partialTimingsFile;
+
+    /**
+     * the stream of the temporary file, null if not open (or in case of errors)
+     */
+    private DataOutputStream records;
+
+    /**
+     * the test plan being executed, to compute the class names of the tests
+     */
+    private TestPlan testPlan;
+
+    /**
+     * the System.nanoTime value at which each running test started, by unique id
+     */
+    private final ConcurrentHashMap<String, Long> startTimes = new ConcurrentHashMap<>();
+
+    /**
+     * Constructor invoked by the ServiceLoader. The file where to write the records is given
+     * by the kTestTimingsFileProperty system property. If not set, the listener does nothing
+     */
+    public NanoTimingListener() {
+        this(System.getProperty(kTestTimingsFileProperty) == null ?
+                null : new File(System.getProperty(kTestTimingsFileProperty)));
+    }
+
+    /**
+     * Simple constructor
+     * @param timingsFile the file where to write the records, null to do nothing
+     */
+    public NanoTimingListener(File timingsFile) {
+
+        this.timingsFile = timingsFile;
+        this.partialTimingsFile = timingsFile == null ? null : new File(timingsFile.getAbsolutePath() + ".part");
+    }
+
+    @Override
+    public void testPlanExecutionStarted(TestPlan testPlan) {
+
+        if (timingsFile == null)
+            return;
+
+        this.testPlan = testPlan;
+
+        try {
+            records = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partialTimingsFile)));
+        }
+        catch (IOException e) {
+            System.err.println("NanoTimingListener: not able to open " + partialTimingsFile + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void executionStarted(TestIdentifier testIdentifier) {
+
+        if (testIdentifier.isTest())
+            startTimes.put(testIdentifier.getUniqueId(), System.nanoTime());
+    }
+
+    @Override
+    public void executionSkipped(TestIdentifier testIdentifier, String reason) {
+
+        // skipped tests are not executed, so they have no execution time
+        if (testIdentifier.isTest())
+            writeRecord(testIdentifier, 0, kTestTimingsSkippedOutcome);
+    }
+
+    @Override
+    public void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+
+        if (!testIdentifier.isTest())
+            return;
+
+        long executionTime = System.nanoTime();
+        Long startTime = startTimes.remove(testIdentifier.getUniqueId());
+        executionTime = startTime == null ? 0 : executionTime - startTime;
+
+        // aborted tests (e.g., because an assumption failed) did not execute completely, so their time is not measured
+        int outcome = JUnitTest.PASSED;
+        if (testExecutionResult.getStatus() == TestExecutionResult.Status.ABORTED)
+            outcome = kTestTimingsSkippedOutcome;
+        else if (testExecutionResult.getStatus() == TestExecutionResult.Status.FAILED) {
+            Throwable throwable = testExecutionResult.getThrowable().orElse(null);
+            outcome = throwable instanceof VerifyError ? JUnitTest.UNUSABLE : JUnitTest.FAILED;
+        }
+
+        writeRecord(testIdentifier, executionTime, outcome);
+    }
+
+    @Override
+    public synchronized void testPlanExecutionFinished(TestPlan testPlan) {
+
+        if (records == null)
+            return;
+
+        try {
+            records.close();
+            records = null;
+            if (!partialTimingsFile.renameTo(timingsFile))
+                System.err.println("NanoTimingListener: not able to rename " + partialTimingsFile + " to " + timingsFile);
+        }
+        catch (IOException e) {
+            System.err.println("NanoTimingListener: not able to close " + partialTimingsFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * write the record of a test
+     * @param testIdentifier the test
+     * @param executionTime the execution time, in nanoseconds
+     * @param outcome the outcome, one between JUnitTest.PASSED, FAILED, UNUSABLE and kTestTimingsSkippedOutcome
+     */
+    private synchronized void writeRecord(TestIdentifier testIdentifier, long executionTime, int outcome) {
+
+        if (records == null)
+            return;
+
+        try {
+            records.writeUTF(LegacyReportingUtils.getClassName(testPlan, testIdentifier));
+            records.writeUTF(testIdentifier.getLegacyReportingName());
+            records.writeBoolean(!testIdentifier.getUniqueId().startsWith("[engine:junit-vintage]"));
+            records.writeLong(executionTime);
+            records.writeByte(outcome);
+        }
+        catch (IOException e) {
+            System.err.println("NanoTimingListener: not able to write on " + partialTimingsFile + ": " + e.getMessage());
+            records = null;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package org.company.junit;
+
+import org.junit.platform.engine.TestExecutionResult;
+import org.junit.platform.launcher.TestExecutionListener;
+import org.junit.platform.launcher.TestIdentifier;
+import org.junit.platform.launcher.TestPlan;
+import org.junit.platform.reporting.legacy.LegacyReportingUtils;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+
+import static org.company.junit.Const.*;
+
+/**
+ * This JUnit listener collects the coverage of each test in a single execution of the tests with the JaCoCo agent.
+ * Whenever a test or a container (e.g., a test class) starts or finishes, the execution data collected so far by the
+ * agent is dumped (and reset) and assigned to the innermost test or container that was running, so that the code
+ * executed by a class outside of its tests (e.g., in @BeforeAll methods) is assigned to the class. For each dump, a
+ * record is written in a file. Each record contains:
+ * - the class name and the name of the test (or container), as in the JUnit XML reports (UTF strings)
+ * - whether the record refers to a test (and not to a container) (boolean)
+ * - the execution data, in the format of the "jacoco.exec" files (int length, followed by the bytes)
+ * Since the execution data of the agent is reset, the "jacoco.exec" file written by the agent when the JVM exits
+ * contains only the execution data collected after the last dump (see JaCoCoUtil.mergePerTestCoverage). Tests must
+ * run sequentially (i.e., the default of JUnit), otherwise coverage is assigned to the wrong tests.
+ * The agent is accessed through reflection (the agent is in the classpath only when tests run with coverage).
+ * Records are written in a temporary file that is renamed only when all tests have been executed, so that the
+ * file exists only if the execution completed.
+ * NOTE: this class is also packed alone in a jar to be registered (through the ServiceLoader) in the JUnit console,
+ * so it must depend only on the JDK and the JUnit platform (constants of Const are inlined by the compiler)
+ */
+public class PerTestCoverageListener implements TestExecutionListener {
+
+    /**
+     * the file where to write the records, null to do nothing
+     */
+    private final File coverageFile;
+
+    /**
+     * the temporary file where records are written while tests are executed
+     */
+    private final File partialCoverageFile;
+
+    /**
+     * the stream of the temporary file, null if not open (or in case of errors)
+     */
+    private DataOutputStream records;
+
+    /**
+     * the test plan being executed, to compute the class names of the tests
+     */
+    private TestPlan testPlan;
+
+    /**
+     * the JaCoCo agent, null if not available
+     */
+    private Object agent;
+
+    /**
+     * the method of the agent returning (and resetting) the execution data
+     */
+    private Method getExecutionData;
+
+    /**
+     * the tests and containers that are running, the innermost one on top
+     */
+    private final ArrayDeque<TestIdentifier> runningIdentifiers = new ArrayDeque<>();
+
+    /**
+     * Constructor invoked by the ServiceLoader. The file where to write the records is given
+     * by the kTestCoverageFileProperty system property. If not set, the listener does nothing
+     */
+    public PerTestCoverageListener() {
+        this(System.getProperty(kTestCoverageFileProperty) == null ?
+                null : new File(System.getProperty(kTestCoverageFileProperty)));
+    }
+
+    /**
+     * Simple constructor
+     * @param coverageFile the file where to write the records, null to do nothing
+     */
+    public PerTestCoverageListener(File coverageFile) {
+
+        this.coverageFile = coverageFile;
+        this.partialCoverageFile = coverageFile == null ? null : new File(coverageFile.getAbsolutePath() + ".part");
+    }
+
+    @Override
+    public synchronized void testPlanExecutionStarted(TestPlan testPlan) {
+
+        if (coverageFile == null)
+            return;
+
+        this.testPlan = testPlan;
+
+        try {
+            // the agent is in the system class loader (see the "-javaagent" option)
+            Class<?> agentRuntime = Class.forName(kJaCoCoAgentRuntimeClass, true, ClassLoader.getSystemClassLoader());
+            agent = agentRuntime.getMethod("getAgent").invoke(null);
+            getExecutionData = Class.forName(kJaCoCoAgentInterface, true, ClassLoader.getSystemClassLoader())
+                    .getMethod("getExecutionData", boolean.class);
+        }
+        catch (ReflectiveOperationException | LinkageError e) {
+            System.err.println("PerTestCoverageListener: JaCoCo agent not available: " + e);
+            return;
+        }
+
+        try {
+            records = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partialCoverageFile)));
+        }
+        catch (IOException e) {
+            System.err.println("PerTestCoverageListener: not able to open " + partialCoverageFile + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void executionStarted(TestIdentifier testIdentifier) {
+
+        if (records == null)
+            return;
+
+        // what was executed so far belongs to the enclosing container (if any)
+        if (!runningIdentifiers.isEmpty())
+            writeRecord(runningIdentifiers.peek());
+        runningIdentifiers.push(testIdentifier);
+    }
+
+    @Override
+    public synchronized void executionFinished(TestIdentifier testIdentifier, TestExecutionResult testExecutionResult) {
+
+        if (records == null)
+            return;
+
+        writeRecord(testIdentifier);
+        runningIdentifiers.remove(testIdentifier);
+    }
+
+    @Override
+    public synchronized void testPlanExecutionFinished(TestPlan testPlan) {
+
+        if (records == null)
+            return;
+
+        try {
+            records.close();
+            records = null;
+            if (!partialCoverageFile.renameTo(coverageFile))
+                System.err.println("PerTestCoverageListener: not able to rename " + partialCoverageFile + " to " + coverageFile);
+        }
+        catch (IOException e) {
+            System.err.println("PerTestCoverageListener: not able to close " + partialCoverageFile + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * dump (and reset) the execution data of the agent and write it in the record of a test or container
+     * @param testIdentifier the test or container
+     */
+    private void writeRecord(TestIdentifier testIdentifier) {
+
+        try {
+            byte[] executionData = (byte[]) getExecutionData.invoke(agent, true);
+
+            records.writeUTF(LegacyReportingUtils.getClassName(testPlan, testIdentifier));
+            records.writeUTF(testIdentifier.getLegacyReportingName());
+            records.writeBoolean(testIdentifier.isTest());
+            records.writeInt(executionData.length);
+            records.write(executionData);
+        }
+        catch (IOException | ReflectiveOperationException e) {
+            System.err.println("PerTestCoverageListener: not able to write on " + partialCoverageFile + ": " + e);
+            records = null;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package org.company.junit;
+
+import org.apache.commons.io.FileUtils;
+import org.company.TestExecutor;
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+
+import static org.company.App.logger;
+import static org.company.junit.Const.kTestsRepetitionMaxAttempts;
+
+/**
+ * This class runs the repetitions of a test suite on a bounded pool of workers. Each repetition saves its JUnit
+ * reports in its own folder (named after the number of the repetition) and results are returned ordered by
+ * repetition number, so that their aggregation does not depend on the order in which repetitions complete.
+ * Optionally, each JVM running the tests is pinned to a CPU, and no two repetitions share the same CPU. The
+ * repetitions of more test suites (e.g., on the original and on the protected jar) can also be interleaved
+ */
+public class RepetitionScheduler {
+
+    /**
+     * the maximum number of repetitions running at the same time
+     */
+    private final int concurrencyLevel;
+
+    /**
+     * whether to pin each JVM running the tests to a (dedicated) CPU
+     */
+    private final boolean pinToCPUs;
+
+    /**
+     * Simple constructor
+     * @param concurrencyLevel the maximum number of repetitions running at the same time
+     * @param pinToCPUs whether to pin each JVM running the tests to a (dedicated) CPU
+     */
+    public RepetitionScheduler(int concurrencyLevel, boolean pinToCPUs) {
+
+        if (concurrencyLevel < 1)
+            throw new IllegalArgumentException("the concurrency level must be strictly positive");
+
+        if (pinToCPUs && concurrencyLevel > Runtime.getRuntime().availableProcessors())
+            throw new IllegalArgumentException("cannot pin " + concurrencyLevel + " concurrent repetitions to " +
+                    Runtime.getRuntime().availableProcessors() + " available CPUs");
+
+        this.concurrencyLevel = concurrencyLevel;
+        this.pinToCPUs = pinToCPUs;
+    }
+
+    /**
+     * getter for concurrencyLevel
+     * @return the maximum number of repetitions running at the same time
+     */
+    public int getConcurrencyLevel() {
+        return concurrencyLevel;
+    }
+
+    /**
+     * run a test suite the given number of times
+     * @param repetitionNumber the number of times tests will be repeated
+     * @param directoryWhereToSaveFiles the directory in which to save all output files. Note that this method will
+     *                                  create a folder for each test repetition in which to save JUnit reports
+     * @param testExecutor the test executor object with the jars containing the code to test and the tests
+     * @return for each repetition (in order), the tests sorted by name along with their execution time and outcome
+     * @throws Exception internal exception
+     */
+    public ArrayList<ArrayList<JUnitTest>> runRepetitions
+            (int repetitionNumber, @NotNull File directoryWhereToSaveFiles, TestExecutor testExecutor) throws Exception {
+
+        ArrayList<ArrayList<JUnitTest>> results = new ArrayList<>();
+        runRepetitions(repetitionNumber, directoryWhereToSaveFiles, testExecutor, results::add);
+        return results;
+    }
+
+    /**
+     * run a test suite the given number of times, handing the results of each repetition to the given consumer
+     * as soon as they are available (in order of repetition), so that they do not need to be kept in memory
+     * @param repetitionNumber the number of times tests will be repeated
+     * @param directoryWhereToSaveFiles the directory in which to save all output files. Note that this method will
+     *                                  create a folder for each test repetition in which to save JUnit reports
+     * @param testExecutor the test executor object with the jars containing the code to test and the tests
+     * @param repetitionConsumer the consumer of the tests (sorted by name, along with their execution time and
+     *                           outcome) of each repetition, invoked in order of repetition by the calling thread
+     * @throws Exception internal exception
+     */
+    public void runRepetitions(int repetitionNumber, @NotNull File directoryWhereToSaveFiles,
+                               TestExecutor testExecutor, Consumer<ArrayList<JUnitTest>> repetitionConsumer)
+            throws Exception {
+
+        runRepetitions(1, repetitionNumber, directoryWhereToSaveFiles, testExecutor, repetitionConsumer);
+    }
+
+    /**
+     * run the repetitions of a test suite numbered from firstRepetition to lastRepetition (included), handing the
+     * results of each repetition to the given consumer as soon as they are available (in order of repetition).
+     * This allows to run repetitions in batches, e.g., until the execution metrics are precise enough
+     * @param firstRepetition the number of the first repetition to run (starting from 1)
+     * @param lastRepetition the number of the last repetition to run
+     * @param directoryWhereToSaveFiles the directory in which to save all output files. Note that this method will
+     *                                  create a folder for each test repetition in which to save JUnit reports
+     * @param testExecutor the test executor object with the jars containing the code to test and the tests
+     * @param repetitionConsumer the consumer of the tests (sorted by name, along with their execution time and
+     *                           outcome) of each repetition, invoked in order of repetition by the calling thread
+     * @throws Exception internal exception
+     */
+    public void runRepetitions(int firstRepetition, int lastRepetition, @NotNull File directoryWhereToSaveFiles,
+                               TestExecutor testExecutor, Consumer<ArrayList<JUnitTest>> repetitionConsumer)
+            throws Exception {
+
+        ArrayList<int[]> schedule = new ArrayList<>();
+        for (int repetition = firstRepetition; repetition <= lastRepetition; repetition++)
+            schedule.add(new int[] {0, repetition});
+
+        runSchedule(schedule, lastRepetition, Collections.singletonList(directoryWhereToSaveFiles),
+                Collections.singletonList(testExecutor), Collections.singletonList(repetitionConsumer));
+    }
+
+    /**
+     * run the repetitions of more test suites (e.g., the same tests on the original and on the protected jar)
+     * interleaved, so that any drift in the state of the machine affects all of them alike. Repetitions run in
+     * rounds numbered from firstRound to lastRound (included), and each round runs one repetition of each test
+     * suite: in the order in which the test suites are given (e.g., ABAB) or, if a random generator is given, in
+     * a random order for each round (randomized blocks). The results of each repetition are handed to the consumer
+     * of its test suite as soon as they are available (in order of round)
+     * @param firstRound the number of the first round to run (starting from 1)
+     * @param lastRound the number of the last round to run
+     * @param directoriesWhereToSaveFiles for each test suite, the directory in which to save all output files
+     * @param testExecutors for each test suite, the test executor object with the jars containing the code to
+     *                      test and the tests
+     * @param repetitionConsumers for each test suite, the consumer of the tests (sorted by name, along with their
+     *                            execution time and outcome) of each repetition, invoked by the calling thread
+     * @param random the random generator used to shuffle the test suites in each round, null to keep their order
+     * @throws Exception internal exception
+     */
+    public void runInterleavedRepetitions(int firstRound, int lastRound,
+                                          @NotNull List<File> directoriesWhereToSaveFiles,
+                                          @NotNull List<TestExecutor> testExecutors,
+                                          @NotNull List<Consumer<ArrayList<JUnitTest>>> repetitionConsumers,
+                                          Random random) throws Exception {
+
+        ArrayList<int[]> schedule = new ArrayList<>();
+        for (int round = firstRound; round <= lastRound; round++) {
+
+            ArrayList<Integer> orderOfTestSuites = new ArrayList<>();
+            for (int testSuite = 0; testSuite < testExecutors.size(); testSuite++)
+                orderOfTestSuites.add(testSuite);
+            if (random != null)
+                Collections.shuffle(orderOfTestSuites, random);
+
+            for (int testSuite : orderOfTestSuites)
+                schedule.add(new int[] {testSuite, round});
+        }
+
+        runSchedule(schedule, lastRound, directoriesWhereToSaveFiles, testExecutors, repetitionConsumers);
+    }
+
+    /**
+     * run the given repetitions on the pool of workers, in the given order
+     * @param schedule the repetitions to run, each one as the index of the test suite and the number of the repetition
+     * @param lastRepetition the number of the last repetition (for logging)
+     * @param directoriesWhereToSaveFiles for each test suite, the directory in which to save all output files
+     * @param testExecutors for each test suite, the test executor object
+     * @param repetitionConsumers for each test suite, the consumer of the tests of each repetition, invoked in
+     *                            the order of the schedule by the calling thread
+     * @throws Exception internal exception
+     */
+    private void runSchedule(ArrayList<int[]> schedule, int lastRepetition, List<File> directoriesWhereToSaveFiles,
+                             List<TestExecutor> testExecutors, List<Consumer<ArrayList<JUnitTest>>> repetitionConsumers)
+            throws Exception {
+
+        int numberOfWorkers = Math.min(concurrencyLevel, schedule.size());
+        if (numberOfWorkers > 1 && !testExecutors.stream().allMatch(TestExecutor::supportsConcurrentExecutions)) {
+            logger.warn("[{}{}{} ", "RepetitionScheduler", " (" + "runRepetitions" + ")]: ",
+                    "the test executor does not support concurrent executions, repetitions will run one at a time");
+            numberOfWorkers = 1;
+        }
+
+        // the CPUs not currently assigned to any repetition
+        LinkedBlockingQueue<Integer> availableCPUs = new LinkedBlockingQueue<>();
+        if (pinToCPUs) {
+            for (int cpu = 0; cpu < numberOfWorkers; cpu++)
+                availableCPUs.add(cpu);
+        }
+
+        ExecutorService workers = Executors.newFixedThreadPool(numberOfWorkers);
+        ArrayList<Future<ArrayList<JUnitTest>>> repetitions = new ArrayList<>();
+
+        try {
+            for (int[] scheduledRepetition : schedule) {
+                int testSuite = scheduledRepetition[0];
+                int repetition = scheduledRepetition[1];
+                repetitions.add(workers.submit(() -> runRepetition(repetition, lastRepetition,
+                        directoriesWhereToSaveFiles.get(testSuite), testExecutors.get(testSuite), availableCPUs)));
+            }
+
+            // consume results in the order of the schedule, not in the order of completion
+            for (int i = 0; i < repetitions.size(); i++) {
+                try {
+                    repetitionConsumers.get(schedule.get(i)[0]).accept(repetitions.get(i).get());
+                }
+                catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    throw cause instanceof Exception ? (Exception) cause : new Exception(cause);
+                }
+                // release the results of the repetition
+                repetitions.set(i, null);
+            }
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * run a single repetition of the test suite. If the JUnit process aborts/gets killed (i.e., there are
+     * no JUnit reports), the folder of the repetition is deleted and the repetition is run again, at most
+     * kTestsRepetitionMaxAttempts times
+     * @param repetition the number of the repetition (starting from 1)
+     * @param repetitionNumber the number of the last repetition (for logging)
+     * @param directoryWhereToSaveFiles the directory in which to create the folder of the repetition
+     * @param testExecutor the test executor object with the jars containing the code to test and the tests
+     * @param availableCPUs the CPUs not currently assigned to any repetition (empty if JVMs are not pinned)
+     * @return the tests sorted by name along with their execution time and outcome
+     * @throws Exception internal exception
+     */
+    private ArrayList<JUnitTest> runRepetition(int repetition, int repetitionNumber, File directoryWhereToSaveFiles,
+                                               TestExecutor testExecutor, LinkedBlockingQueue<Integer> availableCPUs)
+            throws Exception {
+
+        Integer cpu = pinToCPUs ? availableCPUs.take() : null;
+
+        try {
+            File testExecutionFolder = new File(directoryWhereToSaveFiles.getAbsolutePath() + "/" + repetition + "/");
+
+            for (int attempt = 1; ; attempt++) {
+
+                logger.info("[{}{}{}{}{}{} ", "RepetitionScheduler", " (" + "runRepetition" + ")]: ",
+                        "Tests repetition ", repetition, " of ", repetitionNumber);
+
+                if (!testExecutionFolder.mkdirs()) {
+                    logger.error("[{}{}{}{} ", "RepetitionScheduler", " (" + "runRepetition" + ")]: ",
+                            "error while creating folder for storing output of tests repetition number :", repetition);
+                    throw new IOException("Error while creating folder for storing output of tests repetition number " + repetition);
+                }
+
+                testExecutor.runTests(testExecutionFolder, cpu);
+
+                try {
+                    ArrayList<JUnitTest> executionMetricsRepetition =
+                            JUnitUtil.parseExecutionMetrics(testExecutionFolder);
+                    executionMetricsRepetition.sort(Comparator.comparing(JUnitTest::getTestFQNName));
+                    return executionMetricsRepetition;
+                }
+                // Sometimes it happens that the JUnit process aborts/gets killed. Therefore, try to repeat the run
+                catch (FileNotFoundException e) {
+
+                    if (attempt == kTestsRepetitionMaxAttempts) {
+                        logger.error("[{}{}{}{}{}{} ", "RepetitionScheduler", " (" + "runRepetition" + ")]: ",
+                                "the test run was killed ", attempt, " times, giving up on repetition number ", repetition);
+                        throw e;
+                    }
+
+                    logger.warn("[{}{}{}{} ", "RepetitionScheduler", " (" + "runRepetition" + ")]: ",
+                            "the test run was killed, trying again repetition number ", repetition);
+                    FileUtils.deleteDirectory(testExecutionFolder);
+                }
+            }
+        }
+        finally {
+            if (cpu != null)
+                availableCPUs.put(cpu);
+        }
+    }
+}
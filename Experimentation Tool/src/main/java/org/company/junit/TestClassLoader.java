@@ -0,0 +1,153 @@
+package org.company.junit;
+
+import org.jetbrains.annotations.NotNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+import static org.company.junit.Const.kTestClassLoaderSharedPackages;
+
+/**
+ * This class loader isolates the classes of a (code jar, tests jar) pair from the classes of this tool. Classes of
+ * the JUnit platform (and of the libraries that the test frameworks expose to test code) are delegated to the
+ * parent class loader, so that the engines loaded by the launcher and the test classes agree on the same
+ * annotations and assertion types. All other classes are first looked up in the jars (child-first), so that the
+ * libraries of this tool (e.g., ASM, commons-io) never shadow the ones bundled in the jar under test
+ */
+public class TestClassLoader extends URLClassLoader {
+
+    static {
+        registerAsParallelCapable();
+    }
+
+    /**
+     * Absolute path to the folder containing eventual native libraries, null if none
+     */
+    private final String pathOfFolderWithNativeLibraries;
+
+    /**
+     * Simple constructor
+     * @param urls the URLs of the jars to load classes from, in lookup order
+     * @param parent the class loader containing the JUnit platform
+     * @param pathOfFolderWithNativeLibraries absolute path to the folder containing eventual native libraries, null if none
+     */
+    private TestClassLoader(URL[] urls, ClassLoader parent, String pathOfFolderWithNativeLibraries) {
+
+        super(urls, parent);
+        this.pathOfFolderWithNativeLibraries = pathOfFolderWithNativeLibraries;
+    }
+
+    /**
+     * create a new class loader for the given (code jar, tests jar) pair. As in the JUnit console classpath, the
+     * jar containing the tests comes before the jar containing the code. The class loader is meant to be reused
+     * across the executions of the same test executor (so that the jars are read, and the native libraries are
+     * loaded, only once) and closed when the executor is shut down. Note that the JVM does not allow a native
+     * library to be loaded by more than one class loader, so at most one class loader at a time should use the
+     * native libraries of a folder
+     * @param pathOfJarToExecute Absolute path of the jar containing the code to execute
+     * @param pathOfJarContainingTests Absolute path of the jar containing the test cases for the code to execute
+     * @param pathOfFolderWithNativeLibraries Absolute path to the folder containing eventual native libraries, null if none
+     * @return the class loader for the given pair of jars
+     */
+    public static TestClassLoader newClassLoader(@NotNull String pathOfJarToExecute,
+                                                 @NotNull String pathOfJarContainingTests,
+                                                 String pathOfFolderWithNativeLibraries) {
+
+        try {
+            URL[] urls = new URL[] {
+                    new File(pathOfJarContainingTests).toURI().toURL(),
+                    new File(pathOfJarToExecute).toURI().toURL()
+            };
+            return new TestClassLoader(urls, TestClassLoader.class.getClassLoader(), pathOfFolderWithNativeLibraries);
+        }
+        catch (MalformedURLException e) {
+            throw new IllegalArgumentException("not able to convert the jar paths in URLs: " + e.getMessage());
+        }
+    }
+
+    /**
+     * check whether a class (or resource) belongs to the packages shared with the parent class loader
+     * @param name the binary name of the class or the path of the resource
+     * @return true if the lookup should be delegated to the parent first
+     */
+    private static boolean isShared(String name) {
+
+        String dottedName = name.replace('/', '.');
+        for (String sharedPackage : kTestClassLoaderSharedPackages) {
+            if (dottedName.startsWith(sharedPackage))
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+
+        if (isShared(name))
+            return super.loadClass(name, resolve);
+
+        synchronized (getClassLoadingLock(name)) {
+
+            Class<?> loadedClass = findLoadedClass(name);
+
+            if (loadedClass == null) {
+                try {
+                    loadedClass = findClass(name);
+                }
+                // not in the jars, so it is either a JDK class or a class of the JUnit platform
+                catch (ClassNotFoundException e) {
+                    loadedClass = getParent().loadClass(name);
+                }
+            }
+
+            if (resolve)
+                resolveClass(loadedClass);
+
+            return loadedClass;
+        }
+    }
+
+    @Override
+    public URL getResource(String name) {
+
+        if (isShared(name))
+            return super.getResource(name);
+
+        URL resource = findResource(name);
+        return resource != null ? resource : getParent().getResource(name);
+    }
+
+    @Override
+    public Enumeration<URL> getResources(String name) throws IOException {
+
+        if (isShared(name))
+            return super.getResources(name);
+
+        List<URL> resources = new ArrayList<>(Collections.list(findResources(name)));
+        resources.addAll(Collections.list(getParent().getResources(name)));
+        return Collections.enumeration(resources);
+    }
+
+    /**
+     * look for native libraries in the given folder, as the "-Djava.library.path" option does for forked JVMs
+     * @param libname the name of the library
+     * @return the absolute path of the library, or null if not found
+     */
+    @Override
+    protected String findLibrary(String libname) {
+
+        if (pathOfFolderWithNativeLibraries != null) {
+            File library = new File(pathOfFolderWithNativeLibraries, System.mapLibraryName(libname));
+            if (library.isFile())
+                return library.getAbsolutePath();
+        }
+        return super.findLibrary(libname);
+    }
+}
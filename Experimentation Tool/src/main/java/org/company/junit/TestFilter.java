@@ -0,0 +1,188 @@
+package org.company.junit;
+
+import org.junit.platform.engine.FilterResult;
+import org.junit.platform.engine.TestDescriptor;
+import org.junit.platform.engine.TestSource;
+import org.junit.platform.engine.support.descriptor.ClassSource;
+import org.junit.platform.engine.support.descriptor.MethodSource;
+import org.junit.platform.launcher.PostDiscoveryFilter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.TreeSet;
+
+/**
+ * This class excludes tests and test classes from the execution without modifying the jar containing the tests
+ * (i.e., instead of adding the @Ignore or @Disabled annotations to them). It is applied as a PostDiscoveryFilter
+ * by the JUnit platform launcher, so that excluded tests are removed from the test plan before the execution.
+ * Tests are identified by the FQN of their class, their name and their desc (as parsed from the JUnit reports),
+ * so that all invocations of a parametrized test are excluded together. Excluding a class excludes also the
+ * class that contains it (if it is a nested class) and all its nested classes. The filter can be saved in a
+ * file (one excluded class or test per line, fields separated by tabs) to be passed to another JVM
+ */
+public class TestFilter implements PostDiscoveryFilter {
+
+    /**
+     * the FQN of the excluded classes, without nested classes (i.e., without anything after '$')
+     */
+    private final HashSet<String> excludedClasses = new HashSet<>();
+
+    /**
+     * the excluded tests, as class FQN + "#" + test name + test desc
+     */
+    private final HashSet<String> excludedTests = new HashSet<>();
+
+
+    /**
+     * Simple constructor, for a filter that excludes nothing
+     */
+    public TestFilter() {
+    }
+
+    /**
+     * Copy constructor, to extend the exclusions of another filter
+     * @param testFilter the filter whose exclusions to copy
+     */
+    public TestFilter(TestFilter testFilter) {
+
+        excludedClasses.addAll(testFilter.excludedClasses);
+        excludedTests.addAll(testFilter.excludedTests);
+    }
+
+    /**
+     * exclude the given tests
+     * @param testsToExclude the tests to exclude
+     * @return this instance of TestFilter
+     */
+    public TestFilter withExcludedTests(Collection<JUnitTest> testsToExclude) {
+
+        for (JUnitTest test : testsToExclude)
+            excludedTests.add(toKey(test.getClassFQN(), test.getMethodName(), test.getDesc()));
+        return this;
+    }
+
+    /**
+     * exclude the given classes (and the classes containing them, if they are nested classes)
+     * @param classesToExclude the classes to exclude
+     * @return this instance of TestFilter
+     */
+    public TestFilter withExcludedClasses(Collection<JUnitClass> classesToExclude) {
+
+        for (JUnitClass testClass : classesToExclude)
+            excludedClasses.add(getOutermostClassFQN(testClass.getClassFQN()));
+        return this;
+    }
+
+    /**
+     * whether this filter excludes nothing
+     * @return true if there are neither excluded classes nor excluded tests
+     */
+    public boolean isEmpty() {
+        return excludedClasses.isEmpty() && excludedTests.isEmpty();
+    }
+
+    /**
+     * decide whether a test or a container (e.g., a class) discovered by the launcher is kept in the test plan
+     * @param testDescriptor the test or container
+     * @return excluded if the test (or class) is excluded, included otherwise
+     */
+    @Override
+    public FilterResult apply(TestDescriptor testDescriptor) {
+
+        TestSource source = testDescriptor.getSource().orElse(null);
+
+        if (source instanceof ClassSource) {
+
+            if (excludedClasses.contains(getOutermostClassFQN(((ClassSource) source).getClassName())))
+                return FilterResult.excluded("class excluded by the test filter");
+        }
+        else if (source instanceof MethodSource) {
+
+            String classFQN = ((MethodSource) source).getClassName();
+            if (excludedClasses.contains(getOutermostClassFQN(classFQN)))
+                return FilterResult.excluded("class excluded by the test filter");
+
+            // the legacy reporting name is the name of the test in the JUnit reports (e.g., "testName(String)[1]")
+            JUnitTest test = JUnitUtil.fromLegacyReportingName(testDescriptor.getLegacyReportingName(), classFQN);
+            if (test != null && excludedTests.contains(toKey(classFQN, test.getMethodName(), test.getDesc())))
+                return FilterResult.excluded("test excluded by the test filter");
+        }
+
+        return FilterResult.included("not excluded by the test filter");
+    }
+
+    /**
+     * save the filter in a file, to be loaded in another JVM (see load)
+     * @param filterFile the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File filterFile) throws IOException {
+
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(filterFile), StandardCharsets.UTF_8))) {
+
+            // sorted, so that the same filter always gives the same file
+            for (String excludedClass : new TreeSet<>(excludedClasses))
+                writer.println("class\t" + excludedClass);
+            for (String excludedTest : new TreeSet<>(excludedTests))
+                writer.println("test\t" + excludedTest);
+
+            if (writer.checkError())
+                throw new IOException("error while writing test filter file " + filterFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * load a filter saved in a file (see save)
+     * @param filterFile the file
+     * @return the filter
+     * @throws IOException if the file cannot be read or it is not a test filter file
+     */
+    public static TestFilter load(File filterFile) throws IOException {
+
+        TestFilter testFilter = new TestFilter();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(filterFile), StandardCharsets.UTF_8))) {
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+
+                if (line.startsWith("class\t"))
+                    testFilter.excludedClasses.add(line.substring("class\t".length()));
+                else if (line.startsWith("test\t"))
+                    testFilter.excludedTests.add(line.substring("test\t".length()));
+                else if (!line.isEmpty())
+                    throw new IOException("unexpected line in test filter file " + filterFile.getAbsolutePath() +
+                            ": " + line);
+            }
+        }
+
+        return testFilter;
+    }
+
+    /**
+     * the key identifying a test in the set of excluded tests
+     * @param classFQN the FQN of the class of the test
+     * @param testName the name of the test
+     * @param testDesc the desc of the test (e.g., "(String)")
+     * @return the key
+     */
+    private static String toKey(String classFQN, String testName, String testDesc) {
+        return classFQN + "#" + testName + testDesc;
+    }
+
+    /**
+     * the FQN of the outermost class, e.g., "org.apache.avro.TestSchemaNormalization" for
+     * "org.apache.avro.TestSchemaNormalization$TestFingerprint"
+     * @param classFQN the FQN of a class, possibly nested
+     * @return the FQN of the outermost class
+     */
+    private static String getOutermostClassFQN(String classFQN) {
+
+        int indexOfNestedClass = classFQN.indexOf('$');
+        return indexOfNestedClass == -1 ? classFQN : classFQN.substring(0, indexOfNestedClass);
+    }
+}
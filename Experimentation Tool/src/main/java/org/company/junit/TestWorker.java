@@ -0,0 +1,156 @@
+package org.company.junit;
+
+import org.junit.platform.launcher.listeners.TestExecutionSummary;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.company.junit.Const.*;
+
+/**
+ * This class is the entry point of a test worker, i.e., a long-lived JVM that loads the jar containing the code and
+ * the jar containing the tests once and then runs the tests every time it is asked to, so that repeated executions
+ * do not pay for JVM startup, class loading and JIT warm-up. The worker reads commands from the standard input and
+ * writes one reply per command on the standard output (fields are separated by tabs):
+ * - "RUN <folder> [<selector> ...]": run the tests (all of them, or only the selected ones) and save the output and
+ *   the JUnit reports in the given folder. The reply is "DONE <number of failed tests>" or "ERROR <message>"
+ * - "QUIT": exit (the worker exits also when the standard input is closed)
+ * With the kTestWorkerOnceOption option, instead, the worker runs the tests once in the given folder, prints
+ * their output on the standard output and exits with the same exit codes of the JUnit console (0 if all tests
+ * succeeded, 1 if some tests failed, 2 in case of errors, whose message is printed on the standard error). With
+ * the kTestWorkerFilterOption option, the tests excluded by the test filter saved in the given file are not
+ * executed.
+ * Note that the worker does not log through the logger of this tool, since it runs in a separate JVM
+ */
+public class TestWorker {
+
+    /**
+     * The main method of the worker
+     * @param args the options (kTestWorkerOnceOption followed by a folder, kTestWorkerFilterOption followed by a
+     *             file), the path of the jar containing the code to execute, the path of the jar containing the
+     *             tests and, optionally, the path of the folder containing eventual native libraries
+     */
+    public static void main(String[] args) {
+
+        ArrayList<String> arguments = new ArrayList<>(Arrays.asList(args));
+        File onceFolder = null;
+        File filterFile = null;
+
+        while (arguments.size() >= 2 && arguments.get(0).startsWith("--")) {
+
+            String option = arguments.remove(0);
+            if (option.equals(kTestWorkerOnceOption))
+                onceFolder = new File(arguments.remove(0));
+            else if (option.equals(kTestWorkerFilterOption))
+                filterFile = new File(arguments.remove(0));
+            else
+                break;
+        }
+
+        if (arguments.size() < 2) {
+            System.err.println("usage: TestWorker [" + kTestWorkerOnceOption + " <folder>] [" +
+                    kTestWorkerFilterOption + " <file>] <jar to execute> <jar containing tests> [<native libraries folder>]");
+            System.exit(2);
+        }
+
+        String pathOfJarToExecute = arguments.get(0);
+        String pathOfJarContainingTests = arguments.get(1);
+        String pathOfFolderWithNativeLibraries = arguments.size() > 2 ? arguments.get(2) : null;
+
+        TestFilter testFilter = null;
+        if (filterFile != null) {
+            try {
+                testFilter = TestFilter.load(filterFile);
+            }
+            catch (IOException e) {
+                System.err.println("IO Exception while loading the test filter: " + e.getMessage());
+                System.exit(2);
+            }
+        }
+
+        ClassLoader classLoader = TestClassLoader.newClassLoader(
+                pathOfJarToExecute, pathOfJarContainingTests, pathOfFolderWithNativeLibraries);
+
+        // NOTE: as for the JUnit console, the order of the jars IS IMPORTANT (first tests, then code)
+        List<Path> classpathRoots = Arrays.asList(Paths.get(pathOfJarContainingTests), Paths.get(pathOfJarToExecute));
+
+        if (onceFolder != null) {
+
+            int exitCode;
+            try {
+                TestExecutionSummary summary = JUnitLauncherUtil.runTests(classLoader, classpathRoots,
+                        Collections.emptyList(), testFilter, onceFolder, System.out);
+                exitCode = summary.getTotalFailureCount() == 0 ? 0 : 1;
+            }
+            // as for the JUnit console, the error is reported in the output of the tests and with the exit code
+            catch (Exception e) {
+                System.err.println("Exception while running the tests: " + e.getMessage());
+                exitCode = 2;
+            }
+
+            // tests may have started non-daemon threads that would keep the JVM alive
+            System.exit(exitCode);
+        }
+
+        // the standard output is reserved to replies, so that whatever the tests print cannot break the protocol
+        PrintStream replies = new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8);
+        System.setOut(System.err);
+
+        try (BufferedReader commands = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))) {
+
+            String command;
+            while ((command = commands.readLine()) != null) {
+
+                String[] fields = command.split("\t");
+
+                if (fields[0].equals(kTestWorkerQuitCommand))
+                    break;
+                else if (fields[0].equals(kTestWorkerRunCommand) && fields.length >= 2)
+                    replies.println(runTests(classLoader, classpathRoots, new File(fields[1]),
+                            Arrays.asList(fields).subList(2, fields.length), testFilter));
+                else
+                    replies.println(kTestWorkerErrorReply + "\t" + "unknown command: " + command);
+            }
+        }
+        catch (IOException e) {
+            System.err.println("IO Exception while reading commands: " + e.getMessage());
+            System.exit(2);
+        }
+
+        // tests may have started non-daemon threads that would keep the JVM alive
+        System.exit(0);
+    }
+
+    /**
+     * run the tests and save the output ("junitOutput.txt") and the JUnit reports in the given folder
+     * @param classLoader the class loader from which test classes (and the code under test) are loaded
+     * @param classpathRoots the jars to scan for tests
+     * @param directoryWhereToSaveFiles directory where to save output files
+     * @param selectors the classes and methods to run, empty to run all tests
+     * @param testFilter the filter excluding tests and classes from the execution, null to exclude nothing
+     * @return the reply to the command
+     */
+    private static String runTests(ClassLoader classLoader, List<Path> classpathRoots,
+                                   File directoryWhereToSaveFiles, List<String> selectors, TestFilter testFilter) {
+
+        File junitOutput = new File(directoryWhereToSaveFiles, "junitOutput.txt");
+
+        try (PrintStream junitOutputStream = new PrintStream(new FileOutputStream(junitOutput), true)) {
+
+            TestExecutionSummary summary = JUnitLauncherUtil.runTests(
+                    classLoader, classpathRoots, selectors, testFilter, directoryWhereToSaveFiles, junitOutputStream);
+
+            return kTestWorkerDoneReply + "\t" + summary.getTotalFailureCount();
+        }
+        // whatever happens, the worker must reply and stay alive
+        catch (Exception e) {
+            return kTestWorkerErrorReply + "\t" + String.valueOf(e.getMessage()).replace('\n', ' ');
+        }
+    }
+}
@@ -44,41 +44,14 @@ public class ObliveTransformator {
 
         try {
 
-            // where we the output of the Oblive jar
-            File obliveOutput = new File(executionDirectory.getAbsolutePath() + "/oblive.txt");
+            int exitStatus = runOblive(executionDirectory, jarToProtectPath, protectedJarPath, nativeLibraryName);
 
-            if (obliveOutput.createNewFile()) {
+            // check also that the code is 0, otherwise there was an error
+            if (exitStatus != 0) {
+                App.logger.error("[{}{}{}{}", "ObliveTransformator ", "(" + "applyADProtections" + ")]: ",
+                        "Oblive process exited with code: ", exitStatus);
 
-                // this process builder is needed to run the Oblive jar
-                ProcessBuilder pbOblive;
-
-                pbOblive = new ProcessBuilder("java", "-jar",
-                        obliveJarPath, jarToProtectPath, protectedJarPath, nativeLibraryName);
-
-                pbOblive.environment().put("JAVA_HOME", JAVA_HOME);
-
-                // redirect also error stream to read eventual errors
-                pbOblive.directory(executionDirectory).redirectErrorStream(true).redirectOutput(obliveOutput);
-                Process pOblive = pbOblive.start();
-                pOblive.waitFor();
-
-                // check also that the code is 0, otherwise there was an error
-                int exitStatus = pOblive.exitValue();
-
-                if (exitStatus != 0) {
-                    App.logger.error("[{}{}{}{}", "ObliveTransformator ", "(" + "applyADProtections" + ")]: ",
-                            "Oblive process exited with code: ", exitStatus);
-
-                    exit(10);
-                }
-            }
-            // this means that we were not able to create the file for the Oblive output
-            else {
-
-                App.logger.error("[{}{}{}", "ObliveTransformator ", "(" + "applyADProtections" + ")]: ",
-                        "Error while creating Oblive output file");
-
-                throw new IOException("Error while creating Oblive output file");
+                exit(10);
             }
         }
         catch (IOException e) {
@@ -94,4 +67,46 @@ public class ObliveTransformator {
             exit(5);
         }
     }
+
+
+    /**
+     * This methods takes as input a jar file annotated and apply the AD protections through Oblive, as
+     * applyADProtections does, but it reports the errors of Oblive to the caller instead of exiting. This
+     * allows to protect more jars at the same time (e.g., each one in its own execution directory)
+     * @param executionDirectory the directory in which to execute Oblive
+     * @param jarToProtectPath the path of the annotated jar to protect
+     * @param protectedJarPath the path of the file in which to save the jar
+     * @param nativeLibraryName the name of the native library that will contain the protected code (name only, no "lib" and ".so")
+     * @return the exit status of the Oblive process (0 if the jar was protected)
+     * @throws IOException if the Oblive process cannot be started or its output file cannot be created
+     * @throws InterruptedException if interrupted while waiting for the Oblive process
+     */
+    public int runOblive(File executionDirectory, String jarToProtectPath, String protectedJarPath,
+                         String nativeLibraryName) throws IOException, InterruptedException {
+
+        // where we the output of the Oblive jar
+        File obliveOutput = new File(executionDirectory.getAbsolutePath() + "/oblive.txt");
+
+        // this means that we were not able to create the file for the Oblive output
+        if (!obliveOutput.createNewFile()) {
+
+            App.logger.error("[{}{}{}", "ObliveTransformator ", "(" + "runOblive" + ")]: ",
+                    "Error while creating Oblive output file");
+
+            throw new IOException("Error while creating Oblive output file");
+        }
+
+        // this process builder is needed to run the Oblive jar
+        ProcessBuilder pbOblive = new ProcessBuilder("java", "-jar",
+                obliveJarPath, jarToProtectPath, protectedJarPath, nativeLibraryName);
+
+        pbOblive.environment().put("JAVA_HOME", JAVA_HOME);
+
+        // redirect also error stream to read eventual errors
+        pbOblive.directory(executionDirectory).redirectErrorStream(true).redirectOutput(obliveOutput);
+        Process pOblive = pbOblive.start();
+        pOblive.waitFor();
+
+        return pOblive.exitValue();
+    }
 }
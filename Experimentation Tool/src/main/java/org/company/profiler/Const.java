@@ -0,0 +1,45 @@
+package org.company.profiler;
+
+/**
+ * simple class to hold generic constant values related to the profiling of methods (see ProfilingAgent)
+ */
+public class Const {
+
+    /**
+     * this is the default name of the file listing the methods to profile, one per line (ASM style,
+     * e.g., "org.company.Triangle.calculatePerimeter([Ljava/lang/String;)", see ASMMethod.getMethodForASM)
+     */
+    public static final String kCandidateMethodsDefaultName = "candidate_methods.txt";
+
+    /**
+     * this is the default name of the file on which the profiling agent writes the profile of the methods
+     */
+    public static final String kMethodProfileDefaultName = "TEST-profile.bin";
+
+    /**
+     * the option of the profiling agent giving the file listing the methods to profile
+     */
+    public static final String kProfilingAgentMethodsOption = "methods";
+
+    /**
+     * the option of the profiling agent giving the file where to write the profile
+     */
+    public static final String kProfilingAgentOutputOption = "output";
+
+    /**
+     * the first 4 bytes of the files of the profile ("Prof" in ASCII), to recognize them
+     */
+    public static final int kMethodProfileFileMagicNumber = 0x50726F66;
+
+    /**
+     * the version of the format of the files of the profile, to be changed whenever the format changes
+     */
+    public static final int kMethodProfileFileFormatVersion = 1;
+
+    /**
+     * the package (internal name) to which the classes of ASM are relocated in the jar of the profiling agent, so that
+     * they do not shadow the classes of ASM (of whatever version) bundled in the jar under test, since the agent jar
+     * is on the system classpath of the JVM running the tests
+     */
+    public static final String kProfilingAgentASMPackage = "org/company/profiler/asm/";
+}
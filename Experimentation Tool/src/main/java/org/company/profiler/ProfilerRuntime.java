@@ -0,0 +1,179 @@
+package org.company.profiler;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.company.profiler.Const.kMethodProfileFileFormatVersion;
+import static org.company.profiler.Const.kMethodProfileFileMagicNumber;
+
+/**
+ * This class collects the profile of the methods instrumented by the ProfilingAgent, i.e., how many times each method
+ * is invoked and the time spent in it (including the methods it invokes). Instrumented methods invoke enter when they
+ * start and exit before each return. Counters are LongAdders, so that threads invoking the same method update
+ * different cells instead of contending for the same one. Each thread keeps a stack of the start times of the
+ * invocations in progress; for recursive methods, only the time of the outermost invocation is added, so that time
+ * is not counted twice. Instrumented methods invoke exit also when an exception is thrown out of them, so that
+ * invocations terminated by an exception are counted (and their time is added) as the others.
+ * NOTE: this class is packed in the jar of the agent (see ProfilerUtil.getProfilingAgentJar), so it must depend only
+ * on the JDK (constants of Const are inlined by the compiler)
+ */
+public final class ProfilerRuntime {
+
+    /**
+     * the number of invocations of each method (by method ID)
+     */
+    private static LongAdder[] invocations = new LongAdder[0];
+
+    /**
+     * the total time (in nanoseconds) spent in each method (by method ID)
+     */
+    private static LongAdder[] inclusiveTimeNanos = new LongAdder[0];
+
+    /**
+     * the invocations in progress in each thread
+     */
+    private static final ThreadLocal<ThreadState> threadStates = ThreadLocal.withInitial(ThreadState::new);
+
+    /**
+     * the class is a collection of static methods
+     */
+    private ProfilerRuntime() {
+    }
+
+    /**
+     * create the counters, before that any instrumented method is invoked
+     * @param numberOfMethods the number of instrumented methods (IDs go from 0 to numberOfMethods - 1)
+     */
+    static void initialize(int numberOfMethods) {
+
+        LongAdder[] newInvocations = new LongAdder[numberOfMethods];
+        LongAdder[] newInclusiveTimeNanos = new LongAdder[numberOfMethods];
+        for (int i = 0; i < numberOfMethods; i++) {
+            newInvocations[i] = new LongAdder();
+            newInclusiveTimeNanos[i] = new LongAdder();
+        }
+
+        invocations = newInvocations;
+        inclusiveTimeNanos = newInclusiveTimeNanos;
+    }
+
+    /**
+     * invoked when an instrumented method starts
+     * @param methodId the ID of the method
+     */
+    public static void enter(int methodId) {
+
+        invocations[methodId].increment();
+        threadStates.get().push(methodId, System.nanoTime());
+    }
+
+    /**
+     * invoked before an instrumented method returns or throws an exception
+     * @param methodId the ID of the method
+     */
+    public static void exit(int methodId) {
+
+        long endTime = System.nanoTime();
+        long startTime = threadStates.get().pop(methodId);
+        if (startTime >= 0)
+            inclusiveTimeNanos[methodId].add(endTime - startTime);
+    }
+
+    /**
+     * write the profile in a file. The file contains the magic number and the version of the format (ints), the
+     * number of methods (int) and, for each method, its signature (UTF), invocations and time (longs). The profile
+     * is written in a temporary file renamed at the end, so that the file exists only if it is complete
+     * @param profileFile the file
+     * @param signatures the signatures of the methods, by method ID
+     * @throws IOException if the file cannot be written
+     */
+    static void dump(File profileFile, String[] signatures) throws IOException {
+
+        File partialProfileFile = new File(profileFile.getAbsolutePath() + ".part");
+
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(partialProfileFile)))) {
+
+            output.writeInt(kMethodProfileFileMagicNumber);
+            output.writeInt(kMethodProfileFileFormatVersion);
+            output.writeInt(signatures.length);
+
+            for (int methodId = 0; methodId < signatures.length; methodId++) {
+                output.writeUTF(signatures[methodId]);
+                output.writeLong(invocations[methodId].sum());
+                output.writeLong(inclusiveTimeNanos[methodId].sum());
+            }
+        }
+
+        if (!partialProfileFile.renameTo(profileFile))
+            throw new IOException("not able to rename " + partialProfileFile + " to " + profileFile);
+    }
+
+    /**
+     * The invocations in progress in a thread, as a stack of method IDs and start times
+     */
+    static final class ThreadState {
+
+        /**
+         * the IDs of the methods of the invocations in progress
+         */
+        private int[] methodIds = new int[64];
+
+        /**
+         * the start times of the invocations in progress (-1 for the invocations of a method that has
+         * another invocation in progress below them in the stack, i.e., recursive invocations)
+         */
+        private long[] startTimes = new long[64];
+
+        /**
+         * the number of invocations in progress
+         */
+        private int size = 0;
+
+        /**
+         * the number of invocations in progress of each method (by method ID)
+         */
+        private final int[] activeInvocations = new int[invocations.length];
+
+        /**
+         * push an invocation that starts
+         * @param methodId the ID of the method
+         * @param startTime the start time of the invocation
+         */
+        void push(int methodId, long startTime) {
+
+            if (size == methodIds.length) {
+                methodIds = Arrays.copyOf(methodIds, size * 2);
+                startTimes = Arrays.copyOf(startTimes, size * 2);
+            }
+
+            methodIds[size] = methodId;
+            startTimes[size] = activeInvocations[methodId]++ == 0 ? startTime : -1;
+            size++;
+        }
+
+        /**
+         * pop the innermost invocation in progress of a method that returns (or throws an exception). The
+         * invocations above it, if any, did not invoke exit (e.g., the code of the method was not reached because
+         * of an error in the JVM), so they are discarded
+         * @param methodId the ID of the method
+         * @return the start time of the invocation, -1 if it is a recursive invocation or it was not found
+         */
+        long pop(int methodId) {
+
+            int index = size - 1;
+            while (index >= 0 && methodIds[index] != methodId)
+                index--;
+
+            if (index < 0)
+                return -1;
+
+            while (size > index) {
+                size--;
+                activeInvocations[methodIds[size]]--;
+            }
+
+            return startTimes[index];
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package org.company.profiler;
+
+import org.company.App;
+import org.company.selection.MethodProfile;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.commons.ClassRemapper;
+import org.objectweb.asm.commons.Remapper;
+
+import java.io.*;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.jar.*;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.company.profiler.Const.*;
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * This class contains the methods to profile the candidate methods to protect with the ProfilingAgent, i.e., to list
+ * the candidate methods, to create the jar of the agent and to read the profile written by the agent
+ */
+public class ProfilerUtil {
+
+    /**
+     * the jar of the profiling agent, created on first use
+     */
+    private static File profilingAgentJar;
+
+
+    /**
+     * write the list of the candidate methods to protect of a jar, to be profiled by the ProfilingAgent. The candidate
+     * methods are the ones that JaCoCo may report as covered and that could be protected, i.e., the methods with code
+     * (not abstract nor native) but constructors, static initializers and bridge methods (filtered out by JaCoCo)
+     * @param pathOfJarWithClasses the path of the jar with the classes
+     * @param methodsFile the file where to write the methods, one per line (see ASMMethod.getMethodForASM)
+     * @param packagesToAnalyze the FQNs of the packages (with their subpackages) of the candidate methods (e.g.,
+     *                          "org.company"), null or empty for all packages (see JaCoCoUtil.analyzeExecFile)
+     * @return the number of candidate methods
+     * @throws IOException if the jar cannot be read or the file cannot be written
+     */
+    public static int writeCandidateMethods(String pathOfJarWithClasses, File methodsFile,
+                                            Collection<String> packagesToAnalyze) throws IOException {
+
+        // sorted, so that the same jar always gives the same file
+        TreeSet<String> candidateMethods = new TreeSet<>();
+
+        ArrayList<String> packagePrefixes = new ArrayList<>();
+        if (packagesToAnalyze != null)
+            for (String packageToAnalyze : packagesToAnalyze)
+                packagePrefixes.add(packageToAnalyze.replace('.', '/') + "/");
+
+        try (ZipFile jarFile = new ZipFile(pathOfJarWithClasses)) {
+
+            Enumeration<? extends ZipEntry> entries = jarFile.entries();
+            while (entries.hasMoreElements()) {
+
+                // classes in "META-INF/versions" are alternative versions of classes that are already in the jar
+                ZipEntry entry = entries.nextElement();
+                if (!entry.getName().endsWith(".class") || entry.getName().startsWith("META-INF/") ||
+                        (!packagePrefixes.isEmpty() && packagePrefixes.stream().noneMatch(entry.getName()::startsWith)))
+                    continue;
+
+                ClassReader classReader;
+                try (InputStream classStream = jarFile.getInputStream(entry)) {
+                    classReader = new ClassReader(classStream.readAllBytes());
+                }
+
+                String classFQN = classReader.getClassName().replace('/', '.');
+                classReader.accept(new ClassVisitor(ASM8) {
+                    @Override
+                    public MethodVisitor visitMethod(int access, String name, String desc, String signature,
+                                                     String[] exceptions) {
+
+                        if ((access & (ACC_ABSTRACT | ACC_NATIVE | ACC_BRIDGE)) == 0 &&
+                                !name.equals("<init>") && !name.equals("<clinit>"))
+                            candidateMethods.add(classFQN + "." + name + desc.substring(0, desc.lastIndexOf(')') + 1));
+                        return null;
+                    }
+                }, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+            }
+        }
+
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(methodsFile), StandardCharsets.UTF_8))) {
+
+            candidateMethods.forEach(writer::println);
+
+            if (writer.checkError())
+                throw new IOException("error while writing candidate methods file " + methodsFile.getAbsolutePath());
+        }
+
+        App.logger.info("[{}{}{}{}{}{}", "ProfilerUtil ", "(" + "writeCandidateMethods" + ")]: ",
+                "written ", candidateMethods.size(), " candidate methods to profile in file: ", methodsFile.getAbsolutePath());
+
+        return candidateMethods.size();
+    }
+
+    /**
+     * read the profile written by the ProfilingAgent (see ProfilerRuntime.dump)
+     * @param profileFile the file with the profile
+     * @return the (measured) profile of the methods, by method (see ASMMethod.getMethodForASM)
+     * @throws IOException if the file cannot be read or it is not a profile file (of this version)
+     */
+    public static HashMap<String, MethodProfile> readProfile(File profileFile) throws IOException {
+
+        HashMap<String, MethodProfile> profiles = new HashMap<>();
+
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(profileFile)))) {
+
+            if (input.readInt() != kMethodProfileFileMagicNumber || input.readInt() != kMethodProfileFileFormatVersion)
+                throw new IOException("file " + profileFile.getAbsolutePath() + " is not a profile file " +
+                        "(or it was written with another version of the format)");
+
+            int numberOfMethods = input.readInt();
+            for (int i = 0; i < numberOfMethods; i++) {
+                String signature = input.readUTF();
+                long invocations = input.readLong();
+                long inclusiveTimeNanos = input.readLong();
+                profiles.put(signature, new MethodProfile(invocations, inclusiveTimeNanos, true));
+            }
+        }
+        catch (EOFException e) {
+            throw new IOException("file " + profileFile.getAbsolutePath() + " is truncated", e);
+        }
+
+        App.logger.info("[{}{}{}{}{}{}", "ProfilerUtil ", "(" + "readProfile" + ")]: ",
+                "read the profile of ", profiles.size(), " methods from file: ", profileFile.getAbsolutePath());
+
+        return profiles;
+    }
+
+    /**
+     * create (once) the jar of the profiling agent, containing the classes of the agent and the classes of ASM
+     * (taken from the classpath of this tool), with the Premain-Class attribute in the manifest. The classes of ASM
+     * are relocated to kProfilingAgentASMPackage (and so are the references to them in the classes of the agent),
+     * so that they do not shadow the classes of ASM bundled in the jar under test
+     * @return the jar (a temporary file deleted on exit)
+     * @throws IOException if the jar cannot be created
+     */
+    public static synchronized File getProfilingAgentJar() throws IOException {
+
+        if (profilingAgentJar != null)
+            return profilingAgentJar;
+
+        File jar = File.createTempFile("profiling-agent", ".jar");
+        jar.deleteOnExit();
+
+        Manifest manifest = new Manifest();
+        manifest.getMainAttributes().put(Attributes.Name.MANIFEST_VERSION, "1.0");
+        manifest.getMainAttributes().put(new Attributes.Name("Premain-Class"), ProfilingAgent.class.getName());
+
+        List<Class<?>> agentClasses = Arrays.asList(ProfilingAgent.class, ProfilingAdapterClass.class,
+                ProfilingAdapterMethod.class, ProfilerRuntime.class, ProfilerRuntime.ThreadState.class);
+
+        try (JarOutputStream jarStream = new JarOutputStream(new FileOutputStream(jar), manifest)) {
+
+            for (Class<?> agentClass : agentClasses) {
+
+                String agentClassFile = agentClass.getName().replace('.', '/') + ".class";
+
+                try (InputStream agentClassStream = agentClass.getResourceAsStream("/" + agentClassFile)) {
+
+                    if (agentClassStream == null)
+                        throw new IOException("class file of " + agentClass.getName() + " not found");
+
+                    jarStream.putNextEntry(new JarEntry(agentClassFile));
+                    jarStream.write(relocateASM(agentClassStream));
+                    jarStream.closeEntry();
+                }
+            }
+
+            copyASMClasses(jarStream);
+        }
+
+        profilingAgentJar = jar;
+        return profilingAgentJar;
+    }
+
+    /**
+     * copy the classes of the core package of ASM (i.e., "org.objectweb.asm", not its subpackages) from
+     * the jar (or folder) from which they were loaded in this tool, relocated to kProfilingAgentASMPackage
+     * @param jarStream the jar where to copy the classes
+     * @throws IOException if the classes cannot be read or copied
+     */
+    private static void copyASMClasses(JarOutputStream jarStream) throws IOException {
+
+        String asmPackageFolder = ClassReader.class.getPackage().getName().replace('.', '/') + "/";
+
+        Path asmLocation;
+        try {
+            asmLocation = Paths.get(ClassReader.class.getProtectionDomain().getCodeSource().getLocation().toURI());
+        }
+        catch (URISyntaxException | NullPointerException e) {
+            throw new IOException("location of the classes of ASM not found", e);
+        }
+
+        if (Files.isDirectory(asmLocation)) {
+            try (Stream<Path> asmClasses = Files.list(asmLocation.resolve(asmPackageFolder))) {
+                for (Path asmClass : (Iterable<Path>) asmClasses::iterator) {
+                    if (asmClass.toString().endsWith(".class")) {
+                        try (InputStream asmClassStream = Files.newInputStream(asmClass)) {
+                            jarStream.putNextEntry(new JarEntry(kProfilingAgentASMPackage + asmClass.getFileName()));
+                            jarStream.write(relocateASM(asmClassStream));
+                            jarStream.closeEntry();
+                        }
+                    }
+                }
+            }
+        }
+        else {
+            try (ZipFile asmJar = new ZipFile(asmLocation.toFile())) {
+
+                Enumeration<? extends ZipEntry> entries = asmJar.entries();
+                while (entries.hasMoreElements()) {
+
+                    ZipEntry entry = entries.nextElement();
+                    String name = entry.getName();
+                    if (!name.startsWith(asmPackageFolder) || !name.endsWith(".class") ||
+                            name.indexOf('/', asmPackageFolder.length()) != -1)
+                        continue;
+
+                    try (InputStream asmClassStream = asmJar.getInputStream(entry)) {
+                        jarStream.putNextEntry(new JarEntry(
+                                kProfilingAgentASMPackage + name.substring(asmPackageFolder.length())));
+                        jarStream.write(relocateASM(asmClassStream));
+                        jarStream.closeEntry();
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * relocate the references to the classes of the core package of ASM in a class to kProfilingAgentASMPackage
+     * @param classStream the class file
+     * @return the relocated class file
+     * @throws IOException if the class file cannot be read
+     */
+    private static byte[] relocateASM(InputStream classStream) throws IOException {
+
+        String asmPackageFolder = ClassReader.class.getPackage().getName().replace('.', '/') + "/";
+
+        Remapper asmRemapper = new Remapper() {
+            @Override
+            public String map(String internalName) {
+                return internalName.startsWith(asmPackageFolder) &&
+                        internalName.indexOf('/', asmPackageFolder.length()) == -1 ?
+                        kProfilingAgentASMPackage + internalName.substring(asmPackageFolder.length()) : internalName;
+            }
+        };
+
+        ClassReader classReader = new ClassReader(classStream);
+        ClassWriter classWriter = new ClassWriter(0);
+        classReader.accept(new ClassRemapper(classWriter, asmRemapper), 0);
+        return classWriter.toByteArray();
+    }
+}
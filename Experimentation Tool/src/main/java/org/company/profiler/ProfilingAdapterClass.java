@@ -0,0 +1,60 @@
+package org.company.profiler;
+
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+
+import java.util.Map;
+
+import static org.objectweb.asm.Opcodes.ACC_ABSTRACT;
+import static org.objectweb.asm.Opcodes.ACC_NATIVE;
+
+/**
+ * This class is a visitor with the purpose of instrumenting the methods of a class to profile (see
+ * ProfilingAdapterMethod). When the class writer is created with the class reader of the visited class,
+ * the methods that are not instrumented are copied as they are
+ */
+public class ProfilingAdapterClass extends ClassVisitor {
+
+    /**
+     * the IDs of the methods to profile (see ProfilerRuntime), by method name and desc without returning type
+     */
+    private final Map<String, Integer> methodIds;
+
+    /**
+     * the version of the visited class file
+     */
+    private int classVersion;
+
+    /**
+     * Simple constructor
+     * @param api the API for this visitor
+     * @param cv the class visitor to which to pass the instrumented class
+     * @param methodIds the IDs of the methods to profile, by method name and desc without returning type
+     *                  (e.g., "calculatePerimeter([Ljava/lang/String;)")
+     */
+    public ProfilingAdapterClass(int api, ClassVisitor cv, Map<String, Integer> methodIds) {
+
+        super(api, cv);
+        this.methodIds = methodIds;
+    }
+
+    @Override
+    public void visit(int version, int access, String name, String signature, String superName, String[] interfaces) {
+
+        classVersion = version;
+        super.visit(version, access, name, signature, superName, interfaces);
+    }
+
+    @Override
+    public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+
+        MethodVisitor methodVisitor = super.visitMethod(access, name, desc, signature, exceptions);
+
+        Integer methodId = methodIds.get(name + desc.substring(0, desc.indexOf(')') + 1));
+        if (methodId == null || methodVisitor == null || (access & (ACC_ABSTRACT | ACC_NATIVE)) != 0 ||
+                name.equals("<init>") || name.equals("<clinit>"))
+            return methodVisitor;
+
+        return new ProfilingAdapterMethod(api, methodVisitor, methodId, classVersion);
+    }
+}
@@ -0,0 +1,98 @@
+package org.company.profiler;
+
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+
+import static org.objectweb.asm.Opcodes.*;
+
+/**
+ * This class is a visitor with the purpose of instrumenting a method to profile it, i.e., to invoke
+ * ProfilerRuntime.enter when the method starts and ProfilerRuntime.exit before each return and when an exception
+ * is thrown out of the method. For the latter, the code of the method is wrapped in a catch-all handler (added after
+ * the handlers of the method, so that they take precedence) that invokes ProfilerRuntime.exit and throws the exception
+ * again. Only the method ID is pushed on the operand stack and no local variable is added, so the existing stack map
+ * frames do not change and the only new frame is the one of the handler (the max stack size has to be computed
+ * again, see ClassWriter.COMPUTE_MAXS)
+ */
+public class ProfilingAdapterMethod extends MethodVisitor {
+
+    /**
+     * the internal name of the class collecting the profile
+     */
+    private static final String kProfilerRuntimeInternalName = ProfilerRuntime.class.getName().replace('.', '/');
+
+    /**
+     * the ID of the method (see ProfilerRuntime)
+     */
+    private final int methodId;
+
+    /**
+     * whether the class file has stack map frames (i.e., its version is at least 50, Java 6)
+     */
+    private final boolean hasFrames;
+
+    /**
+     * the start of the code wrapped in the catch-all handler
+     */
+    private final Label startOfCode = new Label();
+
+    /**
+     * Simple constructor
+     * @param api the API for this visitor
+     * @param mv the method visitor to which to pass the instrumented method
+     * @param methodId the ID of the method (see ProfilerRuntime)
+     * @param classVersion the version of the class file of the method
+     */
+    public ProfilingAdapterMethod(int api, MethodVisitor mv, int methodId, int classVersion) {
+
+        super(api, mv);
+        this.methodId = methodId;
+        this.hasFrames = (classVersion & 0xFFFF) >= V1_6;
+    }
+
+    @Override
+    public void visitCode() {
+
+        super.visitCode();
+        invokeProfilerRuntime("enter");
+        super.visitLabel(startOfCode);
+    }
+
+    @Override
+    public void visitInsn(int opcode) {
+
+        if (opcode >= IRETURN && opcode <= RETURN)
+            invokeProfilerRuntime("exit");
+        super.visitInsn(opcode);
+    }
+
+    @Override
+    public void visitMaxs(int maxStack, int maxLocals) {
+
+        // the handler is visited after the code (and after the labels it refers to) so that it comes last in the
+        // exception table, which the ClassWriter allows as it resolves the labels only when writing the method
+        Label endOfCode = new Label();
+        Label handler = new Label();
+        super.visitLabel(endOfCode);
+        super.visitTryCatchBlock(startOfCode, endOfCode, handler, null);
+
+        // the handler uses no local variable, so its frame can declare none of them
+        super.visitLabel(handler);
+        if (hasFrames)
+            super.visitFrame(F_FULL, 0, new Object[0], 1, new Object[] {"java/lang/Throwable"});
+        invokeProfilerRuntime("exit");
+        super.visitInsn(ATHROW);
+
+        super.visitMaxs(maxStack, maxLocals);
+    }
+
+    /**
+     * add the invocation of a method of the ProfilerRuntime, with the ID of the method as argument
+     * @param methodName the name of the method of the ProfilerRuntime
+     */
+    private void invokeProfilerRuntime(String methodName) {
+
+        super.visitLdcInsn(methodId);
+        super.visitMethodInsn(INVOKESTATIC, kProfilerRuntimeInternalName, methodName, "(I)V", false);
+    }
+}
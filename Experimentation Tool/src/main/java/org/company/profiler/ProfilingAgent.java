@@ -0,0 +1,144 @@
+package org.company.profiler;
+
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassWriter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.lang.instrument.ClassFileTransformer;
+import java.lang.instrument.Instrumentation;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.ProtectionDomain;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static org.company.profiler.Const.kProfilingAgentMethodsOption;
+import static org.company.profiler.Const.kProfilingAgentOutputOption;
+import static org.objectweb.asm.Opcodes.ASM8;
+
+/**
+ * This class is a java agent that profiles a given list of methods, i.e., it counts how many times each method is
+ * invoked and measures the time spent in it (see ProfilerRuntime), which JaCoCo does not report. Only the listed
+ * methods are instrumented, and only with the invocation of a static method at the start and before each return,
+ * so that the overhead is low enough to run the agent alongside the JaCoCo agent. In this case, the JaCoCo agent must
+ * come first in the command line, so that JaCoCo instruments (and identifies) the original classes. The profile is
+ * written in a file when the JVM exits. The options of the agent are given as "methods=<file>,output=<file>":
+ * - methods: the file listing the methods to profile, one per line (see Const.kCandidateMethodsDefaultName)
+ * - output: the file where to write the profile (see ProfilerRuntime.dump)
+ * NOTE: this class is packed in the jar of the agent along with the classes of ASM (see
+ * ProfilerUtil.getProfilingAgentJar), so it must depend only on the JDK and ASM
+ */
+public class ProfilingAgent implements ClassFileTransformer {
+
+    /**
+     * the IDs of the methods to profile, by internal name of the class and then by method
+     * name and desc without returning type (e.g., "calculatePerimeter([Ljava/lang/String;)")
+     */
+    private final HashMap<String, HashMap<String, Integer>> methodIdsByClass;
+
+    /**
+     * Simple constructor
+     * @param methodIdsByClass the IDs of the methods to profile, by internal name of the class and
+     *                         then by method name and desc without returning type
+     */
+    public ProfilingAgent(HashMap<String, HashMap<String, Integer>> methodIdsByClass) {
+        this.methodIdsByClass = methodIdsByClass;
+    }
+
+    /**
+     * the entry point of the agent, invoked by the JVM before the main method
+     * @param agentArgs the options of the agent, as "methods=<file>,output=<file>"
+     * @param instrumentation the instrumentation services of the JVM
+     */
+    public static void premain(String agentArgs, Instrumentation instrumentation) {
+
+        File methodsFile = null;
+        File profileFile = null;
+
+        for (String option : (agentArgs == null ? "" : agentArgs).split(",")) {
+
+            int indexOfEquals = option.indexOf('=');
+            String key = indexOfEquals == -1 ? option : option.substring(0, indexOfEquals);
+            String value = indexOfEquals == -1 ? "" : option.substring(indexOfEquals + 1);
+
+            if (key.equals(kProfilingAgentMethodsOption))
+                methodsFile = new File(value);
+            else if (key.equals(kProfilingAgentOutputOption))
+                profileFile = new File(value);
+        }
+
+        if (methodsFile == null || profileFile == null) {
+            System.err.println("ProfilingAgent: missing options, expected " + kProfilingAgentMethodsOption +
+                    "=<file>," + kProfilingAgentOutputOption + "=<file> (given: " + agentArgs + ")");
+            return;
+        }
+
+        ArrayList<String> signatures = new ArrayList<>();
+        HashMap<String, HashMap<String, Integer>> methodIdsByClass = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(methodsFile.toPath(), StandardCharsets.UTF_8)) {
+
+            // each line is as "org.company.Triangle.calculatePerimeter([Ljava/lang/String;)"
+            String line;
+            while ((line = reader.readLine()) != null) {
+
+                int indexOfOpenParenthesis = line.indexOf('(');
+                int indexOfLastDot = indexOfOpenParenthesis == -1 ? -1 : line.lastIndexOf('.', indexOfOpenParenthesis);
+                if (indexOfLastDot == -1)
+                    continue;
+
+                String classInternalName = line.substring(0, indexOfLastDot).replace('.', '/');
+                String methodKey = line.substring(indexOfLastDot + 1);
+
+                HashMap<String, Integer> methodIds = methodIdsByClass.computeIfAbsent(classInternalName,
+                        key -> new HashMap<>());
+                if (!methodIds.containsKey(methodKey)) {
+                    methodIds.put(methodKey, signatures.size());
+                    signatures.add(line);
+                }
+            }
+        }
+        catch (IOException e) {
+            System.err.println("ProfilingAgent: not able to read " + methodsFile + ": " + e.getMessage());
+            return;
+        }
+
+        ProfilerRuntime.initialize(signatures.size());
+
+        final File finalProfileFile = profileFile;
+        final String[] finalSignatures = signatures.toArray(new String[0]);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                ProfilerRuntime.dump(finalProfileFile, finalSignatures);
+            }
+            catch (IOException e) {
+                System.err.println("ProfilingAgent: not able to write " + finalProfileFile + ": " + e.getMessage());
+            }
+        }));
+
+        instrumentation.addTransformer(new ProfilingAgent(methodIdsByClass));
+    }
+
+    @Override
+    public byte[] transform(ClassLoader loader, String className, Class<?> classBeingRedefined,
+                            ProtectionDomain protectionDomain, byte[] classfileBuffer) {
+
+        HashMap<String, Integer> methodIds = className == null ? null : methodIdsByClass.get(className);
+        if (methodIds == null)
+            return null;
+
+        // an exception in a transformer is silently ignored by the JVM, so we at least report it
+        try {
+            ClassReader classReader = new ClassReader(classfileBuffer);
+            ClassWriter classWriter = new ClassWriter(classReader, ClassWriter.COMPUTE_MAXS);
+            classReader.accept(new ProfilingAdapterClass(ASM8, classWriter, methodIds), 0);
+            return classWriter.toByteArray();
+        }
+        catch (RuntimeException e) {
+            System.err.println("ProfilingAgent: not able to instrument " + className + ": " + e);
+            return null;
+        }
+    }
+}
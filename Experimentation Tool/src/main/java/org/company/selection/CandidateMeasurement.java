@@ -0,0 +1,217 @@
+package org.company.selection;
+
+import org.company.App;
+import org.company.jacoco.JaCoCoMethod;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.company.selection.Const.*;
+
+/**
+ * This class is a simply POJO to collect together a candidate method to protect (one of the top methods ranked by the
+ * selection strategy) and the overhead measured when the candidate alone is protected, so that the overhead of the
+ * protection of the candidates can be compared (see saveReport) before choosing the method to protect
+ */
+public class CandidateMeasurement {
+
+    /**
+     * the rank of the candidate according to the selection strategy (starting from 1)
+     */
+    private final int rank;
+
+    /**
+     * the candidate method
+     */
+    private final JaCoCoMethod method;
+
+    /**
+     * the predicted overhead of the protection of the candidate, null if not predicted
+     */
+    private final Double predictedOverhead;
+
+    /**
+     * whether the candidate was measured or at which step its protection failed (see Const.kCandidateStatus*)
+     */
+    private String status = kCandidateStatusMeasured;
+
+    /**
+     * the number of tests on which the overhead was measured
+     */
+    private int numberOfTests = 0;
+
+    /**
+     * the sum of the average execution times (in seconds) of the tests on the original jar
+     */
+    private double originalExecutionTime = 0;
+
+    /**
+     * the sum of the average execution times (in seconds) of the tests on the jar in which the candidate is protected
+     */
+    private double protectedExecutionTime = 0;
+
+    /**
+     * whether all tests succeeded on the jar in which the candidate is protected
+     */
+    private boolean isSuccessful = false;
+
+    /**
+     * Simple constructor
+     * @param rank the rank of the candidate according to the selection strategy (starting from 1)
+     * @param method the candidate method
+     * @param predictedOverhead the predicted overhead of the protection of the candidate, null if not predicted
+     */
+    public CandidateMeasurement(int rank, JaCoCoMethod method, Double predictedOverhead) {
+
+        this.rank = rank;
+        this.method = method;
+        this.predictedOverhead = predictedOverhead;
+    }
+
+    /**
+     * record that the protection of the candidate failed, so that its overhead cannot be measured
+     * @param status the step at which the protection failed (see Const.kCandidateStatus*)
+     */
+    public void setFailed(String status) {
+        this.status = status;
+    }
+
+    /**
+     * record the execution times of the tests on the original jar and on the jar in which the candidate is protected
+     * @param numberOfTests the number of tests on which the overhead was measured
+     * @param originalExecutionTime the sum of the average execution times (in seconds) of the tests on the original jar
+     * @param protectedExecutionTime the sum of the average execution times (in seconds) of the tests on the protected jar
+     * @param isSuccessful whether all tests succeeded on the protected jar
+     */
+    public void setMeasurement(int numberOfTests, double originalExecutionTime, double protectedExecutionTime,
+                               boolean isSuccessful) {
+
+        this.numberOfTests = numberOfTests;
+        this.originalExecutionTime = originalExecutionTime;
+        this.protectedExecutionTime = protectedExecutionTime;
+        this.isSuccessful = isSuccessful;
+    }
+
+    /**
+     * getter for rank
+     * @return the rank of the candidate according to the selection strategy (starting from 1)
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    /**
+     * getter for method
+     * @return the candidate method
+     */
+    public JaCoCoMethod getMethod() {
+        return method;
+    }
+
+    /**
+     * getter for status
+     * @return whether the candidate was measured or at which step its protection failed
+     */
+    public String getStatus() {
+        return status;
+    }
+
+    /**
+     * whether the candidate was protected and the overhead of its protection was measured
+     * @return true if the candidate was measured, false otherwise
+     */
+    public boolean isMeasured() {
+        return status.equals(kCandidateStatusMeasured);
+    }
+
+    /**
+     * the measured overhead of the protection of the candidate
+     * @return the overhead, relative to the execution time of the tests on the original jar (e.g., 0.5 for +50%),
+     *         or null if the candidate was not measured (or no test was measured)
+     */
+    public Double getMeasuredOverhead() {
+        return !isMeasured() || originalExecutionTime <= 0 ? null : protectedExecutionTime / originalExecutionTime - 1;
+    }
+
+    /**
+     * the cheapest candidate to protect, i.e., the measured candidate with the lowest measured
+     * overhead among the ones on whose protected jar all tests succeeded
+     * @param candidateMeasurements the measured candidates
+     * @return the cheapest candidate, null if no candidate was measured successfully
+     */
+    public static CandidateMeasurement getCheapest(List<CandidateMeasurement> candidateMeasurements) {
+
+        return candidateMeasurements.stream()
+                .filter(candidateMeasurement -> candidateMeasurement.isSuccessful &&
+                        candidateMeasurement.getMeasuredOverhead() != null)
+                .min(Comparator.comparingDouble(CandidateMeasurement::getMeasuredOverhead))
+                .orElse(null);
+    }
+
+    /**
+     * save the measured candidates in a CSV file, one per line in order of rank. Overheads are relative to the
+     * execution time of the tests (e.g., 0.5 for +50%), and times are in seconds. Below an example of the file
+     *
+     * rank | method          | score | predicted_overhead_estimate | status   | tests | ... | measured_overhead | ...
+     * _____|_________________|_______|_____________________________|__________|_______|_____|___________________|____
+     * 1    | p.Calc.add(II)I | 57    | 0.0312                      | measured | 12    | ... | 0.0451            | ...
+     *
+     * The predicted overhead is only a coarse estimate (see Const.kPredictedOverheadLabel), reported to be
+     * compared with the measured one
+     *
+     * @param candidateMeasurements the measured candidates
+     * @param reportFile the file
+     * @throws IOException if the file cannot be written
+     */
+    public static void saveReport(List<CandidateMeasurement> candidateMeasurements, File reportFile)
+            throws IOException {
+
+        ArrayList<CandidateMeasurement> candidateMeasurementsByRank = new ArrayList<>(candidateMeasurements);
+        candidateMeasurementsByRank.sort(Comparator.comparingInt(CandidateMeasurement::getRank));
+
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(reportFile), StandardCharsets.UTF_8))) {
+
+            writer.println("rank,method,score,predicted_overhead_estimate,status,tests," +
+                    "original_jar_execution_time,protected_jar_execution_time,measured_overhead," +
+                    "protected_jar_is_successful");
+
+            for (CandidateMeasurement candidateMeasurement : candidateMeasurementsByRank) {
+
+                Double measuredOverhead = candidateMeasurement.getMeasuredOverhead();
+                boolean isMeasured = candidateMeasurement.isMeasured();
+
+                writer.println(candidateMeasurement.rank + "," +
+                        candidateMeasurement.method.getMethodForASM() + "," +
+                        candidateMeasurement.method.calculateScore() + "," +
+                        (candidateMeasurement.predictedOverhead == null ? "" : candidateMeasurement.predictedOverhead) + "," +
+                        candidateMeasurement.status + "," +
+                        (isMeasured ? candidateMeasurement.numberOfTests : "") + "," +
+                        (isMeasured ? candidateMeasurement.originalExecutionTime : "") + "," +
+                        (isMeasured ? candidateMeasurement.protectedExecutionTime : "") + "," +
+                        (measuredOverhead == null ? "" : measuredOverhead) + "," +
+                        (isMeasured ? candidateMeasurement.isSuccessful : ""));
+            }
+
+            if (writer.checkError())
+                throw new IOException("error while writing candidate methods report " + reportFile.getAbsolutePath());
+        }
+
+        App.logger.info("[{}{}{}{}{}{}", "CandidateMeasurement ", "(" + "saveReport" + ")]: ",
+                "written the measured overhead of ", candidateMeasurements.size(), " candidate methods in file: ",
+                reportFile.getAbsolutePath());
+    }
+
+    @Override
+    public String toString() {
+
+        Double measuredOverhead = getMeasuredOverhead();
+        return "#" + rank + " " + method.getMethodForASM() + " (" + status +
+                (measuredOverhead == null ? "" : String.format(", measured overhead: %.4f%%", measuredOverhead * 100)) +
+                (predictedOverhead == null ? "" : String.format(", " + kPredictedOverheadLabel + ": %.4f%%", predictedOverhead * 100)) +
+                (!isMeasured() || isSuccessful ? "" : ", some tests failed") + ")";
+    }
+}
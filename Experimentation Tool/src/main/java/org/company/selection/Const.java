@@ -0,0 +1,66 @@
+package org.company.selection;
+
+/**
+ * simple class to hold generic constant values related to the selection of the method to protect
+ */
+public class Const {
+
+    /**
+     * the strategy selecting the method to protect by coverage only (see CoverageSelectionStrategy)
+     */
+    public static final String kMethodSelectionStrategyCoverage = "coverage";
+
+    /**
+     * the strategy selecting the method to protect by coverage under a maximum predicted
+     * overhead of the protection (see OverheadAwareSelectionStrategy)
+     */
+    public static final String kMethodSelectionStrategyOverhead = "overhead";
+
+    /**
+     * the default max overhead of the protection (relative to the execution time of the tests, i.e., 1 for +100%)
+     */
+    public static final double kMaximumOverheadDefaultValue = 1.0;
+
+    /**
+     * the estimated cost (in nanoseconds) added to each invocation of a protected method, regardless of its code.
+     * Oblive moves the code of the method to native code, so that each invocation crosses the JNI boundary and runs
+     * the anti-debugging checks. This is a coarse estimate that was not calibrated against measured overheads, so
+     * predicted overheads are reported as such (see kPredictedOverheadLabel)
+     */
+    public static final double kProtectedInvocationCostNanos = 2_000;
+
+    /**
+     * the estimated slowdown of the code of a protected method (i.e., the protected code takes this many times the
+     * time of the original code), as field accesses and invocations from native code go through JNI. As for
+     * kProtectedInvocationCostNanos, this is a coarse estimate that was not calibrated against measured overheads
+     */
+    public static final double kProtectedCodeSlowdownFactor = 10;
+
+    /**
+     * the estimated time (in nanoseconds) to execute a bytecode instruction, used when the time
+     * spent in a method was not measured (i.e., it is estimated from the instructions covered)
+     */
+    public static final double kEstimatedInstructionTimeNanos = 1;
+
+    /**
+     * the label of the predicted overheads in the outputs (selection file, logs and candidate methods report), as
+     * the cost model (see kProtectedInvocationCostNanos) is not calibrated and the profile may be estimated from
+     * coverage only. Only the measured overhead of the candidate methods (see CandidateMeasurement) is accurate
+     */
+    public static final String kPredictedOverheadLabel = "predicted overhead (coarse estimate)";
+
+    /**
+     * the status of a candidate method to protect that was protected and whose overhead was measured
+     */
+    public static final String kCandidateStatusMeasured = "measured";
+
+    /**
+     * the status of a candidate method to protect that the annotator was not able to annotate
+     */
+    public static final String kCandidateStatusAnnotatorFailed = "annotator_failed";
+
+    /**
+     * the status of a candidate method to protect that Oblive was not able to protect
+     */
+    public static final String kCandidateStatusObliveFailed = "oblive_failed";
+}
@@ -0,0 +1,34 @@
+package org.company.selection;
+
+import org.company.jacoco.JaCoCoMethod;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import static org.company.selection.Const.kMethodSelectionStrategyCoverage;
+
+/**
+ * This strategy ranks the methods by their coverage only, i.e., by their score (see JaCoCoMethod.calculateScore).
+ * Methods with a score of 0 (e.g., constructors) cannot be protected. The overhead is not predicted
+ */
+public class CoverageSelectionStrategy implements MethodSelectionStrategy {
+
+    @Override
+    public String getName() {
+        return kMethodSelectionStrategyCoverage;
+    }
+
+    @Override
+    public ArrayList<JaCoCoMethod> rank(ArrayList<JaCoCoMethod> candidates) {
+
+        ArrayList<JaCoCoMethod> rankedMethods = new ArrayList<>(candidates);
+        rankedMethods.removeIf(method -> method.calculateScore() <= 0);
+        rankedMethods.sort(Comparator.comparing(JaCoCoMethod::calculateScore).reversed());
+        return rankedMethods;
+    }
+
+    @Override
+    public Double predictOverhead(JaCoCoMethod method) {
+        return null;
+    }
+}
@@ -0,0 +1,117 @@
+package org.company.selection;
+
+import org.company.App;
+import org.company.jacoco.CoverageMatrix;
+import org.company.jacoco.JaCoCoMethod;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import static org.company.selection.Const.kEstimatedInstructionTimeNanos;
+
+/**
+ * This class is a simply POJO to collect together how many times a method is invoked while tests run and the
+ * time spent in it (including the methods it invokes), either measured or estimated from the coverage of tests
+ */
+public class MethodProfile {
+
+    /**
+     * the number of invocations of the method
+     */
+    private final long invocations;
+
+    /**
+     * the total time (in nanoseconds) spent in the method, including the methods it invokes
+     */
+    private final double inclusiveTimeNanos;
+
+    /**
+     * true if invocations and time were measured, false if they were estimated
+     */
+    private final boolean isMeasured;
+
+    /**
+     * Simple constructor
+     * @param invocations the number of invocations of the method
+     * @param inclusiveTimeNanos the total time (in nanoseconds) spent in the method, including the methods it invokes
+     * @param isMeasured true if invocations and time were measured, false if they were estimated
+     */
+    public MethodProfile(long invocations, double inclusiveTimeNanos, boolean isMeasured) {
+
+        this.invocations = invocations;
+        this.inclusiveTimeNanos = inclusiveTimeNanos;
+        this.isMeasured = isMeasured;
+    }
+
+    /**
+     * estimate the profile of methods from their coverage, when the profile was not measured. Each method is
+     * assumed to be invoked once by each test executing it (i.e., the estimate is a lower bound for hot methods)
+     * and each invocation is assumed to execute all the covered instructions of the method once
+     * @param methods the methods, with their coverage
+     * @param coverageMatrix the methods executed by each test, null if not available. In this case, each method
+     *                       is assumed to be executed by all tests
+     * @param numberOfTests the number of tests that were executed to collect the coverage
+     * @return the estimated profiles, by method (see ASMMethod.getMethodForASM)
+     */
+    public static HashMap<String, MethodProfile> estimateFromCoverage(ArrayList<JaCoCoMethod> methods,
+                                                                      CoverageMatrix coverageMatrix, int numberOfTests) {
+
+        App.logger.info("[{}{}{}{}", "MethodProfile ", "(" + "estimateFromCoverage" + ")]: ",
+                "estimating the profile of methods from their coverage ",
+                coverageMatrix == null ? "(without per-test coverage)" : "(with per-test coverage)");
+
+        HashMap<String, MethodProfile> profiles = new HashMap<>();
+
+        for (JaCoCoMethod method : methods) {
+
+            long invocations = coverageMatrix == null ? numberOfTests : coverageMatrix.getNumberOfTestsExecuting(method);
+            double invocationTimeNanos = method.getInstructionsCovered() * kEstimatedInstructionTimeNanos;
+            profiles.put(method.getMethodForASM(), new MethodProfile(invocations, invocations * invocationTimeNanos, false));
+        }
+
+        return profiles;
+    }
+
+    /**
+     * getter for invocations
+     * @return the number of invocations of the method
+     */
+    public long getInvocations() {
+        return invocations;
+    }
+
+    /**
+     * getter for inclusiveTimeNanos
+     * @return the total time (in nanoseconds) spent in the method, including the methods it invokes
+     */
+    public double getInclusiveTimeNanos() {
+        return inclusiveTimeNanos;
+    }
+
+    /**
+     * the mean time (in nanoseconds) of an invocation of the method
+     * @return the mean time of an invocation, 0 if the method was never invoked
+     */
+    public double getInvocationTimeNanos() {
+        return invocations == 0 ? 0 : inclusiveTimeNanos / invocations;
+    }
+
+    /**
+     * getter for isMeasured
+     * @return true if invocations and time were measured, false if they were estimated
+     */
+    public boolean isMeasured() {
+        return isMeasured;
+    }
+
+    /**
+     * Override the toString method to return the info about this instance
+     * @return a string representing this instance
+     */
+    @Override
+    public String toString () {
+
+        return (isMeasured ? "measured" : "estimated") + " invocations " + invocations +
+                ", time per invocation " + String.format("%.1f", getInvocationTimeNanos()) + " ns";
+    }
+}
@@ -0,0 +1,138 @@
+package org.company.selection;
+
+import org.company.App;
+import org.company.jacoco.JaCoCoMethod;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+import static org.company.selection.Const.kPredictedOverheadLabel;
+
+/**
+ * The result of the selection of the method to protect with a strategy (see select), i.e., the method to protect
+ * (if any) along with the predicted overhead of its protection and the candidates that were considered
+ */
+public class MethodSelection {
+
+    /**
+     * the strategy that selected the method
+     */
+    private final MethodSelectionStrategy strategy;
+
+    /**
+     * the methods that can be protected according to the strategy, the best one first
+     */
+    private final ArrayList<JaCoCoMethod> rankedMethods;
+
+    /**
+     * the number of methods among which the method was selected
+     */
+    private final int numberOfCandidates;
+
+    /**
+     * Simple constructor
+     * @param strategy the strategy that selected the method
+     * @param rankedMethods the methods that can be protected according to the strategy, the best one first
+     * @param numberOfCandidates the number of methods among which the method was selected
+     */
+    private MethodSelection(MethodSelectionStrategy strategy, ArrayList<JaCoCoMethod> rankedMethods,
+                            int numberOfCandidates) {
+
+        this.strategy = strategy;
+        this.rankedMethods = rankedMethods;
+        this.numberOfCandidates = numberOfCandidates;
+    }
+
+    /**
+     * select the method to protect among the methods covered by tests
+     * @param strategy the strategy to use
+     * @param candidates the methods covered by tests, with their coverage
+     * @return the selection (see getMethodToProtect)
+     */
+    public static MethodSelection select(MethodSelectionStrategy strategy, ArrayList<JaCoCoMethod> candidates) {
+
+        MethodSelection methodSelection = new MethodSelection(strategy, strategy.rank(candidates), candidates.size());
+
+        App.logger.info("[{}{}{}{}{}{}", "MethodSelection ", "(" + "select" + ")]: ",
+                "strategy " + strategy.getName() + " ranked ", methodSelection.rankedMethods.size(),
+                " methods that can be protected over ", candidates.size() + " candidates");
+
+        return methodSelection;
+    }
+
+    /**
+     * the method to protect
+     * @return the method to protect, null if no method can be protected according to the strategy
+     */
+    public JaCoCoMethod getMethodToProtect() {
+        return rankedMethods.isEmpty() ? null : rankedMethods.get(0);
+    }
+
+    /**
+     * the predicted overhead of the protection of the method to protect
+     * @return the predicted overhead, relative to the execution time of the tests (e.g., 0.5 for +50%),
+     *         or null if there is no method to protect or the strategy does not predict the overhead
+     */
+    public Double getPredictedOverhead() {
+        return rankedMethods.isEmpty() ? null : strategy.predictOverhead(rankedMethods.get(0));
+    }
+
+    /**
+     * the predicted overhead of the protection of one of the ranked methods (e.g., of a candidate to protect other
+     * than the method to protect)
+     * @param method the method
+     * @return the predicted overhead, relative to the execution time of the tests (e.g., 0.5 for +50%),
+     *         or null if the strategy does not predict the overhead
+     */
+    public Double getPredictedOverhead(JaCoCoMethod method) {
+        return strategy.predictOverhead(method);
+    }
+
+    /**
+     * getter for rankedMethods
+     * @return the methods that can be protected according to the strategy, the best one first
+     */
+    public ArrayList<JaCoCoMethod> getRankedMethods() {
+        return rankedMethods;
+    }
+
+    /**
+     * save the selection in a file. The first line is the signature of the method to protect (ASM style, see
+     * ASMMethod.getMethodForASM), then each line reports a detail of the selection as "key: value"
+     * @param selectionFile the file
+     * @throws IOException if the file cannot be written
+     */
+    public void save(File selectionFile) throws IOException {
+
+        JaCoCoMethod methodToProtect = getMethodToProtect();
+        Double predictedOverhead = getPredictedOverhead();
+
+        try (PrintWriter writer = new PrintWriter(new OutputStreamWriter(
+                new FileOutputStream(selectionFile), StandardCharsets.UTF_8))) {
+
+            writer.println(methodToProtect == null ? "" : methodToProtect.getMethodForASM());
+            writer.println("strategy: " + strategy.getName());
+            writer.println("candidates: " + numberOfCandidates);
+            writer.println("methods that can be protected: " + rankedMethods.size());
+
+            if (methodToProtect != null) {
+                writer.println("score: " + methodToProtect.calculateScore());
+                writer.println("coverage: " + methodToProtect);
+            }
+
+            writer.println(kPredictedOverheadLabel + ": " +
+                    (predictedOverhead == null ? "not predicted" : String.format("%.4f%%", predictedOverhead * 100)));
+
+            if (strategy instanceof OverheadAwareSelectionStrategy) {
+                OverheadAwareSelectionStrategy overheadAwareStrategy = (OverheadAwareSelectionStrategy) strategy;
+                writer.println("maximum overhead: " + String.format("%.2f%%", overheadAwareStrategy.getMaximumOverhead() * 100));
+                if (methodToProtect != null)
+                    writer.println("profile: " + overheadAwareStrategy.getProfile(methodToProtect));
+            }
+
+            if (writer.checkError())
+                throw new IOException("error while writing method selection file " + selectionFile.getAbsolutePath());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package org.company.selection;
+
+import org.company.jacoco.JaCoCoMethod;
+
+import java.util.ArrayList;
+
+/**
+ * A strategy to select the method to protect among the methods covered by tests (see MethodSelection.select)
+ */
+public interface MethodSelectionStrategy {
+
+    /**
+     * the name of the strategy (e.g., kMethodSelectionStrategyCoverage), for the reports
+     * @return the name of the strategy
+     */
+    String getName();
+
+    /**
+     * rank the candidate methods to protect, excluding the ones that cannot be protected according to the strategy
+     * @param candidates the methods covered by tests, with their coverage (the array is not modified)
+     * @return the methods that can be protected, the best one first
+     */
+    ArrayList<JaCoCoMethod> rank(ArrayList<JaCoCoMethod> candidates);
+
+    /**
+     * predict the overhead that protecting a method adds to the execution time of the tests
+     * @param method the method
+     * @return the predicted overhead, relative to the execution time of the tests (e.g., 0.5 for +50%),
+     *         or null if the strategy does not predict the overhead
+     */
+    Double predictOverhead(JaCoCoMethod method);
+}
@@ -0,0 +1,120 @@
+package org.company.selection;
+
+import org.company.App;
+import org.company.jacoco.JaCoCoMethod;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+
+import static org.company.selection.Const.*;
+
+/**
+ * This strategy ranks the methods by their coverage (see JaCoCoMethod.calculateScore), excluding the methods whose
+ * protection is predicted to add more than a max overhead to the execution time of the tests. Methods with the same
+ * score are ranked by predicted overhead. The overhead of protecting a method is predicted from how many times the
+ * method is invoked and from the time of each invocation (see MethodProfile). Each invocation of the protected
+ * method costs kProtectedInvocationCostNanos more and its code is kProtectedCodeSlowdownFactor times slower, so:
+ *      predicted overhead = invocations * (kProtectedInvocationCostNanos + invocation time * (slowdown factor - 1))
+ *                           / execution time of the tests
+ * A hot method (i.e., invoked many times by tests) is therefore not selected even if it is the most covered one
+ */
+public class OverheadAwareSelectionStrategy implements MethodSelectionStrategy {
+
+    /**
+     * the profile of the methods, by method (see ASMMethod.getMethodForASM)
+     */
+    private final HashMap<String, MethodProfile> profiles;
+
+    /**
+     * the execution time (in nanoseconds) of the tests on the original code
+     */
+    private final double testsExecutionTimeNanos;
+
+    /**
+     * the max predicted overhead of the method to protect (relative to the execution time of the tests)
+     */
+    private final double maximumOverhead;
+
+    /**
+     * Simple constructor
+     * @param profiles the profile of the methods, by method (see ASMMethod.getMethodForASM). Methods without
+     *                 a profile are assumed to be never invoked
+     * @param testsExecutionTimeNanos the execution time (in nanoseconds) of the tests on the original code
+     * @param maximumOverhead the max predicted overhead of the method to protect (relative to the
+     *                        execution time of the tests, e.g., 0.5 for +50%)
+     */
+    public OverheadAwareSelectionStrategy(HashMap<String, MethodProfile> profiles, double testsExecutionTimeNanos,
+                                          double maximumOverhead) {
+
+        this.profiles = profiles;
+        this.testsExecutionTimeNanos = testsExecutionTimeNanos;
+        this.maximumOverhead = maximumOverhead;
+    }
+
+    @Override
+    public String getName() {
+        return kMethodSelectionStrategyOverhead;
+    }
+
+    @Override
+    public ArrayList<JaCoCoMethod> rank(ArrayList<JaCoCoMethod> candidates) {
+
+        // the overhead is predicted once for each method, not at each comparison
+        HashMap<JaCoCoMethod, Double> predictedOverheads = new HashMap<>();
+
+        ArrayList<JaCoCoMethod> rankedMethods = new ArrayList<>();
+        for (JaCoCoMethod candidate : candidates) {
+
+            if (candidate.calculateScore() <= 0)
+                continue;
+
+            double predictedOverhead = predictOverhead(candidate);
+            if (predictedOverhead <= maximumOverhead) {
+                predictedOverheads.put(candidate, predictedOverhead);
+                rankedMethods.add(candidate);
+            }
+            else
+                App.logger.info("[{}{}{}{}{}{}", "OverheadAwareSelectionStrategy ", "(" + "rank" + ")]: ",
+                        "excluding method ", candidate.getMethodForASM(), " with " + kPredictedOverheadLabel + " ",
+                        String.format("%.2f%%", predictedOverhead * 100) + " (" + getProfile(candidate) + ")");
+        }
+
+        rankedMethods.sort(Comparator.comparing(JaCoCoMethod::calculateScore).reversed()
+                .thenComparing(predictedOverheads::get));
+
+        return rankedMethods;
+    }
+
+    @Override
+    public Double predictOverhead(JaCoCoMethod method) {
+
+        MethodProfile profile = getProfile(method);
+
+        double overheadNanos = profile.getInvocations() * (kProtectedInvocationCostNanos +
+                profile.getInvocationTimeNanos() * (kProtectedCodeSlowdownFactor - 1));
+
+        // if the execution time of the tests is unknown, any invocation exceeds the budget
+        if (testsExecutionTimeNanos <= 0)
+            return overheadNanos == 0 ? 0 : Double.POSITIVE_INFINITY;
+
+        return overheadNanos / testsExecutionTimeNanos;
+    }
+
+    /**
+     * the profile of a method
+     * @param method the method
+     * @return the profile of the method (with no invocations, if the method has no profile)
+     */
+    public MethodProfile getProfile(JaCoCoMethod method) {
+        return profiles.getOrDefault(method.getMethodForASM(), new MethodProfile(0, 0, false));
+    }
+
+    /**
+     * getter for maximumOverhead
+     * @return the max predicted overhead of the method to protect (relative to the execution time of the tests)
+     */
+    public double getMaximumOverhead() {
+        return maximumOverhead;
+    }
+}